@@ -248,6 +248,13 @@ public class EurekaClientConfigBean implements EurekaClientConfig, Ordered {
 	 */
 	private boolean gZipContent = true;
 
+	/**
+	 * Indicates whether the registry information should be fetched from eureka server
+	 * in the binary Smile format whenever it is supported by the server. Only used by
+	 * the RestTemplate based transport and requires jackson-dataformat-smile.
+	 */
+	private boolean smileContent = false;
+
 	/**
 	 * Indicates whether the eureka client should use the DNS mechanism to fetch a list of
 	 * eureka servers to talk to. When the DNS name is updated to have additional servers,
@@ -770,6 +777,14 @@ public class EurekaClientConfigBean implements EurekaClientConfig, Ordered {
 		this.gZipContent = gZipContent;
 	}
 
+	public boolean isSmileContent() {
+		return smileContent;
+	}
+
+	public void setSmileContent(boolean smileContent) {
+		this.smileContent = smileContent;
+	}
+
 	public boolean isUseDnsForFetchingServiceUrls() {
 		return useDnsForFetchingServiceUrls;
 	}
@@ -950,6 +965,7 @@ public class EurekaClientConfigBean implements EurekaClientConfig, Ordered {
 				cacheRefreshExecutorThreadPoolSize == that.cacheRefreshExecutorThreadPoolSize &&
 				cacheRefreshExecutorExponentialBackOffBound == that.cacheRefreshExecutorExponentialBackOffBound &&
 				gZipContent == that.gZipContent &&
+				smileContent == that.smileContent &&
 				useDnsForFetchingServiceUrls == that.useDnsForFetchingServiceUrls &&
 				registerWithEureka == that.registerWithEureka &&
 				preferSameZoneEureka == that.preferSameZoneEureka &&
@@ -996,6 +1012,7 @@ public class EurekaClientConfigBean implements EurekaClientConfig, Ordered {
 				heartbeatExecutorThreadPoolSize, heartbeatExecutorExponentialBackOffBound,
 				cacheRefreshExecutorThreadPoolSize,
 				cacheRefreshExecutorExponentialBackOffBound, serviceUrl, gZipContent,
+				smileContent,
 				useDnsForFetchingServiceUrls, registerWithEureka, preferSameZoneEureka,
 				logDeltaDiff, disableDelta, fetchRemoteRegionsRegistry, availabilityZones,
 				filterOnlyUpInstances, fetchRegistry, dollarReplacement,
@@ -1035,6 +1052,7 @@ public class EurekaClientConfigBean implements EurekaClientConfig, Ordered {
 				.append("cacheRefreshExecutorExponentialBackOffBound=").append(cacheRefreshExecutorExponentialBackOffBound).append(", ")
 				.append("serviceUrl=").append(serviceUrl).append(", ")
 				.append("gZipContent=").append(gZipContent).append(", ")
+				.append("smileContent=").append(smileContent).append(", ")
 				.append("useDnsForFetchingServiceUrls=").append(useDnsForFetchingServiceUrls).append(", ")
 				.append("registerWithEureka=").append(registerWithEureka).append(", ")
 				.append("preferSameZoneEureka=").append(preferSameZoneEureka).append(", ")
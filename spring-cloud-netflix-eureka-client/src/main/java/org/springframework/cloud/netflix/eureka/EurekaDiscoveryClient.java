@@ -19,13 +19,18 @@ package org.springframework.cloud.netflix.eureka;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.netflix.appinfo.EurekaInstanceConfig;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.EurekaClientConfig;
+import com.netflix.discovery.EurekaEventListener;
 import com.netflix.discovery.shared.Application;
 import com.netflix.discovery.shared.Applications;
 
@@ -38,6 +43,11 @@ import org.springframework.util.Assert;
 import static com.netflix.appinfo.InstanceInfo.PortType.SECURE;
 
 /**
+ * A {@link DiscoveryClient} for Eureka. The service instances and the service names
+ * are computed once per refresh of the Eureka client cache, signalled by a
+ * {@link CacheRefreshedEvent} or a new {@link Applications}, and returned as
+ * unmodifiable lists until the next refresh.
+ *
  * @author Spencer Gibb
  * @author Tim Ysewyn
  */
@@ -48,6 +58,16 @@ public class EurekaDiscoveryClient implements DiscoveryClient {
 	private final EurekaClient eurekaClient;
 	private final EurekaClientConfig clientConfig;
 
+	private volatile Snapshot snapshot;
+
+	private final AtomicLong refreshes = new AtomicLong();
+
+	private final EurekaEventListener cacheRefreshListener = event -> {
+		if (event instanceof CacheRefreshedEvent) {
+			this.refreshes.incrementAndGet();
+		}
+	};
+
 	@Deprecated
 	public EurekaDiscoveryClient(EurekaInstanceConfig config, EurekaClient eurekaClient) {
 		this(eurekaClient, eurekaClient.getEurekaClientConfig());
@@ -65,11 +85,25 @@ public class EurekaDiscoveryClient implements DiscoveryClient {
 
 	@Override
 	public List<ServiceInstance> getInstances(String serviceId) {
-		List<InstanceInfo> infos = this.eurekaClient.getInstancesByVipAddress(serviceId,
-				false);
-		List<ServiceInstance> instances = new ArrayList<>();
-		for (InstanceInfo info : infos) {
-			instances.add(new EurekaServiceInstance(info));
+		Snapshot snapshot = snapshot();
+		if (snapshot == null) {
+			List<InstanceInfo> infos = this.eurekaClient
+					.getInstancesByVipAddress(serviceId, false);
+			List<ServiceInstance> instances = new ArrayList<>();
+			for (InstanceInfo info : infos) {
+				instances.add(new EurekaServiceInstance(info));
+			}
+			return instances;
+		}
+		List<ServiceInstance> instances = snapshot.instances.get(serviceId);
+		if (instances == null) {
+			instances = snapshot.wrap(serviceId,
+					this.eurekaClient.getInstancesByVipAddress(serviceId, false));
+			List<ServiceInstance> existing = snapshot.instances.putIfAbsent(serviceId,
+					instances);
+			if (existing != null) {
+				instances = existing;
+			}
 		}
 		return instances;
 	}
@@ -128,20 +162,93 @@ public class EurekaDiscoveryClient implements DiscoveryClient {
 
 	@Override
 	public List<String> getServices() {
-		Applications applications = this.eurekaClient.getApplications();
-		if (applications == null) {
+		Snapshot snapshot = snapshot();
+		if (snapshot == null) {
 			return Collections.emptyList();
 		}
-		List<Application> registered = applications.getRegisteredApplications();
-		List<String> names = new ArrayList<>();
-		for (Application app : registered) {
-			if (app.getInstances().isEmpty()) {
-				continue;
+		List<String> services = snapshot.services;
+		if (services == null) {
+			List<Application> registered = snapshot.applications
+					.getRegisteredApplications();
+			List<String> names = new ArrayList<>();
+			for (Application app : registered) {
+				if (app.getInstances().isEmpty()) {
+					continue;
+				}
+				names.add(app.getName().toLowerCase());
 			}
-			names.add(app.getName().toLowerCase());
+			services = Collections.unmodifiableList(names);
+			snapshot.services = services;
+		}
+		return services;
+	}
 
+	/**
+	 * @return the snapshot of the current Eureka client cache, or null if it has not
+	 * been fetched
+	 */
+	private Snapshot snapshot() {
+		// read before the applications, a refresh in between is noticed on the next call
+		long refresh = this.refreshes.get();
+		Applications applications = this.eurekaClient.getApplications();
+		if (applications == null) {
+			return null;
+		}
+		Snapshot snapshot = this.snapshot;
+		if (snapshot == null || snapshot.applications != applications) {
+			// full fetches replace the applications, so does a refreshed Eureka client,
+			// which needs the listener too: the listeners of a client are a set
+			this.eurekaClient.registerEventListener(this.cacheRefreshListener);
+			snapshot = new Snapshot(applications, refresh, snapshot);
+			this.snapshot = snapshot;
+		}
+		else if (snapshot.refresh != refresh) {
+			// deltas update the applications in place
+			snapshot = new Snapshot(applications, refresh, snapshot);
+			this.snapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private static class Snapshot {
+
+		private final Applications applications;
+
+		private final long refresh;
+
+		private final Map<String, List<ServiceInstance>> instances = new ConcurrentHashMap<>();
+
+		private volatile List<String> services;
+
+		/**
+		 * The instances of the previous refresh, reused when their
+		 * {@link InstanceInfo} did not change.
+		 */
+		private final Map<String, List<ServiceInstance>> previousInstances;
+
+		Snapshot(Applications applications, long refresh, Snapshot previous) {
+			this.applications = applications;
+			this.refresh = refresh;
+			this.previousInstances = previous == null ? null : previous.instances;
+		}
+
+		List<ServiceInstance> wrap(String serviceId, List<InstanceInfo> infos) {
+			List<ServiceInstance> previous = this.previousInstances == null ? null
+					: this.previousInstances.get(serviceId);
+			Map<InstanceInfo, ServiceInstance> reusable = new IdentityHashMap<>();
+			if (previous != null) {
+				for (ServiceInstance instance : previous) {
+					reusable.put(((EurekaServiceInstance) instance).getInstanceInfo(),
+							instance);
+				}
+			}
+			List<ServiceInstance> instances = new ArrayList<>(infos.size());
+			for (InstanceInfo info : infos) {
+				ServiceInstance instance = reusable.get(info);
+				instances.add(instance != null ? instance : new EurekaServiceInstance(info));
+			}
+			return Collections.unmodifiableList(instances);
 		}
-		return names;
 	}
 
 	@Override
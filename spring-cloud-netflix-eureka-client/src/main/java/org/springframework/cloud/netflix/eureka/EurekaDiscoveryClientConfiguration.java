@@ -27,6 +27,7 @@ import org.springframework.boot.actuate.health.OrderedHealthAggregator;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
 import org.springframework.cloud.netflix.eureka.serviceregistry.EurekaAutoServiceRegistration;
@@ -87,6 +88,7 @@ public class EurekaDiscoveryClientConfiguration {
 
 		@Bean
 		@ConditionalOnMissingBean(HealthCheckHandler.class)
+		@ConfigurationProperties("eureka.client.healthcheck")
 		public EurekaHealthCheckHandler eurekaHealthCheckHandler() {
 			return new EurekaHealthCheckHandler(this.healthAggregator);
 		}
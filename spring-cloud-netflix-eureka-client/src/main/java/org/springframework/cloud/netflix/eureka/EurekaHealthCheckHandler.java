@@ -17,14 +17,29 @@
 package org.springframework.cloud.netflix.eureka;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.HealthCheckHandler;
 import com.netflix.appinfo.InstanceInfo;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.actuate.health.CompositeHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthAggregator;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.actuate.health.Status;
@@ -43,11 +58,21 @@ import static com.netflix.appinfo.InstanceInfo.InstanceStatus;
  * implementation will perform aggregation of all registered {@link HealthIndicator}
  * through registered {@link HealthAggregator}.
  *
+ * When an evaluation interval is set, the health indicators are instead evaluated in
+ * the background, each of them in parallel and within the indicator timeout, and the
+ * heartbeat only reads the last computed status. An indicator that times out is
+ * considered {@link Status#DOWN}. A change of the status is applied to the
+ * {@link ApplicationInfoManager} right away, so that it is sent to Eureka on demand
+ * rather than with the next instance info replication.
+ *
  * @author Jakub Narloch
  * @see HealthCheckHandler
  * @see HealthAggregator
  */
-public class EurekaHealthCheckHandler implements HealthCheckHandler, ApplicationContextAware, InitializingBean {
+public class EurekaHealthCheckHandler implements HealthCheckHandler, ApplicationContextAware, InitializingBean,
+		DisposableBean {
+
+	private static final Log log = LogFactory.getLog(EurekaHealthCheckHandler.class);
 
 	private static final Map<Status, InstanceInfo.InstanceStatus> STATUS_MAPPING =
 			new HashMap<Status, InstanceInfo.InstanceStatus>() {{
@@ -57,15 +82,59 @@ public class EurekaHealthCheckHandler implements HealthCheckHandler, Application
 				put(Status.UP, InstanceStatus.UP);
 			}};
 
+	private final HealthAggregator healthAggregator;
+
 	private final CompositeHealthIndicator healthIndicator;
 
+	private final Map<String, HealthIndicator> healthIndicators = new LinkedHashMap<>();
+
+	/**
+	 * The evaluations of the health indicators that are still running, only accessed
+	 * by the evaluator thread.
+	 */
+	private final Map<String, Future<Health>> evaluations = new HashMap<>();
+
 	private ApplicationContext applicationContext;
 
+	private long evaluationIntervalMs = 0;
+
+	private long indicatorTimeoutMs = 10000;
+
+	private ScheduledExecutorService evaluator;
+
+	private ExecutorService indicatorExecutor;
+
+	private volatile InstanceStatus status;
+
 	public EurekaHealthCheckHandler(HealthAggregator healthAggregator) {
 		Assert.notNull(healthAggregator, "HealthAggregator must not be null");
+		this.healthAggregator = healthAggregator;
 		this.healthIndicator = new CompositeHealthIndicator(healthAggregator);
 	}
 
+	public long getEvaluationIntervalMs() {
+		return evaluationIntervalMs;
+	}
+
+	/**
+	 * Sets the interval between two background evaluations of the health indicators,
+	 * or 0 to evaluate them on each heartbeat.
+	 */
+	public void setEvaluationIntervalMs(long evaluationIntervalMs) {
+		this.evaluationIntervalMs = evaluationIntervalMs;
+	}
+
+	public long getIndicatorTimeoutMs() {
+		return indicatorTimeoutMs;
+	}
+
+	/**
+	 * Sets how long a background evaluation waits for each health indicator.
+	 */
+	public void setIndicatorTimeoutMs(long indicatorTimeoutMs) {
+		this.indicatorTimeoutMs = indicatorTimeoutMs;
+	}
+
 	@Override
 	public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
 		this.applicationContext = applicationContext;
@@ -83,20 +152,44 @@ public class EurekaHealthCheckHandler implements HealthCheckHandler, Application
 				DiscoveryCompositeHealthIndicator indicator = (DiscoveryCompositeHealthIndicator) entry.getValue();
 				for (DiscoveryCompositeHealthIndicator.Holder holder : indicator.getHealthIndicators()) {
 					if (!(holder.getDelegate() instanceof EurekaHealthIndicator)) {
-						healthIndicator.addHealthIndicator(holder.getDelegate().getName(), holder);
+						addHealthIndicator(holder.getDelegate().getName(), holder);
 					}
 				}
 
 			}
 			else {
-				healthIndicator.addHealthIndicator(entry.getKey(), entry.getValue());
+				addHealthIndicator(entry.getKey(), entry.getValue());
 			}
 		}
+
+		if (evaluationIntervalMs > 0) {
+			evaluator = Executors.newSingleThreadScheduledExecutor(threadFactory("EurekaHealthCheckHandler-evaluator"));
+			indicatorExecutor = Executors.newCachedThreadPool(threadFactory("EurekaHealthCheckHandler-indicator"));
+			evaluator.scheduleWithFixedDelay(this::evaluate, 0, evaluationIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void addHealthIndicator(String name, HealthIndicator indicator) {
+		healthIndicator.addHealthIndicator(name, indicator);
+		healthIndicators.put(name, indicator);
+	}
+
+	@Override
+	public void destroy() {
+		if (evaluator != null) {
+			evaluator.shutdownNow();
+			indicatorExecutor.shutdownNow();
+		}
 	}
 
 	@Override
 	public InstanceStatus getStatus(InstanceStatus instanceStatus) {
-		return getHealthStatus();
+		if (evaluator == null) {
+			return getHealthStatus();
+		}
+		// keep the current status until the first evaluation completes
+		InstanceStatus status = this.status;
+		return status != null ? status : instanceStatus;
 	}
 
 	protected InstanceStatus getHealthStatus() {
@@ -104,6 +197,74 @@ public class EurekaHealthCheckHandler implements HealthCheckHandler, Application
 		return mapToInstanceStatus(status);
 	}
 
+	/**
+	 * Evaluates the health indicators in parallel. An indicator still running from a
+	 * previous evaluation is not started again, so that a hanging indicator does not
+	 * use up threads.
+	 */
+	private void evaluate() {
+		try {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(indicatorTimeoutMs);
+			for (Map.Entry<String, HealthIndicator> entry : healthIndicators.entrySet()) {
+				Future<Health> evaluation = evaluations.get(entry.getKey());
+				if (evaluation == null || evaluation.isDone()) {
+					evaluations.put(entry.getKey(), indicatorExecutor.submit(entry.getValue()::health));
+				}
+			}
+			Map<String, Health> healths = new LinkedHashMap<>();
+			for (Map.Entry<String, Future<Health>> entry : evaluations.entrySet()) {
+				healths.put(entry.getKey(), result(entry.getKey(), entry.getValue(), deadline));
+			}
+			update(mapToInstanceStatus(healthAggregator.aggregate(healths).getStatus()));
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not evaluate the health indicators", e);
+		}
+	}
+
+	private Health result(String name, Future<Health> evaluation, long deadline) {
+		try {
+			return evaluation.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e) {
+			log.warn("Health indicator " + name + " did not complete within " + indicatorTimeoutMs + "ms");
+			return Health.down().withDetail("error", "Timed out after " + indicatorTimeoutMs + "ms").build();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Health.unknown().build();
+		}
+		catch (ExecutionException e) {
+			return Health.down(e.getCause() instanceof Exception ? (Exception) e.getCause() : e).build();
+		}
+	}
+
+	private void update(InstanceStatus status) {
+		InstanceStatus previous = this.status;
+		this.status = status;
+		if (previous == status) {
+			return;
+		}
+		ApplicationInfoManager applicationInfoManager = applicationContext
+				.getBeanProvider(ApplicationInfoManager.class).getIfAvailable();
+		InstanceInfo info = applicationInfoManager != null ? applicationInfoManager.getInfo() : null;
+		// an instance that is not started yet keeps its status until it is registered
+		if (info != null && info.getStatus() != InstanceStatus.STARTING && info.getStatus() != status) {
+			log.info("Health status changed from " + info.getStatus() + " to " + status);
+			// triggers an on demand update of the instance info
+			applicationInfoManager.setInstanceStatus(status);
+		}
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		AtomicInteger threads = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
 	protected InstanceStatus mapToInstanceStatus(Status status) {
 		if (!STATUS_MAPPING.containsKey(status)) {
 			return InstanceStatus.UNKNOWN;
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.netflix.appinfo.AmazonInfo;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.InstanceInfo.PortType;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+
+/**
+ * Builds {@link EurekaApplications} while reading the registry from a
+ * {@link JsonParser}, one instance at a time, instead of binding the whole payload.
+ * Works with any Jackson format, such as JSON or Smile. Strings are interned with a
+ * {@link StringInterner} and the {@link DataCenterInfo} without metadata are shared
+ * singletons. The {@link LeaseInfo} of every instance holds its own timestamps, so it
+ * is not shared. Unknown fields are skipped, an unknown action type is left unset and
+ * an unknown data center name is read as {@code MyOwn}.
+ */
+public class EurekaApplicationsDecoder {
+
+	private final StringInterner stringInterner;
+
+	private final Map<DataCenterInfo.Name, DataCenterInfo> dataCenterInfos = Collections
+			.synchronizedMap(new EnumMap<>(DataCenterInfo.Name.class));
+
+	public EurekaApplicationsDecoder(StringInterner stringInterner) {
+		this.stringInterner = stringInterner;
+	}
+
+	/**
+	 * Read the registry wrapped in its {@code applications} root.
+	 */
+	public EurekaApplications decode(JsonParser parser) throws IOException {
+		nextToken(parser);
+		expect(parser, JsonToken.START_OBJECT);
+		EurekaApplications applications = null;
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			if ("applications".equals(field)) {
+				applications = readApplications(parser);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		if (applications == null) {
+			throw new JsonParseException(parser, "Missing applications root");
+		}
+		return applications;
+	}
+
+	private EurekaApplications readApplications(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		String appsHashCode = null;
+		Long versionDelta = null;
+		List<Application> applications = new ArrayList<>();
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			switch (field) {
+			case "apps__hashcode":
+				appsHashCode = parser.getValueAsString();
+				break;
+			case "versions__delta":
+				versionDelta = parser.getValueAsLong();
+				break;
+			case "application":
+				if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+					while (nextToken(parser) != JsonToken.END_ARRAY) {
+						applications.add(readApplication(parser));
+					}
+				}
+				else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+					applications.add(readApplication(parser));
+				}
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return new EurekaApplications(appsHashCode, versionDelta, applications);
+	}
+
+	private Application readApplication(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		String name = null;
+		List<InstanceInfo> instances = new ArrayList<>();
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			switch (field) {
+			case "name":
+				name = string(parser);
+				break;
+			case "instance":
+				if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+					while (nextToken(parser) != JsonToken.END_ARRAY) {
+						instances.add(readInstance(parser));
+					}
+				}
+				else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
+					instances.add(readInstance(parser));
+				}
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return new Application(name, instances);
+	}
+
+	private InstanceInfo readInstance(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		InstanceInfo.Builder builder = InstanceInfo.Builder.newBuilder();
+		String healthCheckUrl = null;
+		String secureHealthCheckUrl = null;
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+				continue;
+			}
+			switch (field) {
+			case "instanceId":
+				builder.setInstanceId(string(parser));
+				break;
+			case "app":
+				builder.setAppName(string(parser));
+				break;
+			case "appGroupName":
+				builder.setAppGroupName(string(parser));
+				break;
+			case "hostName":
+				builder.setHostName(string(parser));
+				break;
+			case "ipAddr":
+				builder.setIPAddr(string(parser));
+				break;
+			case "sid":
+				builder.setSID(string(parser));
+				break;
+			case "status":
+				builder.setStatus(InstanceStatus.toEnum(parser.getValueAsString()));
+				break;
+			case "overriddenstatus":
+			case "overriddenStatus":
+				builder.setOverriddenStatus(
+						InstanceStatus.toEnum(parser.getValueAsString()));
+				break;
+			case "port":
+				readPort(parser, builder, PortType.UNSECURE);
+				break;
+			case "securePort":
+				readPort(parser, builder, PortType.SECURE);
+				break;
+			case "countryId":
+				builder.setCountryId(parser.getValueAsInt());
+				break;
+			case "dataCenterInfo":
+				builder.setDataCenterInfo(readDataCenterInfo(parser));
+				break;
+			case "leaseInfo":
+				builder.setLeaseInfo(readLeaseInfo(parser));
+				break;
+			case "metadata":
+				builder.setMetadata(readMetadata(parser));
+				break;
+			case "homePageUrl":
+				builder.setHomePageUrlForDeser(string(parser));
+				break;
+			case "statusPageUrl":
+				builder.setStatusPageUrlForDeser(string(parser));
+				break;
+			case "healthCheckUrl":
+				healthCheckUrl = string(parser);
+				break;
+			case "secureHealthCheckUrl":
+				secureHealthCheckUrl = string(parser);
+				break;
+			case "vipAddress":
+				builder.setVIPAddressDeser(string(parser));
+				break;
+			case "secureVipAddress":
+				builder.setSecureVIPAddressDeser(string(parser));
+				break;
+			case "isCoordinatingDiscoveryServer":
+				builder.setIsCoordinatingDiscoveryServer(parser.getValueAsBoolean());
+				break;
+			case "lastUpdatedTimestamp":
+				builder.setLastUpdatedTimestamp(parser.getValueAsLong());
+				break;
+			case "lastDirtyTimestamp":
+				builder.setLastDirtyTimestamp(parser.getValueAsLong());
+				break;
+			case "actionType":
+				builder.setActionType(actionType(parser.getValueAsString()));
+				break;
+			case "asgName":
+				builder.setASGName(string(parser));
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		builder.setHealthCheckUrlsForDeser(healthCheckUrl, secureHealthCheckUrl);
+		return builder.build();
+	}
+
+	private void readPort(JsonParser parser, InstanceInfo.Builder builder,
+			PortType type) throws IOException {
+		if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+			setPort(builder, type, parser.getValueAsInt());
+			return;
+		}
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			if ("$".equals(field)) {
+				setPort(builder, type, parser.getValueAsInt());
+			}
+			else if ("@enabled".equals(field)) {
+				builder.enablePort(type, parser.getValueAsBoolean());
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static void setPort(InstanceInfo.Builder builder, PortType type, int port) {
+		if (type == PortType.SECURE) {
+			builder.setSecurePort(port);
+		}
+		else {
+			builder.setPort(port);
+		}
+	}
+
+	private DataCenterInfo readDataCenterInfo(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		String name = null;
+		Map<String, String> metadata = null;
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			if ("name".equals(field)) {
+				name = parser.getValueAsString();
+			}
+			else if ("metadata".equals(field)) {
+				metadata = readMetadata(parser);
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		DataCenterInfo.Name dataCenter = dataCenterName(name);
+		if (dataCenter == DataCenterInfo.Name.Amazon && metadata != null) {
+			AmazonInfo info = new AmazonInfo();
+			info.setMetadata(metadata);
+			return info;
+		}
+		DataCenterInfo info = this.dataCenterInfos.get(dataCenter);
+		if (info == null) {
+			info = new MyDataCenterInfo(dataCenter);
+			this.dataCenterInfos.put(dataCenter, info);
+		}
+		return info;
+	}
+
+	private LeaseInfo readLeaseInfo(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		LeaseInfo.Builder builder = LeaseInfo.Builder.newBuilder();
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			nextToken(parser);
+			switch (field) {
+			case "renewalIntervalInSecs":
+				builder.setRenewalIntervalInSecs(parser.getValueAsInt());
+				break;
+			case "durationInSecs":
+				builder.setDurationInSecs(parser.getValueAsInt());
+				break;
+			case "registrationTimestamp":
+				builder.setRegistrationTimestamp(parser.getValueAsLong());
+				break;
+			case "lastRenewalTimestamp":
+			case "renewalTimestamp":
+				builder.setRenewalTimestamp(parser.getValueAsLong());
+				break;
+			case "evictionTimestamp":
+				builder.setEvictionTimestamp(parser.getValueAsLong());
+				break;
+			case "serviceUpTimestamp":
+				builder.setServiceUpTimestamp(parser.getValueAsLong());
+				break;
+			default:
+				parser.skipChildren();
+			}
+		}
+		return builder.build();
+	}
+
+	private static ActionType actionType(String value) {
+		if (value != null) {
+			for (ActionType actionType : ActionType.values()) {
+				if (actionType.name().equals(value)) {
+					return actionType;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static DataCenterInfo.Name dataCenterName(String value) {
+		if (value != null) {
+			for (DataCenterInfo.Name name : DataCenterInfo.Name.values()) {
+				if (name.name().equals(value)) {
+					return name;
+				}
+			}
+		}
+		return DataCenterInfo.Name.MyOwn;
+	}
+
+	private Map<String, String> readMetadata(JsonParser parser) throws IOException {
+		expect(parser, JsonToken.START_OBJECT);
+		Map<String, String> metadata = new HashMap<>();
+		while (nextToken(parser) == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			nextToken(parser);
+			if ("@class".equals(key) || parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+				parser.skipChildren();
+				continue;
+			}
+			metadata.put(this.stringInterner.intern(key), string(parser));
+		}
+		return metadata;
+	}
+
+	private String string(JsonParser parser) throws IOException {
+		return this.stringInterner.intern(parser.getValueAsString());
+	}
+
+	private static JsonToken nextToken(JsonParser parser) throws IOException {
+		JsonToken token = parser.nextToken();
+		if (token == null) {
+			throw new JsonParseException(parser, "Unexpected end of the registry");
+		}
+		return token;
+	}
+
+	private static void expect(JsonParser parser, JsonToken token)
+			throws JsonParseException {
+		if (parser.getCurrentToken() != token) {
+			throw new JsonParseException(parser,
+					"Expected " + token + " but was " + parser.getCurrentToken());
+		}
+	}
+}
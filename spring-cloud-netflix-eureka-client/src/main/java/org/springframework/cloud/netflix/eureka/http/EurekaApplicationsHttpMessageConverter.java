@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.discovery.shared.Applications;
+
+/**
+ * Reads the registries fetched by the {@link RestTemplateEurekaHttpClient} with an
+ * {@link EurekaApplicationsDecoder}, so that the response is decoded while it is
+ * received. Registries are written with the {@link ObjectMapper} configured for the
+ * Eureka payloads, whose factory is also used to read them.
+ */
+public class EurekaApplicationsHttpMessageConverter
+		extends AbstractHttpMessageConverter<Applications> {
+
+	private final ObjectMapper objectMapper;
+
+	private final EurekaApplicationsDecoder decoder;
+
+	public EurekaApplicationsHttpMessageConverter(ObjectMapper objectMapper,
+			EurekaApplicationsDecoder decoder, MediaType... supportedMediaTypes) {
+		super(supportedMediaTypes);
+		this.objectMapper = objectMapper;
+		this.decoder = decoder;
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return EurekaApplications.class == clazz;
+	}
+
+	@Override
+	protected Applications readInternal(Class<? extends Applications> clazz,
+			HttpInputMessage inputMessage) throws IOException {
+		try (JsonParser parser = this.objectMapper.getFactory().createParser(inputMessage.getBody())) {
+			return this.decoder.decode(parser);
+		}
+		catch (JsonProcessingException e) {
+			throw new HttpMessageNotReadableException(
+					"Could not read registry: " + e.getOriginalMessage(), e,
+					inputMessage);
+		}
+	}
+
+	@Override
+	protected void writeInternal(Applications applications,
+			HttpOutputMessage outputMessage) throws IOException {
+		try {
+			this.objectMapper.writeValue(outputMessage.getBody(), applications);
+		}
+		catch (JsonProcessingException e) {
+			throw new HttpMessageNotWritableException(
+					"Could not write registry: " + e.getOriginalMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+
+/**
+ * Counts the requests sent to a Eureka server by the
+ * {@link RestTemplateEurekaHttpClient}, the ones that failed with an I/O error or a
+ * server error, and the time spent waiting for the responses. When the connections
+ * are pooled, the connections to the server are reported as well.
+ */
+public class EurekaEndpointMetrics implements ClientHttpRequestInterceptor {
+
+	private static final IntSupplier NONE = () -> 0;
+
+	private final String endpoint;
+
+	private final AtomicLong requests = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	private final AtomicLong totalTime = new AtomicLong();
+
+	private volatile IntSupplier leased = NONE;
+
+	private volatile IntSupplier available = NONE;
+
+	private volatile IntSupplier pending = NONE;
+
+	public EurekaEndpointMetrics(String endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	public String getEndpoint() {
+		return this.endpoint;
+	}
+
+	void setConnectionStats(IntSupplier leased, IntSupplier available,
+			IntSupplier pending) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+	}
+
+	@Override
+	public ClientHttpResponse intercept(HttpRequest request, byte[] body,
+			ClientHttpRequestExecution execution) throws IOException {
+		long start = System.nanoTime();
+		this.requests.incrementAndGet();
+		try {
+			ClientHttpResponse response = execution.execute(request, body);
+			if (response.getRawStatusCode() >= 500) {
+				this.failures.incrementAndGet();
+			}
+			return response;
+		}
+		catch (IOException | RuntimeException e) {
+			this.failures.incrementAndGet();
+			throw e;
+		}
+		finally {
+			this.totalTime.addAndGet((System.nanoTime() - start) / 1000000);
+		}
+	}
+
+	@Monitor(name = "Requests", type = DataSourceType.COUNTER)
+	public long getRequests() {
+		return this.requests.get();
+	}
+
+	@Monitor(name = "Failures", type = DataSourceType.COUNTER)
+	public long getFailures() {
+		return this.failures.get();
+	}
+
+	@Monitor(name = "TotalTimeMillis", type = DataSourceType.COUNTER)
+	public long getTotalTimeMillis() {
+		return this.totalTime.get();
+	}
+
+	@Monitor(name = "LeasedConnections", type = DataSourceType.GAUGE)
+	public int getLeasedConnections() {
+		return this.leased.getAsInt();
+	}
+
+	@Monitor(name = "AvailableConnections", type = DataSourceType.GAUGE)
+	public int getAvailableConnections() {
+		return this.available.getAsInt();
+	}
+
+	@Monitor(name = "PendingConnections", type = DataSourceType.GAUGE)
+	public int getPendingConnections() {
+		return this.pending.getAsInt();
+	}
+}
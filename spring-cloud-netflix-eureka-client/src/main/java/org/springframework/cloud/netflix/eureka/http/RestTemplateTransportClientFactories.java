@@ -44,7 +44,7 @@ public class RestTemplateTransportClientFactories
 	public TransportClientFactory newTransportClientFactory(
 			EurekaClientConfig clientConfig, Collection<Void> additionalFilters,
 			InstanceInfo myInstanceInfo) {
-		return new RestTemplateTransportClientFactory();
+		return new RestTemplateTransportClientFactory(clientConfig);
 	}
 
 	@Override
@@ -53,6 +53,6 @@ public class RestTemplateTransportClientFactories
 															final InstanceInfo myInstanceInfo,
 															final Optional<SSLContext> sslContext,
 															final Optional<HostnameVerifier> hostnameVerifier) {
-		return new RestTemplateTransportClientFactory();
+		return new RestTemplateTransportClientFactory(clientConfig);
 	}
 }
@@ -16,26 +16,51 @@
 
 package org.springframework.cloud.netflix.eureka.http;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.client.support.BasicAuthorizationInterceptor;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClientConfig;
 import com.netflix.discovery.converters.jackson.mixin.ApplicationsJsonMixIn;
 import com.netflix.discovery.converters.jackson.mixin.InstanceInfoJsonMixIn;
 import com.netflix.discovery.converters.jackson.serializer.InstanceInfoJsonBeanSerializer;
@@ -43,16 +68,67 @@ import com.netflix.discovery.shared.Applications;
 import com.netflix.discovery.shared.resolver.EurekaEndpoint;
 import com.netflix.discovery.shared.transport.EurekaHttpClient;
 import com.netflix.discovery.shared.transport.TransportClientFactory;
+import com.netflix.servo.monitor.Monitors;
 
 /**
  * Provides the custom {@link RestTemplate} required by the
  * {@link RestTemplateEurekaHttpClient}. Relies on Jackson for serialization and
- * deserialization.
+ * deserialization. The registry can be fetched in the binary Smile format when
+ * {@code smileContent} is enabled and jackson-dataformat-smile is on the classpath,
+ * servers without Smile support keep answering with JSON. The registries are decoded
+ * while they are received by an {@link EurekaApplicationsDecoder}. The short strings
+ * of the decoded registries are interned with a {@link StringInterner}.
+ *
+ * When created with an {@link EurekaClientConfig}, the connections are pooled with
+ * Apache HttpClient, if available, according to its
+ * {@code eurekaServerTotalConnections}, {@code eurekaServerTotalConnectionsPerHost}
+ * and {@code eurekaConnectionIdleTimeoutSeconds}, its timeouts are applied, the
+ * responses are compressed when {@code gZipContent} is enabled, and every Eureka
+ * server gets an {@link EurekaEndpointMetrics} monitor.
  * 
  * @author Daniel Lavoie
  */
 public class RestTemplateTransportClientFactory implements TransportClientFactory {
 
+	private static final boolean SMILE_PRESENT = ClassUtils.isPresent(
+			"com.fasterxml.jackson.dataformat.smile.SmileFactory",
+			RestTemplateTransportClientFactory.class.getClassLoader());
+
+	private static final boolean APACHE_HTTP_CLIENT_PRESENT = ClassUtils.isPresent(
+			"org.apache.http.impl.client.HttpClientBuilder",
+			RestTemplateTransportClientFactory.class.getClassLoader());
+
+	private static final Log log = LogFactory.getLog(RestTemplateTransportClientFactory.class);
+
+	private final EurekaClientConfig clientConfig;
+
+	private final boolean smileContent;
+
+	private final StringInterner stringInterner = new StringInterner();
+
+	private final EurekaApplicationsDecoder applicationsDecoder = new EurekaApplicationsDecoder(
+			this.stringInterner);
+
+	private final Map<String, EurekaEndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
+
+	private PooledConnections pooledConnections;
+
+	public RestTemplateTransportClientFactory() {
+		this(false);
+	}
+
+	public RestTemplateTransportClientFactory(boolean smileContent) {
+		this.clientConfig = null;
+		this.smileContent = smileContent && SMILE_PRESENT;
+	}
+
+	public RestTemplateTransportClientFactory(EurekaClientConfig clientConfig) {
+		this.clientConfig = clientConfig;
+		this.smileContent = SMILE_PRESENT
+				&& clientConfig instanceof EurekaClientConfigBean
+				&& ((EurekaClientConfigBean) clientConfig).isSmileContent();
+	}
+
 	@Override
 	public EurekaHttpClient newClient(EurekaEndpoint serviceUrl) {
 		return new RestTemplateEurekaHttpClient(restTemplate(serviceUrl.getServiceUrl()),
@@ -60,7 +136,7 @@ public class RestTemplateTransportClientFactory implements TransportClientFactor
 	}
 
 	private RestTemplate restTemplate(String serviceUrl) {
-		RestTemplate restTemplate = new RestTemplate();
+		RestTemplate restTemplate = new RestTemplate(requestFactory());
 		try {
 			URI serviceURI = new URI(serviceUrl);
 			if (serviceURI.getUserInfo() != null) {
@@ -70,12 +146,24 @@ public class RestTemplateTransportClientFactory implements TransportClientFactor
 							credentials[0], credentials[1]));
 				}
 			}
+			if (this.clientConfig != null) {
+				restTemplate.getInterceptors().add(endpointMetrics(serviceURI));
+			}
 		}
 		catch (URISyntaxException ignore) {
 
 		}
 
-		restTemplate.getMessageConverters().add(0, mappingJacksonHttpMessageConverter());
+		MappingJackson2HttpMessageConverter jsonConverter = mappingJacksonHttpMessageConverter();
+		restTemplate.getMessageConverters().add(0, jsonConverter);
+		restTemplate.getMessageConverters().add(0, applicationsConverter(jsonConverter));
+		if (this.smileContent) {
+			// first, so that Smile is the preferred media type of the fetches
+			MappingJackson2SmileHttpMessageConverter smileConverter = mappingJacksonSmileHttpMessageConverter();
+			restTemplate.getMessageConverters().add(0, smileConverter);
+			restTemplate.getMessageConverters().add(0,
+					applicationsConverter(smileConverter));
+		}
 		restTemplate.setErrorHandler(new ErrorHanlder());
 
 		return restTemplate;
@@ -95,18 +183,7 @@ public class RestTemplateTransportClientFactory implements TransportClientFactor
 	 */
 	public MappingJackson2HttpMessageConverter mappingJacksonHttpMessageConverter() {
 		MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-		converter.setObjectMapper(new ObjectMapper()
-				.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE));
-
-		SimpleModule jsonModule = new SimpleModule();
-		jsonModule.setSerializerModifier(createJsonSerializerModifier());//keyFormatter, compact));
-		converter.getObjectMapper().registerModule(jsonModule);
-
-		converter.getObjectMapper().configure(SerializationFeature.WRAP_ROOT_VALUE, true);
-		converter.getObjectMapper().configure(DeserializationFeature.UNWRAP_ROOT_VALUE,
-				true);
-		converter.getObjectMapper().addMixIn(Applications.class, ApplicationsJsonMixIn.class);
-		converter.getObjectMapper().addMixIn(InstanceInfo.class, InstanceInfoJsonMixIn.class);
+		converter.setObjectMapper(configure(new ObjectMapper()));
 
 		// converter.getObjectMapper().addMixIn(DataCenterInfo.class, DataCenterInfoXmlMixIn.class);
 		// converter.getObjectMapper().addMixIn(InstanceInfo.PortWrapper.class, PortWrapperXmlMixIn.class);
@@ -117,6 +194,38 @@ public class RestTemplateTransportClientFactory implements TransportClientFactor
 		return converter;
 	}
 
+	/**
+	 * Provides the same configurations as
+	 * {@link #mappingJacksonHttpMessageConverter()} for the Smile payloads.
+	 */
+	public MappingJackson2SmileHttpMessageConverter mappingJacksonSmileHttpMessageConverter() {
+		return new MappingJackson2SmileHttpMessageConverter(
+				configure(SmileObjectMapper.create()));
+	}
+
+	private EurekaApplicationsHttpMessageConverter applicationsConverter(
+			AbstractJackson2HttpMessageConverter converter) {
+		return new EurekaApplicationsHttpMessageConverter(
+				converter.getObjectMapper(), this.applicationsDecoder,
+				converter.getSupportedMediaTypes().toArray(new MediaType[0]));
+	}
+
+	private ObjectMapper configure(ObjectMapper mapper) {
+		mapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+
+		SimpleModule jsonModule = new SimpleModule();
+		jsonModule.setSerializerModifier(createJsonSerializerModifier());//keyFormatter, compact));
+		jsonModule.addDeserializer(String.class,
+				new InterningStringDeserializer(this.stringInterner));
+		mapper.registerModule(jsonModule);
+
+		mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, true);
+		mapper.configure(DeserializationFeature.UNWRAP_ROOT_VALUE, true);
+		mapper.addMixIn(Applications.class, ApplicationsJsonMixIn.class);
+		mapper.addMixIn(InstanceInfo.class, InstanceInfoJsonMixIn.class);
+		return mapper;
+	}
+
 	public static BeanSerializerModifier createJsonSerializerModifier() {//final KeyFormatter keyFormatter, final boolean compactMode) {
 		return new BeanSerializerModifier() {
 			@Override
@@ -135,6 +244,145 @@ public class RestTemplateTransportClientFactory implements TransportClientFactor
 
 	@Override
 	public void shutdown() {
+		for (EurekaEndpointMetrics metrics : this.endpointMetrics.values()) {
+			Monitors.unregisterObject("EurekaEndpoint_" + metrics.getEndpoint(), metrics);
+		}
+		this.endpointMetrics.clear();
+		synchronized (this) {
+			if (this.pooledConnections != null) {
+				this.pooledConnections.close();
+				this.pooledConnections = null;
+			}
+		}
+	}
+
+	Map<String, EurekaEndpointMetrics> getEndpointMetrics() {
+		return this.endpointMetrics;
+	}
+
+	private ClientHttpRequestFactory requestFactory() {
+		if (this.clientConfig == null) {
+			return new SimpleClientHttpRequestFactory();
+		}
+		int connectTimeout = this.clientConfig.getEurekaServerConnectTimeoutSeconds() * 1000;
+		int readTimeout = this.clientConfig.getEurekaServerReadTimeoutSeconds() * 1000;
+		if (!APACHE_HTTP_CLIENT_PRESENT) {
+			SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+			requestFactory.setConnectTimeout(connectTimeout);
+			requestFactory.setReadTimeout(readTimeout);
+			return requestFactory;
+		}
+		return pooledConnections().requestFactory(connectTimeout, readTimeout);
+	}
+
+	private synchronized PooledConnections pooledConnections() {
+		if (this.pooledConnections == null) {
+			this.pooledConnections = new PooledConnections(this.clientConfig);
+		}
+		return this.pooledConnections;
+	}
+
+	private EurekaEndpointMetrics endpointMetrics(URI serviceURI) {
+		String endpoint = serviceURI.getScheme() + "://" + serviceURI.getHost()
+				+ (serviceURI.getPort() == -1 ? "" : ":" + serviceURI.getPort())
+				+ (serviceURI.getPath() == null ? "" : serviceURI.getPath());
+		return this.endpointMetrics.computeIfAbsent(endpoint, key -> {
+			EurekaEndpointMetrics metrics = new EurekaEndpointMetrics(key);
+			if (APACHE_HTTP_CLIENT_PRESENT) {
+				pooledConnections().bind(metrics, serviceURI);
+			}
+			try {
+				Monitors.registerObject("EurekaEndpoint_" + key, metrics);
+			}
+			catch (Exception e) {
+				log.warn("Unable to register the metrics of " + key, e);
+			}
+			return metrics;
+		});
+	}
+
+	/**
+	 * The connections to the Eureka servers, shared by all their clients. Keeps Apache
+	 * HttpClient optional.
+	 */
+	private static class PooledConnections {
+
+		private final PoolingHttpClientConnectionManager connectionManager;
+
+		private final CloseableHttpClient httpClient;
+
+		PooledConnections(EurekaClientConfig clientConfig) {
+			this.connectionManager = new PoolingHttpClientConnectionManager();
+			this.connectionManager.setMaxTotal(clientConfig.getEurekaServerTotalConnections());
+			this.connectionManager.setDefaultMaxPerRoute(
+					clientConfig.getEurekaServerTotalConnectionsPerHost());
+			HttpClientBuilder builder = HttpClientBuilder.create().useSystemProperties()
+					.setConnectionManager(this.connectionManager)
+					.evictExpiredConnections()
+					.evictIdleConnections(
+							(long) clientConfig.getEurekaConnectionIdleTimeoutSeconds(),
+							TimeUnit.SECONDS);
+			if (!clientConfig.shouldGZipContent()) {
+				builder.disableContentCompression();
+			}
+			this.httpClient = builder.build();
+		}
+
+		ClientHttpRequestFactory requestFactory(int connectTimeout, int readTimeout) {
+			HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(
+					this.httpClient);
+			requestFactory.setConnectTimeout(connectTimeout);
+			requestFactory.setConnectionRequestTimeout(connectTimeout);
+			requestFactory.setReadTimeout(readTimeout);
+			return requestFactory;
+		}
+
+		void bind(EurekaEndpointMetrics metrics, URI serviceURI) {
+			boolean secure = "https".equalsIgnoreCase(serviceURI.getScheme());
+			int port = serviceURI.getPort() != -1 ? serviceURI.getPort()
+					: secure ? 443 : 80;
+			HttpRoute route = new HttpRoute(
+					new HttpHost(serviceURI.getHost(), port, serviceURI.getScheme()), null,
+					secure);
+			metrics.setConnectionStats(
+					() -> this.connectionManager.getStats(route).getLeased(),
+					() -> this.connectionManager.getStats(route).getAvailable(),
+					() -> this.connectionManager.getStats(route).getPending());
+		}
+
+		void close() {
+			try {
+				this.httpClient.close();
+			}
+			catch (IOException e) {
+				log.warn("Error closing the connections to the Eureka servers", e);
+			}
+		}
+	}
+
+	/**
+	 * Keeps jackson-dataformat-smile optional.
+	 */
+	private static class SmileObjectMapper {
+
+		static ObjectMapper create() {
+			return new ObjectMapper(new SmileFactory());
+		}
+	}
+
+	static class InterningStringDeserializer extends StringDeserializer {
+
+		private final StringInterner stringInterner;
+
+		InterningStringDeserializer(StringInterner stringInterner) {
+			this.stringInterner = stringInterner;
+		}
+
+		@Override
+		public String deserialize(JsonParser p, DeserializationContext ctxt)
+				throws IOException {
+			return this.stringInterner.intern(super.deserialize(p, ctxt));
+		}
 	}
 
 	class ErrorHanlder extends DefaultResponseErrorHandler {
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the instances of the short strings repeated all over a registry, such as app
+ * names, zones, statuses and metadata keys and values, so that a decoded registry keeps
+ * a single copy of each of them across fetches. Long strings are returned as they are.
+ * Once {@code maxSize} strings are held, a tenth of them is forgotten to make room, so
+ * the strings still in use are shared again on the next fetch without rebuilding the
+ * whole table.
+ */
+public class StringInterner {
+
+	public static final int DEFAULT_MAX_LENGTH = 64;
+
+	public static final int DEFAULT_MAX_SIZE = 100000;
+
+	private final int maxLength;
+
+	private final int maxSize;
+
+	private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+
+	public StringInterner() {
+		this(DEFAULT_MAX_LENGTH, DEFAULT_MAX_SIZE);
+	}
+
+	public StringInterner(int maxLength, int maxSize) {
+		this.maxLength = maxLength;
+		this.maxSize = maxSize;
+	}
+
+	public String intern(String value) {
+		if (value == null || value.length() > this.maxLength) {
+			return value;
+		}
+		String interned = this.strings.get(value);
+		if (interned != null) {
+			return interned;
+		}
+		if (this.strings.size() >= this.maxSize) {
+			evict();
+		}
+		interned = this.strings.putIfAbsent(value, value);
+		return interned == null ? value : interned;
+	}
+
+	public int size() {
+		return this.strings.size();
+	}
+
+	private void evict() {
+		int evicted = Math.max(this.maxSize / 10, 1);
+		Iterator<String> iterator = this.strings.keySet().iterator();
+		while (evicted-- > 0 && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+	}
+}
@@ -17,7 +17,10 @@
 package org.springframework.cloud.netflix.ribbon.eureka;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.springframework.cloud.netflix.ribbon.RibbonProperties;
 
@@ -37,6 +40,12 @@ public class DomainExtractingServerList implements ServerList<DiscoveryEnabledSe
 
 	private boolean approximateZoneFromHostname;
 
+	/**
+	 * The servers returned by the last update, by instance id. Reusing them keeps the
+	 * server list, and the statistics keyed by server, stable between updates.
+	 */
+	private volatile Map<String, DomainExtractingServer> servers = new HashMap<>();
+
 	public DomainExtractingServerList(ServerList<DiscoveryEnabledServer> list,
 			IClientConfig clientConfig, boolean approximateZoneFromHostname) {
 		this.list = list;
@@ -59,13 +68,27 @@ public class DomainExtractingServerList implements ServerList<DiscoveryEnabledSe
 	}
 
 	private List<DiscoveryEnabledServer> setZones(List<DiscoveryEnabledServer> servers) {
-		List<DiscoveryEnabledServer> result = new ArrayList<>();
+		List<DiscoveryEnabledServer> result = new ArrayList<>(servers.size());
+		Map<String, DomainExtractingServer> previous = this.servers;
+		Map<String, DomainExtractingServer> current = new HashMap<>();
 		boolean isSecure = this.ribbon.isSecure(true);
 		boolean shouldUseIpAddr = this.ribbon.isUseIPAddrForServer();
 		for (DiscoveryEnabledServer server : servers) {
-			result.add(new DomainExtractingServer(server, isSecure, shouldUseIpAddr,
-					this.approximateZoneFromHostname));
+			InstanceInfo instance = server.getInstanceInfo();
+			DomainExtractingServer domainServer = previous.get(instance.getId());
+			if (domainServer != null && domainServer.isFor(instance, isSecure,
+					shouldUseIpAddr, this.approximateZoneFromHostname)) {
+				domainServer.setAlive(server.isAlive());
+				domainServer.setReadyToServe(server.isReadyToServe());
+			}
+			else {
+				domainServer = new DomainExtractingServer(server, isSecure,
+						shouldUseIpAddr, this.approximateZoneFromHostname);
+			}
+			current.put(instance.getId(), domainServer);
+			result.add(domainServer);
 		}
+		this.servers = current;
 		return result;
 	}
 
@@ -75,6 +98,16 @@ class DomainExtractingServer extends DiscoveryEnabledServer {
 
 	private String id;
 
+	private final boolean useSecurePort;
+
+	private final boolean useIpAddr;
+
+	private final boolean approximateZoneFromHostname;
+
+	private final long lastUpdatedTimestamp;
+
+	private final Long lastDirtyTimestamp;
+
 	@Override
 	public String getId() {
 		return id;
@@ -101,6 +134,30 @@ class DomainExtractingServer extends DiscoveryEnabledServer {
 		setId(extractId(server));
 		setAlive(server.isAlive());
 		setReadyToServe(server.isReadyToServe());
+		this.useSecurePort = useSecurePort;
+		this.useIpAddr = useIpAddr;
+		this.approximateZoneFromHostname = approximateZoneFromHostname;
+		this.lastUpdatedTimestamp = server.getInstanceInfo().getLastUpdatedTimestamp();
+		this.lastDirtyTimestamp = server.getInstanceInfo().getLastDirtyTimestamp();
+	}
+
+	/**
+	 * @return true if this server was created for the same version of the instance, with
+	 * the same settings
+	 */
+	boolean isFor(InstanceInfo instance, boolean useSecurePort, boolean useIpAddr,
+			boolean approximateZoneFromHostname) {
+		if (this.useSecurePort != useSecurePort || this.useIpAddr != useIpAddr
+				|| this.approximateZoneFromHostname != approximateZoneFromHostname) {
+			return false;
+		}
+		InstanceInfo current = getInstanceInfo();
+		if (current == instance) {
+			return true;
+		}
+		return this.lastUpdatedTimestamp == instance.getLastUpdatedTimestamp()
+				&& Objects.equals(this.lastDirtyTimestamp, instance.getLastDirtyTimestamp())
+				&& current.getStatus() == instance.getStatus();
 	}
 
 	private String extractId(Server server) {
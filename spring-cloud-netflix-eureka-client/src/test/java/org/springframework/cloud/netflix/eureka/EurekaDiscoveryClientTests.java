@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient.EurekaServiceInstance;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.CacheRefreshedEvent;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.EurekaEventListener;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EurekaDiscoveryClientTests {
+
+	private final EurekaClient eurekaClient = mock(EurekaClient.class);
+
+	private final EurekaDiscoveryClient discoveryClient = new EurekaDiscoveryClient(
+			this.eurekaClient, new EurekaClientConfigBean());
+
+	private final InstanceInfo first = instance("first");
+
+	private final InstanceInfo second = instance("second");
+
+	private Applications applications;
+
+	@Before
+	public void setUp() {
+		this.applications = new Applications("UP_2_", 1L,
+				Arrays.asList(new Application("FOO", Arrays.asList(this.first, this.second)),
+						new Application("BAR")));
+		when(this.eurekaClient.getApplications()).thenAnswer(i -> this.applications);
+		when(this.eurekaClient.getInstancesByVipAddress("foo", false))
+				.thenReturn(Arrays.asList(this.first, this.second));
+	}
+
+	@Test
+	public void instancesAreCachedUntilRefresh() {
+		List<ServiceInstance> instances = this.discoveryClient.getInstances("foo");
+
+		assertEquals(2, instances.size());
+		assertSame(this.first,
+				((EurekaServiceInstance) instances.get(0)).getInstanceInfo());
+		List<ServiceInstance> cached = this.discoveryClient.getInstances("foo");
+		assertSame(instances.get(0), cached.get(0));
+		assertSame(instances.get(1), cached.get(1));
+		verify(this.eurekaClient, times(1)).getInstancesByVipAddress("foo", false);
+	}
+
+	@Test
+	public void returnedInstancesAreShared() {
+		List<ServiceInstance> instances = this.discoveryClient.getInstances("foo");
+
+		assertSame(instances, this.discoveryClient.getInstances("foo"));
+		try {
+			instances.clear();
+			fail("Expected the instances to be unmodifiable");
+		}
+		catch (UnsupportedOperationException e) {
+			assertEquals(2, this.discoveryClient.getInstances("foo").size());
+		}
+	}
+
+	@Test
+	public void instancesAreOnlyRefreshedByACacheRefresh() {
+		this.discoveryClient.getInstances("foo");
+		this.applications.setAppsHashCode("UP_3_");
+		this.applications.setVersion(2L);
+
+		this.discoveryClient.getInstances("foo");
+		verify(this.eurekaClient, times(1)).getInstancesByVipAddress("foo", false);
+
+		refreshCache();
+		this.discoveryClient.getInstances("foo");
+		verify(this.eurekaClient, times(2)).getInstancesByVipAddress("foo", false);
+	}
+
+	@Test
+	public void unchangedInstancesAreReusedAfterRefresh() {
+		List<ServiceInstance> instances = this.discoveryClient.getInstances("foo");
+		InstanceInfo replaced = instance("second");
+		when(this.eurekaClient.getInstancesByVipAddress("foo", false))
+				.thenReturn(Arrays.asList(this.first, replaced));
+		refreshCache();
+
+		List<ServiceInstance> refreshed = this.discoveryClient.getInstances("foo");
+
+		assertSame(instances.get(0), refreshed.get(0));
+		assertSame(replaced,
+				((EurekaServiceInstance) refreshed.get(1)).getInstanceInfo());
+	}
+
+	@Test
+	public void servicesAreCachedUntilRefresh() {
+		List<String> services = this.discoveryClient.getServices();
+
+		assertEquals(Arrays.asList("foo"), services);
+		assertSame(services, this.discoveryClient.getServices());
+
+		this.applications = new Applications("UP_0_", 2L, Arrays.asList(
+				new Application("BAZ", Arrays.asList(instance("third")))));
+
+		assertEquals(Arrays.asList("baz"), this.discoveryClient.getServices());
+	}
+
+	private void refreshCache() {
+		ArgumentCaptor<EurekaEventListener> listener = ArgumentCaptor
+				.forClass(EurekaEventListener.class);
+		verify(this.eurekaClient).registerEventListener(listener.capture());
+		listener.getValue().onEvent(new CacheRefreshedEvent());
+	}
+
+	private static InstanceInfo instance(String id) {
+		return InstanceInfo.Builder.newBuilder().setAppName("FOO").setInstanceId(id)
+				.setHostName(id).setVIPAddress("foo").build();
+	}
+}
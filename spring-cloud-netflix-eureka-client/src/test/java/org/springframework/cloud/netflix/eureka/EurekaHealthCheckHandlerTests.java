@@ -17,9 +17,13 @@
 package org.springframework.cloud.netflix.eureka;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.InstanceInfo.InstanceStatus;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.boot.actuate.health.AbstractHealthIndicator;
@@ -34,6 +38,11 @@ import org.springframework.context.annotation.AnnotationConfigApplicationContext
 import org.springframework.context.annotation.Bean;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Tests the {@link EurekaHealthCheckHandler} with different health indicator registered.
@@ -50,6 +59,11 @@ public class EurekaHealthCheckHandlerTests {
 		healthCheckHandler = new EurekaHealthCheckHandler(new OrderedHealthAggregator());
 	}
 
+	@After
+	public void tearDown() {
+		healthCheckHandler.destroy();
+	}
+
 	@Test
 	public void testNoHealthCheckRegistered() throws Exception {
 
@@ -93,6 +107,37 @@ public class EurekaHealthCheckHandlerTests {
 		assertEquals(InstanceStatus.UP, status);
 	}
 
+	@Test
+	public void testBackgroundEvaluationTimesOutSlowIndicator() throws Exception {
+		healthCheckHandler.setEvaluationIntervalMs(60000);
+		healthCheckHandler.setIndicatorTimeoutMs(100);
+
+		initialize(UpHealthConfiguration.class, SlowHealthConfiguration.class);
+
+		long start = System.nanoTime();
+		InstanceStatus status = healthCheckHandler.getStatus(InstanceStatus.STARTING);
+		assertTrue((System.nanoTime() - start) / 1000000 < 100);
+		assertEquals(InstanceStatus.STARTING, status);
+
+		while (status == InstanceStatus.STARTING && (System.nanoTime() - start) / 1000000 < 2000) {
+			Thread.sleep(10);
+			status = healthCheckHandler.getStatus(InstanceStatus.STARTING);
+		}
+		assertEquals(InstanceStatus.DOWN, status);
+	}
+
+	@Test
+	public void testStatusChangeUpdatesInstanceInfo() throws Exception {
+		healthCheckHandler.setEvaluationIntervalMs(10);
+
+		initialize(SwitchingHealthConfiguration.class);
+
+		ApplicationInfoManager applicationInfoManager = SwitchingHealthConfiguration.applicationInfoManager;
+		SwitchingHealthConfiguration.health.set(Health.down().build());
+		verify(applicationInfoManager, timeout(5000)).setInstanceStatus(InstanceStatus.DOWN);
+		assertEquals(InstanceStatus.DOWN, healthCheckHandler.getStatus(InstanceStatus.UP));
+	}
+
 	private void initialize(Class<?>... configurations) throws Exception {
 		ApplicationContext applicationContext = new AnnotationConfigApplicationContext(configurations);
 		healthCheckHandler.setApplicationContext(applicationContext);
@@ -125,6 +170,43 @@ public class EurekaHealthCheckHandlerTests {
 		}
 	}
 
+	public static class SlowHealthConfiguration {
+
+		@Bean
+		public HealthIndicator slowHealthIndicator() {
+			return () -> {
+				try {
+					Thread.sleep(5000);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return Health.up().build();
+			};
+		}
+	}
+
+	public static class SwitchingHealthConfiguration {
+
+		static final AtomicReference<Health> health = new AtomicReference<>(Health.up().build());
+
+		static ApplicationInfoManager applicationInfoManager;
+
+		@Bean
+		public HealthIndicator healthIndicator() {
+			return health::get;
+		}
+
+		@Bean
+		public ApplicationInfoManager applicationInfoManager() {
+			InstanceInfo info = InstanceInfo.Builder.newBuilder().setAppName("app")
+					.setStatus(InstanceStatus.UP).build();
+			applicationInfoManager = mock(ApplicationInfoManager.class);
+			when(applicationInfoManager.getInfo()).thenReturn(info);
+			return applicationInfoManager;
+		}
+	}
+
 	public static class FatalHealthConfiguration {
 
 		@Bean
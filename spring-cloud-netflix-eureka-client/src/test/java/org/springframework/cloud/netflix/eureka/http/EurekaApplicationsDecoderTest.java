@@ -0,0 +1,305 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.ActionType;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.InstanceInfo.PortType;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EurekaApplicationsDecoderTest {
+
+	private static final Log log = LogFactory.getLog(EurekaApplicationsDecoderTest.class);
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final EurekaApplicationsDecoder decoder = new EurekaApplicationsDecoder(
+			new StringInterner());
+
+	@Test
+	public void registryIsDecoded() throws Exception {
+		Applications applications = decode(registry(2, 3));
+
+		assertEquals("UP_6_", applications.getAppsHashCode());
+		assertEquals(Long.valueOf(42), applications.getVersion());
+		assertEquals(2, applications.getRegisteredApplications().size());
+		Application application = applications.getRegisteredApplications("APP-1");
+		assertEquals(3, application.getInstances().size());
+
+		InstanceInfo instance = application.getByInstanceId("host-1-2:8080");
+		assertEquals("APP-1", instance.getAppName());
+		assertEquals("host-1-2", instance.getHostName());
+		assertEquals("10.0.1.2", instance.getIPAddr());
+		assertEquals(InstanceStatus.UP, instance.getStatus());
+		assertEquals(InstanceStatus.UNKNOWN, instance.getOverriddenStatus());
+		assertEquals(8080, instance.getPort());
+		assertTrue(instance.isPortEnabled(PortType.UNSECURE));
+		assertEquals(8443, instance.getSecurePort());
+		assertFalse(instance.isPortEnabled(PortType.SECURE));
+		assertEquals("app-1", instance.getVIPAddress());
+		assertEquals("http://host-1-2:8080/health", instance.getHealthCheckUrl());
+		assertEquals("zone-2", instance.getMetadata().get("zone"));
+		assertEquals(DataCenterInfo.Name.MyOwn, instance.getDataCenterInfo().getName());
+		assertEquals(90, instance.getLeaseInfo().getDurationInSecs());
+		assertEquals(1000L, instance.getLeaseInfo().getRegistrationTimestamp());
+		assertEquals(1234L, instance.getLastUpdatedTimestamp());
+		assertEquals(Long.valueOf(1234), instance.getLastDirtyTimestamp());
+		assertEquals(ActionType.ADDED, instance.getActionType());
+	}
+
+	@Test
+	public void identicalValuesAreShared() throws Exception {
+		List<InstanceInfo> first = decode(registry(2, 4))
+				.getRegisteredApplications("APP-0").getInstances();
+		List<InstanceInfo> second = decode(registry(2, 4))
+				.getRegisteredApplications("APP-1").getInstances();
+
+		InstanceInfo instance = first.get(0);
+		assertSame(instance.getMetadata().get("zone"), first.get(3).getMetadata().get("zone"));
+		assertSame(instance.getMetadata().get("zone"), second.get(0).getMetadata().get("zone"));
+		assertSame(instance.getDataCenterInfo(), second.get(1).getDataCenterInfo());
+	}
+
+	@Test
+	public void converterWritesWhatItReads() throws Exception {
+		EurekaApplicationsHttpMessageConverter converter = new EurekaApplicationsHttpMessageConverter(
+				new RestTemplateTransportClientFactory().mappingJacksonHttpMessageConverter()
+						.getObjectMapper(),
+				this.decoder, MediaType.APPLICATION_JSON);
+		Applications applications = converter.read(EurekaApplications.class,
+				new MockHttpInputMessage(registry(2, 3)));
+
+		MockHttpOutputMessage output = new MockHttpOutputMessage();
+		converter.write(applications, MediaType.APPLICATION_JSON, output);
+		Applications written = converter.read(EurekaApplications.class,
+				new MockHttpInputMessage(output.getBodyAsBytes()));
+
+		assertEquals(applications.getAppsHashCode(), written.getAppsHashCode());
+		assertEquals(3, written.getRegisteredApplications("APP-1").getInstances().size());
+		assertEquals("zone-2", written.getRegisteredApplications("APP-1")
+				.getByInstanceId("host-1-2:8080").getMetadata().get("zone"));
+	}
+
+	@Test
+	public void converterOnlyReadsEurekaApplications() {
+		EurekaApplicationsHttpMessageConverter converter = new EurekaApplicationsHttpMessageConverter(
+				new RestTemplateTransportClientFactory().mappingJacksonHttpMessageConverter()
+						.getObjectMapper(),
+				this.decoder, MediaType.APPLICATION_JSON);
+
+		assertTrue(converter.canRead(EurekaApplications.class, MediaType.APPLICATION_JSON));
+		assertFalse(converter.canRead(Applications.class, MediaType.APPLICATION_JSON));
+		assertFalse(converter.canRead(Object.class, MediaType.APPLICATION_JSON));
+	}
+
+	@Test
+	public void unknownEnumValuesAreTolerated() throws Exception {
+		String json = "{\"applications\":{\"versions__delta\":\"1\","
+				+ "\"apps__hashcode\":\"UP_1_\",\"application\":{\"name\":\"APP\","
+				+ "\"instance\":{\"instanceId\":\"a\",\"app\":\"APP\","
+				+ "\"hostName\":\"a\",\"actionType\":\"RENAMED\","
+				+ "\"dataCenterInfo\":{\"name\":\"Elsewhere\"}}}}}";
+
+		Applications applications = decode(json.getBytes("UTF-8"));
+
+		InstanceInfo instance = applications.getRegisteredApplications("APP")
+				.getByInstanceId("a");
+		assertNull(instance.getActionType());
+		assertEquals(DataCenterInfo.Name.MyOwn, instance.getDataCenterInfo().getName());
+	}
+
+	@Test
+	public void internerForgetsATenthOfItsStringsWhenFull() {
+		StringInterner interner = new StringInterner(64, 100);
+		for (int i = 0; i < 100; i++) {
+			interner.intern("value-" + i);
+		}
+		assertEquals(100, interner.size());
+
+		interner.intern("one more");
+
+		assertEquals(91, interner.size());
+	}
+
+	@Test
+	public void singleApplicationAndInstanceAreDecoded() throws Exception {
+		String json = "{\"applications\":{\"versions__delta\":\"1\","
+				+ "\"apps__hashcode\":\"UP_1_\",\"application\":{\"name\":\"APP\","
+				+ "\"instance\":{\"instanceId\":\"a\",\"app\":\"APP\","
+				+ "\"hostName\":\"a\",\"unknown\":{\"nested\":[1,2]},"
+				+ "\"metadata\":{\"@class\":\"java.util.Collections$EmptyMap\"}}}}}";
+
+		Applications applications = decode(json.getBytes("UTF-8"));
+
+		InstanceInfo instance = applications.getRegisteredApplications("APP")
+				.getByInstanceId("a");
+		assertEquals("a", instance.getHostName());
+		assertTrue(instance.getMetadata().isEmpty());
+	}
+
+	@Test
+	public void streamingDecodeOfLargeRegistry() throws Exception {
+		byte[] json = registry(500, 100);
+		ObjectMapper mapper = new RestTemplateTransportClientFactory()
+				.mappingJacksonHttpMessageConverter().getObjectMapper();
+		decode(json);
+		mapper.readValue(json, EurekaApplications.class);
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long allocated = allocatedBytes(threads);
+		long start = System.nanoTime();
+		Applications streamed = decode(json);
+		long streamingMillis = (System.nanoTime() - start) / 1000000;
+		long streamingAllocated = allocatedBytes(threads) - allocated;
+
+		allocated = allocatedBytes(threads);
+		start = System.nanoTime();
+		Applications bound = mapper.readValue(json, EurekaApplications.class);
+		long bindingMillis = (System.nanoTime() - start) / 1000000;
+		long bindingAllocated = allocatedBytes(threads) - allocated;
+
+		log.info("Registry of 50000 instances, " + json.length + " bytes: streaming in "
+				+ streamingMillis + "ms allocating " + streamingAllocated
+				+ " bytes, data binding in " + bindingMillis + "ms allocating "
+				+ bindingAllocated + " bytes");
+		assertEquals(500, streamed.getRegisteredApplications().size());
+		assertEquals(bound.getRegisteredApplications().size(),
+				streamed.getRegisteredApplications().size());
+		InstanceInfo expected = bound.getRegisteredApplications("APP-7")
+				.getByInstanceId("host-7-99:8080");
+		InstanceInfo actual = streamed.getRegisteredApplications("APP-7")
+				.getByInstanceId("host-7-99:8080");
+		assertEquals(expected.getHostName(), actual.getHostName());
+		assertEquals(expected.getPort(), actual.getPort());
+		assertEquals(expected.getMetadata(), actual.getMetadata());
+		assertEquals(expected.getLastDirtyTimestamp(), actual.getLastDirtyTimestamp());
+	}
+
+	private Applications decode(byte[] json) throws IOException {
+		return this.decoder.decode(this.jsonFactory.createParser(json));
+	}
+
+	private static long allocatedBytes(ThreadMXBean threads) {
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes a registry in the format of the Eureka server.
+	 */
+	private byte[] registry(int apps, int instancesPerApp) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (JsonGenerator generator = this.jsonFactory.createGenerator(out)) {
+			generator.writeStartObject();
+			generator.writeObjectFieldStart("applications");
+			generator.writeStringField("versions__delta", "42");
+			generator.writeStringField("apps__hashcode", "UP_" + (apps * instancesPerApp) + "_");
+			generator.writeArrayFieldStart("application");
+			for (int app = 0; app < apps; app++) {
+				generator.writeStartObject();
+				generator.writeStringField("name", "APP-" + app);
+				generator.writeArrayFieldStart("instance");
+				for (int instance = 0; instance < instancesPerApp; instance++) {
+					writeInstance(generator, app, instance);
+				}
+				generator.writeEndArray();
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.writeEndObject();
+		}
+		return out.toByteArray();
+	}
+
+	private static void writeInstance(JsonGenerator generator, int app, int instance)
+			throws IOException {
+		String host = "host-" + app + "-" + instance;
+		generator.writeStartObject();
+		generator.writeStringField("instanceId", host + ":8080");
+		generator.writeStringField("hostName", host);
+		generator.writeStringField("app", "APP-" + app);
+		generator.writeStringField("ipAddr", "10.0." + app + "." + instance);
+		generator.writeStringField("status", "UP");
+		generator.writeStringField("overriddenstatus", "UNKNOWN");
+		generator.writeObjectFieldStart("port");
+		generator.writeNumberField("$", 8080);
+		generator.writeStringField("@enabled", "true");
+		generator.writeEndObject();
+		generator.writeObjectFieldStart("securePort");
+		generator.writeNumberField("$", 8443);
+		generator.writeStringField("@enabled", "false");
+		generator.writeEndObject();
+		generator.writeNumberField("countryId", 1);
+		generator.writeObjectFieldStart("dataCenterInfo");
+		generator.writeStringField("@class",
+				"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo");
+		generator.writeStringField("name", "MyOwn");
+		generator.writeEndObject();
+		generator.writeObjectFieldStart("leaseInfo");
+		generator.writeNumberField("renewalIntervalInSecs", 30);
+		generator.writeNumberField("durationInSecs", 90);
+		generator.writeNumberField("registrationTimestamp", 1000);
+		generator.writeNumberField("lastRenewalTimestamp", 2000);
+		generator.writeNumberField("evictionTimestamp", 0);
+		generator.writeNumberField("serviceUpTimestamp", 1000);
+		generator.writeEndObject();
+		generator.writeObjectFieldStart("metadata");
+		generator.writeStringField("zone", "zone-" + (instance % 3));
+		generator.writeStringField("management.port", "8081");
+		generator.writeEndObject();
+		generator.writeStringField("homePageUrl", "http://" + host + ":8080/");
+		generator.writeStringField("statusPageUrl", "http://" + host + ":8080/info");
+		generator.writeStringField("healthCheckUrl", "http://" + host + ":8080/health");
+		generator.writeStringField("vipAddress", "app-" + app);
+		generator.writeStringField("secureVipAddress", "app-" + app);
+		generator.writeStringField("isCoordinatingDiscoveryServer", "false");
+		generator.writeStringField("lastUpdatedTimestamp", "1234");
+		generator.writeStringField("lastDirtyTimestamp", "1234");
+		generator.writeStringField("actionType", "ADDED");
+		generator.writeEndObject();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RestTemplateTransportClientFactorySmileTest {
+
+	private static final Log log = LogFactory
+			.getLog(RestTemplateTransportClientFactorySmileTest.class);
+
+	private static final int APPS = 200;
+
+	private static final int INSTANCES_PER_APP = 100;
+
+	private final RestTemplateTransportClientFactory factory = new RestTemplateTransportClientFactory(
+			true);
+
+	@Test
+	public void registryIsSmallerAndDecodedWithSmile() throws Exception {
+		ObjectMapper json = this.factory.mappingJacksonHttpMessageConverter()
+				.getObjectMapper();
+		ObjectMapper smile = this.factory.mappingJacksonSmileHttpMessageConverter()
+				.getObjectMapper();
+		Applications applications = registry();
+
+		byte[] jsonPayload = json.writeValueAsBytes(applications);
+		byte[] smilePayload = smile.writeValueAsBytes(applications);
+		json.readValue(jsonPayload, Applications.class);
+		smile.readValue(smilePayload, Applications.class);
+
+		long start = System.nanoTime();
+		Applications fromJson = json.readValue(jsonPayload, Applications.class);
+		long jsonMicros = (System.nanoTime() - start) / 1000;
+		start = System.nanoTime();
+		Applications fromSmile = smile.readValue(smilePayload, Applications.class);
+		long smileMicros = (System.nanoTime() - start) / 1000;
+
+		log.info("Registry of " + (APPS * INSTANCES_PER_APP) + " instances: json="
+				+ jsonPayload.length + " bytes, decoded in " + jsonMicros
+				+ "us, smile=" + smilePayload.length + " bytes, decoded in "
+				+ smileMicros + "us");
+		assertTrue("smile=" + smilePayload.length + " json=" + jsonPayload.length,
+				smilePayload.length < jsonPayload.length);
+		assertEquals(APPS, fromJson.getRegisteredApplications().size());
+		assertEquals(APPS, fromSmile.getRegisteredApplications().size());
+		assertEquals(INSTANCES_PER_APP,
+				fromSmile.getRegisteredApplications("APP-7").getInstances().size());
+	}
+
+	@Test
+	public void repeatedValuesAreInterned() throws Exception {
+		ObjectMapper smile = this.factory.mappingJacksonSmileHttpMessageConverter()
+				.getObjectMapper();
+		ObjectMapper json = this.factory.mappingJacksonHttpMessageConverter()
+				.getObjectMapper();
+		Applications applications = registry();
+
+		List<InstanceInfo> fromSmile = smile
+				.readValue(smile.writeValueAsBytes(applications), Applications.class)
+				.getRegisteredApplications("APP-1").getInstances();
+		List<InstanceInfo> fromJson = json
+				.readValue(json.writeValueAsBytes(applications), Applications.class)
+				.getRegisteredApplications("APP-2").getInstances();
+
+		String zone = fromSmile.get(0).getMetadata().get("zone");
+		assertSame(zone, fromSmile.get(3).getMetadata().get("zone"));
+		assertSame(zone, fromJson.get(0).getMetadata().get("zone"));
+	}
+
+	private static Applications registry() {
+		Applications applications = new Applications();
+		for (int app = 0; app < APPS; app++) {
+			List<InstanceInfo> instances = new ArrayList<>();
+			for (int instance = 0; instance < INSTANCES_PER_APP; instance++) {
+				instances.add(InstanceInfo.Builder.newBuilder()
+						.setAppName("APP-" + app)
+						.setInstanceId("host-" + app + "-" + instance + ":8080")
+						.setHostName("host-" + app + "-" + instance)
+						.setIPAddr("10.0." + app + "." + instance)
+						.setVIPAddress("app-" + app)
+						.setSecureVIPAddress("app-" + app)
+						.setPort(8080)
+						.setStatus(InstanceInfo.InstanceStatus.UP)
+						.setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+						.add("zone", "zone-" + (instance % 3))
+						.add("management.port", "8081")
+						.build());
+			}
+			applications.addApplication(new Application("APP-" + app, instances));
+		}
+		return applications;
+	}
+}
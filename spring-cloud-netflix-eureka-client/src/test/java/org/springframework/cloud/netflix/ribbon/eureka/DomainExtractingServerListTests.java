@@ -33,6 +33,8 @@ import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
@@ -55,6 +57,8 @@ public class DomainExtractingServerListTests {
 	private Map<String, String> metadata = Collections.<String, String> singletonMap(
 			"instanceId", INSTANCE_ID);
 
+	private DiscoveryEnabledServer server;
+
 	@Test
 	public void testDomainExtractingServer() {
 		DomainExtractingServerList serverList = getDomainExtractingServerList(
@@ -115,22 +119,50 @@ public class DomainExtractingServerListTests {
 		assertEquals("hostPort was wrong", IP_ADDR + ":" + PORT, des.getHostPort());
 	}
 
+	@Test
+	public void testUnchangedInstanceIsReused() {
+		DomainExtractingServerList serverList = getDomainExtractingServerList(
+				new DefaultClientConfigImpl(), true);
+		Server first = serverList.getInitialListOfServers().get(0);
+		given(this.server.getInstanceInfo()).willReturn(instanceInfo(0L));
+		Server second = serverList.getInitialListOfServers().get(0);
+		assertSame("unchanged server was not reused", first, second);
+	}
+
+	@Test
+	public void testChangedInstanceIsNotReused() {
+		DomainExtractingServerList serverList = getDomainExtractingServerList(
+				new DefaultClientConfigImpl(), true);
+		Server first = serverList.getInitialListOfServers().get(0);
+		given(this.server.getInstanceInfo()).willReturn(instanceInfo(1L));
+		Server second = serverList.getInitialListOfServers().get(0);
+		assertNotSame("changed server was reused", first, second);
+		assertEquals("servers were not equal", first, second);
+	}
+
 	protected DomainExtractingServerList getDomainExtractingServerList(
 			DefaultClientConfigImpl config, boolean approximateZoneFromHostname) {
-		DiscoveryEnabledServer server = mock(DiscoveryEnabledServer.class);
+		this.server = mock(DiscoveryEnabledServer.class);
 		@SuppressWarnings("unchecked")
 		ServerList<DiscoveryEnabledServer> originalServerList = mock(ServerList.class);
+		InstanceInfo instanceInfo = instanceInfo(0L);
+		given(this.server.getInstanceInfo()).willReturn(instanceInfo);
+		given(this.server.getHost()).willReturn(HOST_NAME);
+		given(originalServerList.getInitialListOfServers()).willReturn(
+				Arrays.asList(this.server));
+		return new DomainExtractingServerList(originalServerList, config,
+				approximateZoneFromHostname);
+	}
+
+	private InstanceInfo instanceInfo(long lastUpdatedTimestamp) {
 		InstanceInfo instanceInfo = mock(InstanceInfo.class);
-		given(server.getInstanceInfo()).willReturn(instanceInfo);
-		given(server.getHost()).willReturn(HOST_NAME);
+		given(instanceInfo.getId()).willReturn(INSTANCE_ID);
 		given(instanceInfo.getMetadata()).willReturn(this.metadata);
 		given(instanceInfo.getHostName()).willReturn(HOST_NAME);
 		given(instanceInfo.getIPAddr()).willReturn(IP_ADDR);
 		given(instanceInfo.getPort()).willReturn(PORT);
-		given(originalServerList.getInitialListOfServers()).willReturn(
-				Arrays.asList(server));
-		return new DomainExtractingServerList(originalServerList, config,
-				approximateZoneFromHostname);
+		given(instanceInfo.getLastUpdatedTimestamp()).willReturn(lastUpdatedTimestamp);
+		return instanceInfo;
 	}
 
 }
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+
+/**
+ * Publishes the events of the {@link InstanceRegistry} on a dedicated thread, so that
+ * slow listeners do not delay the registrations and renewals of the clients.
+ *
+ * At most {@code queueCapacity} events wait to be published. When the queue is full,
+ * the {@link OverflowPolicy} decides which event is lost. Renewed events can also be
+ * held back and published together every {@code renewBatchInterval} milliseconds,
+ * unless the instance registers or cancels in the meantime: the waiting renewals are
+ * then published first, so that the events of an instance keep their order.
+ *
+ * The queue depth and the number of published, dropped and coalesced events are
+ * published through Servo as the {@code eurekaRegistryEvents} monitor. Events are
+ * queued from construction, and published once {@link #afterPropertiesSet()} has
+ * started the dispatcher thread.
+ */
+public class AsyncRegistryEventPublisher implements InitializingBean, DisposableBean {
+
+	private static final Log log = LogFactory.getLog(AsyncRegistryEventPublisher.class);
+
+	/**
+	 * What to do when an event is published while the queue is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Drop the oldest waiting event.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Replace the waiting renewed event of the same instance, if any, otherwise drop
+		 * the oldest waiting event.
+		 */
+		COALESCE
+	}
+
+	private final ApplicationEventPublisher delegate;
+
+	private final int queueCapacity;
+
+	private final long renewBatchInterval;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Events to publish as soon as possible, by sequence number.
+	 */
+	private final LinkedHashMap<Long, ApplicationEvent> events = new LinkedHashMap<>();
+
+	/**
+	 * Renewed events held back until the next batch, by sequence number.
+	 */
+	private final LinkedHashMap<Long, ApplicationEvent> renewals = new LinkedHashMap<>();
+
+	/**
+	 * Sequence number of the waiting renewed event of every instance.
+	 */
+	private final Map<String, Long> pendingRenewals = new HashMap<>();
+
+	private long sequence;
+
+	private long nextBatch;
+
+	private boolean running = true;
+
+	private volatile boolean monitorRegistered;
+
+	private final AtomicLong published = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicLong coalesced = new AtomicLong();
+
+	private final Thread dispatcher;
+
+	public AsyncRegistryEventPublisher(ApplicationEventPublisher delegate,
+			int queueCapacity, long renewBatchInterval, OverflowPolicy overflowPolicy) {
+		this.delegate = delegate;
+		this.queueCapacity = Math.max(queueCapacity, 1);
+		this.renewBatchInterval = Math.max(renewBatchInterval, 0);
+		this.overflowPolicy = overflowPolicy;
+		this.nextBatch = System.currentTimeMillis() + this.renewBatchInterval;
+		this.dispatcher = new Thread(this::dispatch, "Eureka-RegistryEventPublisher");
+		this.dispatcher.setDaemon(true);
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Monitors.registerObject("eurekaRegistryEvents", this);
+		this.monitorRegistered = true;
+		this.dispatcher.start();
+	}
+
+	/**
+	 * Queue an event, never blocks.
+	 */
+	public void publish(ApplicationEvent event) {
+		boolean renewal = event instanceof EurekaInstanceRenewedEvent;
+		String instance = instanceKey(event);
+		synchronized (this.lock) {
+			if (!this.running) {
+				this.dropped.incrementAndGet();
+				return;
+			}
+			if (getQueueDepthInternal() >= this.queueCapacity) {
+				if (renewal && this.overflowPolicy == OverflowPolicy.COALESCE
+						&& coalesce(instance, event)) {
+					return;
+				}
+				dropOldest();
+			}
+			long seq = this.sequence++;
+			if (renewal) {
+				this.pendingRenewals.put(instance, seq);
+			}
+			if (renewal && this.renewBatchInterval > 0) {
+				this.renewals.put(seq, event);
+			}
+			else {
+				if (!renewal && hasHeldBackRenewal(instance)) {
+					// publish the batch now, the renewal must come first
+					this.nextBatch = 0;
+				}
+				this.events.put(seq, event);
+				this.lock.notifyAll();
+			}
+		}
+	}
+
+	@Monitor(name = "queueDepth", type = DataSourceType.GAUGE)
+	public int getQueueDepth() {
+		synchronized (this.lock) {
+			return getQueueDepthInternal();
+		}
+	}
+
+	@Monitor(name = "published", type = DataSourceType.COUNTER)
+	public long getPublished() {
+		return this.published.get();
+	}
+
+	@Monitor(name = "dropped", type = DataSourceType.COUNTER)
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Monitor(name = "coalesced", type = DataSourceType.COUNTER)
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		synchronized (this.lock) {
+			this.running = false;
+			this.lock.notifyAll();
+		}
+		this.dispatcher.join(5000);
+		if (this.monitorRegistered) {
+			Monitors.unregisterObject("eurekaRegistryEvents", this);
+			this.monitorRegistered = false;
+		}
+	}
+
+	private int getQueueDepthInternal() {
+		return this.events.size() + this.renewals.size();
+	}
+
+	private boolean hasHeldBackRenewal(String instance) {
+		if (instance == null || this.renewals.isEmpty()) {
+			return false;
+		}
+		Long seq = this.pendingRenewals.get(instance);
+		return seq != null && this.renewals.containsKey(seq);
+	}
+
+	private boolean coalesce(String instance, ApplicationEvent event) {
+		Long seq = this.pendingRenewals.get(instance);
+		if (seq == null) {
+			return false;
+		}
+		// replacing the value keeps the position of the waiting event
+		if (this.events.containsKey(seq)) {
+			this.events.put(seq, event);
+		}
+		else {
+			this.renewals.put(seq, event);
+		}
+		this.coalesced.incrementAndGet();
+		return true;
+	}
+
+	private void dropOldest() {
+		Map.Entry<Long, ApplicationEvent> oldest = first(this.events);
+		Map.Entry<Long, ApplicationEvent> oldestRenewal = first(this.renewals);
+		if (oldest == null || (oldestRenewal != null
+				&& oldestRenewal.getKey() < oldest.getKey())) {
+			oldest = oldestRenewal;
+			this.renewals.remove(oldest.getKey());
+		}
+		else {
+			this.events.remove(oldest.getKey());
+		}
+		removed(oldest.getKey(), oldest.getValue());
+		this.dropped.incrementAndGet();
+	}
+
+	private void dispatch() {
+		while (true) {
+			List<ApplicationEvent> batch;
+			try {
+				batch = take();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (batch == null) {
+				return;
+			}
+			for (ApplicationEvent event : batch) {
+				try {
+					this.delegate.publishEvent(event);
+					this.published.incrementAndGet();
+				}
+				catch (Exception e) {
+					log.warn("Error publishing registry event " + event, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the events to publish in sequence order, or null once stopped and drained
+	 */
+	private List<ApplicationEvent> take() throws InterruptedException {
+		synchronized (this.lock) {
+			while (true) {
+				long now = System.currentTimeMillis();
+				boolean batchDue = !this.renewals.isEmpty()
+						&& (now >= this.nextBatch || !this.running);
+				if (!this.events.isEmpty() || batchDue) {
+					List<ApplicationEvent> batch = new ArrayList<>(
+							this.events.size() + (batchDue ? this.renewals.size() : 0));
+					Iterator<Map.Entry<Long, ApplicationEvent>> events = this.events
+							.entrySet().iterator();
+					Iterator<Map.Entry<Long, ApplicationEvent>> renewals = batchDue
+							? this.renewals.entrySet().iterator() : null;
+					merge(batch, events, renewals);
+					this.events.clear();
+					if (batchDue) {
+						this.renewals.clear();
+						this.nextBatch = now + this.renewBatchInterval;
+					}
+					return batch;
+				}
+				if (!this.running) {
+					return null;
+				}
+				if (this.renewals.isEmpty()) {
+					this.lock.wait();
+				}
+				else {
+					this.lock.wait(Math.max(this.nextBatch - now, 1));
+				}
+			}
+		}
+	}
+
+	private void merge(List<ApplicationEvent> batch,
+			Iterator<Map.Entry<Long, ApplicationEvent>> events,
+			Iterator<Map.Entry<Long, ApplicationEvent>> renewals) {
+		Map.Entry<Long, ApplicationEvent> event = next(events);
+		Map.Entry<Long, ApplicationEvent> renewal = next(renewals);
+		while (event != null || renewal != null) {
+			Map.Entry<Long, ApplicationEvent> taken;
+			if (renewal == null || (event != null && event.getKey() < renewal.getKey())) {
+				taken = event;
+				event = next(events);
+			}
+			else {
+				taken = renewal;
+				renewal = next(renewals);
+			}
+			removed(taken.getKey(), taken.getValue());
+			batch.add(taken.getValue());
+		}
+	}
+
+	private void removed(Long seq, ApplicationEvent event) {
+		if (event instanceof EurekaInstanceRenewedEvent) {
+			this.pendingRenewals.remove(instanceKey(event), seq);
+		}
+	}
+
+	private static Map.Entry<Long, ApplicationEvent> first(Map<Long, ApplicationEvent> map) {
+		return map.isEmpty() ? null : map.entrySet().iterator().next();
+	}
+
+	private static Map.Entry<Long, ApplicationEvent> next(
+			Iterator<Map.Entry<Long, ApplicationEvent>> iterator) {
+		return iterator != null && iterator.hasNext() ? iterator.next() : null;
+	}
+
+	private static String instanceKey(ApplicationEvent event) {
+		if (event instanceof EurekaInstanceRenewedEvent) {
+			EurekaInstanceRenewedEvent renewed = (EurekaInstanceRenewedEvent) event;
+			return renewed.getAppName() + ":" + renewed.getServerId();
+		}
+		if (event instanceof EurekaInstanceCanceledEvent) {
+			EurekaInstanceCanceledEvent canceled = (EurekaInstanceCanceledEvent) event;
+			return canceled.getAppName() + ":" + canceled.getServerId();
+		}
+		if (event instanceof EurekaInstanceRegisteredEvent) {
+			EurekaInstanceRegisteredEvent registered = (EurekaInstanceRegisteredEvent) event;
+			if (registered.getInstanceInfo() != null) {
+				return registered.getInstanceInfo().getAppName() + ":"
+						+ registered.getInstanceInfo().getInstanceId();
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.net.URI;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.eureka.cluster.HttpReplicationClient;
+import com.netflix.eureka.cluster.PeerEurekaNode;
+import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+
+/**
+ * A {@link PeerEurekaNode} replicating the instance updates through a
+ * {@link PeerReplicationBatcher} configured by the {@link EurekaServerConfigBean}.
+ * The status updates of auto scaling groups are still replicated by the
+ * {@link PeerEurekaNode}.
+ */
+public class BatchingPeerEurekaNode extends PeerEurekaNode {
+
+	private final PeerReplicationBatcher batcher;
+
+	private final long maxProcessingDelayMs;
+
+	public BatchingPeerEurekaNode(PeerAwareInstanceRegistry registry, String targetHost,
+			String serviceUrl, HttpReplicationClient replicationClient,
+			EurekaServerConfigBean config) {
+		super(registry, targetHost, serviceUrl, replicationClient, config);
+		this.batcher = new PeerReplicationBatcher(peerName(targetHost, serviceUrl),
+				replicationClient, registry, config.getPeerReplicationMaxBatchSize(),
+				config.getPeerReplicationMinBatchDelayMs(),
+				config.getPeerReplicationMaxBatchDelayMs(),
+				config.getMaxElementsInPeerReplicationPool(),
+				config.shouldSyncWhenTimestampDiffers());
+		this.batcher.start();
+		this.maxProcessingDelayMs = config.getMaxTimeForReplication();
+	}
+
+	public PeerReplicationBatcher getBatcher() {
+		return this.batcher;
+	}
+
+	@Override
+	public void register(InstanceInfo info) throws Exception {
+		this.batcher.register(info, System.currentTimeMillis() + leaseRenewalOf(info));
+	}
+
+	@Override
+	public void cancel(String appName, String id) throws Exception {
+		this.batcher.cancel(appName, id,
+				System.currentTimeMillis() + this.maxProcessingDelayMs);
+	}
+
+	@Override
+	public void heartbeat(String appName, String id, InstanceInfo info,
+			InstanceStatus overriddenStatus, boolean primeConnection) throws Throwable {
+		if (primeConnection) {
+			super.heartbeat(appName, id, info, overriddenStatus, true);
+			return;
+		}
+		this.batcher.heartbeat(appName, id, info, overriddenStatus,
+				System.currentTimeMillis() + leaseRenewalOf(info));
+	}
+
+	@Override
+	public void statusUpdate(String appName, String id, InstanceStatus newStatus,
+			InstanceInfo info) {
+		this.batcher.statusUpdate(appName, id, info,
+				System.currentTimeMillis() + this.maxProcessingDelayMs);
+	}
+
+	@Override
+	public void deleteStatusOverride(String appName, String id, InstanceInfo info) {
+		this.batcher.deleteStatusOverride(appName, id, info,
+				System.currentTimeMillis() + this.maxProcessingDelayMs);
+	}
+
+	@Override
+	public void shutDown() {
+		this.batcher.shutdown();
+		super.shutDown();
+	}
+
+	private static String peerName(String targetHost, String serviceUrl) {
+		int port = URI.create(serviceUrl).getPort();
+		return port == -1 ? targetHost : targetHost + "_" + port;
+	}
+
+	private static long leaseRenewalOf(InstanceInfo info) {
+		return (info.getLeaseInfo() == null ? Lease.DEFAULT_DURATION_IN_SECS
+				: info.getLeaseInfo().getRenewalIntervalInSecs()) * 1000L;
+	}
+}
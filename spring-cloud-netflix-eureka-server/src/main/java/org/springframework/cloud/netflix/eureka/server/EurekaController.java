@@ -18,6 +18,7 @@ package org.springframework.cloud.netflix.eureka.server;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -27,14 +28,18 @@ import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
 
+import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.netflix.appinfo.AmazonInfo;
 import com.netflix.appinfo.ApplicationInfoManager;
@@ -48,6 +53,11 @@ import com.netflix.eureka.resources.StatusResource;
 import com.netflix.eureka.util.StatusInfo;
 
 /**
+ * The Eureka dashboard. The registered applications are rendered from a view model
+ * that is rebuilt at most once per response cache update interval, and are paginated
+ * and optionally filtered by name. They are also available as JSON at
+ * {@code dashboard/apps}.
+ *
  * @author Spencer Gibb
  * @author Gang Li
  */
@@ -55,18 +65,31 @@ import com.netflix.eureka.util.StatusInfo;
 @RequestMapping("${eureka.dashboard.path:/}")
 public class EurekaController {
 
+	private static final long DEFAULT_APPS_CACHE_INTERVAL_MS = 30 * 1000;
+
 	@Value("${eureka.dashboard.path:/}")
 	private String dashboardPath = "";
+
+	private final EurekaDashboardProperties dashboardProperties;
+
 	private ApplicationInfoManager applicationInfoManager;
 
+	private volatile DashboardApps dashboardApps;
+
 	public EurekaController(ApplicationInfoManager applicationInfoManager) {
+		this(applicationInfoManager, new EurekaDashboardProperties());
+	}
+
+	public EurekaController(ApplicationInfoManager applicationInfoManager,
+			EurekaDashboardProperties dashboardProperties) {
 		this.applicationInfoManager = applicationInfoManager;
+		this.dashboardProperties = dashboardProperties;
 	}
 
 	@RequestMapping(method = RequestMethod.GET)
 	public String status(HttpServletRequest request, Map<String, Object> model) {
 		populateBase(request, model);
-		populateApps(model);
+		populateApps(request, model);
 		StatusInfo statusInfo;
 		try {
 			statusInfo = new StatusResource().getStatusInfo();
@@ -80,6 +103,15 @@ public class EurekaController {
 		return "eureka/status";
 	}
 
+	@RequestMapping(value = "/dashboard/apps", method = RequestMethod.GET,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	@ResponseBody
+	public Map<String, Object> apps(HttpServletRequest request) {
+		Map<String, Object> model = new LinkedHashMap<>();
+		populateApps(request, model);
+		return model;
+	}
+
 	@RequestMapping(value = "/lastn", method = RequestMethod.GET)
 	public String lastn(HttpServletRequest request, Map<String, Object> model) {
 		populateBase(request, model);
@@ -160,7 +192,74 @@ public class EurekaController {
 		model.put("replicas", replicas.entrySet());
 	}
 
-	private void populateApps(Map<String, Object> model) {
+	private void populateApps(HttpServletRequest request, Map<String, Object> model) {
+		List<Map<String, Object>> apps = getApps();
+		String filter = request.getParameter("app");
+		if (StringUtils.hasText(filter)) {
+			String name = filter.trim().toUpperCase();
+			List<Map<String, Object>> filtered = new ArrayList<>();
+			for (Map<String, Object> app : apps) {
+				if (((String) app.get("name")).toUpperCase().contains(name)) {
+					filtered.add(app);
+				}
+			}
+			apps = filtered;
+		}
+		int size = Math.max(1, intParameter(request, "size",
+				this.dashboardProperties.getPageSize()));
+		int pages = Math.max(1, (apps.size() + size - 1) / size);
+		int page = Math.min(Math.max(1, intParameter(request, "page", 1)), pages);
+		int from = (page - 1) * size;
+		model.put("apps", apps.subList(from, Math.min(from + size, apps.size())));
+		model.put("appFilter", filter == null ? "" : filter);
+		model.put("totalApps", apps.size());
+		model.put("page", page);
+		model.put("pages", pages);
+		model.put("pageSize", size);
+	}
+
+	private static int intParameter(HttpServletRequest request, String name,
+			int defaultValue) {
+		String value = request.getParameter(name);
+		try {
+			return StringUtils.hasText(value) ? Integer.parseInt(value.trim())
+					: defaultValue;
+		}
+		catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * @return the view model of all the registered applications, rebuilt when it is
+	 * older than the response cache update interval
+	 */
+	private List<Map<String, Object>> getApps() {
+		long now = System.currentTimeMillis();
+		DashboardApps dashboardApps = this.dashboardApps;
+		if (isStale(dashboardApps, now)) {
+			synchronized (this) {
+				dashboardApps = this.dashboardApps;
+				if (isStale(dashboardApps, now)) {
+					dashboardApps = new DashboardApps(now, buildApps());
+					this.dashboardApps = dashboardApps;
+				}
+			}
+		}
+		return dashboardApps.apps;
+	}
+
+	private boolean isStale(DashboardApps dashboardApps, long now) {
+		if (dashboardApps == null) {
+			return true;
+		}
+		EurekaServerConfig serverConfig = getServerContext().getServerConfig();
+		long interval = serverConfig == null ? DEFAULT_APPS_CACHE_INTERVAL_MS
+				: serverConfig.getResponseCacheUpdateIntervalMs();
+		return now - dashboardApps.timestamp >= interval;
+	}
+
+	private List<Map<String, Object>> buildApps() {
 		List<Application> sortedApplications = getRegistry().getSortedApplications();
 		ArrayList<Map<String, Object>> apps = new ArrayList<>();
 		for (Application app : sortedApplications) {
@@ -249,7 +348,7 @@ public class EurekaController {
 			}
 			// out.println("<td>" + buf.toString() + "</td></tr>");
 		}
-		model.put("apps", apps);
+		return Collections.unmodifiableList(apps);
 	}
 
 	private void populateInstanceInfo(Map<String, Object> model, StatusInfo statusInfo) {
@@ -286,6 +385,18 @@ public class EurekaController {
 		model.put("applicationStats", applicationStats);
 	}
 
+	private static class DashboardApps {
+
+		private final long timestamp;
+
+		private final List<Map<String, Object>> apps;
+
+		DashboardApps(long timestamp, List<Map<String, Object>> apps) {
+			this.timestamp = timestamp;
+			this.apps = apps;
+		}
+	}
+
 	private String scrubBasicAuth(String urlList){
 		String[] urls=urlList.split(",");
 		StringBuilder filteredUrls = new StringBuilder();
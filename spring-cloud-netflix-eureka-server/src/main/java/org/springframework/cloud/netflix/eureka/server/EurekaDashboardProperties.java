@@ -38,6 +38,11 @@ public class EurekaDashboardProperties {
 	 */
 	private boolean enabled = true;
 
+	/**
+	 * The number of applications shown on a page of the Eureka dashboard. Default 100.
+	 */
+	private int pageSize = 100;
+
 	public String getPath() {
 		return path;
 	}
@@ -54,18 +59,27 @@ public class EurekaDashboardProperties {
 		this.enabled = enabled;
 	}
 
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (o == null || getClass() != o.getClass()) return false;
 		EurekaDashboardProperties that = (EurekaDashboardProperties) o;
 		return enabled == that.enabled &&
+				pageSize == that.pageSize &&
 				Objects.equals(path, that.path);
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(path, enabled);
+		return Objects.hash(path, enabled, pageSize);
 	}
 
 	@Override
@@ -73,6 +87,7 @@ public class EurekaDashboardProperties {
 		final StringBuilder sb = new StringBuilder("EurekaDashboardProperties{");
 		sb.append("path='").append(path).append('\'');
 		sb.append(", enabled=").append(enabled);
+		sb.append(", pageSize=").append(pageSize);
 		sb.append('}');
 		return sb.toString();
 	}
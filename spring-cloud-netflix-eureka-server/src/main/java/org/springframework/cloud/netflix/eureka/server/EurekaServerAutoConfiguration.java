@@ -16,6 +16,7 @@
 
 package org.springframework.cloud.netflix.eureka.server;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,10 +27,12 @@ import javax.servlet.Filter;
 import javax.ws.rs.Path;
 import javax.ws.rs.ext.Provider;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -37,6 +40,7 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.cloud.client.actuator.HasFeatures;
 import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.netflix.eureka.EurekaConstants;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
@@ -59,11 +63,16 @@ import com.netflix.discovery.converters.wrappers.CodecWrappers;
 import com.netflix.eureka.DefaultEurekaServerContext;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
+import com.netflix.eureka.cluster.HttpReplicationClient;
+import com.netflix.eureka.cluster.PeerEurekaNode;
 import com.netflix.eureka.cluster.PeerEurekaNodes;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import com.netflix.eureka.resources.DefaultServerCodecs;
 import com.netflix.eureka.resources.ServerCodecs;
+import com.netflix.eureka.transport.JerseyReplicationClient;
+import com.sun.jersey.api.container.filter.GZIPContentEncodingFilter;
 import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.api.core.ResourceConfig;
 import com.sun.jersey.spi.container.servlet.ServletContainer;
 
 /**
@@ -123,8 +132,9 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 
 	@Bean
 	@ConditionalOnProperty(prefix = "eureka.dashboard", name = "enabled", matchIfMissing = true)
-	public EurekaController eurekaController() {
-		return new EurekaController(this.applicationInfoManager);
+	public EurekaController eurekaController(
+			EurekaDashboardProperties dashboardProperties) {
+		return new EurekaController(this.applicationInfoManager, dashboardProperties);
 	}
 
 	static {
@@ -160,12 +170,39 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 
 	@Bean
 	public PeerAwareInstanceRegistry peerAwareInstanceRegistry(
-			ServerCodecs serverCodecs) {
+			ServerCodecs serverCodecs,
+			ObjectProvider<AsyncRegistryEventPublisher> asyncEventPublisher) {
 		this.eurekaClient.getApplications(); // force initialization
-		return new InstanceRegistry(this.eurekaServerConfig, this.eurekaClientConfig,
-				serverCodecs, this.eurekaClient,
+		InstanceRegistry registry = new InstanceRegistry(this.eurekaServerConfig,
+				this.eurekaClientConfig, serverCodecs, this.eurekaClient,
 				this.instanceRegistryProperties.getExpectedNumberOfClientsSendingRenews(),
 				this.instanceRegistryProperties.getDefaultOpenForTrafficCount());
+		registry.setAsyncEventPublisher(asyncEventPublisher.getIfAvailable());
+		registry.setPublishRenewEvents(
+				this.instanceRegistryProperties.isPublishRenewEvents());
+		return registry;
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = InstanceRegistryProperties.PREFIX, name = "async-events.enabled")
+	public AsyncRegistryEventPublisher asyncRegistryEventPublisher(
+			ApplicationContext applicationContext) {
+		InstanceRegistryProperties.AsyncEvents asyncEvents = this.instanceRegistryProperties
+				.getAsyncEvents();
+		return new AsyncRegistryEventPublisher(applicationContext,
+				asyncEvents.getQueueCapacity(), asyncEvents.getRenewBatchInterval(),
+				asyncEvents.getOverflowPolicy());
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = InstanceRegistryProperties.PREFIX, name = "snapshot.enabled")
+	public RegistrySnapshot registrySnapshot(PeerAwareInstanceRegistry registry,
+			ServerCodecs serverCodecs) {
+		InstanceRegistryProperties.Snapshot snapshot = this.instanceRegistryProperties
+				.getSnapshot();
+		return new RegistrySnapshot(registry, serverCodecs.getFullJsonCodec(),
+				new File(snapshot.getFile()), snapshot.getInterval(),
+				snapshot.getMaxAge());
 	}
 
 	@Bean
@@ -200,6 +237,27 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 			super(registry, serverConfig, clientConfig, serverCodecs, applicationInfoManager);
 		}
 
+		/**
+		 * Creates a {@link BatchingPeerEurekaNode} when
+		 * <code>eureka.server.peer-replication-adaptive-batching</code> is
+		 * <code>true</code>.
+		 */
+		@Override
+		protected PeerEurekaNode createPeerEurekaNode(String peerEurekaNodeUrl) {
+			if (!(serverConfig instanceof EurekaServerConfigBean)
+					|| !((EurekaServerConfigBean) serverConfig).isPeerReplicationAdaptiveBatching()) {
+				return super.createPeerEurekaNode(peerEurekaNodeUrl);
+			}
+			HttpReplicationClient replicationClient = JerseyReplicationClient
+					.createReplicationClient(serverConfig, serverCodecs, peerEurekaNodeUrl);
+			String targetHost = hostFromUrl(peerEurekaNodeUrl);
+			if (targetHost == null) {
+				targetHost = "host";
+			}
+			return new BatchingPeerEurekaNode(registry, targetHost, peerEurekaNodeUrl,
+					replicationClient, (EurekaServerConfigBean) serverConfig);
+		}
+
 		@Override
 		public void onApplicationEvent(final EnvironmentChangeEvent event) {
 			if (shouldUpdate(event.getKeys())) {
@@ -244,10 +302,13 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 
 	@Bean
 	public EurekaServerBootstrap eurekaServerBootstrap(PeerAwareInstanceRegistry registry,
-			EurekaServerContext serverContext) {
-		return new EurekaServerBootstrap(this.applicationInfoManager,
-				this.eurekaClientConfig, this.eurekaServerConfig, registry,
-				serverContext);
+			EurekaServerContext serverContext,
+			ObjectProvider<RegistrySnapshot> registrySnapshot) {
+		EurekaServerBootstrap bootstrap = new EurekaServerBootstrap(
+				this.applicationInfoManager, this.eurekaClientConfig,
+				this.eurekaServerConfig, registry, serverContext);
+		bootstrap.setRegistrySnapshot(registrySnapshot.getIfAvailable());
+		return bootstrap;
 	}
 
 	/**
@@ -265,6 +326,25 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 		return bean;
 	}
 
+	/**
+	 * Register the filter serving Smile payloads in front of the Jersey filter
+	 */
+	@Configuration
+	@ConditionalOnClass(name = "com.fasterxml.jackson.dataformat.smile.SmileFactory")
+	@ConditionalOnProperty(value = "eureka.server.smile-content", havingValue = "true")
+	protected static class SmileContentConfiguration {
+
+		@Bean
+		public FilterRegistrationBean smileContentFilterRegistration() {
+			FilterRegistrationBean bean = new FilterRegistrationBean();
+			bean.setFilter(new SmileContentFilter());
+			bean.setOrder(Ordered.LOWEST_PRECEDENCE - 5);
+			bean.setUrlPatterns(
+					Collections.singletonList(EurekaConstants.DEFAULT_PREFIX + "/*"));
+			return bean;
+		}
+	}
+
 	/**
 	 * Construct a Jersey {@link javax.ws.rs.core.Application} with all the resources
 	 * required by the Eureka server.
@@ -301,6 +381,11 @@ public class EurekaServerAutoConfiguration extends WebMvcConfigurerAdapter {
 				ServletContainer.PROPERTY_WEB_PAGE_CONTENT_REGEX,
 				EurekaConstants.DEFAULT_PREFIX + "/(fonts|images|css|js)/.*");
 
+		// Decode the gzipped replication requests of the peers
+		//
+		propsAndFeatures.put(ResourceConfig.PROPERTY_CONTAINER_REQUEST_FILTERS,
+				GZIPContentEncodingFilter.class.getName());
+
 		DefaultResourceConfig rc = new DefaultResourceConfig(classes);
 		rc.setPropertiesAndFeatures(propsAndFeatures);
 
@@ -67,6 +67,8 @@ public class EurekaServerBootstrap {
 	protected volatile EurekaServerContext serverContext;
 	protected volatile AwsBinder awsBinder;
 
+	protected RegistrySnapshot registrySnapshot;
+
 	public EurekaServerBootstrap(ApplicationInfoManager applicationInfoManager,
 			EurekaClientConfig eurekaClientConfig, EurekaServerConfig eurekaServerConfig,
 			PeerAwareInstanceRegistry registry, EurekaServerContext serverContext) {
@@ -77,6 +79,14 @@ public class EurekaServerBootstrap {
 		this.serverContext = serverContext;
 	}
 
+	/**
+	 * Sets the snapshot to restore the registry from on startup, in addition to the
+	 * registries of the peers, and to keep up to date afterwards.
+	 */
+	public void setRegistrySnapshot(RegistrySnapshot registrySnapshot) {
+		this.registrySnapshot = registrySnapshot;
+	}
+
 	public void contextInitialized(ServletContext context) {
 		try {
 			initEurekaEnvironment();
@@ -153,7 +163,14 @@ public class EurekaServerBootstrap {
 
 		// Copy registry from neighboring eureka node
 		int registryCount = this.registry.syncUp();
+		// Restore the instances the neighbors did not know about, e.g. after a restart of all of them
+		if (this.registrySnapshot != null) {
+			registryCount += this.registrySnapshot.restore();
+		}
 		this.registry.openForTraffic(this.applicationInfoManager, registryCount);
+		if (this.registrySnapshot != null) {
+			this.registrySnapshot.start();
+		}
 
 		// Register all monitoring statistics.
 		EurekaMonitors.registerAllStats();
@@ -164,6 +181,9 @@ public class EurekaServerBootstrap {
 	 */
 	protected void destroyEurekaServerContext() throws Exception {
 		EurekaMonitors.shutdown();
+		if (this.registrySnapshot != null) {
+			this.registrySnapshot.stop();
+		}
 		if (this.awsBinder != null) {
 			this.awsBinder.shutdown();
 		}
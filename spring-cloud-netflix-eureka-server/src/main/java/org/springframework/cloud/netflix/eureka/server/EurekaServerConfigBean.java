@@ -198,6 +198,16 @@ public class EurekaServerConfigBean implements EurekaServerConfig {
 
 	private String myUrl;
 
+	private boolean smileContent = false;
+
+	private boolean peerReplicationAdaptiveBatching = false;
+
+	private int peerReplicationMaxBatchSize = 250;
+
+	private long peerReplicationMinBatchDelayMs = 10;
+
+	private long peerReplicationMaxBatchDelayMs = 500;
+
 	@Override
 	public boolean shouldEnableSelfPreservation() {
 		return this.enableSelfPreservation;
@@ -253,6 +263,47 @@ public class EurekaServerConfigBean implements EurekaServerConfig {
 		this.myUrl = myUrl;
 	}
 
+	public boolean isSmileContent() {
+		return this.smileContent;
+	}
+
+	public void setSmileContent(boolean smileContent) {
+		this.smileContent = smileContent;
+	}
+
+	public boolean isPeerReplicationAdaptiveBatching() {
+		return this.peerReplicationAdaptiveBatching;
+	}
+
+	public void setPeerReplicationAdaptiveBatching(
+			boolean peerReplicationAdaptiveBatching) {
+		this.peerReplicationAdaptiveBatching = peerReplicationAdaptiveBatching;
+	}
+
+	public int getPeerReplicationMaxBatchSize() {
+		return this.peerReplicationMaxBatchSize;
+	}
+
+	public void setPeerReplicationMaxBatchSize(int peerReplicationMaxBatchSize) {
+		this.peerReplicationMaxBatchSize = peerReplicationMaxBatchSize;
+	}
+
+	public long getPeerReplicationMinBatchDelayMs() {
+		return this.peerReplicationMinBatchDelayMs;
+	}
+
+	public void setPeerReplicationMinBatchDelayMs(long peerReplicationMinBatchDelayMs) {
+		this.peerReplicationMinBatchDelayMs = peerReplicationMinBatchDelayMs;
+	}
+
+	public long getPeerReplicationMaxBatchDelayMs() {
+		return this.peerReplicationMaxBatchDelayMs;
+	}
+
+	public void setPeerReplicationMaxBatchDelayMs(long peerReplicationMaxBatchDelayMs) {
+		this.peerReplicationMaxBatchDelayMs = peerReplicationMaxBatchDelayMs;
+	}
+
 	@Override
 	public boolean shouldLogIdentityHeaders() {
 		return this.logIdentityHeaders;
@@ -1045,7 +1096,12 @@ public class EurekaServerConfigBean implements EurekaServerConfig {
 				initialCapacityOfResponseCache == that.initialCapacityOfResponseCache &&
 				expectedClientRenewalIntervalSeconds == that.expectedClientRenewalIntervalSeconds &&
 		        useAwsAsgApi == that.useAwsAsgApi &&
-				Objects.equals(myUrl, that.myUrl);
+				Objects.equals(myUrl, that.myUrl) &&
+				smileContent == that.smileContent &&
+				peerReplicationAdaptiveBatching == that.peerReplicationAdaptiveBatching &&
+				peerReplicationMaxBatchSize == that.peerReplicationMaxBatchSize &&
+				peerReplicationMinBatchDelayMs == that.peerReplicationMinBatchDelayMs &&
+				peerReplicationMaxBatchDelayMs == that.peerReplicationMaxBatchDelayMs;
 	}
 
 	@Override
@@ -1088,7 +1144,9 @@ public class EurekaServerConfigBean implements EurekaServerConfig {
 						route53DomainTTL, syncWhenTimestampDiffers,
 						useReadOnlyResponseCache, waitTimeInMsWhenSyncEmpty, xmlCodecName,
 				        initialCapacityOfResponseCache, expectedClientRenewalIntervalSeconds,
-				        useAwsAsgApi, myUrl);
+				        useAwsAsgApi, myUrl, smileContent, peerReplicationAdaptiveBatching,
+						peerReplicationMaxBatchSize, peerReplicationMinBatchDelayMs,
+						peerReplicationMaxBatchDelayMs);
 	}
 
 	@Override
@@ -1171,6 +1229,11 @@ public class EurekaServerConfigBean implements EurekaServerConfig {
 				.append("expectedClientRenewalIntervalSeconds", this.expectedClientRenewalIntervalSeconds)
 				.append("useAwsAsgApi", this.useAwsAsgApi)
 				.append("myUrl", this.myUrl)
+				.append("smileContent", this.smileContent)
+				.append("peerReplicationAdaptiveBatching", this.peerReplicationAdaptiveBatching)
+				.append("peerReplicationMaxBatchSize", this.peerReplicationMaxBatchSize)
+				.append("peerReplicationMinBatchDelayMs", this.peerReplicationMinBatchDelayMs)
+				.append("peerReplicationMaxBatchDelayMs", this.peerReplicationMaxBatchDelayMs)
 				.toString();
 	}
 
@@ -16,7 +16,7 @@
 
 package org.springframework.cloud.netflix.eureka.server;
 
-import java.util.List;
+import java.util.Map;
 
 import com.netflix.eureka.lease.Lease;
 import org.apache.commons.logging.Log;
@@ -32,7 +32,6 @@ import com.netflix.appinfo.ApplicationInfoManager;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
 import com.netflix.discovery.EurekaClientConfig;
-import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl;
 import com.netflix.eureka.resources.ServerCodecs;
@@ -49,6 +48,8 @@ public class InstanceRegistry extends PeerAwareInstanceRegistryImpl
 
 	private ApplicationContext ctxt;
 	private int defaultOpenForTrafficCount;
+	private boolean publishRenewEvents = true;
+	private AsyncRegistryEventPublisher asyncEventPublisher;
 
 	public InstanceRegistry(EurekaServerConfig serverConfig,
 			EurekaClientConfig clientConfig, ServerCodecs serverCodecs,
@@ -65,6 +66,23 @@ public class InstanceRegistry extends PeerAwareInstanceRegistryImpl
 		this.ctxt = context;
 	}
 
+	/**
+	 * @param asyncEventPublisher the publisher of the registry events, or null to
+	 * publish them on the calling thread
+	 */
+	public void setAsyncEventPublisher(AsyncRegistryEventPublisher asyncEventPublisher) {
+		this.asyncEventPublisher = asyncEventPublisher;
+	}
+
+	/**
+	 * @param publishRenewEvents whether a {@link EurekaInstanceRenewedEvent} is published
+	 * for every renewal. Renewals are by far the most frequent registry operation, so
+	 * servers without renew listeners can skip creating the events.
+	 */
+	public void setPublishRenewEvents(boolean publishRenewEvents) {
+		this.publishRenewEvents = publishRenewEvents;
+	}
+
 	/**
 	 * If
 	 * {@link PeerAwareInstanceRegistryImpl#openForTraffic(ApplicationInfoManager, int)}
@@ -101,21 +119,17 @@ public class InstanceRegistry extends PeerAwareInstanceRegistryImpl
 	@Override
 	public boolean renew(final String appName, final String serverId,
 			boolean isReplication) {
-		log("renew " + appName + " serverId " + serverId + ", isReplication {}"
-				+ isReplication);
-		List<Application> applications = getSortedApplications();
-		for (Application input : applications) {
-			if (input.getName().equals(appName)) {
-				InstanceInfo instance = null;
-				for (InstanceInfo info : input.getInstances()) {
-					if (info.getId().equals(serverId)) {
-						instance = info;
-						break;
-					}
-				}
+		if (log.isDebugEnabled()) {
+			log.debug("renew " + appName + " serverId " + serverId + ", isReplication "
+					+ isReplication);
+		}
+		if (this.publishRenewEvents) {
+			Map<String, Lease<InstanceInfo>> leases = this.registry.get(appName);
+			if (leases != null) {
+				Lease<InstanceInfo> lease = leases.get(serverId);
+				InstanceInfo instance = lease != null ? lease.getHolder() : null;
 				publishEvent(new EurekaInstanceRenewedEvent(this, appName, serverId,
 						instance, isReplication));
-				break;
 			}
 		}
 		return super.renew(appName, serverId, isReplication);
@@ -148,7 +162,12 @@ public class InstanceRegistry extends PeerAwareInstanceRegistryImpl
 	}
 
 	private void publishEvent(ApplicationEvent applicationEvent) {
-		this.ctxt.publishEvent(applicationEvent);
+		if (this.asyncEventPublisher != null) {
+			this.asyncEventPublisher.publish(applicationEvent);
+		}
+		else {
+			this.ctxt.publishEvent(applicationEvent);
+		}
 	}
 
 	private int resolveInstanceLeaseDuration(final InstanceInfo info) {
@@ -45,6 +45,23 @@ public class InstanceRegistryProperties {
 	@Value("${eureka.server.defaultOpenForTrafficCount:1}") // for backwards compatibility
 	private int defaultOpenForTrafficCount = 1;
 
+	/**
+	 * Publish an EurekaInstanceRenewedEvent for every renewal. Servers without renew
+	 * listeners can disable it to avoid creating an event per renewal.
+	 */
+	private boolean publishRenewEvents = true;
+
+	/**
+	 * Publishing of the registered, cancelled and renewed events of the registry on a
+	 * separate thread, so that slow listeners do not delay registrations and renewals.
+	 */
+	private final AsyncEvents asyncEvents = new AsyncEvents();
+
+	/**
+	 * Periodic snapshots of the registry to a local file, restored on startup.
+	 */
+	private final Snapshot snapshot = new Snapshot();
+
 	public int getExpectedNumberOfClientsSendingRenews() {
 		return expectedNumberOfClientsSendingRenews;
 	}
@@ -71,4 +88,132 @@ public class InstanceRegistryProperties {
 	public void setDefaultOpenForTrafficCount(int defaultOpenForTrafficCount) {
 		this.defaultOpenForTrafficCount = defaultOpenForTrafficCount;
 	}
+
+	public boolean isPublishRenewEvents() {
+		return publishRenewEvents;
+	}
+
+	public void setPublishRenewEvents(boolean publishRenewEvents) {
+		this.publishRenewEvents = publishRenewEvents;
+	}
+
+	public AsyncEvents getAsyncEvents() {
+		return asyncEvents;
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public static class AsyncEvents {
+
+		/**
+		 * Publish registry events asynchronously.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Maximum number of events waiting to be published.
+		 */
+		private int queueCapacity = 10000;
+
+		/**
+		 * Interval in milliseconds at which the renewed events are published together, 0
+		 * to publish them as soon as possible.
+		 */
+		private long renewBatchInterval = 0;
+
+		/**
+		 * What to do with a new event when the queue is full.
+		 */
+		private AsyncRegistryEventPublisher.OverflowPolicy overflowPolicy = AsyncRegistryEventPublisher.OverflowPolicy.COALESCE;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public int getQueueCapacity() {
+			return queueCapacity;
+		}
+
+		public void setQueueCapacity(int queueCapacity) {
+			this.queueCapacity = queueCapacity;
+		}
+
+		public long getRenewBatchInterval() {
+			return renewBatchInterval;
+		}
+
+		public void setRenewBatchInterval(long renewBatchInterval) {
+			this.renewBatchInterval = renewBatchInterval;
+		}
+
+		public AsyncRegistryEventPublisher.OverflowPolicy getOverflowPolicy() {
+			return overflowPolicy;
+		}
+
+		public void setOverflowPolicy(AsyncRegistryEventPublisher.OverflowPolicy overflowPolicy) {
+			this.overflowPolicy = overflowPolicy;
+		}
+	}
+
+	public static class Snapshot {
+
+		/**
+		 * Save the registry to a local file and restore it on startup.
+		 */
+		private boolean enabled = false;
+
+		/**
+		 * Location of the snapshot file.
+		 */
+		private String file = "eureka-registry.snapshot";
+
+		/**
+		 * Interval in milliseconds between two snapshots.
+		 */
+		private long interval = 30000;
+
+		/**
+		 * Maximum age in milliseconds of a snapshot to restore, older snapshots are
+		 * ignored.
+		 */
+		private long maxAge = 600000;
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public String getFile() {
+			return file;
+		}
+
+		public void setFile(String file) {
+			this.file = file;
+		}
+
+		public long getInterval() {
+			return interval;
+		}
+
+		public void setInterval(long interval) {
+			this.interval = interval;
+		}
+
+		public long getMaxAge() {
+			return maxAge;
+		}
+
+		public void setMaxAge(long maxAge) {
+			this.maxAge = maxAge;
+		}
+	}
 }
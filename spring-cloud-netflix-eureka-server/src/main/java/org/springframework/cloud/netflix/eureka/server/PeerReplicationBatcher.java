@@ -0,0 +1,514 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.HttpReplicationClient;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance.ReplicationInstanceBuilder;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+
+/**
+ * Replicates the registrations, heartbeats, cancellations and status updates of the
+ * instances to a peer in batches, on a dedicated thread.
+ *
+ * A batch is sent when it reaches {@code maxBatchSize} updates or when its oldest
+ * update waited for the batch delay. The delay adapts to the load: it grows from
+ * {@code minBatchDelayMs} towards {@code maxBatchDelayMs} with the size of the last
+ * batch, so that a busy server sends fewer and larger batches while an idle one
+ * replicates with a low latency. A new update of an instance replaces its waiting
+ * update of the same kind, and a heartbeat is not sent when a registration or a
+ * cancellation of the instance is already waiting.
+ *
+ * Batches that fail with an I/O error or a 503 response are retried until their
+ * updates expire. The batches, their size, the replication lag and the coalesced,
+ * dropped, expired and failed updates are published through Servo as the
+ * {@code eurekaPeerReplication} monitor of the peer, from {@link #start()} until
+ * {@link #shutdown()}.
+ */
+public class PeerReplicationBatcher {
+
+	private static final Log log = LogFactory.getLog(PeerReplicationBatcher.class);
+
+	private static final long RETRY_SLEEP_TIME_MS = 100;
+
+	private static final long SERVER_UNAVAILABLE_SLEEP_TIME_MS = 1000;
+
+	private final String peer;
+
+	private final HttpReplicationClient replicationClient;
+
+	private final PeerAwareInstanceRegistry registry;
+
+	private final int maxBatchSize;
+
+	private final long minBatchDelayMs;
+
+	private final long maxBatchDelayMs;
+
+	private final int maxPending;
+
+	private final boolean syncWhenTimestampDiffers;
+
+	private final Object lock = new Object();
+
+	/**
+	 * Updates waiting to be sent, by instance and kind of update, in the order they
+	 * are sent.
+	 */
+	private final LinkedHashMap<String, Task> pending = new LinkedHashMap<>();
+
+	private boolean running = true;
+
+	private boolean started;
+
+	private volatile long batchDelayMs;
+
+	private final AtomicLong batches = new AtomicLong();
+
+	private final AtomicLong replicated = new AtomicLong();
+
+	private final AtomicLong coalesced = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final AtomicLong expired = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private volatile int lastBatchSize;
+
+	private volatile long lastBatchLag;
+
+	private final Thread dispatcher;
+
+	public PeerReplicationBatcher(String peer, HttpReplicationClient replicationClient,
+			PeerAwareInstanceRegistry registry, int maxBatchSize, long minBatchDelayMs,
+			long maxBatchDelayMs, int maxPending, boolean syncWhenTimestampDiffers) {
+		this.peer = peer;
+		this.replicationClient = replicationClient;
+		this.registry = registry;
+		this.maxBatchSize = Math.max(maxBatchSize, 1);
+		this.minBatchDelayMs = Math.max(minBatchDelayMs, 0);
+		this.maxBatchDelayMs = Math.max(maxBatchDelayMs, this.minBatchDelayMs);
+		this.maxPending = Math.max(maxPending, this.maxBatchSize);
+		this.syncWhenTimestampDiffers = syncWhenTimestampDiffers;
+		this.batchDelayMs = this.minBatchDelayMs;
+		this.dispatcher = new Thread(this::dispatch, "Eureka-PeerReplication-" + peer);
+		this.dispatcher.setDaemon(true);
+	}
+
+	/**
+	 * Starts replicating the updates to the peer and publishing the monitor.
+	 */
+	public void start() {
+		synchronized (this.lock) {
+			if (this.started || !this.running) {
+				return;
+			}
+			this.started = true;
+		}
+		Monitors.registerObject("eurekaPeerReplication-" + this.peer, this);
+		this.dispatcher.start();
+	}
+
+	public void register(InstanceInfo info, long expiryTime) {
+		process(new Task(Action.Register, info.getAppName(), info.getId(), info, null,
+				true, expiryTime));
+	}
+
+	public void cancel(String appName, String id, long expiryTime) {
+		process(new Task(Action.Cancel, appName, id, null, null, false, expiryTime));
+	}
+
+	public void heartbeat(String appName, String id, InstanceInfo info,
+			InstanceStatus overriddenStatus, long expiryTime) {
+		process(new Task(Action.Heartbeat, appName, id, info, overriddenStatus, false,
+				expiryTime));
+	}
+
+	/**
+	 * Replicates the status of the instance info, which is the new status.
+	 */
+	public void statusUpdate(String appName, String id, InstanceInfo info,
+			long expiryTime) {
+		process(new Task(Action.StatusUpdate, appName, id, info, null, false,
+				expiryTime));
+	}
+
+	public void deleteStatusOverride(String appName, String id, InstanceInfo info,
+			long expiryTime) {
+		process(new Task(Action.DeleteStatusOverride, appName, id, info, null, false,
+				expiryTime));
+	}
+
+	private void process(Task task) {
+		synchronized (this.lock) {
+			if (!this.running) {
+				return;
+			}
+			if (task.action == Action.Heartbeat
+					&& (this.pending.containsKey(task.key(Action.Register))
+							|| this.pending.containsKey(task.key(Action.Cancel)))) {
+				this.coalesced.incrementAndGet();
+				return;
+			}
+			if (task.action == Action.Register || task.action == Action.Cancel) {
+				if (this.pending.remove(task.key(Action.Heartbeat)) != null) {
+					this.coalesced.incrementAndGet();
+				}
+			}
+			// the new update goes last, so that it is applied after the other updates
+			// of the instance, but keeps the time of the update it replaces
+			Task previous = this.pending.remove(task.key());
+			if (previous != null) {
+				task.enqueued = previous.enqueued;
+				this.coalesced.incrementAndGet();
+			}
+			else if (this.pending.size() >= this.maxPending) {
+				Iterator<Task> oldest = this.pending.values().iterator();
+				oldest.next();
+				oldest.remove();
+				this.dropped.incrementAndGet();
+			}
+			this.pending.put(task.key(), task);
+			if (this.pending.size() >= this.maxBatchSize || this.pending.size() == 1) {
+				this.lock.notifyAll();
+			}
+		}
+	}
+
+	private void dispatch() {
+		while (true) {
+			List<Task> batch;
+			try {
+				batch = nextBatch();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			if (batch == null) {
+				return;
+			}
+			if (!batch.isEmpty()) {
+				send(batch);
+			}
+		}
+	}
+
+	/**
+	 * @return the next batch to send, or null when stopped
+	 */
+	private List<Task> nextBatch() throws InterruptedException {
+		synchronized (this.lock) {
+			while (this.running) {
+				if (this.pending.isEmpty()) {
+					this.lock.wait();
+					continue;
+				}
+				long wait = this.pending.size() >= this.maxBatchSize ? 0
+						: this.pending.values().iterator().next().enqueued
+								+ TimeUnit.MILLISECONDS.toNanos(this.batchDelayMs)
+								- System.nanoTime();
+				if (wait > 0) {
+					TimeUnit.NANOSECONDS.timedWait(this.lock, wait);
+					continue;
+				}
+				long now = System.currentTimeMillis();
+				List<Task> batch = new ArrayList<>(
+						Math.min(this.pending.size(), this.maxBatchSize));
+				Iterator<Task> tasks = this.pending.values().iterator();
+				while (tasks.hasNext() && batch.size() < this.maxBatchSize) {
+					Task task = tasks.next();
+					tasks.remove();
+					if (task.expiryTime < now) {
+						this.expired.incrementAndGet();
+					}
+					else {
+						batch.add(task);
+					}
+				}
+				return batch;
+			}
+			return null;
+		}
+	}
+
+	private void send(List<Task> batch) {
+		long start = System.nanoTime();
+		long lag = 0;
+		ReplicationList list = new ReplicationList();
+		for (Task task : batch) {
+			list.addReplicationInstance(task.toReplicationInstance());
+			lag = Math.max(lag, start - task.enqueued);
+		}
+		EurekaHttpResponse<ReplicationListResponse> response;
+		try {
+			response = this.replicationClient.submitBatchUpdates(list);
+		}
+		catch (Throwable e) {
+			log.warn("Failed to replicate a batch of " + batch.size() + " updates to "
+					+ this.peer + ", retrying: " + e);
+			retry(batch, RETRY_SLEEP_TIME_MS);
+			return;
+		}
+		int statusCode = response.getStatusCode();
+		if (statusCode == 503) {
+			log.warn("Peer " + this.peer + " is unavailable, retrying a batch of "
+					+ batch.size() + " updates");
+			retry(batch, SERVER_UNAVAILABLE_SLEEP_TIME_MS);
+			return;
+		}
+		this.batches.incrementAndGet();
+		this.lastBatchSize = batch.size();
+		this.lastBatchLag = TimeUnit.NANOSECONDS.toMillis(lag);
+		// large batches mean that updates arrive faster than they are sent
+		this.batchDelayMs = this.minBatchDelayMs + (this.maxBatchDelayMs
+				- this.minBatchDelayMs) * batch.size() / this.maxBatchSize;
+		if (statusCode < 200 || statusCode >= 300 || response.getEntity() == null) {
+			log.error("Batch of " + batch.size() + " updates rejected by " + this.peer
+					+ " with status " + statusCode);
+			this.failed.addAndGet(batch.size());
+			return;
+		}
+		List<ReplicationInstanceResponse> responses = response.getEntity()
+				.getResponseList();
+		for (int i = 0; i < batch.size(); i++) {
+			int instanceStatusCode = i < responses.size()
+					? responses.get(i).getStatusCode() : 500;
+			InstanceInfo responseEntity = i < responses.size()
+					? responses.get(i).getResponseEntity() : null;
+			handleResponse(batch.get(i), instanceStatusCode, responseEntity);
+		}
+	}
+
+	private void handleResponse(Task task, int statusCode, InstanceInfo infoFromPeer) {
+		if (statusCode >= 200 && statusCode < 300) {
+			this.replicated.incrementAndGet();
+			return;
+		}
+		this.failed.incrementAndGet();
+		if (task.action == Action.Heartbeat && statusCode == 404) {
+			// the peer does not know the instance yet
+			if (task.info != null) {
+				register(task.info, task.expiryTime);
+			}
+		}
+		else if (task.action == Action.Heartbeat && this.syncWhenTimestampDiffers
+				&& infoFromPeer != null) {
+			syncInstancesIfTimestampDiffers(task, infoFromPeer);
+		}
+		else {
+			log.warn(task.action + " of " + task.appName + "/" + task.id + " to "
+					+ this.peer + " failed with status " + statusCode);
+		}
+	}
+
+	private void syncInstancesIfTimestampDiffers(Task task, InstanceInfo infoFromPeer) {
+		try {
+			log.warn("Peer " + this.peer + " has a newer instance info for "
+					+ task.appName + "/" + task.id + ", syncing it");
+			if (infoFromPeer.getOverriddenStatus() != null
+					&& infoFromPeer.getOverriddenStatus() != InstanceStatus.UNKNOWN) {
+				this.registry.storeOverriddenStatusIfRequired(task.appName, task.id,
+						infoFromPeer.getOverriddenStatus());
+			}
+			this.registry.register(infoFromPeer, true);
+		}
+		catch (Throwable e) {
+			log.warn("Could not sync the instance info of " + task.appName + "/"
+					+ task.id + " from " + this.peer, e);
+		}
+	}
+
+	/**
+	 * Puts the updates of a failed batch back, before the newer ones, unless they have
+	 * been replaced in the meantime. The oldest updates are dropped beyond
+	 * {@code maxPending}, like when queuing new updates.
+	 */
+	private void retry(List<Task> batch, long sleepTime) {
+		synchronized (this.lock) {
+			LinkedHashMap<String, Task> newer = new LinkedHashMap<>(this.pending);
+			this.pending.clear();
+			for (Task task : batch) {
+				if (!newer.containsKey(task.key())) {
+					this.pending.put(task.key(), task);
+				}
+			}
+			this.pending.putAll(newer);
+			Iterator<Task> oldest = this.pending.values().iterator();
+			while (this.pending.size() > this.maxPending) {
+				oldest.next();
+				oldest.remove();
+				this.dropped.incrementAndGet();
+			}
+			try {
+				TimeUnit.MILLISECONDS.timedWait(this.lock, sleepTime);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	public void shutdown() {
+		boolean started;
+		synchronized (this.lock) {
+			if (!this.running) {
+				return;
+			}
+			this.running = false;
+			this.pending.clear();
+			this.lock.notifyAll();
+			started = this.started;
+		}
+		if (started) {
+			this.dispatcher.interrupt();
+			Monitors.unregisterObject("eurekaPeerReplication-" + this.peer, this);
+		}
+	}
+
+	@Monitor(name = "batches", type = DataSourceType.COUNTER)
+	public long getBatches() {
+		return this.batches.get();
+	}
+
+	@Monitor(name = "replicated", type = DataSourceType.COUNTER)
+	public long getReplicated() {
+		return this.replicated.get();
+	}
+
+	@Monitor(name = "coalesced", type = DataSourceType.COUNTER)
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	@Monitor(name = "dropped", type = DataSourceType.COUNTER)
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	@Monitor(name = "expired", type = DataSourceType.COUNTER)
+	public long getExpired() {
+		return this.expired.get();
+	}
+
+	@Monitor(name = "failed", type = DataSourceType.COUNTER)
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	@Monitor(name = "pending", type = DataSourceType.GAUGE)
+	public int getPending() {
+		synchronized (this.lock) {
+			return this.pending.size();
+		}
+	}
+
+	@Monitor(name = "batchSize", type = DataSourceType.GAUGE)
+	public int getLastBatchSize() {
+		return this.lastBatchSize;
+	}
+
+	/**
+	 * @return the time in milliseconds the oldest update of the last batch waited
+	 */
+	@Monitor(name = "replicationLag", type = DataSourceType.GAUGE)
+	public long getLastBatchLag() {
+		return this.lastBatchLag;
+	}
+
+	@Monitor(name = "batchDelay", type = DataSourceType.GAUGE)
+	public long getBatchDelayMs() {
+		return this.batchDelayMs;
+	}
+
+	private static class Task {
+
+		private final Action action;
+
+		private final String appName;
+
+		private final String id;
+
+		private final InstanceInfo info;
+
+		private final InstanceStatus overriddenStatus;
+
+		private final boolean replicateInstanceInfo;
+
+		private final long expiryTime;
+
+		private long enqueued = System.nanoTime();
+
+		Task(Action action, String appName, String id, InstanceInfo info,
+				InstanceStatus overriddenStatus, boolean replicateInstanceInfo,
+				long expiryTime) {
+			this.action = action;
+			this.appName = appName;
+			this.id = id;
+			this.info = info;
+			this.overriddenStatus = overriddenStatus;
+			this.replicateInstanceInfo = replicateInstanceInfo;
+			this.expiryTime = expiryTime;
+		}
+
+		String key() {
+			return key(this.action);
+		}
+
+		String key(Action action) {
+			return action + "#" + this.appName + "/" + this.id;
+		}
+
+		ReplicationInstance toReplicationInstance() {
+			ReplicationInstanceBuilder builder = ReplicationInstanceBuilder
+					.aReplicationInstance().withAppName(this.appName).withId(this.id)
+					.withAction(this.action);
+			if (this.info != null) {
+				builder.withOverriddenStatus(this.overriddenStatus == null ? null
+						: this.overriddenStatus.name());
+				builder.withLastDirtyTimestamp(this.info.getLastDirtyTimestamp());
+				if (this.replicateInstanceInfo) {
+					builder.withInstanceInfo(this.info);
+				}
+				builder.withStatus(this.info.getStatus() == null ? null
+						: this.info.getStatus().name());
+			}
+			return builder.build();
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.StreamUtils;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.lease.Lease;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.Monitors;
+
+/**
+ * Saves the local registry to a file every {@code interval} milliseconds, so that a
+ * restarted server can restore it before opening for traffic instead of waiting for
+ * the clients to register again, for instance after a restart of the whole cluster.
+ *
+ * The file holds a small header, with the time of the snapshot and the number of
+ * instances, followed by the gzipped JSON registry. It is written to a temporary file
+ * that is synced and then atomically moved in place, so that a crash while writing
+ * leaves the previous snapshot intact. A snapshot older than {@code maxAge}
+ * milliseconds, truncated or otherwise corrupt is ignored.
+ *
+ * The number of snapshots written and failed, the size of the last one and the time
+ * spent writing it are published through Servo as the {@code eurekaRegistrySnapshot}
+ * monitor, from the first {@link #start()} until the snapshot is destroyed.
+ */
+public class RegistrySnapshot implements DisposableBean {
+
+	private static final Log log = LogFactory.getLog(RegistrySnapshot.class);
+
+	private static final int MAGIC = 0x45555253;
+
+	private static final int VERSION = 1;
+
+	private final PeerAwareInstanceRegistry registry;
+
+	private final CodecWrapper codec;
+
+	private final File file;
+
+	private final long interval;
+
+	private final long maxAge;
+
+	private final AtomicLong written = new AtomicLong();
+
+	private final AtomicLong failed = new AtomicLong();
+
+	private volatile long lastSize;
+
+	private volatile long lastWriteTime;
+
+	private ScheduledExecutorService executor;
+
+	private boolean monitorRegistered;
+
+	public RegistrySnapshot(PeerAwareInstanceRegistry registry, CodecWrapper codec,
+			File file, long interval, long maxAge) {
+		this.registry = registry;
+		this.codec = codec;
+		this.file = file.getAbsoluteFile();
+		this.interval = interval;
+		this.maxAge = maxAge;
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Registers the instances of the snapshot file that are not in the registry yet,
+	 * as replicated registrations with a new lease.
+	 * @return the number of restored instances
+	 */
+	public int restore() {
+		if (!this.file.isFile()) {
+			log.info("No registry snapshot found at " + this.file);
+			return 0;
+		}
+		Applications applications;
+		try {
+			applications = read();
+		}
+		catch (IOException | RuntimeException e) {
+			log.warn("Ignoring unreadable registry snapshot " + this.file + ": " + e);
+			return 0;
+		}
+		if (applications == null) {
+			return 0;
+		}
+		int count = 0;
+		for (Application application : applications.getRegisteredApplications()) {
+			for (InstanceInfo instance : application.getInstances()) {
+				if (this.registry.getInstanceByAppAndId(instance.getAppName(),
+						instance.getId(), false) != null) {
+					continue;
+				}
+				LeaseInfo leaseInfo = instance.getLeaseInfo();
+				int leaseDuration = leaseInfo != null && leaseInfo.getDurationInSecs() > 0
+						? leaseInfo.getDurationInSecs()
+						: Lease.DEFAULT_DURATION_IN_SECS;
+				this.registry.register(instance, leaseDuration, true);
+				count++;
+			}
+		}
+		log.info("Restored " + count + " instances from registry snapshot " + this.file);
+		return count;
+	}
+
+	/**
+	 * @return the registry of the snapshot file, or null if it is older than
+	 * {@code maxAge}
+	 */
+	Applications read() throws IOException {
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(this.file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a registry snapshot");
+			}
+			long timestamp = in.readLong();
+			int count = in.readInt();
+			long age = System.currentTimeMillis() - timestamp;
+			if (age > this.maxAge) {
+				log.info("Ignoring registry snapshot " + this.file + " taken " + age
+						+ "ms ago");
+				return null;
+			}
+			GZIPInputStream gzip = new GZIPInputStream(in);
+			Applications applications = this.codec
+					.decode(StreamUtils.nonClosing(gzip), Applications.class);
+			// reading to the end verifies the checksum of the whole registry
+			drain(gzip);
+			int instances = 0;
+			for (Application application : applications.getRegisteredApplications()) {
+				instances += application.getInstances().size();
+			}
+			if (instances != count) {
+				throw new IOException("Expected " + count + " instances, found " + instances);
+			}
+			return applications;
+		}
+	}
+
+	/**
+	 * Writes the local registry to the snapshot file.
+	 */
+	public void write() throws IOException {
+		long start = System.nanoTime();
+		Applications applications = this.registry.getApplicationsFromLocalRegionOnly();
+		int count = 0;
+		for (Application application : applications.getRegisteredApplications()) {
+			count += application.getInstances().size();
+		}
+		File temporary = new File(this.file.getPath() + ".tmp");
+		File directory = this.file.getParentFile();
+		if (directory != null) {
+			Files.createDirectories(directory.toPath());
+		}
+		try (FileOutputStream fileOut = new FileOutputStream(temporary)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(System.currentTimeMillis());
+			out.writeInt(count);
+			GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+			this.codec.encode(applications, StreamUtils.nonClosing(gzip));
+			gzip.finish();
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		catch (IOException | RuntimeException e) {
+			temporary.delete();
+			throw e;
+		}
+		try {
+			Files.move(temporary.toPath(), this.file.toPath(),
+					StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary.toPath(), this.file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+		this.lastSize = this.file.length();
+		this.lastWriteTime = (System.nanoTime() - start) / 1000000;
+		this.written.incrementAndGet();
+		if (log.isDebugEnabled()) {
+			log.debug("Wrote " + count + " instances to registry snapshot " + this.file
+					+ " in " + this.lastWriteTime + "ms");
+		}
+	}
+
+	/**
+	 * Starts writing snapshots every {@code interval} milliseconds. It should be
+	 * called after the snapshot is restored, which a write would otherwise replace.
+	 */
+	public synchronized void start() {
+		if (this.executor != null) {
+			return;
+		}
+		if (!this.monitorRegistered) {
+			Monitors.registerObject("eurekaRegistrySnapshot", this);
+			this.monitorRegistered = true;
+		}
+		this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Eureka-RegistrySnapshot");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.executor.scheduleWithFixedDelay(this::writeSafely, this.interval,
+				this.interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the periodic snapshots and writes a last one.
+	 */
+	public synchronized void stop() {
+		if (this.executor == null) {
+			return;
+		}
+		this.executor.shutdownNow();
+		try {
+			this.executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.executor = null;
+		writeSafely();
+	}
+
+	private void writeSafely() {
+		try {
+			write();
+		}
+		catch (IOException | RuntimeException e) {
+			this.failed.incrementAndGet();
+			log.warn("Could not write registry snapshot " + this.file, e);
+		}
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[StreamUtils.BUFFER_SIZE];
+		while (in.read(buffer) >= 0) {
+		}
+	}
+
+	@Monitor(name = "written", type = DataSourceType.COUNTER)
+	public long getWritten() {
+		return this.written.get();
+	}
+
+	@Monitor(name = "failed", type = DataSourceType.COUNTER)
+	public long getFailed() {
+		return this.failed.get();
+	}
+
+	@Monitor(name = "lastSize", type = DataSourceType.GAUGE)
+	public long getLastSize() {
+		return this.lastSize;
+	}
+
+	@Monitor(name = "lastWriteTime", type = DataSourceType.GAUGE)
+	public long getLastWriteTime() {
+		return this.lastWriteTime;
+	}
+
+	@Override
+	public synchronized void destroy() throws Exception {
+		stop();
+		if (this.monitorRegistered) {
+			Monitors.unregisterObject("eurekaRegistrySnapshot", this);
+			this.monitorRegistered = false;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+
+/**
+ * Serves the JSON payloads of the Eureka resources in the binary Smile format to the
+ * clients that prefer {@code application/x-jackson-smile}.
+ *
+ * The response cache of the server only holds JSON and XML payloads, so the request is
+ * handed to Jersey as a plain JSON request and the cached JSON is transcoded token by
+ * token, without building the registry objects again. Repeated names and short values,
+ * such as app names, zones, statuses and metadata keys, are written once and then
+ * referenced. The last transcoded payload of every resource is kept, so a registry is
+ * only transcoded once per response cache update. Clients accepting gzip get the Smile
+ * payload gzipped, compressed once per transcoded payload.
+ */
+public class SmileContentFilter extends OncePerRequestFilter {
+
+	private static final Log log = LogFactory.getLog(SmileContentFilter.class);
+
+	public static final MediaType APPLICATION_SMILE = new MediaType("application",
+			"x-jackson-smile");
+
+	private static final int MAX_CACHED_PAYLOADS = 256;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private final SmileFactory smileFactory = new SmileFactory();
+
+	private final Map<String, Payload> payloads = new ConcurrentHashMap<>();
+
+	public SmileContentFilter() {
+		this.smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, true);
+		this.smileFactory.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES,
+				true);
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !HttpMethod.GET.matches(request.getMethod()) || !prefersSmile(request);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request,
+			HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+		filterChain.doFilter(new JsonRequest(request), wrapper);
+
+		if (wrapper.getStatus() != HttpServletResponse.SC_OK || !isJson(wrapper)) {
+			wrapper.copyBodyToResponse();
+			return;
+		}
+		byte[] json = wrapper.getContentAsByteArray();
+		byte[] smile;
+		boolean gzip = acceptsGzip(request);
+		try {
+			Payload payload = payload(cacheKey(request), json);
+			smile = gzip ? payload.gzipped() : payload.smile;
+		}
+		catch (IOException e) {
+			log.warn("Unable to transcode " + request.getRequestURI() + " to Smile", e);
+			wrapper.copyBodyToResponse();
+			return;
+		}
+		wrapper.resetBuffer();
+		response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		response.setContentType(APPLICATION_SMILE.toString());
+		response.setContentLength(smile.length);
+		response.getOutputStream().write(smile);
+	}
+
+	byte[] transcode(String key, byte[] json) throws IOException {
+		return payload(key, json).smile;
+	}
+
+	private Payload payload(String key, byte[] json) throws IOException {
+		Payload payload = this.payloads.get(key);
+		if (payload != null && Arrays.equals(payload.json, json)) {
+			return payload;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 2);
+		try (JsonParser parser = this.jsonFactory.createParser(json);
+				JsonGenerator generator = this.smileFactory.createGenerator(out)) {
+			while (parser.nextToken() != null) {
+				generator.copyCurrentEvent(parser);
+			}
+		}
+		byte[] smile = out.toByteArray();
+		if (this.payloads.size() >= MAX_CACHED_PAYLOADS && !this.payloads.containsKey(key)) {
+			this.payloads.clear();
+		}
+		payload = new Payload(json, smile);
+		this.payloads.put(key, payload);
+		return payload;
+	}
+
+	private static String cacheKey(HttpServletRequest request) {
+		String query = request.getQueryString();
+		return query == null ? request.getRequestURI()
+				: request.getRequestURI() + "?" + query;
+	}
+
+	private static boolean prefersSmile(HttpServletRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (!StringUtils.hasText(accept)) {
+			return false;
+		}
+		try {
+			List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+			MediaType.sortBySpecificityAndQuality(mediaTypes);
+			return APPLICATION_SMILE.equalsTypeAndSubtype(mediaTypes.get(0));
+		}
+		catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static boolean acceptsGzip(HttpServletRequest request) {
+		Enumeration<String> values = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+		while (values != null && values.hasMoreElements()) {
+			for (String coding : StringUtils
+					.commaDelimitedListToStringArray(values.nextElement())) {
+				String[] parts = coding.split(";");
+				if ("gzip".equalsIgnoreCase(parts[0].trim()) && (parts.length == 1
+						|| !parts[1].trim().matches("q=0(\\.0*)?"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isJson(HttpServletResponse response) {
+		String contentType = response.getContentType();
+		return contentType != null
+				&& MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))
+				&& response.getHeader(HttpHeaders.CONTENT_ENCODING) == null;
+	}
+
+	private static class Payload {
+
+		private final byte[] json;
+
+		private final byte[] smile;
+
+		private byte[] gzipped;
+
+		Payload(byte[] json, byte[] smile) {
+			this.json = json;
+			this.smile = smile;
+		}
+
+		synchronized byte[] gzipped() throws IOException {
+			if (this.gzipped == null) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(this.smile.length / 2);
+				try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+					gzip.write(this.smile);
+				}
+				this.gzipped = out.toByteArray();
+			}
+			return this.gzipped;
+		}
+	}
+
+	/**
+	 * Asks Jersey for the uncompressed JSON payload, the Smile payload is compressed by
+	 * the filter.
+	 */
+	private static class JsonRequest extends HttpServletRequestWrapper {
+
+		JsonRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public String getHeader(String name) {
+			if (HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+				return MediaType.APPLICATION_JSON_VALUE;
+			}
+			if (HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(name)) {
+				return null;
+			}
+			return super.getHeader(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name) {
+			if (HttpHeaders.ACCEPT.equalsIgnoreCase(name)) {
+				return Collections.enumeration(
+						Collections.singletonList(MediaType.APPLICATION_JSON_VALUE));
+			}
+			if (HttpHeaders.ACCEPT_ENCODING.equalsIgnoreCase(name)) {
+				return Collections.emptyEnumeration();
+			}
+			return super.getHeaders(name);
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames() {
+			List<String> names = Collections.list(super.getHeaderNames());
+			names.removeIf(HttpHeaders.ACCEPT_ENCODING::equalsIgnoreCase);
+			return Collections.enumeration(names);
+		}
+	}
+}
@@ -21,6 +21,11 @@
     <div class="container-fluid xd-container">
       <#include "navbar.ftl">
       <h1>Instances currently registered with Eureka</h1>
+      <form class="form-inline" method="get" action="<@spring.url dashboardPath/>">
+        <input type="text" name="app" class="form-control" placeholder="Application" value="${appFilter?html}">
+        <input type="hidden" name="size" value="${pageSize?c}">
+        <button type="submit" class="btn btn-default">Filter</button>
+      </form>
       <table id='instances' class="table table-striped table-hover">
         <thead>
           <tr><th>Application</th><th>AMIs</th><th>Availability Zones</th><th>Status</th></tr>
@@ -66,6 +71,14 @@
 
         </tbody>
       </table>
+      <#if pages gt 1>
+        <ul class="pagination">
+          <#list 1..pages as p>
+            <li<#if p == page> class="active"</#if>><a href="<@spring.url dashboardPath/>?app=${appFilter?url}&amp;page=${p?c}&amp;size=${pageSize?c}">${p?c}</a></li>
+          </#list>
+        </ul>
+      </#if>
+      <p>${totalApps?c} applications</p>
 
       <h1>General Info</h1>
 
@@ -17,6 +17,7 @@
 package org.springframework.cloud.netflix.eureka.server;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Map;
@@ -66,6 +67,18 @@ public class ApplicationDashboardPathTests {
 		assertTrue(body.contains("<a href=\"/dashboard/lastn\">Last"));
 	}
 
+	@Test
+	public void dashboardEscapesTheApplicationFilter() {
+		ResponseEntity<String> entity = new TestRestTemplate().getForEntity(
+				"http://localhost:" + this.port + "/dashboard?app={app}", String.class,
+				"\"><script>alert(1)</script>");
+		assertEquals(HttpStatus.OK, entity.getStatusCode());
+		String body = entity.getBody();
+		assertFalse(body.contains("<script>alert(1)</script>"));
+		assertTrue(body.contains(
+				"value=\"&quot;&gt;&lt;script&gt;alert(1)&lt;/script&gt;\""));
+	}
+
 	@Test
 	public void cssAvailable() {
 		ResponseEntity<String> entity = new TestRestTemplate().getForEntity(
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.cloud.netflix.eureka.server.AsyncRegistryEventPublisher.OverflowPolicy;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.context.ApplicationEvent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncRegistryEventPublisherTests {
+
+	private final List<Object> published = new CopyOnWriteArrayList<>();
+
+	private final List<Thread> threads = new CopyOnWriteArrayList<>();
+
+	private final CountDownLatch firstEventStarted = new CountDownLatch(1);
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private AsyncRegistryEventPublisher publisher;
+
+	@After
+	public void teardown() throws Exception {
+		this.release.countDown();
+		if (this.publisher != null) {
+			this.publisher.destroy();
+		}
+	}
+
+	@Test
+	public void eventsArePublishedInOrderOnAnotherThread() throws Exception {
+		this.publisher = publisher(10, 0, OverflowPolicy.DROP_OLDEST);
+		this.release.countDown();
+		ApplicationEvent cancel = canceled("APP", "a");
+		ApplicationEvent renew = renewed("APP", "b");
+		this.publisher.publish(cancel);
+		this.publisher.publish(renew);
+
+		awaitPublished(2);
+		assertSame(cancel, this.published.get(0));
+		assertSame(renew, this.published.get(1));
+		assertNotEquals(Thread.currentThread(), this.threads.get(0));
+		assertEquals(2, this.publisher.getPublished());
+	}
+
+	@Test
+	public void oldestEventIsDroppedWhenFull() throws Exception {
+		this.publisher = publisher(2, 0, OverflowPolicy.DROP_OLDEST);
+		ApplicationEvent blocking = canceled("APP", "blocking");
+		this.publisher.publish(blocking);
+		assertTrue(this.firstEventStarted.await(5, TimeUnit.SECONDS));
+
+		ApplicationEvent oldest = renewed("APP", "a");
+		ApplicationEvent second = renewed("APP", "a");
+		ApplicationEvent third = canceled("APP", "b");
+		this.publisher.publish(oldest);
+		this.publisher.publish(second);
+		this.publisher.publish(third);
+		assertEquals(2, this.publisher.getQueueDepth());
+		assertEquals(1, this.publisher.getDropped());
+
+		this.release.countDown();
+		awaitPublished(3);
+		assertSame(second, this.published.get(1));
+		assertSame(third, this.published.get(2));
+	}
+
+	@Test
+	public void renewalsOfTheSameInstanceAreCoalescedWhenFull() throws Exception {
+		this.publisher = publisher(2, 0, OverflowPolicy.COALESCE);
+		this.publisher.publish(canceled("APP", "blocking"));
+		assertTrue(this.firstEventStarted.await(5, TimeUnit.SECONDS));
+
+		ApplicationEvent cancel = canceled("APP", "b");
+		ApplicationEvent latest = renewed("APP", "a");
+		this.publisher.publish(renewed("APP", "a"));
+		this.publisher.publish(cancel);
+		this.publisher.publish(latest);
+		assertEquals(2, this.publisher.getQueueDepth());
+		assertEquals(0, this.publisher.getDropped());
+		assertEquals(1, this.publisher.getCoalesced());
+
+		this.release.countDown();
+		awaitPublished(3);
+		assertSame(latest, this.published.get(1));
+		assertSame(cancel, this.published.get(2));
+	}
+
+	@Test
+	public void renewalsArePublishedInBatches() throws Exception {
+		this.publisher = publisher(10, 300, OverflowPolicy.COALESCE);
+		this.release.countDown();
+		ApplicationEvent renew = renewed("APP", "a");
+		ApplicationEvent cancel = canceled("APP", "b");
+		this.publisher.publish(renew);
+		this.publisher.publish(cancel);
+
+		awaitPublished(1);
+		assertSame(cancel, this.published.get(0));
+		assertEquals(1, this.publisher.getQueueDepth());
+
+		awaitPublished(2);
+		assertSame(renew, this.published.get(1));
+	}
+
+	@Test
+	public void heldBackRenewalIsPublishedBeforeTheCancelOfItsInstance() throws Exception {
+		this.publisher = publisher(10, 60000, OverflowPolicy.COALESCE);
+		this.release.countDown();
+		ApplicationEvent other = renewed("APP", "b");
+		ApplicationEvent renew = renewed("APP", "a");
+		ApplicationEvent cancel = canceled("APP", "a");
+		this.publisher.publish(other);
+		this.publisher.publish(renew);
+		this.publisher.publish(cancel);
+
+		awaitPublished(3);
+		assertSame(other, this.published.get(0));
+		assertSame(renew, this.published.get(1));
+		assertSame(cancel, this.published.get(2));
+		assertEquals(0, this.publisher.getQueueDepth());
+	}
+
+	@Test
+	public void eventsAreQueuedUntilStarted() throws Exception {
+		this.publisher = new AsyncRegistryEventPublisher(this::record, 10, 0,
+				OverflowPolicy.DROP_OLDEST);
+		this.release.countDown();
+		ApplicationEvent cancel = canceled("APP", "a");
+		this.publisher.publish(cancel);
+		Thread.sleep(100);
+		assertEquals(0, this.published.size());
+		assertEquals(1, this.publisher.getQueueDepth());
+
+		this.publisher.afterPropertiesSet();
+		awaitPublished(1);
+		assertSame(cancel, this.published.get(0));
+	}
+
+	private AsyncRegistryEventPublisher publisher(int queueCapacity,
+			long renewBatchInterval, OverflowPolicy overflowPolicy) {
+		AsyncRegistryEventPublisher publisher = new AsyncRegistryEventPublisher(
+				this::record, queueCapacity, renewBatchInterval, overflowPolicy);
+		publisher.afterPropertiesSet();
+		return publisher;
+	}
+
+	private void record(Object event) {
+		this.threads.add(Thread.currentThread());
+		this.published.add(event);
+		this.firstEventStarted.countDown();
+		try {
+			this.release.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void awaitPublished(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (this.published.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, this.published.size());
+	}
+
+	private static ApplicationEvent renewed(String appName, String serverId) {
+		return new EurekaInstanceRenewedEvent(new Object(), appName, serverId, null, false);
+	}
+
+	private static ApplicationEvent canceled(String appName, String serverId) {
+		return new EurekaInstanceCanceledEvent(new Object(), appName, serverId, false);
+	}
+}
@@ -35,6 +35,7 @@ import com.netflix.appinfo.DataCenterInfo;
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.MyDataCenterInfo;
 import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.EurekaServerConfig;
 import com.netflix.eureka.EurekaServerContext;
 import com.netflix.eureka.EurekaServerContextHolder;
 import com.netflix.eureka.cluster.PeerEurekaNode;
@@ -47,12 +48,16 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class EurekaControllerTests {
 
 	private ApplicationInfoManager infoManager;
 	private ApplicationInfoManager original;
+	private PeerAwareInstanceRegistry registry;
+	private EurekaServerContext serverContext;
 
 	@Before
 	public void setup() throws Exception {
@@ -79,10 +84,10 @@ public class EurekaControllerTests {
 		ArrayList<Application> applications = new ArrayList<>();
 		applications.add(myapp);
 
-		PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+		this.registry = mock(PeerAwareInstanceRegistry.class);
 		when(registry.getSortedApplications()).thenReturn(applications);
 
-		EurekaServerContext serverContext = mock(EurekaServerContext.class);
+		this.serverContext = mock(EurekaServerContext.class);
 		EurekaServerContextHolder.initialize(serverContext);
 		when(serverContext.getRegistry()).thenReturn(registry);
 		when(serverContext.getPeerEurekaNodes()).thenReturn(peerEurekaNodes);
@@ -118,6 +123,75 @@ public class EurekaControllerTests {
 		assertThat("isHref was wrong", (Boolean)instance.get("isHref"), is(false));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStatusFilteredAndPaginated() throws Exception {
+		List<Application> applications = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			applications.add(new Application("APP-" + i));
+		}
+		applications.add(new Application("OTHER"));
+		when(registry.getSortedApplications()).thenReturn(applications);
+
+		EurekaController controller = new EurekaController(infoManager);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.setParameter("app", "app-");
+		request.setParameter("page", "3");
+		request.setParameter("size", "10");
+		Map<String, Object> model = new HashMap<>();
+		controller.status(request, model);
+
+		List<Map<String, Object>> apps = (List<Map<String, Object>>) model.get("apps");
+		assertThat("apps was wrong size", apps, is(hasSize(5)));
+		assertThat("name was wrong", (String) apps.get(0).get("name"), is(equalTo("APP-20")));
+		assertThat("totalApps was wrong", (Integer) model.get("totalApps"), is(25));
+		assertThat("pages was wrong", (Integer) model.get("pages"), is(3));
+
+		request.setParameter("page", "7");
+		Map<String, Object> json = controller.apps(request);
+
+		assertThat("page was wrong", (Integer) json.get("page"), is(3));
+		assertThat("apps was wrong size", (List<?>) json.get("apps"), is(hasSize(5)));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStatusPageSizeFromDashboardProperties() throws Exception {
+		List<Application> applications = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			applications.add(new Application("APP-" + i));
+		}
+		when(registry.getSortedApplications()).thenReturn(applications);
+		EurekaDashboardProperties properties = new EurekaDashboardProperties();
+		properties.setPageSize(20);
+
+		EurekaController controller = new EurekaController(infoManager, properties);
+		Map<String, Object> model = new HashMap<>();
+		controller.status(new MockHttpServletRequest("GET", "/"), model);
+
+		List<Map<String, Object>> apps = (List<Map<String, Object>>) model.get("apps");
+		assertThat("apps was wrong size", apps, is(hasSize(20)));
+		assertThat("pages was wrong", (Integer) model.get("pages"), is(2));
+	}
+
+	@Test
+	public void testAppsCachedForResponseCacheInterval() throws Exception {
+		EurekaServerConfig serverConfig = mock(EurekaServerConfig.class);
+		when(serverConfig.getResponseCacheUpdateIntervalMs()).thenReturn(60000L);
+		when(serverContext.getServerConfig()).thenReturn(serverConfig);
+		EurekaController controller = new EurekaController(infoManager);
+
+		for (int i = 0; i < 3; i++) {
+			controller.status(new MockHttpServletRequest("GET", "/"), new HashMap<>());
+			controller.apps(new MockHttpServletRequest("GET", "/dashboard/apps"));
+		}
+		verify(registry, times(1)).getSortedApplications();
+
+		when(serverConfig.getResponseCacheUpdateIntervalMs()).thenReturn(0L);
+		controller.apps(new MockHttpServletRequest("GET", "/dashboard/apps"));
+		verify(registry, times(2)).getSortedApplications();
+	}
+
 	@SuppressWarnings("unchecked")
 	Map<String, Object> getFirst(Map<String, Object> model, String key) {
 		List<Map<String, Object>> apps = (List<Map<String, Object>>) model.get(key);
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.netflix.eureka.server.InstanceRegistryRenewLoadTests.TestApplication;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRenewedEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simulates a renew storm of 20k instances, renewing every instance of a large
+ * registry must not walk the whole registry for each renewal.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringBootTest(classes = TestApplication.class,
+		webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		value = {"spring.application.name=eureka", "eureka.client.registerWithEureka=false",
+				"eureka.client.fetchRegistry=false"})
+public class InstanceRegistryRenewLoadTests {
+
+	private static final int APPS = 200;
+
+	private static final int INSTANCES_PER_APP = 100;
+
+	@Autowired
+	private PeerAwareInstanceRegistry instanceRegistry;
+
+	@Autowired
+	private RenewCounter renewCounter;
+
+	@Test
+	public void renewStorm() {
+		for (int app = 0; app < APPS; app++) {
+			for (int instance = 0; instance < INSTANCES_PER_APP; instance++) {
+				this.instanceRegistry.register(getInstanceInfo(app, instance), false);
+			}
+		}
+
+		long start = System.nanoTime();
+		for (int app = 0; app < APPS; app++) {
+			for (int instance = 0; instance < INSTANCES_PER_APP; instance++) {
+				assertTrue(this.instanceRegistry.renew(appName(app),
+						instanceId(app, instance), false));
+			}
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+		assertEquals(APPS * INSTANCES_PER_APP, this.renewCounter.renewals.get());
+		assertEquals(APPS * INSTANCES_PER_APP, this.renewCounter.withInstance.get());
+		assertTrue("20k renewals took " + elapsedMillis + "ms", elapsedMillis < 10000);
+	}
+
+	private static String appName(int app) {
+		return "APP-" + app;
+	}
+
+	private static String instanceId(int app, int instance) {
+		return "host-" + app + "-" + instance + ":8080";
+	}
+
+	private static InstanceInfo getInstanceInfo(int app, int instance) {
+		InstanceInfo.Builder builder = InstanceInfo.Builder.newBuilder();
+		builder.setAppName(appName(app));
+		builder.setHostName("host-" + app + "-" + instance);
+		builder.setInstanceId(instanceId(app, instance));
+		builder.setPort(8080);
+		return builder.build();
+	}
+
+	@Configuration
+	@EnableAutoConfiguration
+	@EnableEurekaServer
+	protected static class TestApplication {
+
+		@Bean
+		public RenewCounter renewCounter() {
+			return new RenewCounter();
+		}
+	}
+
+	protected static class RenewCounter {
+
+		private final AtomicInteger renewals = new AtomicInteger();
+
+		private final AtomicInteger withInstance = new AtomicInteger();
+
+		@EventListener
+		public void onRenew(EurekaInstanceRenewedEvent event) {
+			this.renewals.incrementAndGet();
+			if (event.getInstanceInfo() != null) {
+				this.withInstance.incrementAndGet();
+			}
+		}
+	}
+}
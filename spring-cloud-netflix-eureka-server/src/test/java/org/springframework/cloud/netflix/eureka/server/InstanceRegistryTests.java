@@ -1,13 +1,10 @@
 package org.springframework.cloud.netflix.eureka.server;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.appinfo.LeaseInfo;
-import com.netflix.discovery.shared.Application;
 import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
 import org.junit.Before;
 import org.junit.Test;
@@ -30,7 +27,6 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
-import static org.mockito.Mockito.doReturn;
 
 /**
  * @author Bartlomiej Slota
@@ -111,12 +107,10 @@ public class InstanceRegistryTests {
 		//Creating two instances of the app
 		final InstanceInfo instanceInfo1 = getInstanceInfo(APP_NAME, HOST_NAME, INSTANCE_ID, PORT, null);
 		final InstanceInfo instanceInfo2 = getInstanceInfo(APP_NAME, HOST_NAME, "my-host-name:8009", 8009, null);
-		// creating application list with an app having two instances
-		final Application application = new Application(APP_NAME, Arrays.asList(instanceInfo1, instanceInfo2));
-		final List<Application> applications = new ArrayList<>();
-		applications.add(application);
-		// stubbing applications list
-		doReturn(applications).when(instanceRegistry).getSortedApplications();
+		// registering the app with its two instances
+		instanceRegistry.register(instanceInfo1, false);
+		instanceRegistry.register(instanceInfo2, false);
+		this.testEvents.applicationEvents.clear();
 		// calling tested method
 		instanceRegistry.renew(APP_NAME, INSTANCE_ID, false);
 		instanceRegistry.renew(APP_NAME, "my-host-name:8009", false);
@@ -138,6 +132,21 @@ public class InstanceRegistryTests {
 		assertEquals(instanceInfo2, event2.getInstanceInfo());
 	}
 
+	@Test
+	public void testRenewWithoutRenewEvents() throws Exception {
+		final InstanceInfo instanceInfo = getInstanceInfo(APP_NAME, HOST_NAME, INSTANCE_ID, PORT, null);
+		instanceRegistry.register(instanceInfo, false);
+		this.testEvents.applicationEvents.clear();
+		instanceRegistry.setPublishRenewEvents(false);
+		try {
+			assertTrue(instanceRegistry.renew(APP_NAME, INSTANCE_ID, false));
+			assertTrue(this.testEvents.applicationEvents.isEmpty());
+		}
+		finally {
+			instanceRegistry.setPublishRenewEvents(true);
+		}
+	}
+
 	@Configuration
 	@EnableAutoConfiguration
 	@EnableEurekaServer
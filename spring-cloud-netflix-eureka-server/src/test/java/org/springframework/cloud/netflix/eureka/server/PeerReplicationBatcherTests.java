@@ -0,0 +1,331 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.InstanceInfo.InstanceStatus;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.transport.EurekaHttpResponse;
+import com.netflix.eureka.cluster.HttpReplicationClient;
+import com.netflix.eureka.cluster.protocol.ReplicationInstance;
+import com.netflix.eureka.cluster.protocol.ReplicationInstanceResponse;
+import com.netflix.eureka.cluster.protocol.ReplicationList;
+import com.netflix.eureka.cluster.protocol.ReplicationListResponse;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistryImpl.Action;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PeerReplicationBatcherTests {
+
+	private static final Log log = LogFactory.getLog(PeerReplicationBatcherTests.class);
+
+	private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+
+	private final List<PeerReplicationBatcher> batchers = new ArrayList<>();
+
+	@After
+	public void teardown() {
+		for (PeerReplicationBatcher batcher : this.batchers) {
+			batcher.shutdown();
+		}
+	}
+
+	@Test
+	public void heartbeatsOfAnInstanceAreCoalesced() throws Exception {
+		Peer peer = new Peer(0);
+		PeerReplicationBatcher batcher = batcher(peer, 100, 200, 200);
+		InstanceInfo info = instance("APP", "a");
+
+		for (int i = 0; i < 100; i++) {
+			batcher.heartbeat("APP", "a", info, InstanceStatus.UNKNOWN, expiry());
+		}
+
+		await(() -> batcher.getReplicated() == 1);
+		assertEquals(1, peer.batches.size());
+		assertEquals(1, peer.batches.get(0).size());
+		assertEquals(Action.Heartbeat, peer.batches.get(0).get(0).getAction());
+		assertEquals(99, batcher.getCoalesced());
+		assertTrue(batcher.getLastBatchLag() >= 100);
+	}
+
+	@Test
+	public void heartbeatIsNotSentWithRegistration() throws Exception {
+		Peer peer = new Peer(0);
+		PeerReplicationBatcher batcher = batcher(peer, 100, 50, 50);
+		InstanceInfo info = instance("APP", "a");
+
+		batcher.heartbeat("APP", "a", info, InstanceStatus.UNKNOWN, expiry());
+		batcher.register(info, expiry());
+		batcher.heartbeat("APP", "a", info, InstanceStatus.UNKNOWN, expiry());
+
+		await(() -> batcher.getReplicated() == 1);
+		assertEquals(1, peer.batches.get(0).size());
+		assertEquals(Action.Register, peer.batches.get(0).get(0).getAction());
+		assertEquals(2, batcher.getCoalesced());
+	}
+
+	@Test
+	public void batchIsSentWhenFull() throws Exception {
+		Peer peer = new Peer(0);
+		PeerReplicationBatcher batcher = batcher(peer, 10, 60000, 60000);
+
+		for (int i = 0; i < 25; i++) {
+			batcher.register(instance("APP", "i" + i), expiry());
+		}
+
+		await(() -> batcher.getReplicated() == 20);
+		assertEquals(10, peer.batches.get(0).size());
+		assertEquals(10, peer.batches.get(1).size());
+		assertEquals(5, batcher.getPending());
+		assertEquals(10, batcher.getLastBatchSize());
+	}
+
+	@Test
+	public void failedBatchIsRetried() throws Exception {
+		Peer peer = new Peer(0);
+		peer.failures.set(2);
+		PeerReplicationBatcher batcher = batcher(peer, 100, 10, 10);
+
+		batcher.register(instance("APP", "a"), expiry());
+		batcher.cancel("APP", "b", expiry());
+
+		await(() -> batcher.getReplicated() == 2);
+		assertEquals(1, peer.batches.size());
+		assertEquals(2, peer.batches.get(0).size());
+		assertEquals(Action.Register, peer.batches.get(0).get(0).getAction());
+		assertEquals(Action.Cancel, peer.batches.get(0).get(1).getAction());
+	}
+
+	@Test
+	public void retriedBatchIsBoundedByMaxPending() throws Exception {
+		Peer peer = new Peer(200);
+		peer.failures.set(1);
+		PeerReplicationBatcher batcher = batcher(peer, 2, 0, 0, 2);
+
+		batcher.register(instance("APP", "a"), expiry());
+		batcher.register(instance("APP", "b"), expiry());
+		await(() -> batcher.getPending() == 0);
+		batcher.register(instance("APP", "c"), expiry());
+		batcher.register(instance("APP", "d"), expiry());
+
+		await(() -> batcher.getReplicated() == 2);
+		assertEquals(2, batcher.getDropped());
+		assertEquals(2, peer.registered.size());
+		assertTrue(peer.registered.containsKey("APP/c"));
+		assertTrue(peer.registered.containsKey("APP/d"));
+	}
+
+	@Test
+	public void expiredUpdatesAreNotSent() throws Exception {
+		Peer peer = new Peer(0);
+		PeerReplicationBatcher batcher = batcher(peer, 100, 10, 10);
+
+		batcher.cancel("APP", "a", System.currentTimeMillis() - 1);
+		batcher.cancel("APP", "b", expiry());
+
+		await(() -> batcher.getReplicated() == 1);
+		assertEquals("b", peer.batches.get(0).get(0).getId());
+		assertEquals(1, batcher.getExpired());
+	}
+
+	@Test
+	public void threeNodeClusterReplicatesAllUpdates() throws Exception {
+		int nodes = 3;
+		int instancesPerNode = 2000;
+		int heartbeats = 5;
+		Peer[] peers = new Peer[nodes];
+		for (int node = 0; node < nodes; node++) {
+			peers[node] = new Peer(1);
+		}
+		// every node replicates to the two others
+		List<List<PeerReplicationBatcher>> cluster = new ArrayList<>();
+		for (int node = 0; node < nodes; node++) {
+			List<PeerReplicationBatcher> replicas = new ArrayList<>();
+			for (int peer = 0; peer < nodes; peer++) {
+				if (peer != node) {
+					replicas.add(batcher(peers[peer], 250, 10, 200));
+				}
+			}
+			cluster.add(replicas);
+		}
+
+		long start = System.nanoTime();
+		List<Thread> servers = new ArrayList<>();
+		for (int node = 0; node < nodes; node++) {
+			List<PeerReplicationBatcher> replicas = cluster.get(node);
+			String app = "APP-" + node;
+			Thread server = new Thread(() -> {
+				for (int round = 0; round <= heartbeats; round++) {
+					for (int i = 0; i < instancesPerNode; i++) {
+						InstanceInfo info = instance(app, "i" + i);
+						for (PeerReplicationBatcher replica : replicas) {
+							if (round == 0) {
+								replica.register(info, expiry());
+							}
+							else {
+								replica.heartbeat(app, "i" + i, info,
+										InstanceStatus.UNKNOWN, expiry());
+							}
+						}
+					}
+				}
+			});
+			server.start();
+			servers.add(server);
+		}
+		for (Thread server : servers) {
+			server.join();
+		}
+		int updates = nodes * (nodes - 1) * instancesPerNode * (heartbeats + 1);
+		await(30000, () -> processed(cluster) == updates);
+		long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		long batches = 0;
+		long replicated = 0;
+		long coalesced = 0;
+		long maxLag = 0;
+		for (List<PeerReplicationBatcher> replicas : cluster) {
+			for (PeerReplicationBatcher replica : replicas) {
+				batches += replica.getBatches();
+				replicated += replica.getReplicated();
+				coalesced += replica.getCoalesced();
+				maxLag = Math.max(maxLag, replica.getLastBatchLag());
+			}
+		}
+		log.info("Replicated " + updates + " updates in a 3 node cluster in " + millis
+				+ "ms (" + (updates * 1000L / Math.max(millis, 1)) + " updates/s): "
+				+ replicated + " sent in " + batches + " batches, " + coalesced
+				+ " coalesced, last lag " + maxLag + "ms");
+		for (int node = 0; node < nodes; node++) {
+			for (int other = 0; other < nodes; other++) {
+				if (other != node) {
+					for (int i = 0; i < instancesPerNode; i++) {
+						assertTrue(peers[node].registered
+								.containsKey("APP-" + other + "/i" + i));
+					}
+				}
+			}
+		}
+		assertEquals(updates, replicated + coalesced);
+		assertTrue(batches < replicated / 10);
+	}
+
+	private PeerReplicationBatcher batcher(Peer peer, int maxBatchSize, long minDelay,
+			long maxDelay) {
+		return batcher(peer, maxBatchSize, minDelay, maxDelay, 100000);
+	}
+
+	private PeerReplicationBatcher batcher(Peer peer, int maxBatchSize, long minDelay,
+			long maxDelay, int maxPending) {
+		PeerReplicationBatcher batcher = new PeerReplicationBatcher(
+				"peer" + this.batchers.size(), peer.client, this.registry, maxBatchSize,
+				minDelay, maxDelay, maxPending, false);
+		batcher.start();
+		this.batchers.add(batcher);
+		return batcher;
+	}
+
+	private static long processed(List<List<PeerReplicationBatcher>> cluster) {
+		long processed = 0;
+		for (List<PeerReplicationBatcher> replicas : cluster) {
+			for (PeerReplicationBatcher replica : replicas) {
+				processed += replica.getReplicated() + replica.getCoalesced();
+			}
+		}
+		return processed;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		await(5000, condition);
+	}
+
+	private static void await(long timeout, BooleanSupplier condition)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue("Condition not met within " + timeout + "ms", condition.getAsBoolean());
+	}
+
+	private static long expiry() {
+		return System.currentTimeMillis() + 60000;
+	}
+
+	private static InstanceInfo instance(String app, String id) {
+		return InstanceInfo.Builder.newBuilder().setAppName(app).setInstanceId(id)
+				.setHostName(id).setStatus(InstanceStatus.UP)
+				.setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+				.build();
+	}
+
+	/**
+	 * An in-process peer, receiving the batches with a simulated network latency.
+	 */
+	private static class Peer {
+
+		private final HttpReplicationClient client = mock(HttpReplicationClient.class);
+
+		private final List<List<ReplicationInstance>> batches = new CopyOnWriteArrayList<>();
+
+		private final Map<String, Action> registered = new ConcurrentHashMap<>();
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		Peer(long latencyMillis) throws Exception {
+			when(this.client.submitBatchUpdates(any(ReplicationList.class)))
+					.thenAnswer(invocation -> {
+						Thread.sleep(latencyMillis);
+						if (this.failures.getAndDecrement() > 0) {
+							throw new IOException("Connection reset");
+						}
+						ReplicationList list = invocation.getArgument(0);
+						ReplicationListResponse response = new ReplicationListResponse();
+						for (ReplicationInstance instance : list.getReplicationList()) {
+							this.registered.merge(
+									instance.getAppName() + "/" + instance.getId(),
+									instance.getAction(), (previous, action) -> previous);
+							response.addResponse(new ReplicationInstanceResponse(200, null));
+						}
+						this.batches.add(list.getReplicationList());
+						return EurekaHttpResponse.anEurekaHttpResponse(200, response)
+								.build();
+					});
+		}
+	}
+}
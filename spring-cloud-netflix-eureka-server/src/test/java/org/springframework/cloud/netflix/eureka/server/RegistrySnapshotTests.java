@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.LeaseInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.converters.wrappers.CodecWrapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RegistrySnapshotTests {
+
+	private static final Log log = LogFactory.getLog(RegistrySnapshotTests.class);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final PeerAwareInstanceRegistry registry = mock(PeerAwareInstanceRegistry.class);
+
+	private RegistrySnapshot snapshot;
+
+	@After
+	public void teardown() throws Exception {
+		if (this.snapshot != null) {
+			this.snapshot.destroy();
+		}
+	}
+
+	@Test
+	public void largeRegistryIsRestored() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 600000);
+		when(this.registry.getApplicationsFromLocalRegionOnly())
+				.thenReturn(registry(200, 100));
+
+		long start = System.nanoTime();
+		this.snapshot.write();
+		long writeMillis = (System.nanoTime() - start) / 1000000;
+		start = System.nanoTime();
+		int restored = this.snapshot.restore();
+		long restoreMillis = (System.nanoTime() - start) / 1000000;
+
+		log.info("Snapshot of 20000 instances, " + this.snapshot.getFile().length()
+				+ " bytes: written in " + writeMillis + "ms, restored in "
+				+ restoreMillis + "ms");
+		assertEquals(20000, restored);
+		ArgumentCaptor<InstanceInfo> instances = ArgumentCaptor.forClass(InstanceInfo.class);
+		verify(this.registry, times(20000)).register(instances.capture(), eq(90),
+				eq(true));
+		InstanceInfo instance = instances.getAllValues().stream()
+				.filter(i -> "host-7-42:8080".equals(i.getId())).findFirst().get();
+		assertEquals("APP-7", instance.getAppName());
+		assertEquals(8080, instance.getPort());
+		assertEquals("zone-0", instance.getMetadata().get("zone"));
+		assertEquals(1, this.snapshot.getWritten());
+	}
+
+	@Test
+	public void knownInstancesAreNotRestored() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 600000);
+		Applications applications = registry(1, 3);
+		when(this.registry.getApplicationsFromLocalRegionOnly()).thenReturn(applications);
+		this.snapshot.write();
+		InstanceInfo known = applications.getRegisteredApplications("APP-0")
+				.getInstances().get(1);
+		when(this.registry.getInstanceByAppAndId("APP-0", known.getId(), false))
+				.thenReturn(known);
+
+		assertEquals(2, this.snapshot.restore());
+	}
+
+	@Test
+	public void failedWriteKeepsPreviousSnapshot() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 600000);
+		when(this.registry.getApplicationsFromLocalRegionOnly())
+				.thenReturn(registry(2, 5));
+		this.snapshot.write();
+		byte[] previous = Files.readAllBytes(this.snapshot.getFile().toPath());
+
+		CodecWrapper failing = mock(CodecWrapper.class);
+		doAnswer(invocation -> {
+			OutputStream out = invocation.getArgument(1);
+			out.write(new byte[4096]);
+			throw new IOException("Disk full");
+		}).when(failing).encode(any(), any(OutputStream.class));
+		RegistrySnapshot crashing = new RegistrySnapshot(this.registry, failing,
+				this.snapshot.getFile(), 1000, 600000);
+		try {
+			crashing.write();
+			fail("Expected IOException");
+		}
+		catch (IOException e) {
+			assertEquals("Disk full", e.getMessage());
+		}
+		finally {
+			crashing.destroy();
+		}
+
+		assertArrayEquals(previous, Files.readAllBytes(this.snapshot.getFile().toPath()));
+		assertFalse(new File(this.snapshot.getFile().getPath() + ".tmp").exists());
+		assertEquals(10, this.snapshot.restore());
+	}
+
+	@Test
+	public void truncatedSnapshotIsIgnored() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 600000);
+		when(this.registry.getApplicationsFromLocalRegionOnly())
+				.thenReturn(registry(20, 50));
+		this.snapshot.write();
+		try (RandomAccessFile file = new RandomAccessFile(this.snapshot.getFile(), "rw")) {
+			file.setLength(file.length() - 10);
+		}
+
+		assertEquals(0, this.snapshot.restore());
+		verify(this.registry, never()).register(any(), anyInt(), anyBoolean());
+	}
+
+	@Test
+	public void staleSnapshotIsIgnored() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 50);
+		when(this.registry.getApplicationsFromLocalRegionOnly())
+				.thenReturn(registry(1, 1));
+		this.snapshot.write();
+		Thread.sleep(100);
+
+		assertNull(this.snapshot.read());
+		assertEquals(0, this.snapshot.restore());
+	}
+
+	@Test
+	public void missingSnapshotIsIgnored() throws Exception {
+		this.snapshot = snapshot(new CloudJacksonJson(), 600000);
+
+		assertEquals(0, this.snapshot.restore());
+	}
+
+	private RegistrySnapshot snapshot(CodecWrapper codec, long maxAge) {
+		return new RegistrySnapshot(this.registry, codec,
+				new File(this.folder.getRoot(), "registry.snapshot"), 1000, maxAge);
+	}
+
+	private static Applications registry(int apps, int instancesPerApp) {
+		Applications applications = new Applications();
+		for (int app = 0; app < apps; app++) {
+			List<InstanceInfo> instances = new ArrayList<>();
+			for (int instance = 0; instance < instancesPerApp; instance++) {
+				String host = "host-" + app + "-" + instance;
+				instances.add(InstanceInfo.Builder.newBuilder()
+						.setAppName("APP-" + app)
+						.setInstanceId(host + ":8080")
+						.setHostName(host)
+						.setIPAddr("10.0." + app + "." + instance)
+						.setVIPAddress("app-" + app)
+						.setPort(8080)
+						.setStatus(InstanceInfo.InstanceStatus.UP)
+						.setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+						.setLeaseInfo(LeaseInfo.Builder.newBuilder()
+								.setDurationInSecs(90).build())
+						.add("zone", "zone-" + (instance % 3))
+						.build());
+			}
+			applications.addApplication(new Application("APP-" + app, instances));
+		}
+		return applications;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.eureka.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.netflix.appinfo.DataCenterInfo;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.appinfo.MyDataCenterInfo;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.Test;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SmileContentFilterTests {
+
+	private static final Log log = LogFactory.getLog(SmileContentFilterTests.class);
+
+	private static final int APPS = 200;
+
+	private static final int INSTANCES_PER_APP = 100;
+
+	private static final byte[] JSON = registryJson();
+
+	private final SmileContentFilter filter = new SmileContentFilter();
+
+	private final List<String> acceptSeen = new ArrayList<>();
+
+	private final List<String> acceptEncodingSeen = new ArrayList<>();
+
+	@Test
+	public void jsonRequestIsNotTranscoded() throws Exception {
+		MockHttpServletResponse response = get("application/json");
+
+		assertEquals("application/json", response.getContentType());
+		assertEquals(JSON.length, response.getContentAsByteArray().length);
+		assertEquals("gzip", this.acceptEncodingSeen.get(0));
+	}
+
+	@Test
+	public void smileIsServedToClientsPreferringIt() throws Exception {
+		MockHttpServletResponse response = get(
+				"application/x-jackson-smile, application/json");
+
+		assertEquals("application/x-jackson-smile", response.getContentType());
+		assertEquals("application/json", this.acceptSeen.get(0));
+		assertNull(this.acceptEncodingSeen.get(0));
+		assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		JsonNode expected = new ObjectMapper().readTree(JSON);
+		JsonNode actual = new ObjectMapper(new SmileFactory()).readTree(
+				new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())));
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void smileIsNotCompressedForClientsNotAcceptingGzip() throws Exception {
+		MockHttpServletRequest request = request("application/x-jackson-smile");
+		request.removeHeader(HttpHeaders.ACCEPT_ENCODING);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, chain());
+
+		assertEquals("application/x-jackson-smile", response.getContentType());
+		assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+		JsonNode expected = new ObjectMapper().readTree(JSON);
+		JsonNode actual = new ObjectMapper(new SmileFactory())
+				.readTree(response.getContentAsByteArray());
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void smileIsNotServedWhenJsonIsPreferred() throws Exception {
+		MockHttpServletResponse response = get(
+				"application/json, application/x-jackson-smile");
+
+		assertEquals("application/json", response.getContentType());
+	}
+
+	@Test
+	public void unchangedPayloadIsTranscodedOnce() throws Exception {
+		byte[] first = this.filter.transcode("/eureka/apps/", JSON);
+		byte[] second = this.filter.transcode("/eureka/apps/", JSON.clone());
+
+		assertSame(first, second);
+	}
+
+	@Test
+	public void smileIsSmallerThanJson() throws Exception {
+		long start = System.nanoTime();
+		byte[] smile = this.filter.transcode("/eureka/apps/", JSON);
+		long transcodeMicros = (System.nanoTime() - start) / 1000;
+
+		ObjectMapper jsonMapper = new ObjectMapper();
+		ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+		long jsonMicros = decodeMicros(jsonMapper, JSON);
+		long smileMicros = decodeMicros(smileMapper, smile);
+
+		log.info("Registry of " + (APPS * INSTANCES_PER_APP) + " instances: json="
+				+ JSON.length + " bytes, decoded in " + jsonMicros + "us, smile="
+				+ smile.length + " bytes, decoded in " + smileMicros
+				+ "us, transcoded in " + transcodeMicros + "us");
+		assertTrue("smile=" + smile.length + " json=" + JSON.length,
+				smile.length < JSON.length * 0.7);
+	}
+
+	@Test
+	public void errorsAreNotTranscoded() throws Exception {
+		MockHttpServletRequest request = request("application/x-jackson-smile");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request, response, (req, res) -> {
+			((HttpServletResponse) res).setStatus(404);
+		});
+
+		assertEquals(404, response.getStatus());
+		assertNull(response.getContentType());
+	}
+
+	private MockHttpServletResponse get(String accept) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		this.filter.doFilter(request(accept), response, chain());
+		return response;
+	}
+
+	private MockHttpServletRequest request(String accept) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/eureka/apps/");
+		request.addHeader(HttpHeaders.ACCEPT, accept);
+		request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		return request;
+	}
+
+	private FilterChain chain() {
+		return (req, res) -> {
+			HttpServletRequest request = (HttpServletRequest) req;
+			this.acceptSeen.add(request.getHeader(HttpHeaders.ACCEPT));
+			this.acceptEncodingSeen.add(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+			res.setContentType("application/json");
+			res.setContentLength(JSON.length);
+			res.getOutputStream().write(JSON);
+		};
+	}
+
+	private static long decodeMicros(ObjectMapper mapper, byte[] payload)
+			throws IOException {
+		mapper.readTree(payload);
+		long start = System.nanoTime();
+		mapper.readTree(payload);
+		return (System.nanoTime() - start) / 1000;
+	}
+
+	private static byte[] registryJson() {
+		Applications applications = new Applications();
+		for (int app = 0; app < APPS; app++) {
+			List<InstanceInfo> instances = new ArrayList<>();
+			for (int instance = 0; instance < INSTANCES_PER_APP; instance++) {
+				instances.add(InstanceInfo.Builder.newBuilder()
+						.setAppName("APP-" + app)
+						.setInstanceId("host-" + app + "-" + instance + ":8080")
+						.setHostName("host-" + app + "-" + instance)
+						.setIPAddr("10.0." + app + "." + instance)
+						.setVIPAddress("app-" + app)
+						.setSecureVIPAddress("app-" + app)
+						.setPort(8080)
+						.setStatus(InstanceInfo.InstanceStatus.UP)
+						.setDataCenterInfo(new MyDataCenterInfo(DataCenterInfo.Name.MyOwn))
+						.add("zone", "zone-" + (instance % 3))
+						.add("management.port", "8081")
+						.build());
+			}
+			applications.addApplication(new Application("APP-" + app, instances));
+		}
+		try {
+			return EurekaServerAutoConfiguration.JACKSON_JSON.encode(applications)
+					.getBytes("UTF-8");
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
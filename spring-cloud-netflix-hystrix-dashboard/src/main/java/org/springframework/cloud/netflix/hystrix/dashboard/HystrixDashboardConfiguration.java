@@ -17,8 +17,6 @@
 package org.springframework.cloud.netflix.hystrix.dashboard;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.util.Map;
 
 import javax.servlet.ServletException;
@@ -29,10 +27,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.HttpStatus;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.HttpConnectionParams;
@@ -93,6 +88,7 @@ public class HystrixDashboardConfiguration {
 				this.dashboardProperties.isEnableIgnoreConnectionCloseHeader());
 		final ServletRegistrationBean registration = new ServletRegistrationBean(
 				proxyStreamServlet, "/proxy.stream");
+		registration.setAsyncSupported(true);
 		registration.setInitParameters(this.dashboardProperties.getInitParameters());
 		return registration;
 	}
@@ -105,7 +101,8 @@ public class HystrixDashboardConfiguration {
 	/**
 	 * Proxy an EventStream request (data.stream via proxy.stream) since EventStream does
 	 * not yet support CORS (https://bugs.webkit.org/show_bug.cgi?id=61862) so that a UI
-	 * can request a stream from a different server.
+	 * can request a stream from a different server. The viewers of the same stream share
+	 * a single connection to its origin, and are served asynchronously.
 	 */
 	public static class ProxyStreamServlet extends HttpServlet {
 
@@ -117,6 +114,8 @@ public class HystrixDashboardConfiguration {
 
 		private boolean enableIgnoreConnectionCloseHeader = false;
 
+		private transient ProxyStreams proxyStreams;
+
 		public void setEnableIgnoreConnectionCloseHeader(
 				boolean enableIgnoreConnectionCloseHeader) {
 			this.enableIgnoreConnectionCloseHeader = enableIgnoreConnectionCloseHeader;
@@ -126,6 +125,19 @@ public class HystrixDashboardConfiguration {
 			super();
 		}
 
+		@Override
+		public void init() throws ServletException {
+			this.proxyStreams = new ProxyStreams(ProxyConnectionManager.httpClient,
+					this::copyHeadersToServletResponse);
+		}
+
+		@Override
+		public void destroy() {
+			if (this.proxyStreams != null) {
+				this.proxyStreams.shutdown();
+			}
+		}
+
 		/**
 		 * @see javax.servlet.http.HttpServlet#doGet(javax.servlet.http.HttpServletRequest
 		 * request, javax.servlet.http.HttpServletResponse response)
@@ -143,8 +155,6 @@ public class HystrixDashboardConfiguration {
 			}
 			origin = origin.trim();
 
-			HttpGet httpget = null;
-			InputStream is = null;
 			boolean hasFirstParameter = false;
 			StringBuilder url = new StringBuilder();
 			if (!origin.startsWith("http")) {
@@ -169,84 +179,7 @@ public class HystrixDashboardConfiguration {
 					url.append(key).append("=").append(value);
 				}
 			}
-			String proxyUrl = url.toString();
-			log.info("\n\nProxy opening connection to: " + proxyUrl + "\n\n");
-			try {
-				httpget = new HttpGet(proxyUrl);
-				HttpClient client = ProxyConnectionManager.httpClient;
-				HttpResponse httpResponse = client.execute(httpget);
-				int statusCode = httpResponse.getStatusLine().getStatusCode();
-				if (statusCode == HttpStatus.SC_OK) {
-					// writeTo swallows exceptions and never quits even if outputstream is
-					// throwing IOExceptions (such as broken pipe) ... since the
-					// inputstream is infinite
-					// httpResponse.getEntity().writeTo(new
-					// OutputStreamWrapper(response.getOutputStream()));
-					// so I copy it manually ...
-					is = httpResponse.getEntity().getContent();
-
-					// set headers
-					copyHeadersToServletResponse(httpResponse.getAllHeaders(), response);
-
-					// copy data from source to response
-					OutputStream os = response.getOutputStream();
-					int b = -1;
-					while ((b = is.read()) != -1) {
-						try {
-							os.write(b);
-							if (b == 10 /** flush buffer on line feed */
-							) {
-								os.flush();
-							}
-						}
-						catch (Exception ex) {
-							if (ex.getClass().getSimpleName()
-									.equalsIgnoreCase("ClientAbortException")) {
-								// don't throw an exception as this means the user closed
-								// the connection
-								log.debug("Connection closed by client. Will stop proxying ...");
-								// break out of the while loop
-								break;
-							}
-							else {
-								// received unknown error while writing so throw an
-								// exception
-								throw new RuntimeException(ex);
-							}
-						}
-					}
-				}
-				else {
-					log.warn("Failed opening connection to " + proxyUrl + " : "
-							+ statusCode + " : " + httpResponse.getStatusLine());
-				}
-			}
-			catch (Exception ex) {
-				log.error("Error proxying request: " + url, ex);
-			}
-			finally {
-				if (httpget != null) {
-					try {
-						httpget.abort();
-					}
-					catch (Exception ex) {
-						log.error("failed aborting proxy connection.", ex);
-					}
-				}
-
-				// httpget.abort() MUST be called first otherwise is.close() hangs
-				// (because data is still streaming?)
-				if (is != null) {
-					// this should already be closed by httpget.abort() above
-					try {
-						is.close();
-					}
-					catch (Exception ex) {
-						// ignore errors on close
-					}
-				}
-			}
-
+			this.proxyStreams.proxy(url.toString(), request, response);
 		}
 
 		private void copyHeadersToServletResponse(Header[] headers,
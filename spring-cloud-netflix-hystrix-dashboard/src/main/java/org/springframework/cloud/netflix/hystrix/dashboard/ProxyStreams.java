@@ -0,0 +1,458 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.hystrix.dashboard;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Proxies the event streams of the origins to the viewers of the dashboard, with a
+ * single connection per origin URL whose events are fanned out to all its viewers.
+ *
+ * Every origin is read on its own thread, in buffers that are split on the boundaries of
+ * the events, so that the viewers only receive whole events. The viewers are written to
+ * with the non-blocking output of asynchronous servlet requests, so an idle viewer does
+ * not hold a thread. A viewer that does not keep up drops its oldest events instead of
+ * holding back the other viewers of its origin.
+ */
+class ProxyStreams {
+
+	private static final Log log = LogFactory.getLog(ProxyStreams.class);
+
+	private static final int BUFFER_SIZE = 8192;
+
+	/**
+	 * The size of an event beyond which it is sent without waiting for its end, in case
+	 * the origin is not an event stream.
+	 */
+	private static final int MAX_EVENT_SIZE = 1024 * 1024;
+
+	/**
+	 * The number of buffers of events waiting to be written to a viewer, before the
+	 * oldest ones are dropped.
+	 */
+	private static final int MAX_PENDING_BUFFERS = 1000;
+
+	private final HttpClient httpClient;
+
+	private final BiConsumer<Header[], HttpServletResponse> headers;
+
+	private final ExecutorService executor;
+
+	private final Map<String, Origin> origins = new HashMap<>();
+
+	/**
+	 * @param httpClient the client connecting to the origins
+	 * @param headers copies the headers of the origin to the response of a viewer
+	 */
+	ProxyStreams(HttpClient httpClient,
+			BiConsumer<Header[], HttpServletResponse> headers) {
+		this.httpClient = httpClient;
+		this.headers = headers;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"hystrix-dashboard-proxy-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newCachedThreadPool(threadFactory);
+	}
+
+	/**
+	 * Starts proxying the stream of an origin to the response of a viewer, asynchronously,
+	 * opening a connection to the origin unless another viewer already did.
+	 */
+	void proxy(String url, HttpServletRequest request, HttpServletResponse response) {
+		AsyncContext context = request.startAsync(request, response);
+		// the stream is infinite
+		context.setTimeout(0);
+		Viewer viewer = new Viewer(context, response);
+		context.addListener(viewer);
+		synchronized (this.origins) {
+			Origin origin = this.origins.get(url);
+			if (origin == null) {
+				log.info("\n\nProxy opening connection to: " + url + "\n\n");
+				origin = new Origin(url);
+				this.origins.put(url, origin);
+				this.executor.execute(origin);
+			}
+			else if (log.isDebugEnabled()) {
+				log.debug("Proxy sharing connection to: " + url);
+			}
+			viewer.origin = origin;
+			origin.add(viewer);
+		}
+	}
+
+	/**
+	 * @return the number of origins connected to
+	 */
+	int getOrigins() {
+		synchronized (this.origins) {
+			return this.origins.size();
+		}
+	}
+
+	/**
+	 * Disconnects all the origins and their viewers.
+	 */
+	void shutdown() {
+		List<Origin> origins;
+		synchronized (this.origins) {
+			origins = new ArrayList<>(this.origins.values());
+			this.origins.clear();
+		}
+		for (Origin origin : origins) {
+			origin.stop();
+		}
+		this.executor.shutdownNow();
+	}
+
+	private void remove(Viewer viewer) {
+		synchronized (this.origins) {
+			Origin origin = viewer.origin;
+			if (origin == null) {
+				return;
+			}
+			origin.viewers.remove(viewer);
+			if (origin.viewers.isEmpty()) {
+				if (log.isDebugEnabled()) {
+					log.debug("Connections closed by clients. Will stop proxying "
+							+ origin.url);
+				}
+				this.origins.remove(origin.url, origin);
+				origin.stop();
+			}
+		}
+	}
+
+	private void closed(Origin origin) {
+		synchronized (this.origins) {
+			this.origins.remove(origin.url, origin);
+		}
+		for (Viewer viewer : origin.viewers) {
+			viewer.close();
+		}
+	}
+
+	/**
+	 * @return the index following the end of the last event whose end is in the given
+	 * range of the buffer, or -1 if there is none. An event ends with an empty line.
+	 */
+	static int eventEnd(byte[] buffer, int from, int to) {
+		int end = -1;
+		for (int i = Math.max(1, from); i < to; i++) {
+			if (buffer[i] == '\n' && (buffer[i - 1] == '\n'
+					|| (i > 1 && buffer[i - 1] == '\r' && buffer[i - 2] == '\n'))) {
+				end = i + 1;
+			}
+		}
+		return end;
+	}
+
+	private class Origin implements Runnable {
+
+		private final String url;
+
+		private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+
+		private Header[] headers;
+
+		private volatile HttpGet request;
+
+		private volatile boolean stopped;
+
+		Origin(String url) {
+			this.url = url;
+		}
+
+		synchronized void add(Viewer viewer) {
+			this.viewers.add(viewer);
+			if (this.headers != null) {
+				viewer.start(this.headers);
+			}
+		}
+
+		private synchronized void connected(Header[] headers) {
+			this.headers = headers;
+			for (Viewer viewer : this.viewers) {
+				viewer.start(headers);
+			}
+		}
+
+		void stop() {
+			this.stopped = true;
+			HttpGet request = this.request;
+			if (request != null) {
+				request.abort();
+			}
+		}
+
+		@Override
+		public void run() {
+			HttpGet httpget = new HttpGet(this.url);
+			this.request = httpget;
+			InputStream is = null;
+			try {
+				if (this.stopped) {
+					return;
+				}
+				HttpResponse httpResponse = ProxyStreams.this.httpClient.execute(httpget);
+				int statusCode = httpResponse.getStatusLine().getStatusCode();
+				if (statusCode == HttpStatus.SC_OK) {
+					is = httpResponse.getEntity().getContent();
+					connected(httpResponse.getAllHeaders());
+					copy(is);
+				}
+				else {
+					log.warn("Failed opening connection to " + this.url + " : "
+							+ statusCode + " : " + httpResponse.getStatusLine());
+				}
+			}
+			catch (Exception ex) {
+				if (!this.stopped) {
+					log.error("Error proxying request: " + this.url, ex);
+				}
+			}
+			finally {
+				try {
+					httpget.abort();
+				}
+				catch (Exception ex) {
+					log.error("failed aborting proxy connection.", ex);
+				}
+				// httpget.abort() MUST be called first otherwise is.close() hangs
+				// (because data is still streaming?)
+				if (is != null) {
+					try {
+						is.close();
+					}
+					catch (Exception ex) {
+						// ignore errors on close
+					}
+				}
+				closed(this);
+			}
+		}
+
+		private void copy(InputStream is) throws IOException {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int length = 0;
+			int read;
+			while (!this.stopped
+					&& (read = is.read(buffer, length, buffer.length - length)) != -1) {
+				int end = eventEnd(buffer, length, length + read);
+				length += read;
+				if (end > 0) {
+					publish(Arrays.copyOf(buffer, end));
+					length -= end;
+					System.arraycopy(buffer, end, buffer, 0, length);
+				}
+				else if (length == buffer.length) {
+					if (length >= MAX_EVENT_SIZE) {
+						publish(Arrays.copyOf(buffer, length));
+						length = 0;
+					}
+					else {
+						buffer = Arrays.copyOf(buffer, length * 2);
+					}
+				}
+			}
+		}
+
+		private void publish(byte[] events) {
+			for (Viewer viewer : this.viewers) {
+				viewer.send(events);
+			}
+		}
+
+	}
+
+	private class Viewer implements AsyncListener, WriteListener {
+
+		private final AsyncContext context;
+
+		private final HttpServletResponse response;
+
+		private final Deque<byte[]> pending = new ArrayDeque<>();
+
+		private volatile Origin origin;
+
+		private ServletOutputStream output;
+
+		private boolean flushed = true;
+
+		private boolean closed;
+
+		private boolean released;
+
+		Viewer(AsyncContext context, HttpServletResponse response) {
+			this.context = context;
+			this.response = response;
+		}
+
+		/**
+		 * Copies the headers of the origin once it is connected, and starts writing its
+		 * events as soon as the response can be written to.
+		 */
+		synchronized void start(Header[] headers) {
+			if (this.closed || this.output != null) {
+				return;
+			}
+			try {
+				ProxyStreams.this.headers.accept(headers, this.response);
+				this.output = this.response.getOutputStream();
+				this.output.setWriteListener(this);
+			}
+			catch (IOException | IllegalStateException ex) {
+				log.debug("Connection closed by client. Will stop proxying ...", ex);
+				this.closed = true;
+				// the origin is locked while starting its viewers
+				ProxyStreams.this.executor.execute(this::close);
+			}
+		}
+
+		void send(byte[] events) {
+			synchronized (this) {
+				if (this.closed) {
+					return;
+				}
+				if (this.pending.size() == MAX_PENDING_BUFFERS) {
+					this.pending.poll();
+				}
+				this.pending.add(events);
+				if (write()) {
+					return;
+				}
+			}
+			close();
+		}
+
+		void close() {
+			synchronized (this) {
+				if (this.released) {
+					return;
+				}
+				this.closed = true;
+				this.released = true;
+				this.pending.clear();
+			}
+			try {
+				this.context.complete();
+			}
+			catch (IllegalStateException ex) {
+				// already completed
+			}
+			remove(this);
+		}
+
+		/**
+		 * Writes the pending events as long as the response is ready.
+		 * @return false if the connection was closed by the client
+		 */
+		private boolean write() {
+			if (this.closed || this.output == null) {
+				return true;
+			}
+			try {
+				while (this.output.isReady()) {
+					byte[] events = this.pending.poll();
+					if (events != null) {
+						this.output.write(events);
+						this.flushed = false;
+					}
+					else if (!this.flushed) {
+						this.output.flush();
+						this.flushed = true;
+					}
+					else {
+						break;
+					}
+				}
+				return true;
+			}
+			catch (IOException ex) {
+				// don't throw an exception as this means the user closed the connection
+				log.debug("Connection closed by client. Will stop proxying ...");
+				return false;
+			}
+		}
+
+		@Override
+		public void onWritePossible() {
+			boolean open;
+			synchronized (this) {
+				open = write();
+			}
+			if (!open) {
+				close();
+			}
+		}
+
+		@Override
+		public void onError(Throwable ex) {
+			close();
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			close();
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+	}
+
+}
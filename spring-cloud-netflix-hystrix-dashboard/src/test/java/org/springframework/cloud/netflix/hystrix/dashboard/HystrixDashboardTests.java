@@ -16,18 +16,33 @@
 
 package org.springframework.cloud.netflix.hystrix.dashboard;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.cloud.netflix.hystrix.dashboard.HystrixDashboardTests.Application;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -43,6 +58,9 @@ public class HystrixDashboardTests {
 	@Value("${local.server.port}")
 	private int port = 0;
 
+	@Autowired
+	private ServletRegistrationBean<?> proxyStreamServlet;
+
 	@Test
 	public void homePage() {
 		ResponseEntity<String> entity = new TestRestTemplate()
@@ -71,10 +89,61 @@ public class HystrixDashboardTests {
 		assertTrue(body.contains("<base href=\"/hystrix/monitor\">"));
 	}
 
+	@Test
+	public void proxyStreamSharesTheConnectionToTheOrigin() throws Exception {
+		URL url = new URL("http://localhost:" + this.port
+				+ "/proxy.stream?origin=localhost:" + this.port + "/test.stream");
+		HttpURLConnection first = (HttpURLConnection) url.openConnection();
+		HttpURLConnection second = (HttpURLConnection) url.openConnection();
+		try {
+			assertEquals("data: event", firstData(first));
+			assertEquals("data: event", firstData(second));
+			ProxyStreams proxyStreams = (ProxyStreams) ReflectionTestUtils
+					.getField(this.proxyStreamServlet.getServlet(), "proxyStreams");
+			assertEquals(1, proxyStreams.getOrigins());
+		}
+		finally {
+			first.disconnect();
+			second.disconnect();
+		}
+	}
+
+	private String firstData(HttpURLConnection connection) throws Exception {
+		connection.setReadTimeout(5000);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				connection.getInputStream(), StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.startsWith("data:")) {
+				return line;
+			}
+		}
+		return null;
+	}
+
 	@Configuration
 	@EnableAutoConfiguration
 	@EnableHystrixDashboard
+	@RestController
 	protected static class Application {
+
+		private final ScheduledExecutorService executor = Executors
+				.newSingleThreadScheduledExecutor();
+
+		@GetMapping("/test.stream")
+		public SseEmitter stream() {
+			SseEmitter emitter = new SseEmitter(0L);
+			this.executor.scheduleAtFixedRate(() -> {
+				try {
+					emitter.send(SseEmitter.event().data("event"));
+				}
+				catch (Exception ex) {
+					throw new IllegalStateException(ex);
+				}
+			}, 0, 100, TimeUnit.MILLISECONDS);
+			return emitter;
+		}
+
 	}
 
 }
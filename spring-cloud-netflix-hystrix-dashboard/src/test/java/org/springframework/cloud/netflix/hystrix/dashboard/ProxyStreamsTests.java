@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.hystrix.dashboard;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ProxyStreamsTests {
+
+	@Test
+	public void eventsEndWithAnEmptyLine() {
+		assertThat(eventEnd("data: {}\n\ndata: {"), is(10));
+		assertThat(eventEnd("data: {}\n\ndata: {}\n\n: ping\n\ndata"), is(28));
+		assertThat(eventEnd("data: {}\r\n\r\ndata: {"), is(12));
+	}
+
+	@Test
+	public void partialEventsHaveNoEnd() {
+		assertThat(eventEnd("data: {}\ndata: {}\n"), is(-1));
+		assertThat(eventEnd("\n"), is(-1));
+		assertThat(eventEnd(""), is(-1));
+	}
+
+	@Test
+	public void endIsFoundAcrossReads() {
+		byte[] buffer = "data: {}\n\n".getBytes(StandardCharsets.UTF_8);
+		assertThat(ProxyStreams.eventEnd(buffer, 0, 9), is(-1));
+		assertThat(ProxyStreams.eventEnd(buffer, 9, 10), is(10));
+	}
+
+	private static int eventEnd(String events) {
+		byte[] buffer = events.getBytes(StandardCharsets.UTF_8);
+		return ProxyStreams.eventEnd(buffer, 0, buffer.length);
+	}
+
+}
@@ -49,6 +49,15 @@ public class HystrixStreamProperties {
 	/** The size of the metrics queue. This queue drains to the stream. Defaults to 1000. */
 	private int size = 1000;
 
+	/** The maximum number of metrics sent in one message, as a JSON array. Defaults to 1 (one message per metric). */
+	private int maxBatchSize = 1;
+
+	/** Flag to only send the metrics that changed since they were last sent, with a keyframe of all the metrics every keyframeInterval gather cycles. Default is false. */
+	private boolean delta = false;
+
+	/** The number of gather cycles between two keyframes in delta mode. Defaults to 20. */
+	private int keyframeInterval = 20;
+
 	public boolean isEnabled() {
 		return enabled;
 	}
@@ -113,4 +122,28 @@ public class HystrixStreamProperties {
 		this.size = size;
 	}
 
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	public boolean isDelta() {
+		return delta;
+	}
+
+	public void setDelta(boolean delta) {
+		this.delta = delta;
+	}
+
+	public int getKeyframeInterval() {
+		return keyframeInterval;
+	}
+
+	public void setKeyframeInterval(int keyframeInterval) {
+		this.keyframeInterval = keyframeInterval;
+	}
+
 }
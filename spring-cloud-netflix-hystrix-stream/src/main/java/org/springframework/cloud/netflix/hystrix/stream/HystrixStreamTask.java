@@ -16,11 +16,16 @@
 
 package org.springframework.cloud.netflix.hystrix.stream;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -36,6 +41,8 @@ import org.springframework.util.Assert;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 import com.netflix.hystrix.HystrixCircuitBreaker;
 import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixCommandMetrics;
@@ -45,6 +52,20 @@ import com.netflix.hystrix.HystrixThreadPoolMetrics;
 import com.netflix.hystrix.util.HystrixRollingNumberEvent;
 
 /**
+ * Gathers the Hystrix command and thread pool metrics into a queue of JSON messages,
+ * and sends them to the stream.
+ *
+ * The metrics are written as bytes by a generator reused by the gathering thread, into
+ * a buffer that is reset rather than reallocated, with pre-encoded field names. The
+ * only allocation per metric is the resulting message payload.
+ *
+ * In delta mode, a command or thread pool whose metrics did not change since they were
+ * last sent, apart from their {@code currentTime}, is not sent again, except in a
+ * keyframe, where every metric is sent. Every metric carries the {@code sequence}
+ * number of its gather cycle and whether it is a {@code keyframe}, and every cycle ends
+ * with a {@code cycle} event, so that the Turbine Stream aggregator can replay the
+ * metrics that were not sent.
+ *
  * @author Spencer Gibb
  *
  * @see com.netflix.hystrix.contrib.metrics.eventstream.HystrixMetricsPoller (nested
@@ -54,6 +75,127 @@ public class HystrixStreamTask implements ApplicationContextAware {
 
 	private static Log log = LogFactory.getLog(HystrixStreamTask.class);
 
+	private static final SerializedString ORIGIN = new SerializedString("origin");
+	private static final SerializedString EVENT = new SerializedString("event");
+	private static final SerializedString MESSAGE = new SerializedString("message");
+	private static final SerializedString CYCLE = new SerializedString("cycle");
+	private static final SerializedString SEQUENCE = new SerializedString("sequence");
+	private static final SerializedString KEYFRAME = new SerializedString("keyframe");
+	private static final SerializedString DATA = new SerializedString("data");
+	private static final SerializedString TYPE = new SerializedString("type");
+	private static final SerializedString HYSTRIX_COMMAND = new SerializedString(
+			"HystrixCommand");
+	private static final SerializedString HYSTRIX_THREAD_POOL = new SerializedString(
+			"HystrixThreadPool");
+	private static final SerializedString NAME = new SerializedString("name");
+	private static final SerializedString GROUP = new SerializedString("group");
+	private static final SerializedString CURRENT_TIME = new SerializedString(
+			"currentTime");
+	private static final SerializedString IS_CIRCUIT_BREAKER_OPEN = new SerializedString(
+			"isCircuitBreakerOpen");
+	private static final SerializedString ERROR_PERCENTAGE = new SerializedString(
+			"errorPercentage");
+	private static final SerializedString ERROR_COUNT = new SerializedString(
+			"errorCount");
+	private static final SerializedString REQUEST_COUNT = new SerializedString(
+			"requestCount");
+	private static final SerializedString ROLLING_COUNT_COLLAPSED_REQUESTS = new SerializedString(
+			"rollingCountCollapsedRequests");
+	private static final SerializedString ROLLING_COUNT_EXCEPTIONS_THROWN = new SerializedString(
+			"rollingCountExceptionsThrown");
+	private static final SerializedString ROLLING_COUNT_FAILURE = new SerializedString(
+			"rollingCountFailure");
+	private static final SerializedString ROLLING_COUNT_FALLBACK_FAILURE = new SerializedString(
+			"rollingCountFallbackFailure");
+	private static final SerializedString ROLLING_COUNT_FALLBACK_REJECTION = new SerializedString(
+			"rollingCountFallbackRejection");
+	private static final SerializedString ROLLING_COUNT_FALLBACK_SUCCESS = new SerializedString(
+			"rollingCountFallbackSuccess");
+	private static final SerializedString ROLLING_COUNT_RESPONSES_FROM_CACHE = new SerializedString(
+			"rollingCountResponsesFromCache");
+	private static final SerializedString ROLLING_COUNT_SEMAPHORE_REJECTED = new SerializedString(
+			"rollingCountSemaphoreRejected");
+	private static final SerializedString ROLLING_COUNT_SHORT_CIRCUITED = new SerializedString(
+			"rollingCountShortCircuited");
+	private static final SerializedString ROLLING_COUNT_SUCCESS = new SerializedString(
+			"rollingCountSuccess");
+	private static final SerializedString ROLLING_COUNT_THREAD_POOL_REJECTED = new SerializedString(
+			"rollingCountThreadPoolRejected");
+	private static final SerializedString ROLLING_COUNT_TIMEOUT = new SerializedString(
+			"rollingCountTimeout");
+	private static final SerializedString CURRENT_CONCURRENT_EXECUTION_COUNT = new SerializedString(
+			"currentConcurrentExecutionCount");
+	private static final SerializedString LATENCY_EXECUTE_MEAN = new SerializedString(
+			"latencyExecute_mean");
+	private static final SerializedString LATENCY_EXECUTE = new SerializedString(
+			"latencyExecute");
+	private static final SerializedString LATENCY_TOTAL_MEAN = new SerializedString(
+			"latencyTotal_mean");
+	private static final SerializedString LATENCY_TOTAL = new SerializedString(
+			"latencyTotal");
+	private static final double[] PERCENTILES = { 0, 25, 50, 75, 90, 95, 99, 99.5,
+			100 };
+	private static final SerializedString[] PERCENTILE_NAMES = {
+			new SerializedString("0"), new SerializedString("25"),
+			new SerializedString("50"), new SerializedString("75"),
+			new SerializedString("90"), new SerializedString("95"),
+			new SerializedString("99"), new SerializedString("99.5"),
+			new SerializedString("100") };
+	private static final SerializedString CIRCUIT_BREAKER_REQUEST_VOLUME_THRESHOLD = new SerializedString(
+			"propertyValue_circuitBreakerRequestVolumeThreshold");
+	private static final SerializedString CIRCUIT_BREAKER_SLEEP_WINDOW_IN_MILLISECONDS = new SerializedString(
+			"propertyValue_circuitBreakerSleepWindowInMilliseconds");
+	private static final SerializedString CIRCUIT_BREAKER_ERROR_THRESHOLD_PERCENTAGE = new SerializedString(
+			"propertyValue_circuitBreakerErrorThresholdPercentage");
+	private static final SerializedString CIRCUIT_BREAKER_FORCE_OPEN = new SerializedString(
+			"propertyValue_circuitBreakerForceOpen");
+	private static final SerializedString CIRCUIT_BREAKER_FORCE_CLOSED = new SerializedString(
+			"propertyValue_circuitBreakerForceClosed");
+	private static final SerializedString CIRCUIT_BREAKER_ENABLED = new SerializedString(
+			"propertyValue_circuitBreakerEnabled");
+	private static final SerializedString EXECUTION_ISOLATION_STRATEGY = new SerializedString(
+			"propertyValue_executionIsolationStrategy");
+	private static final SerializedString EXECUTION_ISOLATION_THREAD_TIMEOUT_IN_MILLISECONDS = new SerializedString(
+			"propertyValue_executionIsolationThreadTimeoutInMilliseconds");
+	private static final SerializedString EXECUTION_ISOLATION_THREAD_INTERRUPT_ON_TIMEOUT = new SerializedString(
+			"propertyValue_executionIsolationThreadInterruptOnTimeout");
+	private static final SerializedString EXECUTION_ISOLATION_THREAD_POOL_KEY_OVERRIDE = new SerializedString(
+			"propertyValue_executionIsolationThreadPoolKeyOverride");
+	private static final SerializedString EXECUTION_ISOLATION_SEMAPHORE_MAX_CONCURRENT_REQUESTS = new SerializedString(
+			"propertyValue_executionIsolationSemaphoreMaxConcurrentRequests");
+	private static final SerializedString FALLBACK_ISOLATION_SEMAPHORE_MAX_CONCURRENT_REQUESTS = new SerializedString(
+			"propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests");
+	private static final SerializedString METRICS_ROLLING_STATISTICAL_WINDOW_IN_MILLISECONDS = new SerializedString(
+			"propertyValue_metricsRollingStatisticalWindowInMilliseconds");
+	private static final SerializedString REQUEST_CACHE_ENABLED = new SerializedString(
+			"propertyValue_requestCacheEnabled");
+	private static final SerializedString REQUEST_LOG_ENABLED = new SerializedString(
+			"propertyValue_requestLogEnabled");
+	private static final SerializedString REPORTING_HOSTS = new SerializedString(
+			"reportingHosts");
+	private static final SerializedString CURRENT_ACTIVE_COUNT = new SerializedString(
+			"currentActiveCount");
+	private static final SerializedString CURRENT_COMPLETED_TASK_COUNT = new SerializedString(
+			"currentCompletedTaskCount");
+	private static final SerializedString CURRENT_CORE_POOL_SIZE = new SerializedString(
+			"currentCorePoolSize");
+	private static final SerializedString CURRENT_LARGEST_POOL_SIZE = new SerializedString(
+			"currentLargestPoolSize");
+	private static final SerializedString CURRENT_MAXIMUM_POOL_SIZE = new SerializedString(
+			"currentMaximumPoolSize");
+	private static final SerializedString CURRENT_POOL_SIZE = new SerializedString(
+			"currentPoolSize");
+	private static final SerializedString CURRENT_QUEUE_SIZE = new SerializedString(
+			"currentQueueSize");
+	private static final SerializedString CURRENT_TASK_COUNT = new SerializedString(
+			"currentTaskCount");
+	private static final SerializedString ROLLING_COUNT_THREADS_EXECUTED = new SerializedString(
+			"rollingCountThreadsExecuted");
+	private static final SerializedString ROLLING_MAX_ACTIVE_THREADS = new SerializedString(
+			"rollingMaxActiveThreads");
+	private static final SerializedString QUEUE_SIZE_REJECTION_THRESHOLD = new SerializedString(
+			"propertyValue_queueSizeRejectionThreshold");
+
 	private MessageChannel outboundChannel;
 
 	private ServiceInstance registration;
@@ -63,10 +205,24 @@ public class HystrixStreamTask implements ApplicationContextAware {
 	private ApplicationContext context;
 
 	// Visible for testing
-	final LinkedBlockingQueue<String> jsonMetrics;
+	final LinkedBlockingQueue<byte[]> jsonMetrics;
 
 	private final JsonFactory jsonFactory = new JsonFactory();
 
+	private final ThreadLocal<MetricsWriter> writers = new ThreadLocal<>();
+
+	private final Map<String, SerializedString> metricNames = new ConcurrentHashMap<>();
+
+	private final Map<String, SerializedString> names = new ConcurrentHashMap<>();
+
+	private volatile SerializedString origin;
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private final Map<String, SentMetric> sentCommands = new ConcurrentHashMap<>();
+
+	private final Map<String, SentMetric> sentThreadPools = new ConcurrentHashMap<>();
+
 	public HystrixStreamTask(MessageChannel outboundChannel,
 							 ServiceInstance registration, HystrixStreamProperties properties) {
 		Assert.notNull(outboundChannel, "outboundChannel may not be null");
@@ -91,35 +247,84 @@ public class HystrixStreamTask implements ApplicationContextAware {
 	// TODO: use integration to split this up?
 	@Scheduled(fixedRateString = "${hystrix.stream.queue.sendRate:500}")
 	public void sendMetrics() {
-		ArrayList<String> metrics = new ArrayList<>();
+		ArrayList<byte[]> metrics = new ArrayList<>();
 		this.jsonMetrics.drainTo(metrics);
 
 		if (!metrics.isEmpty()) {
 			if (log.isTraceEnabled()) {
 				log.trace("sending stream metrics size: " + metrics.size());
 			}
-			for (String json : metrics) {
-				// TODO: batch all metrics to one message
-				try {
-					// TODO: remove the explicit content type when s-c-stream can handle
-					// that for us
-					this.outboundChannel.send(MessageBuilder.withPayload(json)
-							.setHeader(MessageHeaders.CONTENT_TYPE,
-									this.properties.getContentType())
-							.build());
+			int maxBatchSize = this.properties.getMaxBatchSize();
+			if (maxBatchSize > 1) {
+				for (int start = 0; start < metrics.size(); start += maxBatchSize) {
+					send(batch(metrics.subList(start,
+							Math.min(start + maxBatchSize, metrics.size()))));
 				}
-				catch (Exception ex) {
-					if (log.isTraceEnabled()) {
-						log.trace("failed sending stream metrics: " + ex.getMessage());
-					}
+			}
+			else {
+				for (byte[] json : metrics) {
+					send(json);
 				}
 			}
 		}
 	}
 
+	private void send(byte[] json) {
+		try {
+			// TODO: remove the explicit content type when s-c-stream can handle
+			// that for us
+			this.outboundChannel.send(MessageBuilder.withPayload(json)
+					.setHeader(MessageHeaders.CONTENT_TYPE,
+							this.properties.getContentType())
+					.build());
+		}
+		catch (Exception ex) {
+			if (log.isTraceEnabled()) {
+				log.trace("failed sending stream metrics: " + ex.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Joins metrics into a JSON array, as accepted by the Turbine Stream aggregator.
+	 */
+	private static byte[] batch(List<byte[]> metrics) {
+		int length = metrics.size() + 1;
+		for (byte[] json : metrics) {
+			length += json.length;
+		}
+		byte[] batch = new byte[length];
+		batch[0] = '[';
+		int position = 1;
+		for (byte[] json : metrics) {
+			System.arraycopy(json, 0, batch, position, json.length);
+			position += json.length;
+			batch[position++] = ',';
+		}
+		batch[length - 1] = ']';
+		return batch;
+	}
+
 	@Scheduled(fixedRateString = "${hystrix.stream.queue.gatherRate:500}")
 	public void gatherMetrics() {
+		MetricsWriter writer = this.writers.get();
 		try {
+			if (writer == null) {
+				writer = new MetricsWriter(this.jsonFactory);
+				this.writers.set(writer);
+			}
+			JsonGenerator json = writer.json;
+			SerializedString origin = getOrigin();
+			long sequence = -1;
+			boolean keyframe = true;
+			if (this.properties.isDelta()) {
+				sequence = this.sequence.getAndIncrement();
+				keyframe = sequence
+						% Math.max(1, this.properties.getKeyframeInterval()) == 0;
+			}
+			int timeStart = 0;
+			int timeEnd = 0;
+
 			// command metrics
 			Collection<HystrixCommandMetrics> instances = HystrixCommandMetrics
 					.getInstances();
@@ -132,106 +337,92 @@ public class HystrixStreamTask implements ApplicationContextAware {
 				HystrixCircuitBreaker circuitBreaker = HystrixCircuitBreaker.Factory
 						.getInstance(key);
 
-				StringWriter jsonString = new StringWriter();
-				JsonGenerator json = this.jsonFactory.createGenerator(jsonString);
-
 				json.writeStartObject();
 
-				addServiceData(json, registration);
-				json.writeStringField("event", "message");
-				json.writeObjectFieldStart("data");
-				json.writeStringField("type", "HystrixCommand");
-				String name = key.name();
-
-				if (this.properties.isPrefixMetricName() && registration != null) {
-					name = registration.getServiceId() + "." + name;
+				json.writeFieldName(ORIGIN);
+				json.writeRawValue(origin);
+				json.writeFieldName(EVENT);
+				json.writeString(MESSAGE);
+				json.writeFieldName(DATA);
+				json.writeStartObject();
+				json.writeFieldName(TYPE);
+				json.writeString(HYSTRIX_COMMAND);
+				json.writeFieldName(NAME);
+				json.writeString(getMetricName(key.name()));
+				json.writeFieldName(GROUP);
+				json.writeString(getName(commandMetrics.getCommandGroup().name()));
+				if (sequence >= 0) {
+					timeStart = writer.position();
+				}
+				writeNumberField(json, CURRENT_TIME, System.currentTimeMillis());
+				if (sequence >= 0) {
+					timeEnd = writer.position();
 				}
-
-				json.writeStringField("name", name);
-				json.writeStringField("group", commandMetrics.getCommandGroup().name());
-				json.writeNumberField("currentTime", System.currentTimeMillis());
 
 				// circuit breaker
 				if (circuitBreaker == null) {
 					// circuit breaker is disabled and thus never open
-					json.writeBooleanField("isCircuitBreakerOpen", false);
+					writeBooleanField(json, IS_CIRCUIT_BREAKER_OPEN, false);
 				}
 				else {
-					json.writeBooleanField("isCircuitBreakerOpen",
+					writeBooleanField(json, IS_CIRCUIT_BREAKER_OPEN,
 							circuitBreaker.isOpen());
 				}
 				HystrixCommandMetrics.HealthCounts healthCounts = commandMetrics
 						.getHealthCounts();
-				json.writeNumberField("errorPercentage",
+				writeNumberField(json, ERROR_PERCENTAGE,
 						healthCounts.getErrorPercentage());
-				json.writeNumberField("errorCount", healthCounts.getErrorCount());
-				json.writeNumberField("requestCount", healthCounts.getTotalRequests());
+				writeNumberField(json, ERROR_COUNT, healthCounts.getErrorCount());
+				writeNumberField(json, REQUEST_COUNT, healthCounts.getTotalRequests());
 
 				// rolling counters
-				json.writeNumberField("rollingCountCollapsedRequests", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_COLLAPSED_REQUESTS, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.COLLAPSED));
-				json.writeNumberField("rollingCountExceptionsThrown", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_EXCEPTIONS_THROWN, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.EXCEPTION_THROWN));
-				json.writeNumberField("rollingCountFailure", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_FAILURE, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.FAILURE));
-				json.writeNumberField("rollingCountFallbackFailure", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_FALLBACK_FAILURE, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.FALLBACK_FAILURE));
-				json.writeNumberField("rollingCountFallbackRejection", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_FALLBACK_REJECTION, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.FALLBACK_REJECTION));
-				json.writeNumberField("rollingCountFallbackSuccess", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_FALLBACK_SUCCESS, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.FALLBACK_SUCCESS));
-				json.writeNumberField("rollingCountResponsesFromCache", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_RESPONSES_FROM_CACHE, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.RESPONSE_FROM_CACHE));
-				json.writeNumberField("rollingCountSemaphoreRejected", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_SEMAPHORE_REJECTED, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.SEMAPHORE_REJECTED));
-				json.writeNumberField("rollingCountShortCircuited", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_SHORT_CIRCUITED, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.SHORT_CIRCUITED));
-				json.writeNumberField("rollingCountSuccess", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_SUCCESS, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.SUCCESS));
-				json.writeNumberField("rollingCountThreadPoolRejected", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_THREAD_POOL_REJECTED, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.THREAD_POOL_REJECTED));
-				json.writeNumberField("rollingCountTimeout", commandMetrics
+				writeNumberField(json, ROLLING_COUNT_TIMEOUT, commandMetrics
 						.getRollingCount(HystrixRollingNumberEvent.TIMEOUT));
 
-				json.writeNumberField("currentConcurrentExecutionCount",
+				writeNumberField(json, CURRENT_CONCURRENT_EXECUTION_COUNT,
 						commandMetrics.getCurrentConcurrentExecutionCount());
 
 				// latency percentiles
-				json.writeNumberField("latencyExecute_mean",
+				writeNumberField(json, LATENCY_EXECUTE_MEAN,
 						commandMetrics.getExecutionTimeMean());
-				json.writeObjectFieldStart("latencyExecute");
-				json.writeNumberField("0", commandMetrics.getExecutionTimePercentile(0));
-				json.writeNumberField("25",
-						commandMetrics.getExecutionTimePercentile(25));
-				json.writeNumberField("50",
-						commandMetrics.getExecutionTimePercentile(50));
-				json.writeNumberField("75",
-						commandMetrics.getExecutionTimePercentile(75));
-				json.writeNumberField("90",
-						commandMetrics.getExecutionTimePercentile(90));
-				json.writeNumberField("95",
-						commandMetrics.getExecutionTimePercentile(95));
-				json.writeNumberField("99",
-						commandMetrics.getExecutionTimePercentile(99));
-				json.writeNumberField("99.5",
-						commandMetrics.getExecutionTimePercentile(99.5));
-				json.writeNumberField("100",
-						commandMetrics.getExecutionTimePercentile(100));
+				json.writeFieldName(LATENCY_EXECUTE);
+				json.writeStartObject();
+				for (int i = 0; i < PERCENTILES.length; i++) {
+					writeNumberField(json, PERCENTILE_NAMES[i],
+							commandMetrics.getExecutionTimePercentile(PERCENTILES[i]));
+				}
 				json.writeEndObject();
 				//
-				json.writeNumberField("latencyTotal_mean",
+				writeNumberField(json, LATENCY_TOTAL_MEAN,
 						commandMetrics.getTotalTimeMean());
-				json.writeObjectFieldStart("latencyTotal");
-				json.writeNumberField("0", commandMetrics.getTotalTimePercentile(0));
-				json.writeNumberField("25", commandMetrics.getTotalTimePercentile(25));
-				json.writeNumberField("50", commandMetrics.getTotalTimePercentile(50));
-				json.writeNumberField("75", commandMetrics.getTotalTimePercentile(75));
-				json.writeNumberField("90", commandMetrics.getTotalTimePercentile(90));
-				json.writeNumberField("95", commandMetrics.getTotalTimePercentile(95));
-				json.writeNumberField("99", commandMetrics.getTotalTimePercentile(99));
-				json.writeNumberField("99.5",
-						commandMetrics.getTotalTimePercentile(99.5));
-				json.writeNumberField("100", commandMetrics.getTotalTimePercentile(100));
+				json.writeFieldName(LATENCY_TOTAL);
+				json.writeStartObject();
+				for (int i = 0; i < PERCENTILES.length; i++) {
+					writeNumberField(json, PERCENTILE_NAMES[i],
+							commandMetrics.getTotalTimePercentile(PERCENTILES[i]));
+				}
 				json.writeEndObject();
 
 				// property values for reporting what is actually seen by the command
@@ -239,44 +430,39 @@ public class HystrixStreamTask implements ApplicationContextAware {
 				HystrixCommandProperties commandProperties = commandMetrics
 						.getProperties();
 
-				json.writeNumberField(
-						"propertyValue_circuitBreakerRequestVolumeThreshold",
+				writeNumberField(json, CIRCUIT_BREAKER_REQUEST_VOLUME_THRESHOLD,
 						commandProperties.circuitBreakerRequestVolumeThreshold().get());
-				json.writeNumberField(
-						"propertyValue_circuitBreakerSleepWindowInMilliseconds",
+				writeNumberField(json, CIRCUIT_BREAKER_SLEEP_WINDOW_IN_MILLISECONDS,
 						commandProperties.circuitBreakerSleepWindowInMilliseconds()
 								.get());
-				json.writeNumberField(
-						"propertyValue_circuitBreakerErrorThresholdPercentage",
+				writeNumberField(json, CIRCUIT_BREAKER_ERROR_THRESHOLD_PERCENTAGE,
 						commandProperties.circuitBreakerErrorThresholdPercentage().get());
-				json.writeBooleanField("propertyValue_circuitBreakerForceOpen",
+				writeBooleanField(json, CIRCUIT_BREAKER_FORCE_OPEN,
 						commandProperties.circuitBreakerForceOpen().get());
-				json.writeBooleanField("propertyValue_circuitBreakerForceClosed",
+				writeBooleanField(json, CIRCUIT_BREAKER_FORCE_CLOSED,
 						commandProperties.circuitBreakerForceClosed().get());
-				json.writeBooleanField("propertyValue_circuitBreakerEnabled",
+				writeBooleanField(json, CIRCUIT_BREAKER_ENABLED,
 						commandProperties.circuitBreakerEnabled().get());
 
-				json.writeStringField("propertyValue_executionIsolationStrategy",
+				json.writeFieldName(EXECUTION_ISOLATION_STRATEGY);
+				json.writeString(
 						commandProperties.executionIsolationStrategy().get().name());
-				json.writeNumberField(
-						"propertyValue_executionIsolationThreadTimeoutInMilliseconds",
+				writeNumberField(json, EXECUTION_ISOLATION_THREAD_TIMEOUT_IN_MILLISECONDS,
 						commandProperties.executionIsolationThreadTimeoutInMilliseconds()
 								.get());
-				json.writeBooleanField(
-						"propertyValue_executionIsolationThreadInterruptOnTimeout",
+				writeBooleanField(json, EXECUTION_ISOLATION_THREAD_INTERRUPT_ON_TIMEOUT,
 						commandProperties.executionIsolationThreadInterruptOnTimeout()
 								.get());
-				json.writeStringField(
-						"propertyValue_executionIsolationThreadPoolKeyOverride",
-						commandProperties.executionIsolationThreadPoolKeyOverride()
-								.get());
-				json.writeNumberField(
-						"propertyValue_executionIsolationSemaphoreMaxConcurrentRequests",
+				json.writeFieldName(EXECUTION_ISOLATION_THREAD_POOL_KEY_OVERRIDE);
+				json.writeString(
+						commandProperties.executionIsolationThreadPoolKeyOverride().get());
+				writeNumberField(json,
+						EXECUTION_ISOLATION_SEMAPHORE_MAX_CONCURRENT_REQUESTS,
 						commandProperties
 								.executionIsolationSemaphoreMaxConcurrentRequests()
 								.get());
-				json.writeNumberField(
-						"propertyValue_fallbackIsolationSemaphoreMaxConcurrentRequests",
+				writeNumberField(json,
+						FALLBACK_ISOLATION_SEMAPHORE_MAX_CONCURRENT_REQUESTS,
 						commandProperties
 								.fallbackIsolationSemaphoreMaxConcurrentRequests().get());
 
@@ -297,25 +483,23 @@ public class HystrixStreamTask implements ApplicationContextAware {
 				// commandProperties.metricsRollingPercentileWindowBuckets().get());
 				// json.put("propertyValue_metricsRollingStatisticalWindowBuckets",
 				// commandProperties.metricsRollingStatisticalWindowBuckets().get());
-				json.writeNumberField(
-						"propertyValue_metricsRollingStatisticalWindowInMilliseconds",
+				writeNumberField(json, METRICS_ROLLING_STATISTICAL_WINDOW_IN_MILLISECONDS,
 						commandProperties.metricsRollingStatisticalWindowInMilliseconds()
 								.get());
 
-				json.writeBooleanField("propertyValue_requestCacheEnabled",
+				writeBooleanField(json, REQUEST_CACHE_ENABLED,
 						commandProperties.requestCacheEnabled().get());
-				json.writeBooleanField("propertyValue_requestLogEnabled",
+				writeBooleanField(json, REQUEST_LOG_ENABLED,
 						commandProperties.requestLogEnabled().get());
 
-				json.writeNumberField("reportingHosts", 1); // this will get summed across
+				writeNumberField(json, REPORTING_HOSTS, 1); // this will get summed across
 															// all instances in a cluster
 
 				json.writeEndObject(); // end data attribute
-				json.writeEndObject();
-				json.close();
 
 				// output
-				this.jsonMetrics.add(jsonString.getBuffer().toString());
+				endMetric(writer, this.sentCommands, key.name(), sequence, keyframe,
+						timeStart, timeEnd);
 			}
 
 			// thread pool metrics
@@ -323,64 +507,150 @@ public class HystrixStreamTask implements ApplicationContextAware {
 					.getInstances()) {
 				HystrixThreadPoolKey key = threadPoolMetrics.getThreadPoolKey();
 
-				StringWriter jsonString = new StringWriter();
-				JsonGenerator json = this.jsonFactory.createGenerator(jsonString);
 				json.writeStartObject();
 
-				addServiceData(json, this.registration);
-				json.writeObjectFieldStart("data");
+				json.writeFieldName(ORIGIN);
+				json.writeRawValue(origin);
+				json.writeFieldName(DATA);
+				json.writeStartObject();
 
-				json.writeStringField("type", "HystrixThreadPool");
-				json.writeStringField("name", key.name());
-				json.writeNumberField("currentTime", System.currentTimeMillis());
+				json.writeFieldName(TYPE);
+				json.writeString(HYSTRIX_THREAD_POOL);
+				json.writeFieldName(NAME);
+				json.writeString(getName(key.name()));
+				if (sequence >= 0) {
+					timeStart = writer.position();
+				}
+				writeNumberField(json, CURRENT_TIME, System.currentTimeMillis());
+				if (sequence >= 0) {
+					timeEnd = writer.position();
+				}
 
-				json.writeNumberField("currentActiveCount",
+				writeNumberField(json, CURRENT_ACTIVE_COUNT,
 						threadPoolMetrics.getCurrentActiveCount().intValue());
-				json.writeNumberField("currentCompletedTaskCount",
+				writeNumberField(json, CURRENT_COMPLETED_TASK_COUNT,
 						threadPoolMetrics.getCurrentCompletedTaskCount().longValue());
-				json.writeNumberField("currentCorePoolSize",
+				writeNumberField(json, CURRENT_CORE_POOL_SIZE,
 						threadPoolMetrics.getCurrentCorePoolSize().intValue());
-				json.writeNumberField("currentLargestPoolSize",
+				writeNumberField(json, CURRENT_LARGEST_POOL_SIZE,
 						threadPoolMetrics.getCurrentLargestPoolSize().intValue());
-				json.writeNumberField("currentMaximumPoolSize",
+				writeNumberField(json, CURRENT_MAXIMUM_POOL_SIZE,
 						threadPoolMetrics.getCurrentMaximumPoolSize().intValue());
-				json.writeNumberField("currentPoolSize",
+				writeNumberField(json, CURRENT_POOL_SIZE,
 						threadPoolMetrics.getCurrentPoolSize().intValue());
-				json.writeNumberField("currentQueueSize",
+				writeNumberField(json, CURRENT_QUEUE_SIZE,
 						threadPoolMetrics.getCurrentQueueSize().intValue());
-				json.writeNumberField("currentTaskCount",
+				writeNumberField(json, CURRENT_TASK_COUNT,
 						threadPoolMetrics.getCurrentTaskCount().longValue());
-				json.writeNumberField("rollingCountThreadsExecuted",
+				writeNumberField(json, ROLLING_COUNT_THREADS_EXECUTED,
 						threadPoolMetrics.getRollingCountThreadsExecuted());
-				json.writeNumberField("rollingMaxActiveThreads",
+				writeNumberField(json, ROLLING_MAX_ACTIVE_THREADS,
 						threadPoolMetrics.getRollingMaxActiveThreads());
 
-				json.writeNumberField("propertyValue_queueSizeRejectionThreshold",
+				writeNumberField(json, QUEUE_SIZE_REJECTION_THRESHOLD,
 						threadPoolMetrics.getProperties().queueSizeRejectionThreshold()
 								.get());
-				json.writeNumberField(
-						"propertyValue_metricsRollingStatisticalWindowInMilliseconds",
+				writeNumberField(json, METRICS_ROLLING_STATISTICAL_WINDOW_IN_MILLISECONDS,
 						threadPoolMetrics.getProperties()
 								.metricsRollingStatisticalWindowInMilliseconds().get());
 
-				json.writeNumberField("reportingHosts", 1); // this will get summed across
+				writeNumberField(json, REPORTING_HOSTS, 1); // this will get summed across
 															// all instances in a cluster
 
 				json.writeEndObject(); // end of data object
-				json.writeEndObject();
-				json.close();
 				// output to stream
-				this.jsonMetrics.add(jsonString.getBuffer().toString());
+				endMetric(writer, this.sentThreadPools, key.name(), sequence,
+						keyframe, timeStart, timeEnd);
+			}
+
+			if (sequence >= 0) {
+				json.writeStartObject();
+				json.writeFieldName(ORIGIN);
+				json.writeRawValue(origin);
+				json.writeFieldName(EVENT);
+				json.writeString(CYCLE);
+				writeNumberField(json, SEQUENCE, sequence);
+				writeBooleanField(json, KEYFRAME, keyframe);
+				json.writeEndObject();
+				this.jsonMetrics.add(writer.next());
 			}
 		}
 		catch (Exception ex) {
+			// the generator may be left in the middle of a metric
+			this.writers.remove();
 			log.error("Error adding metrics to queue", ex);
 		}
 	}
 
+	/**
+	 * Ends the current metric and queues it, unless it is unchanged since it was last
+	 * sent in delta mode.
+	 */
+	private void endMetric(MetricsWriter writer, Map<String, SentMetric> sentMetrics,
+			String name, long sequence, boolean keyframe, int timeStart, int timeEnd)
+			throws IOException {
+		JsonGenerator json = writer.json;
+		if (sequence < 0) {
+			json.writeEndObject();
+			this.jsonMetrics.add(writer.next());
+			return;
+		}
+		int dataEnd = writer.position();
+		writeNumberField(json, SEQUENCE, sequence);
+		writeBooleanField(json, KEYFRAME, keyframe);
+		json.writeEndObject();
+		SentMetric previous = sentMetrics.get(name);
+		if (!keyframe && previous != null
+				&& previous.isUnchanged(writer, timeStart, timeEnd, dataEnd)) {
+			writer.discard();
+			return;
+		}
+		byte[] metric = writer.next();
+		sentMetrics.put(name, new SentMetric(metric, timeStart, timeEnd, dataEnd));
+		this.jsonMetrics.add(metric);
+	}
+
+	private SerializedString getMetricName(String name) {
+		SerializedString serialized = this.metricNames.get(name);
+		if (serialized == null) {
+			String prefixed = name;
+			if (this.properties.isPrefixMetricName() && this.registration != null) {
+				prefixed = this.registration.getServiceId() + "." + name;
+			}
+			serialized = new SerializedString(prefixed);
+			this.metricNames.put(name, serialized);
+		}
+		return serialized;
+	}
+
+	private SerializedString getName(String name) {
+		SerializedString serialized = this.names.get(name);
+		if (serialized == null) {
+			serialized = new SerializedString(name);
+			this.names.put(name, serialized);
+		}
+		return serialized;
+	}
+
+	/**
+	 * @return the origin of the metrics, which is the same for every metric, as JSON
+	 */
+	private SerializedString getOrigin() throws IOException {
+		SerializedString origin = this.origin;
+		if (origin == null) {
+			StringWriter jsonString = new StringWriter();
+			try (JsonGenerator json = this.jsonFactory.createGenerator(jsonString)) {
+				addServiceData(json, this.registration);
+			}
+			origin = new SerializedString(jsonString.toString());
+			this.origin = origin;
+		}
+		return origin;
+	}
+
 	private void addServiceData(JsonGenerator json, ServiceInstance localService)
 			throws IOException {
-		json.writeObjectFieldStart("origin");
+		json.writeStartObject();
 		json.writeStringField("host", localService.getHost());
 		json.writeNumberField("port", localService.getPort());
 		json.writeStringField("serviceId", localService.getServiceId());
@@ -390,4 +660,97 @@ public class HystrixStreamTask implements ApplicationContextAware {
 		json.writeEndObject();
 	}
 
+	private static void writeNumberField(JsonGenerator json, SerializableString name,
+			long value) throws IOException {
+		json.writeFieldName(name);
+		json.writeNumber(value);
+	}
+
+	private static void writeBooleanField(JsonGenerator json, SerializableString name,
+			boolean value) throws IOException {
+		json.writeFieldName(name);
+		json.writeBoolean(value);
+	}
+
+	/**
+	 * A generator confined to the gathering thread, writing one metric at a time into
+	 * a buffer that keeps its capacity between metrics.
+	 */
+	private static final class MetricsWriter {
+
+		private final MetricsBuffer buffer = new MetricsBuffer();
+
+		private final JsonGenerator json;
+
+		MetricsWriter(JsonFactory jsonFactory) throws IOException {
+			this.json = jsonFactory.createGenerator(this.buffer);
+			// metrics are separate messages, not a sequence of root values
+			this.json.setRootValueSeparator(null);
+		}
+
+		int position() throws IOException {
+			this.json.flush();
+			return this.buffer.size();
+		}
+
+		byte[] next() throws IOException {
+			this.json.flush();
+			byte[] metric = this.buffer.toByteArray();
+			this.buffer.reset();
+			return metric;
+		}
+
+		void discard() throws IOException {
+			this.json.flush();
+			this.buffer.reset();
+		}
+	}
+
+	private static final class MetricsBuffer extends ByteArrayOutputStream {
+
+		MetricsBuffer() {
+			super(4096);
+		}
+
+		boolean regionEquals(int offset, byte[] other, int otherOffset, int length) {
+			for (int i = 0; i < length; i++) {
+				if (this.buf[offset + i] != other[otherOffset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The last metric sent for a command or thread pool in delta mode, with the
+	 * positions of its {@code currentTime} field and of the end of its data.
+	 */
+	private static final class SentMetric {
+
+		private final byte[] metric;
+
+		private final int timeStart;
+
+		private final int timeEnd;
+
+		private final int dataEnd;
+
+		SentMetric(byte[] metric, int timeStart, int timeEnd, int dataEnd) {
+			this.metric = metric;
+			this.timeStart = timeStart;
+			this.timeEnd = timeEnd;
+			this.dataEnd = dataEnd;
+		}
+
+		boolean isUnchanged(MetricsWriter writer, int timeStart, int timeEnd,
+				int dataEnd) {
+			return timeStart == this.timeStart
+					&& dataEnd - timeEnd == this.dataEnd - this.timeEnd
+					&& writer.buffer.regionEquals(0, this.metric, 0, timeStart)
+					&& writer.buffer.regionEquals(timeEnd, this.metric, this.timeEnd,
+							dataEnd - timeEnd);
+		}
+	}
+
 }
@@ -1,7 +1,14 @@
 package org.springframework.cloud.netflix.hystrix.stream;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -12,6 +19,9 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.hystrix.Hystrix;
 import com.netflix.hystrix.HystrixCommandGroupKey;
 import com.netflix.hystrix.HystrixCommandKey;
 import com.netflix.hystrix.HystrixCommandMetrics;
@@ -19,9 +29,11 @@ import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.strategy.properties.HystrixPropertiesCommandDefault;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 /**
@@ -29,6 +41,7 @@ import static org.mockito.Mockito.verifyZeroInteractions;
  */
 @RunWith(MockitoJUnitRunner.class)
 public class HystrixStreamTaskTests {
+
 	@Mock MessageChannel outboundChannel;
 	@Mock DiscoveryClient discoveryClient;
 	@Mock ApplicationContext context;
@@ -36,6 +49,12 @@ public class HystrixStreamTaskTests {
 	@Mock Registration registration;
 	@InjectMocks HystrixStreamTask hystrixStreamTask;
 
+	@After
+	public void reset() {
+		// the command metrics are global, and gathered by the other tests
+		Hystrix.reset();
+	}
+
 	@Test
 	public void should_not_send_metrics_when_they_are_empty() throws Exception {
 		this.hystrixStreamTask.sendMetrics();
@@ -45,13 +64,31 @@ public class HystrixStreamTaskTests {
 
 	@Test
 	public void should_send_metrics_when_they_are_not_empty() throws Exception {
-		this.hystrixStreamTask.jsonMetrics.put("someJson");
+		this.hystrixStreamTask.jsonMetrics.put("someJson".getBytes());
 
 		this.hystrixStreamTask.sendMetrics();
 
 		then(this.outboundChannel).should().send(any(Message.class));
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void should_send_metrics_in_batches() throws Exception {
+		this.properties.setMaxBatchSize(2);
+		for (int i = 0; i < 5; i++) {
+			this.hystrixStreamTask.jsonMetrics.put(("{\"id\":" + i + "}").getBytes());
+		}
+
+		this.hystrixStreamTask.sendMetrics();
+
+		ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+		then(this.outboundChannel).should(times(3)).send(messages.capture());
+		assertThat(messages.getAllValues().stream().map(m -> new String((byte[]) m.getPayload()))
+						.collect(Collectors.toList()),
+				contains("[{\"id\":0},{\"id\":1}]", "[{\"id\":2},{\"id\":3}]",
+						"[{\"id\":4}]"));
+	}
+
 	@Test
 	public void should_gather_json_metrics() throws Exception {
 		HystrixCommandKey hystrixCommandKey = HystrixCommandKey.Factory.asKey("commandKey");
@@ -64,4 +101,74 @@ public class HystrixStreamTaskTests {
 
 		assertThat(this.hystrixStreamTask.jsonMetrics.isEmpty(), is(false));
 	}
+
+	@Test
+	public void should_only_send_changed_metrics_between_keyframes() throws Exception {
+		HystrixCommandKey key = HystrixCommandKey.Factory.asKey("deltaCommand");
+		HystrixCommandMetrics.getInstance(key,
+				HystrixCommandGroupKey.Factory.asKey("deltaGroup"),
+				new HystrixPropertiesCommandDefault(key, HystrixCommandProperties.defaultSetter()));
+		this.properties.setDelta(true);
+		this.properties.setKeyframeInterval(3);
+		this.hystrixStreamTask.setApplicationContext(this.context);
+		ObjectMapper mapper = new ObjectMapper();
+
+		for (int sequence = 0; sequence < 4; sequence++) {
+			this.hystrixStreamTask.gatherMetrics();
+			List<JsonNode> metrics = new ArrayList<>();
+			for (byte[] metric : this.hystrixStreamTask.jsonMetrics) {
+				metrics.add(mapper.readTree(metric));
+			}
+			this.hystrixStreamTask.jsonMetrics.clear();
+
+			boolean keyframe = sequence % 3 == 0;
+			JsonNode cycle = metrics.remove(metrics.size() - 1);
+			assertThat(cycle.get("event").asText(), is("cycle"));
+			assertThat(cycle.get("sequence").asLong(), is((long) sequence));
+			assertThat(cycle.get("keyframe").asBoolean(), is(keyframe));
+			boolean sent = false;
+			for (JsonNode metric : metrics) {
+				assertThat(metric.get("sequence").asLong(), is((long) sequence));
+				sent |= metric.get("data").get("name").asText().endsWith("deltaCommand");
+			}
+			assertThat("deltaCommand sent in cycle " + sequence, sent, is(keyframe));
+		}
+	}
+
+	@Test
+	public void should_gather_many_commands_with_a_reused_generator() throws Exception {
+		for (int i = 0; i < 500; i++) {
+			HystrixCommandKey key = HystrixCommandKey.Factory.asKey("benchmark" + i);
+			HystrixCommandMetrics.getInstance(key,
+					HystrixCommandGroupKey.Factory.asKey("benchmarkGroup" + (i % 10)),
+					new HystrixPropertiesCommandDefault(key, HystrixCommandProperties.defaultSetter()));
+		}
+		this.properties.setSize(10000);
+		HystrixStreamTask task = new HystrixStreamTask(this.outboundChannel,
+				this.registration, this.properties);
+		task.setApplicationContext(this.context);
+		ObjectMapper mapper = new ObjectMapper();
+
+		List<String> previousNames = null;
+		for (int i = 0; i < 3; i++) {
+			task.gatherMetrics();
+			JsonNode first = mapper.readTree(task.jsonMetrics.peek());
+			assertThat(first.get("event").asText(), is("message"));
+			assertThat(first.get("data").get("latencyTotal").get("99.5").isNumber(), is(true));
+			List<String> names = new ArrayList<>();
+			for (byte[] metric : task.jsonMetrics) {
+				JsonNode data = mapper.readTree(metric).get("data");
+				assertThat(data.get("reportingHosts").asInt(), is(1));
+				names.add(data.get("type").asText() + ":" + data.get("name").asText());
+			}
+			task.jsonMetrics.clear();
+			// the reused generator writes every command once per cycle, nothing stale
+			assertThat(new HashSet<>(names).size(), is(names.size()));
+			assertThat(names.size() >= 500, is(true));
+			if (previousNames != null) {
+				assertThat(names, is(previousNames));
+			}
+			previousNames = names;
+		}
+	}
 }
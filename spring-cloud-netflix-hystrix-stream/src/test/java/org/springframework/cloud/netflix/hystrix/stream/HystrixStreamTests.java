@@ -92,7 +92,7 @@ public class HystrixStreamTests {
 		assertThat(this.registration.getServiceId()).isEqualTo("mytestapp");
 		this.task.gatherMetrics();
 		Message<?> message = this.collector.forChannel(output).take();
-		JsonNode tree = mapper.readTree((String)message.getPayload());
+		JsonNode tree = mapper.readTree((byte[]) message.getPayload());
 		assertThat(tree.hasNonNull("origin")).isTrue();
 		assertThat(tree.hasNonNull("data")).isTrue();
 		assertThat(tree.hasNonNull("event")).isTrue();
@@ -16,6 +16,10 @@
 
 package org.springframework.cloud.netflix.hystrix;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.reactivestreams.Publisher;
@@ -40,6 +44,13 @@ import rx.RxReactiveStreams;
  */
 public class HystrixCommands {
 
+	/**
+	 * The setters of the commands without custom properties, by group and command name,
+	 * as Hystrix only reads them the first time a command is executed. Only used by
+	 * {@link PublisherBuilder#build()}, as a {@link Setter} is mutable.
+	 */
+	private static final Map<List<String>, Setter> setters = new ConcurrentHashMap<>();
+
 	public static <T> PublisherBuilder<T> from(Publisher<T> publisher) {
 		return new PublisherBuilder<>(publisher);
 	}
@@ -52,6 +63,7 @@ public class HystrixCommands {
 		private Setter setter;
 		private HystrixCommandProperties.Setter commandProperties;
 		private boolean eager = false;
+		private boolean reactor = false;
 		private Function<HystrixObservableCommand<T>, Observable<T>> toObservable;
 
 		public PublisherBuilder(Publisher<T> publisher) {
@@ -104,6 +116,18 @@ public class HystrixCommands {
 			return this;
 		}
 
+		/**
+		 * Executes the command with Reactor operators instead of bridging the publisher to
+		 * a {@link HystrixObservableCommand}. The command has the same circuit breaker,
+		 * timeout, fallback and metrics, but is always isolated by a semaphore, on the
+		 * threads of the publisher. Can not be combined with a custom {@link Setter} or
+		 * {@link #toObservable(Function)}.
+		 */
+		public PublisherBuilder<T> reactor() {
+			this.reactor = true;
+			return this;
+		}
+
 		public PublisherBuilder<T> toObservable(Function<HystrixObservableCommand<T>, Observable<T>> toObservable) {
 			this.toObservable = toObservable;
 			return this;
@@ -113,7 +137,13 @@ public class HystrixCommands {
 			if (!StringUtils.hasText(commandName) && setter == null) {
 				throw new IllegalStateException("commandName and setter can not both be empty");
 			}
-			Setter setterToUse = getSetter();
+			if (this.reactor) {
+				return buildReactor();
+			}
+			Setter setterToUse = this.setter == null && this.commandProperties == null
+					? setters.computeIfAbsent(Arrays.asList(getGroupName(), this.commandName),
+							names -> getSetter())
+					: getSetter();
 
 			PublisherHystrixCommand<T> command = new PublisherHystrixCommand<>(setterToUse, this.publisher, this.fallback);
 
@@ -122,6 +152,23 @@ public class HystrixCommands {
 			return RxReactiveStreams.toPublisher(observable);
 		}
 
+		private Flux<T> buildReactor() {
+			if (this.setter != null || this.toObservable != null) {
+				throw new IllegalStateException(
+						"setter and toObservable can not be used with reactor");
+			}
+			HystrixCommandProperties.Setter commandProperties = this.commandProperties != null
+					? this.commandProperties
+					: HystrixCommandProperties.Setter();
+			Flux<T> flux = new ReactorHystrixCommand<>(getGroupKey(), getCommandKey(),
+					commandProperties, this.publisher, this.fallback).toFlux();
+			if (this.eager) {
+				// like HystrixObservableCommand.observe()
+				return flux.replay().autoConnect(0);
+			}
+			return flux;
+		}
+
 		public Function<HystrixObservableCommand<T>, Observable<T>> getObservableFunction() {
 			Function<HystrixObservableCommand<T>, Observable<T>> observableFunc;
 
@@ -136,26 +183,29 @@ public class HystrixCommands {
 		}
 
 		public Setter getSetter() {
-			Setter setterToUse;
 			if (this.setter != null) {
-				setterToUse = this.setter;
-			} else {
-				String groupNameToUse;
-				if (StringUtils.hasText(this.groupName)) {
-					groupNameToUse = this.groupName;
-				} else {
-					groupNameToUse = commandName + "group";
-				}
-
-				HystrixCommandGroupKey groupKey = HystrixCommandGroupKey.Factory.asKey(groupNameToUse);
-				HystrixCommandKey commandKey = HystrixCommandKey.Factory.asKey(this.commandName);
-				HystrixCommandProperties.Setter commandProperties = this.commandProperties != null
-						? this.commandProperties
-						: HystrixCommandProperties.Setter();
-				setterToUse = Setter.withGroupKey(groupKey).andCommandKey(commandKey)
-						.andCommandPropertiesDefaults(commandProperties);
+				return this.setter;
+			}
+			HystrixCommandProperties.Setter commandProperties = this.commandProperties != null
+					? this.commandProperties
+					: HystrixCommandProperties.Setter();
+			return Setter.withGroupKey(getGroupKey()).andCommandKey(getCommandKey())
+					.andCommandPropertiesDefaults(commandProperties);
+		}
+
+		private String getGroupName() {
+			if (StringUtils.hasText(this.groupName)) {
+				return this.groupName;
 			}
-			return setterToUse;
+			return commandName + "group";
+		}
+
+		private HystrixCommandGroupKey getGroupKey() {
+			return HystrixCommandGroupKey.Factory.asKey(getGroupName());
+		}
+
+		private HystrixCommandKey getCommandKey() {
+			return HystrixCommandKey.Factory.asKey(this.commandName);
 		}
 
 		public Flux<T> toFlux() {
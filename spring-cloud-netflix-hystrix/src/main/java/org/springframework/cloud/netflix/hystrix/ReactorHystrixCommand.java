@@ -0,0 +1,275 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.hystrix;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.reactivestreams.Publisher;
+
+import com.netflix.hystrix.ExecutionResult;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixEventType;
+import com.netflix.hystrix.HystrixInvokable;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.exception.HystrixRuntimeException.FailureType;
+import com.netflix.hystrix.metric.HystrixCommandCompletion;
+import com.netflix.hystrix.metric.HystrixCommandCompletionStream;
+import com.netflix.hystrix.metric.HystrixCommandExecutionStarted;
+import com.netflix.hystrix.metric.HystrixCommandStartStream;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Applies the semantics of a semaphore isolated {@link com.netflix.hystrix.HystrixObservableCommand}
+ * to a {@link Publisher} with Reactor operators, on the threads of the publisher,
+ * without bridging it to RxJava: the circuit breaker, the limit of concurrent executions,
+ * the timeout and the fallback of the command. The executions are recorded in the
+ * metrics of the command, so they are seen by the circuit breaker and the Hystrix
+ * stream.
+ *
+ * The semaphores of Hystrix are not accessible, so the concurrent executions and
+ * fallbacks are limited by counters of their own, according to the
+ * {@code execution.isolation.semaphore.maxConcurrentRequests} and
+ * {@code fallback.isolation.semaphore.maxConcurrentRequests} properties of the command.
+ * These limits are separate from the ones of the {@link com.netflix.hystrix.HystrixCommand}
+ * and {@link com.netflix.hystrix.HystrixObservableCommand} executions of the same key.
+ */
+class ReactorHystrixCommand<T> {
+
+	private static final Map<HystrixCommandKey, AtomicInteger> concurrentExecutions = new ConcurrentHashMap<>();
+
+	private static final Map<HystrixCommandKey, AtomicInteger> concurrentFallbacks = new ConcurrentHashMap<>();
+
+	private final HystrixCommandGroupKey groupKey;
+
+	private final HystrixCommandKey commandKey;
+
+	private final HystrixThreadPoolKey threadPoolKey;
+
+	private final HystrixCommandProperties properties;
+
+	private final Publisher<T> publisher;
+
+	private final Function<Throwable, Publisher<T>> fallback;
+
+	ReactorHystrixCommand(HystrixCommandGroupKey groupKey, HystrixCommandKey commandKey,
+			HystrixCommandProperties.Setter propertiesDefaults, Publisher<T> publisher,
+			Function<Throwable, Publisher<T>> fallback) {
+		this.groupKey = groupKey;
+		this.commandKey = commandKey;
+		// like the thread pool key of a command without one
+		this.threadPoolKey = HystrixThreadPoolKey.Factory.asKey(groupKey.name());
+		this.properties = HystrixPropertiesFactory.getCommandProperties(commandKey,
+				propertiesDefaults);
+		this.publisher = publisher;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * @return the publisher executing the command for every subscription
+	 */
+	Flux<T> toFlux() {
+		return Flux.defer(() -> new Execution().execute());
+	}
+
+	private class Execution {
+
+		private final long start = System.currentTimeMillis();
+
+		private final HystrixCommandMetrics metrics = HystrixCommandMetrics.getInstance(
+				commandKey, groupKey, threadPoolKey, properties);
+
+		private final HystrixCircuitBreaker circuitBreaker = properties
+				.circuitBreakerEnabled().get()
+						? HystrixCircuitBreaker.Factory.getInstance(commandKey, groupKey,
+								properties, this.metrics)
+						: null;
+
+		private final AtomicInteger concurrent = concurrentExecutions
+				.computeIfAbsent(commandKey, key -> new AtomicInteger());
+
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		private long executionStart;
+
+		Flux<T> execute() {
+			if (this.circuitBreaker != null && !this.circuitBreaker.attemptExecution()) {
+				return fallback(HystrixEventType.SHORT_CIRCUITED, FailureType.SHORTCIRCUIT,
+						"short-circuited",
+						new RuntimeException("Hystrix circuit short-circuited and is OPEN"));
+			}
+			int concurrency = this.concurrent.incrementAndGet();
+			if (concurrency > properties.executionIsolationSemaphoreMaxConcurrentRequests()
+					.get()) {
+				this.concurrent.decrementAndGet();
+				return fallback(HystrixEventType.SEMAPHORE_REJECTED,
+						FailureType.REJECTED_SEMAPHORE_EXECUTION,
+						"could not acquire a semaphore for execution",
+						new RuntimeException("could not acquire a semaphore for execution"));
+			}
+			HystrixCommandStartStream.getInstance(commandKey)
+					.write(new HystrixCommandExecutionStarted(commandKey, threadPoolKey,
+							ExecutionIsolationStrategy.SEMAPHORE, concurrency));
+			this.executionStart = System.currentTimeMillis();
+			Flux<T> execution = Flux.from(publisher);
+			if (properties.executionTimeoutEnabled().get()) {
+				execution = timeout(execution,
+						properties.executionTimeoutInMilliseconds().get());
+			}
+			return execution.doOnComplete(this::succeeded)
+					.onErrorResume(this::failed)
+					.doOnCancel(this::cancelled);
+		}
+
+		/**
+		 * Times out when the execution does not complete in time, as opposed to the
+		 * {@link Flux#timeout(Duration)} between two elements.
+		 */
+		private Flux<T> timeout(Flux<T> execution, long timeout) {
+			long deadline = System.nanoTime() + Duration.ofMillis(timeout).toNanos();
+			return execution.timeout(Mono.delay(Duration.ofMillis(timeout)),
+					element -> Mono.delay(Duration
+							.ofNanos(Math.max(0, deadline - System.nanoTime()))));
+		}
+
+		private void succeeded() {
+			if (end()) {
+				if (this.circuitBreaker != null) {
+					this.circuitBreaker.markSuccess();
+				}
+				record(HystrixEventType.SUCCESS);
+			}
+		}
+
+		private Publisher<T> failed(Throwable ex) {
+			if (!end()) {
+				return Flux.error(ex);
+			}
+			if (ex instanceof HystrixBadRequestException) {
+				record(HystrixEventType.BAD_REQUEST);
+				return Flux.error(ex);
+			}
+			if (this.circuitBreaker != null) {
+				this.circuitBreaker.markNonSuccess();
+			}
+			if (ex instanceof TimeoutException) {
+				return fallback(HystrixEventType.TIMEOUT, FailureType.TIMEOUT,
+						"timed-out", new TimeoutException());
+			}
+			return fallback(HystrixEventType.FAILURE, FailureType.COMMAND_EXCEPTION,
+					"failed", ex);
+		}
+
+		private void cancelled() {
+			if (end()) {
+				if (this.circuitBreaker != null) {
+					this.circuitBreaker.markNonSuccess();
+				}
+				record(HystrixEventType.CANCELLED);
+			}
+		}
+
+		/**
+		 * @return whether the execution just ended, releasing its semaphore
+		 */
+		private boolean end() {
+			if (this.done.compareAndSet(false, true)) {
+				this.concurrent.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		private Flux<T> fallback(HystrixEventType failure, FailureType failureType,
+				String message, Throwable ex) {
+			Exception cause = ex instanceof Exception ? (Exception) ex
+					: new RuntimeException(ex);
+			if (fallback == null) {
+				record(failure, HystrixEventType.FALLBACK_MISSING);
+				return Flux.error(new HystrixRuntimeException(failureType,
+						HystrixInvokable.class, commandKey.name() + " " + message
+								+ " and no fallback available.",
+						cause, null));
+			}
+			AtomicInteger fallbacks = concurrentFallbacks.computeIfAbsent(commandKey,
+					key -> new AtomicInteger());
+			if (fallbacks.incrementAndGet() > properties
+					.fallbackIsolationSemaphoreMaxConcurrentRequests().get()) {
+				fallbacks.decrementAndGet();
+				record(failure, HystrixEventType.FALLBACK_REJECTION);
+				return Flux.error(new HystrixRuntimeException(
+						FailureType.REJECTED_SEMAPHORE_FALLBACK, HystrixInvokable.class,
+						commandKey.name() + " " + message
+								+ " and fallback execution rejected.",
+						cause, null));
+			}
+			Publisher<T> fallbackPublisher;
+			try {
+				fallbackPublisher = fallback.apply(ex);
+			}
+			catch (RuntimeException fallbackException) {
+				fallbacks.decrementAndGet();
+				return fallbackFailed(failure, failureType, message, cause,
+						fallbackException);
+			}
+			return Flux.from(fallbackPublisher)
+					.doOnComplete(() -> record(failure, HystrixEventType.FALLBACK_SUCCESS))
+					.onErrorResume(fallbackException -> fallbackFailed(failure,
+							failureType, message, cause, fallbackException))
+					.doFinally(signal -> fallbacks.decrementAndGet());
+		}
+
+		private Flux<T> fallbackFailed(HystrixEventType failure, FailureType failureType,
+				String message, Exception cause, Throwable fallbackException) {
+			record(failure, HystrixEventType.FALLBACK_FAILURE);
+			return Flux.error(new HystrixRuntimeException(failureType,
+					HystrixInvokable.class,
+					commandKey.name() + " " + message + " and fallback failed.", cause,
+					fallbackException));
+		}
+
+		private void record(HystrixEventType... events) {
+			long now = System.currentTimeMillis();
+			ExecutionResult result = ExecutionResult.from(events)
+					.setInvocationStartTime(this.start)
+					.markUserThreadCompletion(now - this.start);
+			if (this.executionStart > 0) {
+				result = result.setExecutionLatency(now - this.executionStart);
+			}
+			HystrixCommandCompletionStream.getInstance(commandKey)
+					.write(HystrixCommandCompletion.from(result, commandKey,
+							threadPoolKey));
+		}
+
+	}
+
+}
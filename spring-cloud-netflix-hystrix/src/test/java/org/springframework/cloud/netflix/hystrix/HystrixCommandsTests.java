@@ -17,15 +17,23 @@
 package org.springframework.cloud.netflix.hystrix;
 
 import java.time.Duration;
+import java.util.Arrays;
 
 import org.junit.Test;
 
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
 import com.netflix.hystrix.exception.HystrixRuntimeException;
+import com.netflix.hystrix.exception.HystrixRuntimeException.FailureType;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
 public class HystrixCommandsTests {
 
 	@Test
@@ -162,4 +170,159 @@ public class HystrixCommandsTests {
 				.verifyComplete();
 	}
 
+	@Test
+	public void settersAreNotShared() {
+		assertNotSame(HystrixCommands.from(Mono.just("works")).commandName("cached")
+				.getSetter(),
+				HystrixCommands.from(Mono.just("works")).commandName("cached")
+						.getSetter());
+	}
+
+	@Test
+	public void settersAreCachedByGroupAndCommandName() {
+		assertEquals("works", HystrixCommands.from(Mono.just("works")).groupName("a.b")
+				.commandName("c").toMono().block());
+		assertEquals("works", HystrixCommands.from(Mono.just("works")).groupName("a")
+				.commandName("b.c").toMono().block());
+
+		assertEquals("a.b", HystrixCommandMetrics
+				.getInstance(HystrixCommandKey.Factory.asKey("c")).getCommandGroup().name());
+		assertEquals("a", HystrixCommandMetrics
+				.getInstance(HystrixCommandKey.Factory.asKey("b.c")).getCommandGroup().name());
+	}
+
+	@Test
+	public void reactorMonoWorks() {
+		StepVerifier.create(HystrixCommands.from(Mono.just("works"))
+				.commandName("reactorworks")
+				.reactor()
+				.toMono())
+				.expectNext("works")
+				.verifyComplete();
+		HystrixCommandMetrics metrics = HystrixCommandMetrics
+				.getInstance(HystrixCommandKey.Factory.asKey("reactorworks"));
+		assertNotNull(metrics);
+	}
+
+	@Test
+	public void reactorFluxWorksDeferredRequest() {
+		StepVerifier.create(HystrixCommands.from(Flux.just("1", "2"))
+				.commandName("reactorflux")
+				.reactor()
+				.build(), 1)
+				.expectNext("1")
+				.thenAwait(Duration.ofMillis(100))
+				.thenRequest(1)
+				.expectNext("2")
+				.verifyComplete();
+	}
+
+	@Test
+	public void reactorFallbackWorks() {
+		StepVerifier.create(HystrixCommands.from(Flux.<String>error(new IllegalStateException()))
+				.commandName("reactorfail")
+				.reactor()
+				.fallback(throwable -> throwable instanceof IllegalStateException
+						? Flux.just("a", "b") : Flux.just("generic"))
+				.toFlux())
+				.expectNext("a")
+				.expectNext("b")
+				.verifyComplete();
+	}
+
+	@Test
+	public void reactorTimesOut() {
+		StepVerifier.create(HystrixCommands.from(Mono.just("timeout")
+				.delayElement(Duration.ofMillis(1500)))
+				.commandName("reactortimeout")
+				.reactor()
+				.toMono())
+				.expectErrorMatches(ex -> ex instanceof HystrixRuntimeException
+						&& ((HystrixRuntimeException) ex)
+								.getFailureType() == FailureType.TIMEOUT)
+				.verify();
+	}
+
+	@Test
+	public void reactorTimesOutOverAllTheElements() {
+		StepVerifier.create(HystrixCommands.from(Flux.interval(Duration.ofMillis(100)))
+				.commandName("reactorinterval")
+				.reactor()
+				.commandProperties(
+						setter -> setter.withExecutionTimeoutInMilliseconds(500))
+				.fallback(Flux.just(-1L))
+				.toFlux())
+				.expectNextCount(4)
+				.thenConsumeWhile(value -> value >= 0)
+				.expectNext(-1L)
+				.verifyComplete();
+	}
+
+	@Test
+	public void reactorShortCircuits() {
+		StepVerifier.create(HystrixCommands.from(Mono.just("works"))
+				.commandName("reactoropen")
+				.reactor()
+				.commandProperties(setter -> setter.withCircuitBreakerForceOpen(true))
+				.fallback(Mono.just("fallback"))
+				.toMono())
+				.expectNext("fallback")
+				.verifyComplete();
+	}
+
+	@Test
+	public void reactorFailsWithoutFallback() {
+		StepVerifier.create(HystrixCommands.from(Mono.<String>error(new Exception()))
+				.commandName("reactornofallback")
+				.reactor()
+				.toMono())
+				.expectErrorMatches(ex -> ex instanceof HystrixRuntimeException
+						&& ((HystrixRuntimeException) ex)
+								.getFailureType() == FailureType.COMMAND_EXCEPTION)
+				.verify();
+	}
+
+	@Test
+	public void reactorRejectsFallbacksOverTheLimit() {
+		StepVerifier.create(HystrixCommands.from(Mono.<String>error(new Exception()))
+				.commandName("reactorfallbackrejected")
+				.reactor()
+				.commandProperties(setter -> setter
+						.withFallbackIsolationSemaphoreMaxConcurrentRequests(0))
+				.fallback(Mono.just("fallback"))
+				.toMono())
+				.expectErrorMatches(ex -> ex instanceof HystrixRuntimeException
+						&& ((HystrixRuntimeException) ex)
+								.getFailureType() == FailureType.REJECTED_SEMAPHORE_FALLBACK)
+				.verify();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void reactorRejectsCustomSetter() {
+		HystrixCommands.from(Mono.just("works"))
+				.setter(HystrixCommands.from(Mono.just("works")).commandName("custom")
+						.getSetter())
+				.reactor()
+				.build();
+	}
+
+	@Test
+	public void reactorAndBridgeExecutionsAreRecordedAlike() {
+		for (int i = 0; i < 3; i++) {
+			assertEquals("works", HystrixCommands.from(Mono.just("works"))
+					.groupName("executions").commandName("bridgeexecutions")
+					.toMono().block());
+			assertEquals("works", HystrixCommands.from(Mono.just("works"))
+					.groupName("executions").commandName("reactorexecutions")
+					.reactor().toMono().block());
+		}
+
+		for (String commandName : Arrays.asList("bridgeexecutions", "reactorexecutions")) {
+			HystrixCommandMetrics metrics = HystrixCommandMetrics
+					.getInstance(HystrixCommandKey.Factory.asKey(commandName));
+			assertNotNull(metrics);
+			assertEquals("executions", metrics.getCommandGroup().name());
+		}
+	}
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.client.config.IClientConfigKey;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ZoneAvoidanceRule;
+
+/**
+ * A {@link ZoneAvoidanceRule} that keeps the servers that passed the zone avoidance and
+ * availability predicates, instead of evaluating them for every server on every
+ * choice. The eligible servers are recomputed when the server list of the load
+ * balancer changes, or once they are older than
+ * {@code <client>.ribbon.eligibleServersCacheTimeInMillis} so that tripped circuit
+ * breakers and zone outages are still noticed. Choosing a server from a cached list
+ * does not allocate. The eligible servers are cached for the last key only, a choice
+ * for another key recomputes them.
+ *
+ * It is used as the default rule of a client when
+ * {@code <client>.ribbon.eligibleServersCacheEnabled} is {@code true}.
+ */
+public class CachingZoneAvoidanceRule extends ZoneAvoidanceRule {
+
+	public static final IClientConfigKey<Boolean> ELIGIBLE_SERVERS_CACHE_ENABLED = new CommonClientConfigKey<Boolean>("eligibleServersCacheEnabled") {};
+
+	public static final IClientConfigKey<Integer> ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS = new CommonClientConfigKey<Integer>("eligibleServersCacheTimeInMillis") {};
+
+	public static final int DEFAULT_ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS = 1000;
+
+	private final AtomicInteger nextIndex = new AtomicInteger();
+
+	private int cacheTimeInMillis = DEFAULT_ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS;
+
+	private volatile EligibleServers eligibleServers;
+
+	@Override
+	public void initWithNiwsConfig(IClientConfig clientConfig) {
+		super.initWithNiwsConfig(clientConfig);
+		this.cacheTimeInMillis = clientConfig.getPropertyAsInteger(
+				ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS,
+				DEFAULT_ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS);
+	}
+
+	public void setCacheTimeInMillis(int cacheTimeInMillis) {
+		this.cacheTimeInMillis = cacheTimeInMillis;
+	}
+
+	@Override
+	public Server choose(Object key) {
+		ILoadBalancer lb = getLoadBalancer();
+		if (this.cacheTimeInMillis <= 0 || lb == null) {
+			return super.choose(key);
+		}
+		List<Server> servers = lb.getAllServers();
+		long now = currentTimeMillis();
+		EligibleServers eligible = this.eligibleServers;
+		if (eligible == null || now - eligible.timestamp >= this.cacheTimeInMillis
+				|| !eligible.isFor(servers, key)) {
+			eligible = new EligibleServers(servers, key,
+					getPredicate().getEligibleServers(servers, key), now);
+			this.eligibleServers = eligible;
+		}
+		int size = eligible.servers.size();
+		if (size == 0) {
+			return null;
+		}
+		return eligible.servers.get(incrementAndGetModulo(size));
+	}
+
+	/**
+	 * Forget the eligible servers, they are recomputed on the next choice.
+	 */
+	public void clearCache() {
+		this.eligibleServers = null;
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private int incrementAndGetModulo(int modulo) {
+		for (;;) {
+			int current = this.nextIndex.get();
+			int next = (current + 1) % modulo;
+			if (this.nextIndex.compareAndSet(current, next) && current < modulo) {
+				return current;
+			}
+		}
+	}
+
+	private static class EligibleServers {
+
+		private final Server[] all;
+
+		private final Object key;
+
+		private final List<Server> servers;
+
+		private final long timestamp;
+
+		EligibleServers(List<Server> all, Object key, List<Server> servers, long timestamp) {
+			this.all = all.toArray(new Server[0]);
+			this.key = key;
+			this.servers = servers;
+			this.timestamp = timestamp;
+		}
+
+		/**
+		 * The load balancer returns a new view of its server list on every call, so the
+		 * servers themselves are compared.
+		 */
+		boolean isFor(List<Server> servers, Object key) {
+			if (!Objects.equals(key, this.key) || servers.size() != this.all.length) {
+				return false;
+			}
+			for (int i = 0; i < this.all.length; i++) {
+				if (servers.get(i) != this.all[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
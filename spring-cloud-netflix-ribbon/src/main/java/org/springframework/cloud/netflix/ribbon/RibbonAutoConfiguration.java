@@ -23,11 +23,15 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.netflix.client.IClient;
 import com.netflix.client.http.HttpRequest;
 import com.netflix.ribbon.Ribbon;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpClientConnectionManager;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
@@ -43,6 +47,11 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryFactory;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerAutoConfiguration;
 import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.cloud.client.loadbalancer.RestTemplateCustomizer;
+import org.springframework.cloud.commons.httpclient.ApacheHttpClientConnectionManagerFactory;
+import org.springframework.cloud.commons.httpclient.DefaultApacheHttpClientConnectionManagerFactory;
+import org.springframework.cloud.netflix.ribbon.apache.SharedConnectionPoolProperties;
+import org.springframework.cloud.netflix.ribbon.apache.SharedHttpClientConnectionManager;
+import org.springframework.cloud.netflix.ribbon.reactive.RibbonLoadBalancerExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
@@ -128,6 +137,43 @@ public class RibbonAutoConfiguration {
 		}
 	}
 
+	@Configuration
+	@ConditionalOnClass(name = "org.apache.http.client.HttpClient")
+	@ConditionalOnProperty("ribbon.httpclient.shared-pool.enabled")
+	@EnableConfigurationProperties(SharedConnectionPoolProperties.class)
+	protected static class SharedConnectionPoolConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public SharedHttpClientConnectionManager sharedHttpClientConnectionManager(
+				SharedConnectionPoolProperties properties,
+				ObjectProvider<ApacheHttpClientConnectionManagerFactory> connectionManagerFactory,
+				ObjectProvider<RegistryBuilder> registryBuilder) {
+			HttpClientConnectionManager pool = connectionManagerFactory
+					.getIfAvailable(DefaultApacheHttpClientConnectionManagerFactory::new)
+					.newConnectionManager(false, properties.getMaxTotalConnections(),
+							properties.getMaxConnectionsPerHost(),
+							properties.getTimeToLive(), TimeUnit.SECONDS,
+							registryBuilder.getIfAvailable());
+			return new SharedHttpClientConnectionManager(pool,
+					properties.getConnectionCleanerRepeatInterval());
+		}
+	}
+
+	@Configuration
+	@ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")
+	protected static class RibbonReactiveConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public RibbonLoadBalancerExchangeFilterFunction ribbonLoadBalancerExchangeFilterFunction(
+				LoadBalancerClient loadBalancerClient, SpringClientFactory springClientFactory,
+				ObjectProvider<LoadBalancedRetryFactory> loadBalancedRetryFactory) {
+			return new RibbonLoadBalancerExchangeFilterFunction(loadBalancerClient,
+					springClientFactory, loadBalancedRetryFactory.getIfAvailable());
+		}
+	}
+
 	//TODO: support for autoconfiguring restemplate to use apache http client or okhttp
 
 	@Target({ ElementType.TYPE, ElementType.METHOD })
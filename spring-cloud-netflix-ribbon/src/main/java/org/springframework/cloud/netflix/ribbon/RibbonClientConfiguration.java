@@ -47,6 +47,7 @@ import com.netflix.loadbalancer.ServerListUpdater;
 import com.netflix.loadbalancer.ZoneAvoidanceRule;
 import com.netflix.loadbalancer.ZoneAwareLoadBalancer;
 import com.netflix.niws.client.http.RestClient;
+import com.netflix.servo.monitor.Monitors;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.client.apache4.ApacheHttpClient4;
 
@@ -96,7 +97,9 @@ public class RibbonClientConfiguration {
 		if (this.propertiesFactory.isSet(IRule.class, name)) {
 			return this.propertiesFactory.get(IRule.class, config, name);
 		}
-		ZoneAvoidanceRule rule = new ZoneAvoidanceRule();
+		ZoneAvoidanceRule rule = config.getPropertyAsBoolean(
+				CachingZoneAvoidanceRule.ELIGIBLE_SERVERS_CACHE_ENABLED, false)
+						? new CachingZoneAvoidanceRule() : new ZoneAvoidanceRule();
 		rule.initWithNiwsConfig(config);
 		return rule;
 	}
@@ -165,6 +168,16 @@ public class RibbonClientConfiguration {
 		return new DefaultLoadBalancerRetryHandler(config);
 	}
 
+	@Bean
+	@ConditionalOnMissingBean
+	public RibbonRetryBudget ribbonRetryBudget(IClientConfig config) {
+		RibbonRetryBudget retryBudget = RibbonRetryBudget.from(config);
+		if (retryBudget.isEnabled()) {
+			Monitors.registerObject("RetryBudget_" + this.name, retryBudget);
+		}
+		return retryBudget;
+	}
+
 	@Bean
 	@ConditionalOnMissingBean
 	public ServerIntrospector serverIntrospector() {
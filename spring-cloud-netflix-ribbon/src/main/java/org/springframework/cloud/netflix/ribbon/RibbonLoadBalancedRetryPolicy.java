@@ -17,7 +17,9 @@
 package org.springframework.cloud.netflix.ribbon;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -27,6 +29,7 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryPolicy;
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient.RibbonServer;
 import org.springframework.http.HttpMethod;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.StringUtils;
 
 import com.netflix.client.config.CommonClientConfigKey;
@@ -48,7 +51,10 @@ public class RibbonLoadBalancedRetryPolicy implements LoadBalancedRetryPolicy {
 	private String serviceId;
 	private RibbonLoadBalancerContext lbContext;
 	private ServiceInstanceChooser loadBalanceChooser;
-	List<Integer> retryableStatusCodes = new ArrayList<>();
+	List<Integer> retryableStatusCodes = Collections.emptyList();
+
+	// a policy is created for every request, parse the configured codes only once
+	private static final Map<String, List<Integer>> PARSED_STATUS_CODES = new ConcurrentReferenceHashMap<>();
 	
 	private static final Log LOGGER = LogFactory.getLog(RibbonLoadBalancedRetryPolicy.class);
 
@@ -64,6 +70,12 @@ public class RibbonLoadBalancedRetryPolicy implements LoadBalancedRetryPolicy {
 		this.lbContext = context;
 		this.loadBalanceChooser = loadBalanceChooser;
 		String retryableStatusCodesProp = clientConfig.getPropertyAsString(RETRYABLE_STATUS_CODES, "");
+		this.retryableStatusCodes = PARSED_STATUS_CODES.computeIfAbsent(retryableStatusCodesProp,
+				RibbonLoadBalancedRetryPolicy::parseRetryableStatusCodes);
+	}
+
+	private static List<Integer> parseRetryableStatusCodes(String retryableStatusCodesProp) {
+		List<Integer> retryableStatusCodes = new ArrayList<>();
 		String[] retryableStatusCodesArray = retryableStatusCodesProp.split(",");
 		for(String code : retryableStatusCodesArray) {
 			if(!StringUtils.isEmpty(code)) {
@@ -74,6 +86,7 @@ public class RibbonLoadBalancedRetryPolicy implements LoadBalancedRetryPolicy {
 				}
 			}
 		}
+		return Collections.unmodifiableList(retryableStatusCodes);
 	}
 
 	public boolean canRetry(LoadBalancedRetryContext context) {
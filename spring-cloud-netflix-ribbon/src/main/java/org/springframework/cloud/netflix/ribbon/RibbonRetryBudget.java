@@ -0,0 +1,160 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.client.config.IClientConfigKey;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+
+/**
+ * Limits the number of retries a Ribbon client may issue to a percentage of the
+ * requests it has sent over a sliding time window, so that retries cannot multiply
+ * the load on a service that is already failing. A small number of retries per
+ * second is always allowed so that low traffic clients can still retry.
+ *
+ * One instance is shared by all the retryable clients of a service. The budget is
+ * disabled by default and is enabled with {@code <client>.ribbon.retryBudgetEnabled}.
+ */
+public class RibbonRetryBudget {
+
+	public static final IClientConfigKey<Boolean> RETRY_BUDGET_ENABLED = new CommonClientConfigKey<Boolean>("retryBudgetEnabled") {};
+	public static final IClientConfigKey<Integer> RETRY_BUDGET_PERCENT = new CommonClientConfigKey<Integer>("retryBudgetPercent") {};
+	public static final IClientConfigKey<Integer> RETRY_BUDGET_MIN_RETRIES_PER_SECOND = new CommonClientConfigKey<Integer>("retryBudgetMinRetriesPerSecond") {};
+	public static final IClientConfigKey<Integer> RETRY_BUDGET_WINDOW_IN_MILLIS = new CommonClientConfigKey<Integer>("retryBudgetWindowInMillis") {};
+
+	public static final int DEFAULT_PERCENT = 20;
+	public static final int DEFAULT_MIN_RETRIES_PER_SECOND = 10;
+	public static final int DEFAULT_WINDOW_IN_MILLIS = 10000;
+
+	private static final int BUCKETS = 10;
+
+	private final boolean enabled;
+	private final int percent;
+	private final long minRetries;
+	private final long bucketWidth;
+
+	private final long[] requests = new long[BUCKETS];
+	private final long[] retries = new long[BUCKETS];
+	private long currentBucketStart;
+	private int currentBucket;
+	private long totalRequests;
+	private long totalRetries;
+
+	@Monitor(name = "retriesPermitted", type = DataSourceType.COUNTER)
+	private final AtomicLong retriesPermitted = new AtomicLong();
+
+	@Monitor(name = "retriesDenied", type = DataSourceType.COUNTER)
+	private final AtomicLong retriesDenied = new AtomicLong();
+
+	public static RibbonRetryBudget from(IClientConfig config) {
+		return new RibbonRetryBudget(
+				config.getPropertyAsBoolean(RETRY_BUDGET_ENABLED, false),
+				config.getPropertyAsInteger(RETRY_BUDGET_PERCENT, DEFAULT_PERCENT),
+				config.getPropertyAsInteger(RETRY_BUDGET_MIN_RETRIES_PER_SECOND,
+						DEFAULT_MIN_RETRIES_PER_SECOND),
+				config.getPropertyAsInteger(RETRY_BUDGET_WINDOW_IN_MILLIS,
+						DEFAULT_WINDOW_IN_MILLIS));
+	}
+
+	public RibbonRetryBudget(boolean enabled, int percent, int minRetriesPerSecond,
+			int windowInMillis) {
+		this.enabled = enabled;
+		this.percent = Math.max(percent, 0);
+		long window = Math.max(windowInMillis, BUCKETS);
+		this.minRetries = Math.max(minRetriesPerSecond, 0) * window / 1000;
+		this.bucketWidth = window / BUCKETS;
+		this.currentBucketStart = currentTimeMillis();
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Record that a request (not a retry) is about to be sent. Every request adds
+	 * {@code percent / 100} retries to the budget.
+	 */
+	public void recordRequest() {
+		if (!this.enabled) {
+			return;
+		}
+		synchronized (this) {
+			advance(currentTimeMillis());
+			this.requests[this.currentBucket]++;
+			this.totalRequests++;
+		}
+	}
+
+	/**
+	 * Try to withdraw one retry from the budget.
+	 * @return true if the retry may be sent, false if the budget is exhausted
+	 */
+	public boolean tryAcquireRetry() {
+		if (!this.enabled) {
+			return true;
+		}
+		boolean permitted;
+		synchronized (this) {
+			advance(currentTimeMillis());
+			long allowed = this.minRetries + this.totalRequests * this.percent / 100;
+			permitted = this.totalRetries < allowed;
+			if (permitted) {
+				this.retries[this.currentBucket]++;
+				this.totalRetries++;
+			}
+		}
+		if (permitted) {
+			this.retriesPermitted.incrementAndGet();
+		}
+		else {
+			this.retriesDenied.incrementAndGet();
+		}
+		return permitted;
+	}
+
+	public long getRetriesPermitted() {
+		return this.retriesPermitted.get();
+	}
+
+	public long getRetriesDenied() {
+		return this.retriesDenied.get();
+	}
+
+	protected long currentTimeMillis() {
+		return System.currentTimeMillis();
+	}
+
+	private void advance(long now) {
+		long elapsed = (now - this.currentBucketStart) / this.bucketWidth;
+		if (elapsed <= 0) {
+			return;
+		}
+		int expired = (int) Math.min(elapsed, BUCKETS);
+		for (int i = 0; i < expired; i++) {
+			this.currentBucket = (this.currentBucket + 1) % BUCKETS;
+			this.totalRequests -= this.requests[this.currentBucket];
+			this.totalRetries -= this.retries[this.currentBucket];
+			this.requests[this.currentBucket] = 0;
+			this.retries[this.currentBucket] = 0;
+		}
+		this.currentBucketStart += elapsed * this.bucketWidth;
+	}
+}
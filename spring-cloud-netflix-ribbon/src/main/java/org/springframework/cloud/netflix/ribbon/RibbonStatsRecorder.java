@@ -1,6 +1,8 @@
 package org.springframework.cloud.netflix.ribbon;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import com.netflix.loadbalancer.Server;
 import com.netflix.loadbalancer.ServerStats;
 import com.netflix.servo.monitor.Stopwatch;
@@ -13,6 +15,7 @@ public class RibbonStatsRecorder {
 	private RibbonLoadBalancerContext context;
 	private ServerStats serverStats;
 	private Stopwatch tracer;
+	private final AtomicBoolean recorded = new AtomicBoolean();
 
 	public RibbonStatsRecorder(RibbonLoadBalancerContext context, Server server) {
 		this.context = context;
@@ -31,8 +34,22 @@ public class RibbonStatsRecorder {
 		this.recordStats(null, t);
 	}
 
+	/**
+	 * Releases the active request of a call cancelled by its caller, without recording
+	 * a response time or a failure of the server. Does nothing if the call was already
+	 * recorded, like a call cancelled after its response arrived.
+	 */
+	public void recordCancellation() {
+		if (this.tracer != null && this.serverStats != null
+				&& this.recorded.compareAndSet(false, true)) {
+			this.tracer.stop();
+			this.serverStats.decrementActiveRequestsCount();
+		}
+	}
+
 	protected void recordStats(Object entity, Throwable exception) {
-		if (this.tracer != null && this.serverStats != null) {
+		if (this.tracer != null && this.serverStats != null
+				&& this.recorded.compareAndSet(false, true)) {
 			this.tracer.stop();
 			long duration = this.tracer.getDuration(TimeUnit.MILLISECONDS);
 			this.context.noteRequestCompletion(serverStats, entity, exception, duration, null/* errorHandler */);
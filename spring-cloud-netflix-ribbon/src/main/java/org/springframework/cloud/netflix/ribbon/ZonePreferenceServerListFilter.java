@@ -35,6 +35,8 @@ public class ZonePreferenceServerListFilter extends ZoneAffinityServerListFilter
 
 	private String zone;
 
+	private volatile LocalServers localServers;
+
 	@Override
 	public void initWithNiwsConfig(IClientConfig niwsClientConfig) {
 		super.initWithNiwsConfig(niwsClientConfig);
@@ -48,12 +50,17 @@ public class ZonePreferenceServerListFilter extends ZoneAffinityServerListFilter
 	public List<Server> getFilteredListOfServers(List<Server> servers) {
 		List<Server> output = super.getFilteredListOfServers(servers);
 		if (this.zone != null && output.size() == servers.size()) {
+			LocalServers cached = this.localServers;
+			if (cached != null && cached.isFor(this.zone, output)) {
+				return cached.local.isEmpty() ? output : cached.local;
+			}
 			List<Server> local = new ArrayList<>();
 			for (Server server : output) {
 				if (this.zone.equalsIgnoreCase(server.getZone())) {
 					local.add(server);
 				}
 			}
+			this.localServers = new LocalServers(this.zone, output, local);
 			if (!local.isEmpty()) {
 				return local;
 			}
@@ -69,6 +76,45 @@ public class ZonePreferenceServerListFilter extends ZoneAffinityServerListFilter
 		this.zone = zone;
 	}
 
+	/**
+	 * The servers of the local zone, kept until the server list changes.
+	 */
+	private static class LocalServers {
+
+		private final String zone;
+
+		private final Server[] servers;
+
+		private final String[] zones;
+
+		private final List<Server> local;
+
+		LocalServers(String zone, List<Server> servers, List<Server> local) {
+			this.zone = zone;
+			this.servers = servers.toArray(new Server[0]);
+			this.zones = new String[this.servers.length];
+			for (int i = 0; i < this.servers.length; i++) {
+				this.zones[i] = this.servers[i].getZone();
+			}
+			this.local = local;
+		}
+
+		boolean isFor(String zone, List<Server> servers) {
+			if (!zone.equals(this.zone) || servers.size() != this.servers.length) {
+				return false;
+			}
+			for (int i = 0; i < this.servers.length; i++) {
+				Server server = servers.get(i);
+				// reused servers may have moved to another zone
+				if (server != this.servers[i]
+						|| !Objects.equals(server.getZone(), this.zones[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
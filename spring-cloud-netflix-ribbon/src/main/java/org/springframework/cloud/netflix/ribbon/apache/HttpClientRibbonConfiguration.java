@@ -38,6 +38,7 @@ import org.springframework.cloud.commons.httpclient.ApacheHttpClientFactory;
 import org.springframework.cloud.netflix.ribbon.RibbonClientName;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
 import org.springframework.cloud.netflix.ribbon.RibbonProperties;
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -60,13 +61,15 @@ public class HttpClientRibbonConfiguration {
 
 	@Configuration
 	protected static class ApacheHttpClientConfiguration {
-		private final Timer connectionManagerTimer = new Timer(
-				"RibbonApacheHttpClientConfiguration.connectionManagerTimer", true);
+		private Timer connectionManagerTimer;
 		private CloseableHttpClient httpClient;
 
 		@Autowired(required = false)
 		private RegistryBuilder registryBuilder;
 
+		@Autowired(required = false)
+		private SharedHttpClientConnectionManager sharedConnectionManager;
+
 		@Bean
 		@ConditionalOnMissingBean(HttpClientConnectionManager.class)
 		public HttpClientConnectionManager httpClientConnectionManager(
@@ -74,6 +77,10 @@ public class HttpClientRibbonConfiguration {
 				ApacheHttpClientConnectionManagerFactory connectionManagerFactory) {
 			RibbonProperties ribbon = RibbonProperties.from(config);
 			int maxTotalConnections = ribbon.maxTotalConnections();
+			if (this.sharedConnectionManager != null) {
+				return this.sharedConnectionManager.getConnectionManager(
+						config.getClientName(), maxTotalConnections);
+			}
 			int maxConnectionsPerHost = ribbon.maxConnectionsPerHost();
 			int timerRepeat = ribbon.connectionCleanerRepeatInterval();
 			long timeToLive = ribbon.poolKeepAliveTime();
@@ -81,6 +88,8 @@ public class HttpClientRibbonConfiguration {
 			final HttpClientConnectionManager connectionManager = connectionManagerFactory
 					.newConnectionManager(false, maxTotalConnections,
 							maxConnectionsPerHost, timeToLive, ttlUnit, registryBuilder);
+			this.connectionManagerTimer = new Timer(
+					"RibbonApacheHttpClientConfiguration.connectionManagerTimer", true);
 			this.connectionManagerTimer.schedule(new TimerTask() {
 				@Override
 				public void run() {
@@ -108,7 +117,9 @@ public class HttpClientRibbonConfiguration {
 
 		@PreDestroy
 		public void destroy() throws Exception {
-			connectionManagerTimer.cancel();
+			if (connectionManagerTimer != null) {
+				connectionManagerTimer.cancel();
+			}
 			if(httpClient != null) {
 				httpClient.close();
 			}
@@ -135,12 +146,13 @@ public class HttpClientRibbonConfiguration {
 			IClientConfig config, ServerIntrospector serverIntrospector,
 			ILoadBalancer loadBalancer, RetryHandler retryHandler,
 			LoadBalancedRetryFactory loadBalancedRetryFactory, CloseableHttpClient httpClient,
-			RibbonLoadBalancerContext ribbonLoadBalancerContext) {
+			RibbonLoadBalancerContext ribbonLoadBalancerContext, RibbonRetryBudget retryBudget) {
 		RetryableRibbonLoadBalancingHttpClient client = new RetryableRibbonLoadBalancingHttpClient(
 			httpClient, config, serverIntrospector, loadBalancedRetryFactory);
 		client.setLoadBalancer(loadBalancer);
 		client.setRetryHandler(retryHandler);
 		client.setRibbonLoadBalancerContext(ribbonLoadBalancerContext);
+		client.setRetryBudget(retryBudget);
 		Monitors.registerObject("Client_" + this.name, client);
 		return client;
 	}
@@ -31,6 +31,7 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryPolicy;
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
 import org.springframework.cloud.client.loadbalancer.InterceptorRetryPolicy;
 import org.springframework.cloud.netflix.ribbon.RibbonProperties;
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
 import org.springframework.cloud.netflix.ribbon.RibbonStatsRecorder;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient.RibbonServer;
@@ -39,6 +40,7 @@ import org.springframework.cloud.netflix.ribbon.support.ContextAwareRequest;
 import org.springframework.http.HttpRequest;
 import org.springframework.retry.RecoveryCallback;
 import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
 import org.springframework.retry.RetryListener;
 import org.springframework.retry.backoff.BackOffPolicy;
 import org.springframework.retry.backoff.NoBackOffPolicy;
@@ -49,6 +51,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import com.netflix.client.RequestSpecificRetryHandler;
 import com.netflix.client.RetryHandler;
 import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.Server;
 
 /**
  * An Apache HTTP client which leverages Spring Retry to retry failed requests.
@@ -60,6 +63,10 @@ public class RetryableRibbonLoadBalancingHttpClient extends RibbonLoadBalancingH
 
 	private LoadBalancedRetryFactory loadBalancedRetryFactory;
 	private RibbonLoadBalancerContext ribbonLoadBalancerContext;
+	private RibbonRetryBudget retryBudget;
+	private volatile RetryTemplate noRetryTemplate;
+	private volatile BackOffPolicy backOffPolicy;
+	private volatile RetryListener[] retryListeners;
 
 	public RetryableRibbonLoadBalancingHttpClient(CloseableHttpClient delegate,
 												  IClientConfig config, ServerIntrospector serverIntrospector,
@@ -70,6 +77,16 @@ public class RetryableRibbonLoadBalancingHttpClient extends RibbonLoadBalancingH
 
 	@Override
 	public RibbonApacheHttpResponse execute(final RibbonApacheHttpRequest request, final IClientConfig configOverride) throws Exception {
+		if (isHedgeable(request)) {
+			//the retries run on the calling thread, and stop once the hedge wins
+			return executeWithHedging(request, configOverride,
+					attempts -> executeAttempts(request, configOverride, attempts));
+		}
+		return executeAttempts(request, configOverride, (server, attempt) -> attempt.call(abort -> {}));
+	}
+
+	private RibbonApacheHttpResponse executeAttempts(final RibbonApacheHttpRequest request, final IClientConfig configOverride,
+			final HedgedAttempts<RibbonApacheHttpResponse> attempts) throws Exception {
 		final RequestConfig.Builder builder = RequestConfig.custom();
 		IClientConfig config = configOverride != null ? configOverride : this.config;
 		RibbonProperties ribbon = RibbonProperties.from(config);
@@ -86,35 +103,43 @@ public class RetryableRibbonLoadBalancingHttpClient extends RibbonLoadBalancingH
 			//extract the server and update the request being made
 			RibbonApacheHttpRequest newRequest = request;
 			RibbonStatsRecorder statsRecorder = null;
+			Server server = null;
 			if (context instanceof LoadBalancedRetryContext) {
 				ServiceInstance service = ((LoadBalancedRetryContext) context).getServiceInstance();
 				validateServiceInstance(service);
 				if (service != null) {
 					//Reconstruct the request URI using the host and port set in the retry context
-					newRequest = newRequest.withNewUri(UriComponentsBuilder.newInstance().host(service.getHost())
-							.scheme(service.getUri().getScheme()).userInfo(newRequest.getURI().getUserInfo())
-							.port(service.getPort()).path(newRequest.getURI().getPath())
-							.query(newRequest.getURI().getQuery()).fragment(newRequest.getURI().getFragment())
-							.build().encode().toUri());
-					
+					//unless the chosen server is the one the request already targets
+					if (!isSameServer(newRequest.getURI(), service)) {
+						newRequest = newRequest.withNewUri(UriComponentsBuilder.newInstance().host(service.getHost())
+								.scheme(service.getUri().getScheme()).userInfo(newRequest.getURI().getUserInfo())
+								.port(service.getPort()).path(newRequest.getURI().getPath())
+								.query(newRequest.getURI().getQuery()).fragment(newRequest.getURI().getFragment())
+								.build().encode().toUri());
+					}
+
 					if (ribbonLoadBalancerContext == null) {
 						LOGGER.error("RibbonLoadBalancerContext is null. Unable to update load balancer stats");
 					} else if (service instanceof RibbonServer) {
-						statsRecorder = new RibbonStatsRecorder(ribbonLoadBalancerContext, ((RibbonServer)service).getServer());
+						server = ((RibbonServer)service).getServer();
+						statsRecorder = new RibbonStatsRecorder(ribbonLoadBalancerContext, server);
 					}
 				}
 			}
-			newRequest = getSecureRequest(newRequest, configOverride);
-			HttpUriRequest httpUriRequest = newRequest.toRequest(requestConfig);
-			final HttpResponse httpResponse = RetryableRibbonLoadBalancingHttpClient.this.delegate.execute(httpUriRequest);
-			if (retryPolicy.retryableStatusCode(httpResponse.getStatusLine().getStatusCode())) {
-				throw new HttpClientStatusCodeException(RetryableRibbonLoadBalancingHttpClient.this.clientName,
-						httpResponse, HttpClientUtils.createEntity(httpResponse), httpUriRequest.getURI());
-			}
-			if (statsRecorder != null) {
-				statsRecorder.recordStats(httpResponse);
-			}
-			return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
+			final HttpUriRequest httpUriRequest = getSecureRequest(newRequest, configOverride).toRequest(requestConfig);
+			final RibbonStatsRecorder attemptStatsRecorder = statsRecorder;
+			return attempts.attempt(server, onAbort -> {
+				onAbort.accept(httpUriRequest::abort);
+				final HttpResponse httpResponse = RetryableRibbonLoadBalancingHttpClient.this.delegate.execute(httpUriRequest);
+				if (retryPolicy.retryableStatusCode(httpResponse.getStatusLine().getStatusCode())) {
+					throw new HttpClientStatusCodeException(RetryableRibbonLoadBalancingHttpClient.this.clientName,
+							httpResponse, HttpClientUtils.createEntity(httpResponse), httpUriRequest.getURI());
+				}
+				if (attemptStatsRecorder != null) {
+					attemptStatsRecorder.recordStats(httpResponse);
+				}
+				return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
+			});
 		};
 		LoadBalancedRecoveryCallback<RibbonApacheHttpResponse, HttpResponse> recoveryCallback = new LoadBalancedRecoveryCallback<RibbonApacheHttpResponse, HttpResponse>() {
 			@Override
@@ -140,33 +165,84 @@ public class RetryableRibbonLoadBalancingHttpClient extends RibbonLoadBalancingH
 	private RibbonApacheHttpResponse executeWithRetry(RibbonApacheHttpRequest request, LoadBalancedRetryPolicy retryPolicy,
 													  RetryCallback<RibbonApacheHttpResponse, Exception> callback,
 													  RecoveryCallback<RibbonApacheHttpResponse> recoveryCallback) throws Exception {
-		RetryTemplate retryTemplate = new RetryTemplate();
 		boolean retryable = isRequestRetryable(request);
-		retryTemplate.setRetryPolicy(retryPolicy == null || !retryable ? new NeverRetryPolicy()
-				: new RetryPolicy(request, retryPolicy, this, this.getClientName()));
-		BackOffPolicy backOffPolicy = loadBalancedRetryFactory.createBackOffPolicy(this.getClientName());
-		retryTemplate.setBackOffPolicy(backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy);
-		RetryListener[] retryListeners = this.loadBalancedRetryFactory.createRetryListeners(this.getClientName());
-		if (retryListeners != null && retryListeners.length != 0) {
-			retryTemplate.setListeners(retryListeners);
+		RetryTemplate retryTemplate;
+		if (retryPolicy == null || !retryable) {
+			retryTemplate = getNoRetryTemplate();
+		}
+		else {
+			if (this.retryBudget != null) {
+				this.retryBudget.recordRequest();
+			}
+			retryTemplate = createRetryTemplate(
+					new RetryPolicy(request, retryPolicy, this, this.getClientName(), this.retryBudget));
 		}
 		return retryTemplate.execute(callback, recoveryCallback);
 	}
 
+	private RetryTemplate getNoRetryTemplate() {
+		// NeverRetryPolicy keeps its state in the retry context so the template can be shared
+		if (this.noRetryTemplate == null) {
+			this.noRetryTemplate = createRetryTemplate(new NeverRetryPolicy());
+		}
+		return this.noRetryTemplate;
+	}
+
+	private RetryTemplate createRetryTemplate(org.springframework.retry.RetryPolicy retryPolicy) {
+		if (this.backOffPolicy == null) {
+			BackOffPolicy backOffPolicy = this.loadBalancedRetryFactory.createBackOffPolicy(this.getClientName());
+			this.backOffPolicy = backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy;
+		}
+		if (this.retryListeners == null) {
+			RetryListener[] retryListeners = this.loadBalancedRetryFactory.createRetryListeners(this.getClientName());
+			this.retryListeners = retryListeners == null ? new RetryListener[0] : retryListeners;
+		}
+		RetryTemplate retryTemplate = new RetryTemplate();
+		retryTemplate.setRetryPolicy(retryPolicy);
+		retryTemplate.setBackOffPolicy(this.backOffPolicy);
+		if (this.retryListeners.length != 0) {
+			retryTemplate.setListeners(this.retryListeners);
+		}
+		return retryTemplate;
+	}
+
 	@Override
 	public RequestSpecificRetryHandler getRequestSpecificRetryHandler(RibbonApacheHttpRequest request, IClientConfig requestConfig) {
 		return new RequestSpecificRetryHandler(false, false, RetryHandler.DEFAULT, null);
 	}
 
 	static class RetryPolicy extends InterceptorRetryPolicy {
+		private final RibbonRetryBudget retryBudget;
+
 		public RetryPolicy(HttpRequest request, LoadBalancedRetryPolicy policy,
 				ServiceInstanceChooser serviceInstanceChooser, String serviceName) {
+			this(request, policy, serviceInstanceChooser, serviceName, null);
+		}
+
+		public RetryPolicy(HttpRequest request, LoadBalancedRetryPolicy policy,
+				ServiceInstanceChooser serviceInstanceChooser, String serviceName,
+				RibbonRetryBudget retryBudget) {
 			super(request, policy, serviceInstanceChooser, serviceName);
+			this.retryBudget = retryBudget;
+		}
+
+		@Override
+		public void registerThrowable(RetryContext context, Throwable throwable) {
+			super.registerThrowable(context, throwable);
+			//only withdraw from the budget when the policy would actually retry
+			if (this.retryBudget != null && !context.isExhaustedOnly() && super.canRetry(context)
+					&& !this.retryBudget.tryAcquireRetry()) {
+				context.setExhaustedOnly();
+			}
 		}
 	}
 
 	public void setRibbonLoadBalancerContext(RibbonLoadBalancerContext ribbonLoadBalancerContext) {
 		this.ribbonLoadBalancerContext = ribbonLoadBalancerContext;
 	}
-	
+
+	public void setRetryBudget(RibbonRetryBudget retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
 }
@@ -17,6 +17,7 @@
 package org.springframework.cloud.netflix.ribbon.apache;
 
 import java.net.URI;
+import java.util.function.Consumer;
 
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
@@ -68,6 +69,17 @@ public class RibbonLoadBalancingHttpClient extends
 	@Override
 	public RibbonApacheHttpResponse execute(RibbonApacheHttpRequest request,
 											final IClientConfig configOverride) throws Exception {
+		return executeRequest(request, configOverride, null);
+	}
+
+	@Override
+	protected RibbonApacheHttpResponse executeAttempt(RibbonApacheHttpRequest request,
+			IClientConfig configOverride, Consumer<Runnable> onAbort) throws Exception {
+		return executeRequest(request, configOverride, onAbort);
+	}
+
+	private RibbonApacheHttpResponse executeRequest(RibbonApacheHttpRequest request,
+			final IClientConfig configOverride, Consumer<Runnable> onAbort) throws Exception {
 		IClientConfig config = configOverride != null ? configOverride : this.config;
 		RibbonProperties ribbon = RibbonProperties.from(config);
 		RequestConfig requestConfig = RequestConfig.custom()
@@ -79,6 +91,9 @@ public class RibbonLoadBalancingHttpClient extends
 
 		request = getSecureRequest(request, configOverride);
 		final HttpUriRequest httpUriRequest = request.toRequest(requestConfig);
+		if (onAbort != null) {
+			onAbort.accept(httpUriRequest::abort);
+		}
 		final HttpResponse httpResponse = this.delegate.execute(httpUriRequest);
 		return new RibbonApacheHttpResponse(httpResponse, httpUriRequest.getURI());
 	}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.apache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties of the Apache HTTP connection pool shared by all Ribbon
+ * clients when {@code ribbon.httpclient.shared-pool.enabled} is true.
+ */
+@ConfigurationProperties(prefix = "ribbon.httpclient.shared-pool")
+public class SharedConnectionPoolProperties {
+
+	/**
+	 * Share one connection pool between all the Ribbon Apache HTTP clients.
+	 */
+	private boolean enabled = false;
+
+	/**
+	 * Maximum number of connections of the shared pool.
+	 */
+	private int maxTotalConnections = 1000;
+
+	/**
+	 * Maximum number of connections to a single host:port, whichever client uses it.
+	 */
+	private int maxConnectionsPerHost = 50;
+
+	/**
+	 * Time to live of pooled connections in seconds.
+	 */
+	private long timeToLive = 900;
+
+	/**
+	 * Interval in milliseconds at which expired connections are evicted.
+	 */
+	private int connectionCleanerRepeatInterval = 30000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getMaxTotalConnections() {
+		return maxTotalConnections;
+	}
+
+	public void setMaxTotalConnections(int maxTotalConnections) {
+		this.maxTotalConnections = maxTotalConnections;
+	}
+
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	public int getConnectionCleanerRepeatInterval() {
+		return connectionCleanerRepeatInterval;
+	}
+
+	public void setConnectionCleanerRepeatInterval(int connectionCleanerRepeatInterval) {
+		this.connectionCleanerRepeatInterval = connectionCleanerRepeatInterval;
+	}
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.apache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+import com.netflix.servo.monitor.BasicGauge;
+import com.netflix.servo.monitor.MonitorConfig;
+import com.netflix.servo.monitor.Monitors;
+
+/**
+ * One Apache HTTP connection pool shared by all the Ribbon clients, so that clients
+ * calling the same host:port reuse the same connections and a single thread evicts
+ * expired connections. Each client gets a view of the pool that limits the number of
+ * connections it may lease at once to its own {@code MaxTotalConnections}.
+ *
+ * Pool metrics are published through Servo per client, as the
+ * {@code SharedConnectionPool_<client>} monitor, and per host, as gauges tagged with
+ * the host:port.
+ */
+public class SharedHttpClientConnectionManager implements DisposableBean {
+
+	private final HttpClientConnectionManager pool;
+
+	private final ScheduledExecutorService connectionCleaner;
+
+	private final ConcurrentMap<String, ClientConnectionManager> clients = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, HttpRoute> hosts = new ConcurrentHashMap<>();
+
+	private final List<com.netflix.servo.monitor.Monitor<?>> hostMonitors = Collections
+			.synchronizedList(new ArrayList<>());
+
+	public SharedHttpClientConnectionManager(HttpClientConnectionManager pool,
+			int connectionCleanerRepeatInterval) {
+		this.pool = pool;
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"RibbonSharedConnectionPool.connectionCleaner-");
+		threadFactory.setDaemon(true);
+		this.connectionCleaner = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.connectionCleaner.scheduleWithFixedDelay(pool::closeExpiredConnections,
+				connectionCleanerRepeatInterval, connectionCleanerRepeatInterval,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param clientName the name of the Ribbon client
+	 * @param maxConnections the number of connections the client may lease at once
+	 * @return the view of the shared pool used by the client
+	 */
+	public HttpClientConnectionManager getConnectionManager(String clientName,
+			int maxConnections) {
+		return this.clients.computeIfAbsent(clientName, name -> {
+			ClientConnectionManager manager = new ClientConnectionManager(name,
+					maxConnections);
+			Monitors.registerObject("SharedConnectionPool_" + name, manager);
+			return manager;
+		});
+	}
+
+	/**
+	 * @return the pool statistics of every host:port connected to so far
+	 */
+	public Map<String, PoolStats> getHostStats() {
+		Map<String, PoolStats> stats = new LinkedHashMap<>();
+		for (Map.Entry<String, HttpRoute> host : this.hosts.entrySet()) {
+			PoolStats hostStats = getStats(host.getValue());
+			if (hostStats != null) {
+				stats.put(host.getKey(), hostStats);
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * @return the number of connections leased by every client
+	 */
+	public Map<String, Integer> getClientLeasedConnections() {
+		Map<String, Integer> leased = new LinkedHashMap<>();
+		for (ClientConnectionManager client : this.clients.values()) {
+			leased.put(client.clientName, client.getLeasedConnections());
+		}
+		return leased;
+	}
+
+	HttpClientConnectionManager getPool() {
+		return this.pool;
+	}
+
+	@SuppressWarnings("unchecked")
+	private PoolStats getStats(HttpRoute route) {
+		if (this.pool instanceof ConnPoolControl) {
+			return ((ConnPoolControl<HttpRoute>) this.pool).getStats(route);
+		}
+		return null;
+	}
+
+	private void registerHost(HttpRoute route) {
+		String host = route.getTargetHost().toHostString();
+		if (this.hosts.putIfAbsent(host, route) == null
+				&& this.pool instanceof ConnPoolControl) {
+			registerHostGauge("ribbon.sharedConnectionPool.leased", host,
+					() -> getStats(route).getLeased());
+			registerHostGauge("ribbon.sharedConnectionPool.available", host,
+					() -> getStats(route).getAvailable());
+			registerHostGauge("ribbon.sharedConnectionPool.pending", host,
+					() -> getStats(route).getPending());
+		}
+	}
+
+	private void registerHostGauge(String name, String host,
+			Callable<Integer> value) {
+		BasicGauge<Integer> gauge = new BasicGauge<>(
+				MonitorConfig.builder(name).withTag("host", host).build(), value);
+		DefaultMonitorRegistry.getInstance().register(gauge);
+		this.hostMonitors.add(gauge);
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		this.connectionCleaner.shutdownNow();
+		for (ClientConnectionManager client : this.clients.values()) {
+			Monitors.unregisterObject("SharedConnectionPool_" + client.clientName, client);
+		}
+		synchronized (this.hostMonitors) {
+			for (com.netflix.servo.monitor.Monitor<?> monitor : this.hostMonitors) {
+				DefaultMonitorRegistry.getInstance().unregister(monitor);
+			}
+		}
+		this.pool.shutdown();
+	}
+
+	/**
+	 * The view of the shared pool used by a single client.
+	 */
+	public class ClientConnectionManager implements HttpClientConnectionManager {
+
+		private final String clientName;
+
+		private final int maxConnections;
+
+		private final Semaphore permits;
+
+		ClientConnectionManager(String clientName, int maxConnections) {
+			this.clientName = clientName;
+			this.maxConnections = maxConnections;
+			this.permits = new Semaphore(maxConnections, true);
+		}
+
+		@Monitor(name = "MaxConnections", type = DataSourceType.GAUGE)
+		public int getMaxConnections() {
+			return this.maxConnections;
+		}
+
+		@Monitor(name = "LeasedConnections", type = DataSourceType.GAUGE)
+		public int getLeasedConnections() {
+			return this.maxConnections - this.permits.availablePermits();
+		}
+
+		@Monitor(name = "PendingConnections", type = DataSourceType.GAUGE)
+		public int getPendingConnections() {
+			return this.permits.getQueueLength();
+		}
+
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+			registerHost(route);
+			final ConnectionRequest request = pool.requestConnection(route, state);
+			return new ConnectionRequest() {
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit unit)
+						throws InterruptedException, ExecutionException,
+						ConnectionPoolTimeoutException {
+					long start = System.nanoTime();
+					if (timeout > 0) {
+						if (!permits.tryAcquire(timeout, unit)) {
+							throw new ConnectionPoolTimeoutException(
+									"Timeout waiting for connection of client " + clientName);
+						}
+					}
+					else {
+						permits.acquire();
+					}
+					try {
+						if (timeout > 0) {
+							long remaining = unit.toNanos(timeout) - (System.nanoTime() - start);
+							return request.get(Math.max(remaining, 1), TimeUnit.NANOSECONDS);
+						}
+						return request.get(timeout, unit);
+					}
+					catch (InterruptedException | ExecutionException
+							| ConnectionPoolTimeoutException | RuntimeException e) {
+						permits.release();
+						throw e;
+					}
+				}
+
+				@Override
+				public boolean cancel() {
+					return request.cancel();
+				}
+			};
+		}
+
+		@Override
+		public void releaseConnection(HttpClientConnection conn, Object newState,
+				long validDuration, TimeUnit timeUnit) {
+			try {
+				pool.releaseConnection(conn, newState, validDuration, timeUnit);
+			}
+			finally {
+				this.permits.release();
+			}
+		}
+
+		@Override
+		public void connect(HttpClientConnection conn, HttpRoute route,
+				int connectTimeout, HttpContext context) throws IOException {
+			pool.connect(conn, route, connectTimeout, context);
+		}
+
+		@Override
+		public void upgrade(HttpClientConnection conn, HttpRoute route,
+				HttpContext context) throws IOException {
+			pool.upgrade(conn, route, context);
+		}
+
+		@Override
+		public void routeComplete(HttpClientConnection conn, HttpRoute route,
+				HttpContext context) throws IOException {
+			pool.routeComplete(conn, route, context);
+		}
+
+		@Override
+		public void closeIdleConnections(long idletime, TimeUnit tunit) {
+			pool.closeIdleConnections(idletime, tunit);
+		}
+
+		@Override
+		public void closeExpiredConnections() {
+			pool.closeExpiredConnections();
+		}
+
+		@Override
+		public void shutdown() {
+			// the shared pool outlives the clients using it
+		}
+	}
+}
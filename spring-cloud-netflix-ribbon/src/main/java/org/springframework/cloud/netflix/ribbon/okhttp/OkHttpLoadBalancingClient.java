@@ -18,6 +18,7 @@ package org.springframework.cloud.netflix.ribbon.okhttp;
 
 import java.net.URI;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.springframework.cloud.netflix.ribbon.RibbonProperties;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
@@ -29,6 +30,7 @@ import com.netflix.loadbalancer.Server;
 
 import static org.springframework.cloud.netflix.ribbon.RibbonUtils.updateToSecureConnectionIfNeeded;
 
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
@@ -59,6 +61,17 @@ public class OkHttpLoadBalancingClient
 	@Override
 	public OkHttpRibbonResponse execute(OkHttpRibbonRequest ribbonRequest,
 										final IClientConfig configOverride) throws Exception {
+		return executeRequest(ribbonRequest, configOverride, null);
+	}
+
+	@Override
+	protected OkHttpRibbonResponse executeAttempt(OkHttpRibbonRequest ribbonRequest,
+			IClientConfig configOverride, Consumer<Runnable> onAbort) throws Exception {
+		return executeRequest(ribbonRequest, configOverride, onAbort);
+	}
+
+	private OkHttpRibbonResponse executeRequest(OkHttpRibbonRequest ribbonRequest,
+			final IClientConfig configOverride, Consumer<Runnable> onAbort) throws Exception {
 		boolean secure = isSecure(configOverride);
 		if (secure) {
 			final URI secureUri = UriComponentsBuilder.fromUri(ribbonRequest.getUri())
@@ -68,7 +81,11 @@ public class OkHttpLoadBalancingClient
 
 		OkHttpClient httpClient = getOkHttpClient(configOverride, secure);
 		final Request request = ribbonRequest.toRequest();
-		Response response = httpClient.newCall(request).execute();
+		Call call = httpClient.newCall(request);
+		if (onAbort != null) {
+			onAbort.accept(call::cancel);
+		}
+		Response response = call.execute();
 		return new OkHttpRibbonResponse(response, ribbonRequest.getUri());
 	}
 
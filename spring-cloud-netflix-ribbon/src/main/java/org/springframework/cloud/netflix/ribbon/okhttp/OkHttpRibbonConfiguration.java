@@ -31,6 +31,7 @@ import org.springframework.cloud.commons.httpclient.OkHttpClientFactory;
 import org.springframework.cloud.netflix.ribbon.RibbonClientName;
 import org.springframework.cloud.netflix.ribbon.RibbonProperties;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -101,12 +102,14 @@ public class OkHttpRibbonConfiguration {
 		ILoadBalancer loadBalancer,
 		RetryHandler retryHandler,
 		LoadBalancedRetryFactory loadBalancedRetryFactory,
-		OkHttpClient delegate, RibbonLoadBalancerContext ribbonLoadBalancerContext) {
+		OkHttpClient delegate, RibbonLoadBalancerContext ribbonLoadBalancerContext,
+		RibbonRetryBudget retryBudget) {
 		RetryableOkHttpLoadBalancingClient client = new RetryableOkHttpLoadBalancingClient(delegate, config,
 				serverIntrospector, loadBalancedRetryFactory);
 		client.setLoadBalancer(loadBalancer);
 		client.setRetryHandler(retryHandler);
 		client.setRibbonLoadBalancerContext(ribbonLoadBalancerContext);
+		client.setRetryBudget(retryBudget);
 		Monitors.registerObject("Client_" + this.name, client);
 		return client;
 	}
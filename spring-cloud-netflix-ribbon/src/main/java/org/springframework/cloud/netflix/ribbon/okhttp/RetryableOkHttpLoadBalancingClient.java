@@ -15,8 +15,8 @@
  */
 package org.springframework.cloud.netflix.ribbon.okhttp;
 
+import okhttp3.Call;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
@@ -31,6 +31,7 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryFactory;
 import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryPolicy;
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
 import org.springframework.cloud.netflix.ribbon.RibbonStatsRecorder;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient.RibbonServer;
@@ -49,6 +50,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import com.netflix.client.RequestSpecificRetryHandler;
 import com.netflix.client.RetryHandler;
 import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.Server;
 
 /**
  * An OK HTTP client which leverages Spring Retry to retry failed request.
@@ -60,6 +62,10 @@ public class RetryableOkHttpLoadBalancingClient extends OkHttpLoadBalancingClien
 
 	private LoadBalancedRetryFactory loadBalancedRetryFactory;
 	private RibbonLoadBalancerContext ribbonLoadBalancerContext;
+	private RibbonRetryBudget retryBudget;
+	private volatile RetryTemplate noRetryTemplate;
+	private volatile BackOffPolicy backOffPolicy;
+	private volatile RetryListener[] retryListeners;
 
 	public RetryableOkHttpLoadBalancingClient(OkHttpClient delegate, IClientConfig config, ServerIntrospector serverIntrospector,
 											  LoadBalancedRetryFactory loadBalancedRetryPolicyFactory) {
@@ -82,22 +88,60 @@ public class RetryableOkHttpLoadBalancingClient extends OkHttpLoadBalancingClien
 	private OkHttpRibbonResponse executeWithRetry(OkHttpRibbonRequest request, LoadBalancedRetryPolicy retryPolicy,
 												  RetryCallback<OkHttpRibbonResponse, Exception> callback,
 												  RecoveryCallback<OkHttpRibbonResponse> recoveryCallback) throws Exception {
-		RetryTemplate retryTemplate = new RetryTemplate();
-		BackOffPolicy backOffPolicy = loadBalancedRetryFactory.createBackOffPolicy(this.getClientName());
-		retryTemplate.setBackOffPolicy(backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy);
-		RetryListener[] retryListeners = this.loadBalancedRetryFactory.createRetryListeners(this.getClientName());
-		if (retryListeners != null && retryListeners.length != 0) {
-			retryTemplate.setListeners(retryListeners);
-		}
 		boolean retryable = isRequestRetryable(request);
-		retryTemplate.setRetryPolicy(retryPolicy == null || !retryable ? new NeverRetryPolicy()
-				: new RetryPolicy(request, retryPolicy, this, this.getClientName()));
+		RetryTemplate retryTemplate;
+		if (retryPolicy == null || !retryable) {
+			retryTemplate = getNoRetryTemplate();
+		}
+		else {
+			if (this.retryBudget != null) {
+				this.retryBudget.recordRequest();
+			}
+			retryTemplate = createRetryTemplate(
+					new RetryPolicy(request, retryPolicy, this, this.getClientName(), this.retryBudget));
+		}
 		return retryTemplate.execute(callback, recoveryCallback);
 	}
 
+	private RetryTemplate getNoRetryTemplate() {
+		// NeverRetryPolicy keeps its state in the retry context so the template can be shared
+		if (this.noRetryTemplate == null) {
+			this.noRetryTemplate = createRetryTemplate(new NeverRetryPolicy());
+		}
+		return this.noRetryTemplate;
+	}
+
+	private RetryTemplate createRetryTemplate(org.springframework.retry.RetryPolicy retryPolicy) {
+		if (this.backOffPolicy == null) {
+			BackOffPolicy backOffPolicy = this.loadBalancedRetryFactory.createBackOffPolicy(this.getClientName());
+			this.backOffPolicy = backOffPolicy == null ? new NoBackOffPolicy() : backOffPolicy;
+		}
+		if (this.retryListeners == null) {
+			RetryListener[] retryListeners = this.loadBalancedRetryFactory.createRetryListeners(this.getClientName());
+			this.retryListeners = retryListeners == null ? new RetryListener[0] : retryListeners;
+		}
+		RetryTemplate retryTemplate = new RetryTemplate();
+		retryTemplate.setRetryPolicy(retryPolicy);
+		retryTemplate.setBackOffPolicy(this.backOffPolicy);
+		if (this.retryListeners.length != 0) {
+			retryTemplate.setListeners(this.retryListeners);
+		}
+		return retryTemplate;
+	}
+
 	@Override
 	public OkHttpRibbonResponse execute(final OkHttpRibbonRequest ribbonRequest,
 										final IClientConfig configOverride) throws Exception {
+		if (isHedgeable(ribbonRequest)) {
+			//the retries run on the calling thread, and stop once the hedge wins
+			return executeWithHedging(ribbonRequest, configOverride,
+					attempts -> executeAttempts(ribbonRequest, configOverride, attempts));
+		}
+		return executeAttempts(ribbonRequest, configOverride, (server, attempt) -> attempt.call(abort -> {}));
+	}
+
+	private OkHttpRibbonResponse executeAttempts(final OkHttpRibbonRequest ribbonRequest,
+			final IClientConfig configOverride, final HedgedAttempts<OkHttpRibbonResponse> attempts) throws Exception {
 		final LoadBalancedRetryPolicy retryPolicy = loadBalancedRetryFactory.createRetryPolicy(this.getClientName(), this);
 		RetryCallback<OkHttpRibbonResponse, Exception> retryCallback  = new RetryCallback<OkHttpRibbonResponse, Exception>() {
 			@Override
@@ -106,20 +150,25 @@ public class RetryableOkHttpLoadBalancingClient extends OkHttpLoadBalancingClien
 				//extract the server and update the request being made
 				OkHttpRibbonRequest newRequest = ribbonRequest;
 				RibbonStatsRecorder statsRecorder = null;
+				Server server = null;
 				
 				if(context instanceof LoadBalancedRetryContext) {
 					ServiceInstance service = ((LoadBalancedRetryContext)context).getServiceInstance();
 					validateServiceInstance(service);
 					//Reconstruct the request URI using the host and port set in the retry context
-					newRequest = newRequest.withNewUri(new URI(service.getUri().getScheme(),
-							newRequest.getURI().getUserInfo(), service.getHost(), service.getPort(),
-							newRequest.getURI().getPath(), newRequest.getURI().getQuery(),
-							newRequest.getURI().getFragment()));
+					//unless the chosen server is the one the request already targets
+					if (!isSameServer(newRequest.getURI(), service)) {
+						newRequest = newRequest.withNewUri(new URI(service.getUri().getScheme(),
+								newRequest.getURI().getUserInfo(), service.getHost(), service.getPort(),
+								newRequest.getURI().getPath(), newRequest.getURI().getQuery(),
+								newRequest.getURI().getFragment()));
+					}
 					
 					if (ribbonLoadBalancerContext == null) {
 						LOGGER.error("RibbonLoadBalancerContext is null. Unable to update load balancer stats");
 					} else if (service instanceof RibbonServer) {
-						statsRecorder = new RibbonStatsRecorder(ribbonLoadBalancerContext, ((RibbonServer)service).getServer());
+						server = ((RibbonServer)service).getServer();
+						statsRecorder = new RibbonStatsRecorder(ribbonLoadBalancerContext, server);
 					}
 				}
 				if (isSecure(configOverride)) {
@@ -129,18 +178,23 @@ public class RetryableOkHttpLoadBalancingClient extends OkHttpLoadBalancingClien
 				}
 				OkHttpClient httpClient = getOkHttpClient(configOverride, secure);
 
-				final Request request = newRequest.toRequest();
-				Response response = httpClient.newCall(request).execute();
-				if(retryPolicy.retryableStatusCode(response.code())) {
-					ResponseBody responseBody = response.peekBody(Integer.MAX_VALUE);
-					response.close();
-					throw new OkHttpStatusCodeException(RetryableOkHttpLoadBalancingClient.this.clientName,
-							response, responseBody, newRequest.getURI());
-				}
-				if (statsRecorder != null) {
-					statsRecorder.recordStats(response);
-				}
-				return new OkHttpRibbonResponse(response, newRequest.getUri());
+				final OkHttpRibbonRequest attemptRequest = newRequest;
+				final RibbonStatsRecorder attemptStatsRecorder = statsRecorder;
+				return attempts.attempt(server, onAbort -> {
+					Call call = httpClient.newCall(attemptRequest.toRequest());
+					onAbort.accept(call::cancel);
+					Response response = call.execute();
+					if(retryPolicy.retryableStatusCode(response.code())) {
+						ResponseBody responseBody = response.peekBody(Integer.MAX_VALUE);
+						response.close();
+						throw new OkHttpStatusCodeException(RetryableOkHttpLoadBalancingClient.this.clientName,
+								response, responseBody, attemptRequest.getURI());
+					}
+					if (attemptStatsRecorder != null) {
+						attemptStatsRecorder.recordStats(response);
+					}
+					return new OkHttpRibbonResponse(response, attemptRequest.getUri());
+				});
 			}
 		};
 		return this.executeWithRetry(ribbonRequest, retryPolicy, retryCallback, new LoadBalancedRecoveryCallback<OkHttpRibbonResponse, Response>(){
@@ -161,9 +215,31 @@ public class RetryableOkHttpLoadBalancingClient extends OkHttpLoadBalancingClien
 		this.ribbonLoadBalancerContext = ribbonLoadBalancerContext;
 	}
 
+	public void setRetryBudget(RibbonRetryBudget retryBudget) {
+		this.retryBudget = retryBudget;
+	}
+
 	static class RetryPolicy extends InterceptorRetryPolicy {
+		private final RibbonRetryBudget retryBudget;
+
 		public RetryPolicy(HttpRequest request, LoadBalancedRetryPolicy policy, ServiceInstanceChooser serviceInstanceChooser, String serviceName) {
+			this(request, policy, serviceInstanceChooser, serviceName, null);
+		}
+
+		public RetryPolicy(HttpRequest request, LoadBalancedRetryPolicy policy, ServiceInstanceChooser serviceInstanceChooser, String serviceName,
+				RibbonRetryBudget retryBudget) {
 			super(request, policy, serviceInstanceChooser, serviceName);
+			this.retryBudget = retryBudget;
+		}
+
+		@Override
+		public void registerThrowable(RetryContext context, Throwable throwable) {
+			super.registerThrowable(context, throwable);
+			//only withdraw from the budget when the policy would actually retry
+			if (this.retryBudget != null && !context.isExhaustedOnly() && super.canRetry(context)
+					&& !this.retryBudget.tryAcquireRetry()) {
+				context.setExhaustedOnly();
+			}
 		}
 	}
 }
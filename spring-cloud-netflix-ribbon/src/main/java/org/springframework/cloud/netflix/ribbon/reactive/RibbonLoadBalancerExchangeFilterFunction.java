@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.reactive;
+
+import java.net.URI;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryFactory;
+import org.springframework.cloud.client.loadbalancer.LoadBalancedRetryPolicy;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.cloud.client.loadbalancer.RetryableStatusCodeException;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient.RibbonServer;
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
+import org.springframework.cloud.netflix.ribbon.RibbonStatsRecorder;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.netflix.loadbalancer.Server;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ExchangeFilterFunction} that load balances the requests of a
+ * {@link org.springframework.web.reactive.function.client.WebClient} between the
+ * servers of the Ribbon client named after the host of the request URI, without
+ * blocking the calling thread.
+ *
+ * Server statistics are recorded with a {@link RibbonStatsRecorder}. When a
+ * {@link LoadBalancedRetryFactory} is given, failed requests and responses with a
+ * retryable status code are retried following the same rules as the blocking Ribbon
+ * clients: the retry is resubscribed instead of waiting on the calling thread.
+ */
+public class RibbonLoadBalancerExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Log log = LogFactory.getLog(RibbonLoadBalancerExchangeFilterFunction.class);
+
+	private final LoadBalancerClient loadBalancerClient;
+
+	private final SpringClientFactory clientFactory;
+
+	private final LoadBalancedRetryFactory retryFactory;
+
+	public RibbonLoadBalancerExchangeFilterFunction(LoadBalancerClient loadBalancerClient,
+			SpringClientFactory clientFactory) {
+		this(loadBalancerClient, clientFactory, null);
+	}
+
+	public RibbonLoadBalancerExchangeFilterFunction(LoadBalancerClient loadBalancerClient,
+			SpringClientFactory clientFactory, LoadBalancedRetryFactory retryFactory) {
+		this.loadBalancerClient = loadBalancerClient;
+		this.clientFactory = clientFactory;
+		this.retryFactory = retryFactory;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		URI originalUrl = request.url();
+		String serviceId = originalUrl.getHost();
+		if (serviceId == null) {
+			return Mono.error(new IllegalArgumentException(
+					"Invalid hostname in the URI [" + originalUrl.toASCIIString() + "]"));
+		}
+		return Mono.defer(() -> {
+			LoadBalancedExchange exchange = new LoadBalancedExchange(request, next, serviceId);
+			return exchange.exchange().doFinally(signal -> exchange.close());
+		});
+	}
+
+	/**
+	 * The state of a single load balanced request, across its retries.
+	 */
+	private class LoadBalancedExchange {
+
+		private final ClientRequest request;
+
+		private final ExchangeFunction next;
+
+		private final String serviceId;
+
+		private final ServiceInstance serviceInstance;
+
+		private LoadBalancedRetryPolicy retryPolicy;
+
+		private LoadBalancedRetryContext retryContext;
+
+		private RibbonRetryBudget retryBudget;
+
+		LoadBalancedExchange(ClientRequest request, ExchangeFunction next, String serviceId) {
+			this.request = request;
+			this.next = next;
+			this.serviceId = serviceId;
+			this.serviceInstance = loadBalancerClient.choose(serviceId);
+			if (retryFactory != null) {
+				this.retryPolicy = retryFactory.createRetryPolicy(serviceId, loadBalancerClient);
+			}
+			if (this.retryPolicy != null) {
+				this.retryContext = new LoadBalancedRetryContext(null, new ClientRequestAdapter(request));
+				this.retryContext.setServiceInstance(this.serviceInstance);
+				this.retryBudget = clientFactory.getInstance(serviceId, RibbonRetryBudget.class);
+				if (this.retryBudget != null) {
+					this.retryBudget.recordRequest();
+				}
+			}
+		}
+
+		Mono<ClientResponse> exchange() {
+			ServiceInstance instance = this.retryContext != null
+					? this.retryContext.getServiceInstance() : this.serviceInstance;
+			if (instance == null) {
+				return Mono.error(new IllegalStateException("No instances available for " + this.serviceId));
+			}
+			URI uri = loadBalancerClient.reconstructURI(instance, this.request.url());
+			ClientRequest newRequest = ClientRequest.from(this.request).url(uri).build();
+			RibbonStatsRecorder statsRecorder = new RibbonStatsRecorder(
+					clientFactory.getLoadBalancerContext(this.serviceId), getServer(instance));
+			Mono<ClientResponse> response = this.next.exchange(newRequest)
+					.doOnSuccess(clientResponse -> statsRecorder.recordStats(clientResponse))
+					.doOnError(ex -> statsRecorder.recordStats(ex))
+					.doOnCancel(statsRecorder::recordCancellation);
+			if (this.retryPolicy == null) {
+				return response;
+			}
+			return response.flatMap(this::checkStatusCode).onErrorResume(this::retry);
+		}
+
+		private Mono<ClientResponse> checkStatusCode(ClientResponse response) {
+			int statusCode = response.rawStatusCode();
+			if (this.retryPolicy.retryableStatusCode(statusCode)) {
+				return Mono.error(new RetryableStatusCodeException(this.serviceId,
+						statusCode, response, this.request.url()));
+			}
+			return Mono.just(response);
+		}
+
+		private Mono<ClientResponse> retry(Throwable throwable) {
+			// same sequence as the RetryTemplate used by the blocking clients
+			this.retryContext.registerThrowable(throwable);
+			this.retryPolicy.registerThrowable(this.retryContext, throwable);
+			boolean canRetry = !this.retryContext.isExhaustedOnly()
+					&& this.retryPolicy.canRetryNextServer(this.retryContext)
+					&& (this.retryBudget == null || this.retryBudget.tryAcquireRetry());
+			ClientResponse response = null;
+			if (throwable instanceof RetryableStatusCodeException) {
+				response = (ClientResponse) ((RetryableStatusCodeException) throwable).getResponse();
+			}
+			if (!canRetry) {
+				// when retries are exhausted the last response is returned as is
+				return response != null ? Mono.just(response) : Mono.error(throwable);
+			}
+			if (log.isDebugEnabled()) {
+				log.debug("Retrying request to " + this.serviceId + " after: " + throwable);
+			}
+			Mono<ClientResponse> retry = Mono.defer(this::exchange);
+			return response != null ? response.bodyToMono(Void.class).then(retry) : retry;
+		}
+
+		void close() {
+			if (this.retryPolicy != null) {
+				this.retryPolicy.close(this.retryContext);
+			}
+		}
+
+		private Server getServer(ServiceInstance instance) {
+			if (instance instanceof RibbonServer) {
+				return ((RibbonServer) instance).getServer();
+			}
+			return null;
+		}
+	}
+
+	private static class ClientRequestAdapter implements HttpRequest {
+
+		private final ClientRequest request;
+
+		ClientRequestAdapter(ClientRequest request) {
+			this.request = request;
+		}
+
+		@Override
+		public String getMethodValue() {
+			return this.request.method().name();
+		}
+
+		@Override
+		public URI getURI() {
+			return this.request.url();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.request.headers();
+		}
+	}
+}
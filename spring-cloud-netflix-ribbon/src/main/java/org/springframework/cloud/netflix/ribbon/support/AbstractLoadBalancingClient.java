@@ -17,6 +17,19 @@
 
 package org.springframework.cloud.netflix.ribbon.support;
 
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.loadbalancer.ServiceInstanceChooser;
 import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient;
@@ -29,7 +42,13 @@ import com.netflix.client.RequestSpecificRetryHandler;
 import com.netflix.client.RetryHandler;
 import com.netflix.client.config.IClientConfig;
 import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
 import com.netflix.loadbalancer.reactive.LoadBalancerCommand;
+import com.netflix.loadbalancer.reactive.ServerOperation;
+import com.netflix.servo.annotations.DataSourceType;
+import com.netflix.servo.annotations.Monitor;
+
+import rx.Observable;
 
 import static org.springframework.cloud.netflix.ribbon.RibbonClientConfiguration.DEFAULT_CONNECT_TIMEOUT;
 import static org.springframework.cloud.netflix.ribbon.RibbonClientConfiguration.DEFAULT_READ_TIMEOUT;
@@ -39,7 +58,7 @@ import static org.springframework.cloud.netflix.ribbon.RibbonClientConfiguration
  * @author Spencer Gibb
  */
 public abstract class AbstractLoadBalancingClient<S extends ContextAwareRequest, T extends IResponse, D> extends
-		AbstractLoadBalancerAwareClient<S, T> implements ServiceInstanceChooser {
+		AbstractLoadBalancerAwareClient<S, T> implements ServiceInstanceChooser, DisposableBean {
 
 	protected int connectTimeout;
 
@@ -56,6 +75,8 @@ public abstract class AbstractLoadBalancingClient<S extends ContextAwareRequest,
 	protected final D delegate;
 	protected final IClientConfig config;
 	protected final ServerIntrospector serverIntrospector;
+
+	protected RibbonHedgingPolicy hedgingPolicy;
 	
 	public boolean isClientRetryable(ContextAwareRequest request) {
 		return false;
@@ -89,6 +110,17 @@ public abstract class AbstractLoadBalancingClient<S extends ContextAwareRequest,
 		this.followRedirects = ribbon.isFollowRedirects();
 		this.okToRetryOnAllOperations = ribbon.isOkToRetryOnAllOperations();
 		this.gzipPayload = ribbon.isGZipPayload(DEFAULT_GZIP_PAYLOAD);
+		if (this.hedgingPolicy != null) {
+			this.hedgingPolicy.shutdown();
+		}
+		this.hedgingPolicy = RibbonHedgingPolicy.from(clientConfig);
+	}
+
+	@Override
+	public void destroy() {
+		if (this.hedgingPolicy != null) {
+			this.hedgingPolicy.shutdown();
+		}
 	}
 
 	protected abstract D createDelegate(IClientConfig config);
@@ -138,6 +170,430 @@ public abstract class AbstractLoadBalancingClient<S extends ContextAwareRequest,
 		return null;
 	}
 	
+	/**
+	 * Check whether the uri already targets the given service instance, in which case
+	 * it does not need to be reconstructed before a retry.
+	 */
+	protected static boolean isSameServer(URI uri, ServiceInstance serviceInstance) {
+		return serviceInstance.getHost().equals(uri.getHost())
+				&& serviceInstance.getPort() == uri.getPort()
+				&& (serviceInstance.isSecure() ? "https" : "http").equals(uri.getScheme());
+	}
+
+	public boolean isHedgeable(ContextAwareRequest request) {
+		return this.hedgingPolicy != null && this.hedgingPolicy.isHedgeable(request);
+	}
+
+	@Override
+	public T executeWithLoadBalancer(S request, IClientConfig requestConfig) throws ClientException {
+		if (!isHedgeable(request)) {
+			return super.executeWithLoadBalancer(request, requestConfig);
+		}
+		try {
+			return executeWithHedging(request, requestConfig,
+					attempts -> submitToLoadBalancer(request, requestConfig, attempts));
+		}
+		catch (ClientException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			throw new ClientException(e);
+		}
+	}
+
+	/**
+	 * Send the request with the {@link LoadBalancerCommand}, like
+	 * {@link AbstractLoadBalancerAwareClient#executeWithLoadBalancer}, so that its
+	 * retries apply to the attempts of a hedged request too.
+	 */
+	@SuppressWarnings("unchecked")
+	private T submitToLoadBalancer(S request, IClientConfig requestConfig,
+			HedgedAttempts<T> attempts) throws ClientException {
+		try {
+			return buildLoadBalancerCommand(request, requestConfig)
+					.submit((ServerOperation<T>) server -> {
+						S requestForServer = (S) request.replaceUri(
+								reconstructURIWithServer(server, request.getUri()));
+						try {
+							return Observable.just(attempts.attempt(server, onAbort -> executeAttempt(
+									requestForServer, requestConfig, onAbort)));
+						}
+						catch (Exception e) {
+							return Observable.error(e);
+						}
+					}).toBlocking().single();
+		}
+		catch (Exception e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ClientException) {
+				throw (ClientException) cause;
+			}
+			throw new ClientException(e);
+		}
+	}
+
+	/**
+	 * Send the request with the given primary call, on the current thread. If no
+	 * response arrives within the hedging delay, the request is sent once more to a
+	 * different server on a thread of the hedging policy, and the first response wins.
+	 * The primary call keeps its own retries, and runs each of its attempts with
+	 * {@link HedgedAttempts#attempt}: once the hedge wins, the attempt in progress is
+	 * aborted and the response of the hedge is returned instead of retrying. When the
+	 * primary call wins, the hedge is aborted and its outcome is not recorded in the
+	 * server stats. No hedge is sent until the policy has recorded enough response
+	 * times to compute the delay.
+	 */
+	protected T executeWithHedging(S request, IClientConfig requestConfig,
+			HedgedRequest<T> primary) throws Exception {
+		return new HedgedExecution(request, requestConfig).execute(primary);
+	}
+
+	/**
+	 * Execute a single attempt of a hedged request against the server the request
+	 * already targets. Implementations pass to {@code onAbort} an action aborting the
+	 * underlying request, which is run if the other attempt wins, so that a losing
+	 * attempt does not hold its connection until the read timeout.
+	 */
+	protected T executeAttempt(S request, IClientConfig requestConfig,
+			Consumer<Runnable> onAbort) throws Exception {
+		return execute(request, requestConfig);
+	}
+
+	private HedgedAttempt createHedge(HedgedExecution execution) {
+		Server primary = execution.primaryServer;
+		Server server = null;
+		// give the load balancer a few chances to pick a server other than the primary
+		for (int i = 0; i < 3 && server == null; i++) {
+			try {
+				Server candidate = getServerFromLoadBalancer(execution.request.getUri(),
+						execution.request.getLoadBalancerKey());
+				if (candidate != null && (primary == null
+						|| !candidate.getHostPort().equals(primary.getHostPort()))) {
+					server = candidate;
+				}
+			}
+			catch (ClientException e) {
+				return null;
+			}
+		}
+		if (server == null || !this.hedgingPolicy.tryAcquireHedge()) {
+			return null;
+		}
+		return new HedgedAttempt(execution, server);
+	}
+
+	@Monitor(name = "HedgesSent", type = DataSourceType.COUNTER)
+	public long getHedgesSent() {
+		return this.hedgingPolicy == null ? 0 : this.hedgingPolicy.getHedgesSent();
+	}
+
+	@Monitor(name = "HedgesWon", type = DataSourceType.COUNTER)
+	public long getHedgesWon() {
+		return this.hedgingPolicy == null ? 0 : this.hedgingPolicy.getHedgesWon();
+	}
+
+	@Monitor(name = "HedgesDenied", type = DataSourceType.COUNTER)
+	public long getHedgesDenied() {
+		return this.hedgingPolicy == null ? 0 : this.hedgingPolicy.getHedgesDenied();
+	}
+
+	private static void abortQuietly(Runnable abort) {
+		try {
+			abort.run();
+		}
+		catch (Exception e) {
+			// ignore
+		}
+	}
+
+	private static void closeQuietly(IResponse response) {
+		if (response != null) {
+			try {
+				response.close();
+			}
+			catch (Exception e) {
+				// ignore
+			}
+		}
+	}
+
+	/**
+	 * The primary call of a hedged request.
+	 */
+	@FunctionalInterface
+	protected interface HedgedRequest<T> {
+
+		T execute(HedgedAttempts<T> attempts) throws Exception;
+
+	}
+
+	/**
+	 * The attempts of the primary call of a hedged request.
+	 */
+	protected interface HedgedAttempts<T> {
+
+		/**
+		 * Run an attempt against the given server, unless the hedge already won.
+		 * @param server the server of the attempt, which the hedge avoids, or null if
+		 * unknown
+		 * @param attempt the attempt, which passes to {@code onAbort} the action
+		 * aborting its request
+		 * @return the response of the attempt, or the one of the hedge if it won
+		 */
+		T attempt(Server server, HedgedCall<T> attempt) throws Exception;
+
+	}
+
+	/**
+	 * A single attempt of a hedged request.
+	 */
+	@FunctionalInterface
+	protected interface HedgedCall<T> {
+
+		T call(Consumer<Runnable> onAbort) throws Exception;
+
+	}
+
+	/**
+	 * A hedged request: its primary call on the current thread, and the hedge sent
+	 * after the hedging delay, if any.
+	 */
+	private class HedgedExecution implements HedgedAttempts<T> {
+		private static final int PENDING = 0;
+		private static final int PRIMARY_WON = 1;
+		private static final int HEDGE_WON = 2;
+
+		private final S request;
+		private final IClientConfig requestConfig;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		private volatile Server primaryServer;
+		private volatile Runnable primaryAbort;
+		private volatile T hedgeResponse;
+		private ScheduledFuture<?> timer;
+		private HedgedAttempt hedge;
+		private boolean done;
+
+		HedgedExecution(S request, IClientConfig requestConfig) {
+			this.request = request;
+			this.requestConfig = requestConfig;
+		}
+
+		T execute(HedgedRequest<T> primary) throws Exception {
+			hedgingPolicy.recordRequest();
+			long delay = hedgingPolicy.getDelay();
+			if (delay >= 0) {
+				try {
+					synchronized (this) {
+						this.timer = hedgingPolicy.schedule(this::sendHedge, delay);
+					}
+				}
+				catch (RejectedExecutionException e) {
+					// the client is being destroyed
+				}
+			}
+			long start = System.nanoTime();
+			T response;
+			try {
+				response = primary.execute(this);
+			}
+			catch (Exception e) {
+				T hedged = awaitHedge();
+				if (hedged != null) {
+					return hedged;
+				}
+				throw e;
+			}
+			if (this.state.compareAndSet(PENDING, PRIMARY_WON)) {
+				HedgedAttempt hedge = stopHedging();
+				if (hedge != null) {
+					hedge.cancel();
+				}
+				hedgingPolicy.recordResponseTime(
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+				return response;
+			}
+			// the hedge won while the primary call was completing
+			if (response != this.hedgeResponse) {
+				closeQuietly(response);
+			}
+			return this.hedgeResponse;
+		}
+
+		@Override
+		public T attempt(Server server, HedgedCall<T> attempt) throws Exception {
+			if (server != null) {
+				this.primaryServer = server;
+			}
+			if (this.state.get() == HEDGE_WON) {
+				return this.hedgeResponse;
+			}
+			try {
+				return attempt.call(this::onPrimaryAbort);
+			}
+			catch (Exception e) {
+				if (this.state.get() == HEDGE_WON) {
+					// aborted by the hedge, which must not be retried
+					return this.hedgeResponse;
+				}
+				throw e;
+			}
+		}
+
+		private void onPrimaryAbort(Runnable abort) {
+			this.primaryAbort = abort;
+			if (this.state.get() == HEDGE_WON) {
+				// registered after the hedge won
+				abortQuietly(abort);
+			}
+		}
+
+		private void sendHedge() {
+			synchronized (this) {
+				if (this.done || this.state.get() != PENDING) {
+					return;
+				}
+				HedgedAttempt hedge = createHedge(this);
+				if (hedge != null && hedge.submit(hedgingPolicy.getExecutor())) {
+					this.hedge = hedge;
+				}
+			}
+		}
+
+		/**
+		 * @return whether the hedge won, in which case the primary call is aborted
+		 */
+		boolean hedgeCompleted(T response) {
+			this.hedgeResponse = response;
+			if (!this.state.compareAndSet(PENDING, HEDGE_WON)) {
+				return false;
+			}
+			hedgingPolicy.recordHedgeWon();
+			Runnable abort = this.primaryAbort;
+			if (abort != null) {
+				abortQuietly(abort);
+			}
+			return true;
+		}
+
+		private synchronized HedgedAttempt stopHedging() {
+			this.done = true;
+			if (this.timer != null) {
+				this.timer.cancel(false);
+			}
+			return this.hedge;
+		}
+
+		/**
+		 * @return the response of the hedge in flight when the primary call failed, or
+		 * null if there is none or it failed too
+		 */
+		private T awaitHedge() {
+			HedgedAttempt hedge = stopHedging();
+			if (hedge != null && this.state.get() == PENDING) {
+				try {
+					hedge.future.get();
+				}
+				catch (ExecutionException e) {
+					// failed too
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					hedge.cancel();
+				}
+			}
+			return this.state.get() == HEDGE_WON ? this.hedgeResponse : null;
+		}
+	}
+
+	private class HedgedAttempt implements Callable<T> {
+		private static final int RUNNING = 0;
+		private static final int DONE = 1;
+		private static final int CANCELLED = 2;
+
+		private final HedgedExecution execution;
+		private final S request;
+		private final ServerStats serverStats;
+		private final AtomicInteger state = new AtomicInteger(RUNNING);
+		private volatile T response;
+		private volatile Runnable abort;
+		private Future<T> future;
+
+		@SuppressWarnings("unchecked")
+		HedgedAttempt(HedgedExecution execution, Server server) {
+			this.execution = execution;
+			this.request = (S) execution.request
+					.replaceUri(reconstructURIWithServer(server, execution.request.getUri()));
+			this.serverStats = getServerStats(server);
+		}
+
+		boolean submit(Executor executor) {
+			FutureTask<T> task = new FutureTask<>(this);
+			try {
+				executor.execute(task);
+				this.future = task;
+				return true;
+			}
+			catch (RejectedExecutionException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public T call() throws Exception {
+			noteOpenConnection(this.serverStats);
+			long start = System.nanoTime();
+			Exception exception = null;
+			try {
+				this.response = executeAttempt(this.request, this.execution.requestConfig,
+						this::onAbort);
+				return this.response;
+			}
+			catch (Exception e) {
+				exception = e;
+				throw e;
+			}
+			finally {
+				long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				if (this.state.compareAndSet(RUNNING, DONE)) {
+					noteRequestCompletion(this.serverStats, this.response, exception, duration,
+							getRetryHandler());
+					if (exception == null) {
+						hedgingPolicy.recordResponseTime(duration);
+						if (!this.execution.hedgeCompleted(this.response)) {
+							closeQuietly(this.response);
+						}
+					}
+				}
+				else {
+					// the primary call won, this attempt tells nothing about the server
+					if (this.serverStats != null) {
+						this.serverStats.decrementActiveRequestsCount();
+					}
+					closeQuietly(this.response);
+				}
+			}
+		}
+
+		private void onAbort(Runnable abort) {
+			this.abort = abort;
+			if (this.state.get() == CANCELLED) {
+				// cancelled before the request was sent
+				abortQuietly(abort);
+			}
+		}
+
+		void cancel() {
+			if (this.state.compareAndSet(RUNNING, CANCELLED)) {
+				// interrupting the thread does not stop blocking IO
+				this.future.cancel(false);
+				Runnable abort = this.abort;
+				if (abort != null) {
+					abortQuietly(abort);
+				}
+			}
+		}
+	}
+
 	public void validateServiceInstance(ServiceInstance serviceInstance) throws ClientException {
 		if (serviceInstance == null) {
 			throw new ClientException("Load balancer does not have available server for client: " + clientName);
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.support;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.cloud.netflix.ribbon.RibbonRetryBudget;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.client.config.IClientConfigKey;
+
+/**
+ * Decides when an idempotent request sent by an {@link AbstractLoadBalancingClient}
+ * should be hedged, i.e. sent a second time to a different server because the first
+ * attempt is slower than the configured percentile of recent response times.
+ *
+ * Hedges are limited by a budget expressed as a percentage of the requests sent over
+ * a sliding window. Hedging is disabled by default and is enabled with
+ * {@code <client>.ribbon.hedgingEnabled}. The first attempt of a request runs on the
+ * calling thread, the hedges of an enabled client are sent on threads of its own after
+ * a delay measured by a timer thread. These threads are stopped by {@link #shutdown()}
+ * when the client is destroyed. No request is hedged before {@code RECOMPUTE_INTERVAL}
+ * response times have been recorded.
+ */
+public class RibbonHedgingPolicy {
+
+	public static final IClientConfigKey<Boolean> HEDGING_ENABLED = new CommonClientConfigKey<Boolean>("hedgingEnabled") {};
+	public static final IClientConfigKey<Integer> HEDGING_DELAY_PERCENTILE = new CommonClientConfigKey<Integer>("hedgingDelayPercentile") {};
+	public static final IClientConfigKey<Integer> HEDGING_MIN_DELAY_IN_MILLIS = new CommonClientConfigKey<Integer>("hedgingMinDelayInMillis") {};
+	public static final IClientConfigKey<Integer> HEDGING_BUDGET_PERCENT = new CommonClientConfigKey<Integer>("hedgingBudgetPercent") {};
+
+	public static final int DEFAULT_DELAY_PERCENTILE = 95;
+	public static final int DEFAULT_MIN_DELAY_IN_MILLIS = 5;
+	public static final int DEFAULT_BUDGET_PERCENT = 10;
+
+	/**
+	 * Response times are kept for the last {@code SAMPLES} requests, the hedging delay is
+	 * recomputed every {@code RECOMPUTE_INTERVAL} samples.
+	 */
+	public static final int SAMPLES = 1024;
+	public static final int RECOMPUTE_INTERVAL = 128;
+
+	private static final int BUDGET_WINDOW_IN_MILLIS = 10000;
+
+	private final boolean enabled;
+	private final int percentile;
+	private final long minDelay;
+	private final RibbonRetryBudget budget;
+	private final Executor executor;
+	private final ScheduledExecutorService timer;
+
+	private final long[] samples = new long[SAMPLES];
+	private int sampleCount;
+	private int nextSample;
+	private volatile long delay = -1;
+
+	private final AtomicLong hedgesSent = new AtomicLong();
+	private final AtomicLong hedgesWon = new AtomicLong();
+
+	public static RibbonHedgingPolicy from(IClientConfig config) {
+		boolean enabled = config.getPropertyAsBoolean(HEDGING_ENABLED, false);
+		return new RibbonHedgingPolicy(enabled,
+				config.getPropertyAsInteger(HEDGING_DELAY_PERCENTILE, DEFAULT_DELAY_PERCENTILE),
+				config.getPropertyAsInteger(HEDGING_MIN_DELAY_IN_MILLIS, DEFAULT_MIN_DELAY_IN_MILLIS),
+				config.getPropertyAsInteger(HEDGING_BUDGET_PERCENT, DEFAULT_BUDGET_PERCENT),
+				enabled ? createExecutor(config.getClientName()) : null,
+				enabled ? createTimer(config.getClientName()) : null);
+	}
+
+	public RibbonHedgingPolicy(boolean enabled, int percentile, int minDelayInMillis,
+			int budgetPercent, Executor executor) {
+		this(enabled, percentile, minDelayInMillis, budgetPercent, executor,
+				enabled ? createTimer("default") : null);
+	}
+
+	public RibbonHedgingPolicy(boolean enabled, int percentile, int minDelayInMillis,
+			int budgetPercent, Executor executor, ScheduledExecutorService timer) {
+		this.enabled = enabled;
+		this.percentile = Math.min(Math.max(percentile, 1), 100);
+		this.minDelay = Math.max(minDelayInMillis, 0);
+		this.budget = new RibbonRetryBudget(enabled, budgetPercent, 0, BUDGET_WINDOW_IN_MILLIS);
+		this.executor = executor;
+		this.timer = timer;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Only requests that are safe to send twice are hedged.
+	 */
+	public boolean isHedgeable(ContextAwareRequest request) {
+		if (!this.enabled || request == null || request.getContext() == null) {
+			return false;
+		}
+		String method = request.getContext().getMethod();
+		return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+	}
+
+	/**
+	 * @return the time in milliseconds to wait for a response before hedging, or a
+	 * negative value when not enough response times have been recorded yet
+	 */
+	public long getDelay() {
+		return this.delay;
+	}
+
+	public Executor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * Run the given task, which sends a hedge, after the given delay.
+	 * @throws java.util.concurrent.RejectedExecutionException if the policy is shut down
+	 */
+	public ScheduledFuture<?> schedule(Runnable task, long delayInMillis) {
+		return this.timer.schedule(task, delayInMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the timer and the threads of the hedges, if the executor is an
+	 * {@link ExecutorService}.
+	 */
+	public void shutdown() {
+		if (this.timer != null) {
+			this.timer.shutdownNow();
+		}
+		if (this.executor instanceof ExecutorService) {
+			((ExecutorService) this.executor).shutdownNow();
+		}
+	}
+
+	public void recordRequest() {
+		this.budget.recordRequest();
+	}
+
+	public boolean tryAcquireHedge() {
+		if (this.budget.tryAcquireRetry()) {
+			this.hedgesSent.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	public void recordHedgeWon() {
+		this.hedgesWon.incrementAndGet();
+	}
+
+	public void recordResponseTime(long responseTimeInMillis) {
+		long[] snapshot = null;
+		synchronized (this.samples) {
+			this.samples[this.nextSample] = responseTimeInMillis;
+			this.nextSample = (this.nextSample + 1) % SAMPLES;
+			if (this.sampleCount < SAMPLES) {
+				this.sampleCount++;
+			}
+			if (this.nextSample % RECOMPUTE_INTERVAL == 0) {
+				snapshot = Arrays.copyOf(this.samples, this.sampleCount);
+			}
+		}
+		if (snapshot != null) {
+			Arrays.sort(snapshot);
+			int index = (int) Math.ceil(this.percentile / 100.0 * snapshot.length) - 1;
+			this.delay = Math.max(snapshot[Math.max(index, 0)], this.minDelay);
+		}
+	}
+
+	public long getHedgesSent() {
+		return this.hedgesSent.get();
+	}
+
+	public long getHedgesWon() {
+		return this.hedgesWon.get();
+	}
+
+	public long getHedgesDenied() {
+		return this.budget.getRetriesDenied();
+	}
+
+	private static ExecutorService createExecutor(String clientName) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"RibbonHedging-" + clientName + "-");
+		threadFactory.setDaemon(true);
+		return new ThreadPoolExecutor(0, 200, 60L, TimeUnit.SECONDS,
+				new SynchronousQueue<>(), threadFactory);
+	}
+
+	private static ScheduledExecutorService createTimer(String clientName) {
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"RibbonHedgingTimer-" + clientName + "-");
+		threadFactory.setDaemon(true);
+		ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, threadFactory);
+		// most requests complete before their hedge is due
+		timer.setRemoveOnCancelPolicy(true);
+		return timer;
+	}
+}
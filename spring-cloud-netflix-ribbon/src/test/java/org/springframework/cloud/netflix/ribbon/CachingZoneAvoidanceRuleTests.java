@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netflix.loadbalancer.AbstractServerPredicate;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.Server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingZoneAvoidanceRuleTests {
+
+	private BaseLoadBalancer loadBalancer;
+
+	private TestRule rule;
+
+	private Server server1 = new Server("host1", 80);
+
+	private Server server2 = new Server("host2", 80);
+
+	@Before
+	public void setup() {
+		this.rule = new TestRule();
+		this.loadBalancer = new BaseLoadBalancer();
+		this.loadBalancer.setRule(this.rule);
+		this.loadBalancer.addServers(Arrays.asList(this.server1, this.server2));
+	}
+
+	@Test
+	public void choosesEligibleServersRoundRobin() {
+		Server first = this.rule.choose("default");
+		Server second = this.rule.choose("default");
+		assertThat(first).isNotEqualTo(second);
+		assertThat(this.rule.choose("default")).isEqualTo(first);
+		assertThat(this.rule.predicateCalls).isEqualTo(1);
+	}
+
+	@Test
+	public void eligibleServersAreRecomputedWhenServerListChanges() {
+		this.rule.choose("default");
+		Server server3 = new Server("host3", 80);
+		this.loadBalancer.addServer(server3);
+		this.rule.choose("default");
+		assertThat(this.rule.predicateCalls).isEqualTo(2);
+	}
+
+	@Test
+	public void eligibleServersExpire() {
+		this.rule.choose("default");
+		this.rule.time += CachingZoneAvoidanceRule.DEFAULT_ELIGIBLE_SERVERS_CACHE_TIME_IN_MILLIS - 1;
+		this.rule.choose("default");
+		assertThat(this.rule.predicateCalls).isEqualTo(1);
+		this.rule.time += 1;
+		this.rule.choose("default");
+		assertThat(this.rule.predicateCalls).isEqualTo(2);
+	}
+
+	@Test
+	public void eligibleServersAreRecomputedForAnotherKey() {
+		this.rule.choose("default");
+		this.rule.choose("other");
+		assertThat(this.rule.predicateCalls).isEqualTo(2);
+		this.rule.choose("other");
+		assertThat(this.rule.predicateCalls).isEqualTo(2);
+	}
+
+	@Test
+	public void cachingCanBeDisabled() {
+		this.rule.setCacheTimeInMillis(0);
+		this.rule.choose("default");
+		this.rule.choose("default");
+		assertThat(this.rule.predicateCalls).isEqualTo(2);
+	}
+
+	private static class TestRule extends CachingZoneAvoidanceRule {
+
+		private long time = 1000;
+
+		private int predicateCalls;
+
+		@Override
+		public AbstractServerPredicate getPredicate() {
+			this.predicateCalls++;
+			return super.getPredicate();
+		}
+
+		@Override
+		protected long currentTimeMillis() {
+			return this.time;
+		}
+	}
+}
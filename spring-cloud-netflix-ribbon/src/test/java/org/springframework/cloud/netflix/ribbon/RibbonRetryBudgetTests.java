@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RibbonRetryBudgetTests {
+
+	private final AtomicLong now = new AtomicLong(1000);
+
+	@Test
+	public void disabledByDefault() {
+		RibbonRetryBudget budget = RibbonRetryBudget.from(new DefaultClientConfigImpl());
+		assertThat(budget.isEnabled(), is(false));
+		for (int i = 0; i < 100; i++) {
+			assertThat(budget.tryAcquireRetry(), is(true));
+		}
+		assertThat(budget.getRetriesPermitted(), is(0L));
+		assertThat(budget.getRetriesDenied(), is(0L));
+	}
+
+	@Test
+	public void enabledFromConfig() {
+		DefaultClientConfigImpl config = new DefaultClientConfigImpl();
+		config.set(RibbonRetryBudget.RETRY_BUDGET_ENABLED, true);
+		assertThat(RibbonRetryBudget.from(config).isEnabled(), is(true));
+	}
+
+	@Test
+	public void retriesLimitedToPercentOfRequests() {
+		RibbonRetryBudget budget = budget(20, 0, 10000);
+		for (int i = 0; i < 100; i++) {
+			budget.recordRequest();
+		}
+		for (int i = 0; i < 20; i++) {
+			assertThat(budget.tryAcquireRetry(), is(true));
+		}
+		assertThat(budget.tryAcquireRetry(), is(false));
+		assertThat(budget.getRetriesPermitted(), is(20L));
+		assertThat(budget.getRetriesDenied(), is(1L));
+	}
+
+	@Test
+	public void minRetriesAllowedWithoutTraffic() {
+		RibbonRetryBudget budget = budget(20, 1, 10000);
+		for (int i = 0; i < 10; i++) {
+			assertThat(budget.tryAcquireRetry(), is(true));
+		}
+		assertThat(budget.tryAcquireRetry(), is(false));
+	}
+
+	@Test
+	public void budgetRefillsAsWindowSlides() {
+		RibbonRetryBudget budget = budget(50, 0, 1000);
+		budget.recordRequest();
+		budget.recordRequest();
+		assertThat(budget.tryAcquireRetry(), is(true));
+		assertThat(budget.tryAcquireRetry(), is(false));
+
+		this.now.addAndGet(1000);
+		assertThat(budget.tryAcquireRetry(), is(false));
+		budget.recordRequest();
+		budget.recordRequest();
+		assertThat(budget.tryAcquireRetry(), is(true));
+	}
+
+	private RibbonRetryBudget budget(int percent, int minRetriesPerSecond, int window) {
+		return new RibbonRetryBudget(true, percent, minRetriesPerSecond, window) {
+			@Override
+			protected long currentTimeMillis() {
+				return RibbonRetryBudgetTests.this.now.get();
+			}
+		};
+	}
+}
@@ -23,6 +23,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpEntity;
@@ -50,6 +53,7 @@ import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
 import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
 import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
 import org.springframework.cloud.netflix.ribbon.support.RibbonCommandContext;
+import org.springframework.cloud.netflix.ribbon.support.RibbonHedgingPolicy;
 import org.springframework.cloud.netflix.ribbon.support.RibbonRequestCustomizer;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -87,12 +91,14 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -874,6 +880,116 @@ public class RibbonLoadBalancingHttpClientTests {
 		}
 	}
 
+	@Test
+	public void testHedgedRequestReturnsFirstResponse() throws Exception {
+		Server slowServer = new Server("slow.com", 8000);
+		Server fastServer = new Server("fast.com", 8000);
+		AbstractLoadBalancer lb = mock(AbstractLoadBalancer.class);
+		doReturn(slowServer).doReturn(fastServer).when(lb).chooseServer(any());
+		LoadBalancerStats lbStats = mock(LoadBalancerStats.class);
+		doReturn(lbStats).when(lb).getLoadBalancerStats();
+		ServerStats slowStats = mock(ServerStats.class);
+		ServerStats fastStats = mock(ServerStats.class);
+		doReturn(slowStats).when(lbStats).getSingleServerStat(eq(slowServer));
+		doReturn(fastStats).when(lbStats).getSingleServerStat(eq(fastServer));
+
+		CloseableHttpClient delegate = mock(CloseableHttpClient.class);
+		final CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+		StatusLine statusLine = mock(StatusLine.class);
+		doReturn(200).when(statusLine).getStatusCode();
+		doReturn(statusLine).when(response).getStatusLine();
+		final CountDownLatch slowLatch = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			HttpUriRequest uriRequest = (HttpUriRequest) invocation.getArguments()[0];
+			if ("slow.com".equals(uriRequest.getURI().getHost())) {
+				// like the blocking IO of the client, only stops when aborted
+				while (!uriRequest.isAborted()) {
+					slowLatch.await(10, TimeUnit.MILLISECONDS);
+				}
+				throw new IOException("aborted");
+			}
+			return response;
+		}).when(delegate).execute(any(HttpUriRequest.class));
+
+		DefaultClientConfigImpl clientConfig = new DefaultClientConfigImpl();
+		clientConfig.setClientName("service");
+		RibbonLoadBalancingHttpClient client = new RibbonLoadBalancingHttpClient(delegate,
+				clientConfig, mock(ServerIntrospector.class));
+		client.setLoadBalancer(lb);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		RibbonHedgingPolicy hedgingPolicy = new RibbonHedgingPolicy(true, 95, 10, 100, executor);
+		for (int i = 0; i < RibbonHedgingPolicy.RECOMPUTE_INTERVAL; i++) {
+			hedgingPolicy.recordResponseTime(10);
+		}
+		ReflectionTestUtils.setField(client, "hedgingPolicy", hedgingPolicy);
+
+		RibbonCommandContext context = new RibbonCommandContext("service", "GET", "/foo", false,
+				new LinkedMultiValueMap<String, String>(), new LinkedMultiValueMap<String, String>(),
+				null, new ArrayList<RibbonRequestCustomizer>());
+		try {
+			RibbonApacheHttpResponse returnedResponse = client
+					.executeWithLoadBalancer(new RibbonApacheHttpRequest(context), null);
+			assertThat(returnedResponse.getRequestedURI().getHost(), is("fast.com"));
+			assertThat(client.getHedgesSent(), is(1L));
+			assertThat(client.getHedgesWon(), is(1L));
+			// the aborted attempt completes without being retried or counted as a failure
+			verify(slowStats).decrementActiveRequestsCount();
+			verify(slowStats, never()).addToFailureCount();
+			verify(delegate, times(2)).execute(any(HttpUriRequest.class));
+			verify(fastStats).noteResponseTime(anyDouble());
+
+			client.destroy();
+			assertThat(executor.isShutdown(), is(true));
+		}
+		finally {
+			slowLatch.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testHedgedRequestKeepsRetries() throws Exception {
+		String serviceName = "foo";
+		String host = serviceName;
+		int port = 80;
+		URI uri = new URI("http://" + host + ":" + port);
+		CloseableHttpClient delegate = mock(CloseableHttpClient.class);
+		final CloseableHttpResponse response = mock(CloseableHttpResponse.class);
+		StatusLine statusLine = mock(StatusLine.class);
+		doReturn(200).when(statusLine).getStatusCode();
+		doReturn(statusLine).when(response).getStatusLine();
+		doThrow(new IOException("boom")).doReturn(response).when(delegate).execute(any(HttpUriRequest.class));
+		AbstractLoadBalancer lb = mock(AbstractLoadBalancer.class);
+		RetryableRibbonLoadBalancingHttpClient client = setupClientForRetry(0, 1, true, false,
+				serviceName, host, port, delegate, lb, "", null);
+		RibbonHedgingPolicy hedgingPolicy = new RibbonHedgingPolicy(true, 95, 10000, 100, Runnable::run);
+		for (int i = 0; i < RibbonHedgingPolicy.RECOMPUTE_INTERVAL; i++) {
+			hedgingPolicy.recordResponseTime(1);
+		}
+		ReflectionTestUtils.setField(client, "hedgingPolicy", hedgingPolicy);
+		RibbonApacheHttpRequest request = mock(RibbonApacheHttpRequest.class);
+		RibbonCommandContext context = mock(RibbonCommandContext.class);
+		doReturn("GET").when(context).getMethod();
+		doReturn(context).when(request).getContext();
+		doReturn(uri).when(request).getURI();
+		doReturn(HttpMethod.GET).when(request).getMethod();
+		doReturn(request).when(request).withNewUri(any(URI.class));
+		HttpUriRequest uriRequest = mock(HttpUriRequest.class);
+		doReturn(uri).when(uriRequest).getURI();
+		doReturn(uriRequest).when(request).toRequest(any(RequestConfig.class));
+		try {
+			assertThat(client.isHedgeable(request), is(true));
+			RibbonApacheHttpResponse returnedResponse = client.execute(request, null);
+			assertThat(returnedResponse.getRequestedURI(), is(uri));
+			// the first attempt is retried before the hedging delay
+			verify(delegate, times(2)).execute(any(HttpUriRequest.class));
+			assertThat(client.getHedgesSent(), is(0L));
+		}
+		finally {
+			client.destroy();
+		}
+	}
+
 	@Configuration
 	protected static class UseDefaults {
 
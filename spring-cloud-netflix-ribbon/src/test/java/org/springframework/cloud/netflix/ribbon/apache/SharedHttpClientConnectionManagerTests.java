@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.apache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class SharedHttpClientConnectionManagerTests {
+
+	private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("foo", 8080));
+
+	private SharedHttpClientConnectionManager shared;
+
+	@Before
+	public void setup() {
+		PoolingHttpClientConnectionManager pool = new PoolingHttpClientConnectionManager();
+		pool.setMaxTotal(10);
+		pool.setDefaultMaxPerRoute(10);
+		this.shared = new SharedHttpClientConnectionManager(pool, 30000);
+	}
+
+	@After
+	public void teardown() throws Exception {
+		this.shared.destroy();
+	}
+
+	@Test
+	public void clientsGetTheirOwnView() {
+		HttpClientConnectionManager foo = this.shared.getConnectionManager("foo", 2);
+		assertSame(foo, this.shared.getConnectionManager("foo", 2));
+		assertEquals(2, ((SharedHttpClientConnectionManager.ClientConnectionManager) foo)
+				.getMaxConnections());
+	}
+
+	@Test
+	public void clientQuotaIsEnforced() throws Exception {
+		HttpClientConnectionManager foo = this.shared.getConnectionManager("foo", 2);
+		HttpClientConnectionManager bar = this.shared.getConnectionManager("bar", 2);
+		HttpClientConnection first = lease(foo);
+		lease(foo);
+		try {
+			lease(foo);
+			fail("expected the quota of client foo to be exhausted");
+		}
+		catch (ConnectionPoolTimeoutException e) {
+			// expected
+		}
+		assertNotNull("other clients are not limited by foo's quota", lease(bar));
+		assertEquals(3, this.shared.getHostStats().get("foo:8080").getLeased());
+		assertEquals(Integer.valueOf(2), this.shared.getClientLeasedConnections().get("foo"));
+
+		foo.releaseConnection(first, null, 0, TimeUnit.MILLISECONDS);
+		assertNotNull(lease(foo));
+	}
+
+	@Test
+	public void clientShutdownKeepsSharedPoolOpen() throws Exception {
+		HttpClientConnectionManager foo = this.shared.getConnectionManager("foo", 2);
+		foo.shutdown();
+		assertNotNull(lease(this.shared.getConnectionManager("bar", 2)));
+	}
+
+	private HttpClientConnection lease(HttpClientConnectionManager manager)
+			throws Exception {
+		return manager.requestConnection(ROUTE, null).get(50, TimeUnit.MILLISECONDS);
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.reactive;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.netflix.ribbon.DefaultServerIntrospector;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancedRetryFactory;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancedRetryPolicy;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerClient;
+import org.springframework.cloud.netflix.ribbon.RibbonLoadBalancerContext;
+import org.springframework.cloud.netflix.ribbon.ServerIntrospector;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.netflix.client.DefaultLoadBalancerRetryHandler;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.BaseLoadBalancer;
+import com.netflix.loadbalancer.LoadBalancerStats;
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerStats;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class RibbonLoadBalancerExchangeFilterFunctionTests {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+	private DisposableServer okServer;
+
+	private DisposableServer unavailableServer;
+
+	private SpringClientFactory clientFactory;
+
+	private BaseLoadBalancer loadBalancer;
+
+	private Iterator<Server> servers;
+
+	private IClientConfig config;
+
+	@Before
+	public void setup() {
+		this.okServer = HttpServer.create().port(0)
+				.route(routes -> routes
+						.get("/hello", (req, res) -> res.sendString(Mono.just("hello")))
+						.get("/slow", (req, res) -> Mono.delay(Duration.ofSeconds(2))
+								.then(res.sendString(Mono.just("slow")).then()))
+						.get("/stream", (req, res) -> res.sendString(Flux.concat(Mono.just("first"),
+								Mono.delay(Duration.ofSeconds(2)).map(tick -> "last"))))
+						.post("/hello", (req, res) -> res.sendString(Mono.just("posted"))))
+				.bindNow();
+		this.unavailableServer = HttpServer.create().port(0)
+				.route(routes -> routes
+						.get("/hello", (req, res) -> res.status(503).send())
+						.post("/hello", (req, res) -> res.status(503).send()))
+				.bindNow();
+
+		this.config = DefaultClientConfigImpl.getClientConfigWithDefaultValues("foo");
+		this.loadBalancer = new BaseLoadBalancer("foo", new AbstractLoadBalancerRule() {
+			@Override
+			public Server choose(Object key) {
+				return servers.next();
+			}
+
+			@Override
+			public void initWithNiwsConfig(IClientConfig clientConfig) {
+			}
+		}, new LoadBalancerStats("foo"));
+
+		this.clientFactory = mock(SpringClientFactory.class);
+		given(this.clientFactory.getLoadBalancer("foo")).willReturn(this.loadBalancer);
+		given(this.clientFactory.getClientConfig("foo")).willReturn(this.config);
+		given(this.clientFactory.getInstance(eq("foo"), eq(ServerIntrospector.class)))
+				.willReturn(new DefaultServerIntrospector());
+		given(this.clientFactory.getLoadBalancerContext("foo"))
+				.willReturn(new RibbonLoadBalancerContext(this.loadBalancer, this.config,
+						new DefaultLoadBalancerRetryHandler(0, 1, true)));
+	}
+
+	@After
+	public void teardown() {
+		this.okServer.disposeNow();
+		this.unavailableServer.disposeNow();
+	}
+
+	@Test
+	public void requestIsSentToChosenServer() {
+		Server server = server(this.okServer);
+		this.servers = Arrays.asList(server).iterator();
+
+		String body = webClient(false).get().uri("http://foo/hello").retrieve()
+				.bodyToMono(String.class).block(TIMEOUT);
+
+		assertThat(body).isEqualTo("hello");
+		ServerStats stats = this.loadBalancer.getLoadBalancerStats().getSingleServerStat(server);
+		assertThat(stats.getTotalRequestsCount()).isEqualTo(1);
+		assertThat(stats.getActiveRequestsCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void cancelledRequestIsNotRecordedAsAFailure() {
+		Server server = server(this.okServer);
+		this.servers = Arrays.asList(server).iterator();
+
+		Throwable error = webClient(false).get().uri("http://foo/slow").retrieve()
+				.bodyToMono(String.class).timeout(Duration.ofMillis(100))
+				.map(body -> (Throwable) null)
+				.onErrorResume(Mono::just).block(TIMEOUT);
+
+		assertThat(error).isNotNull();
+		ServerStats stats = this.loadBalancer.getLoadBalancerStats().getSingleServerStat(server);
+		assertThat(stats.getActiveRequestsCount()).isEqualTo(0);
+		assertThat(stats.getTotalRequestsCount()).isEqualTo(0);
+		assertThat(stats.getSuccessiveConnectionFailureCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void requestCancelledAfterItsResponseIsRecordedOnce() {
+		Server server = server(this.okServer);
+		this.servers = Arrays.asList(server, server).iterator();
+		WebClient webClient = webClient(false);
+		// keeps a request active, as the server stats do not go below zero
+		Disposable slow = webClient.get().uri("http://foo/slow").retrieve()
+				.bodyToMono(String.class).subscribe();
+
+		try {
+			Throwable error = webClient.get().uri("http://foo/stream").exchange()
+					.flatMap(response -> response.bodyToMono(String.class))
+					.timeout(Duration.ofMillis(500))
+					.map(body -> (Throwable) null)
+					.onErrorResume(Mono::just).block(TIMEOUT);
+
+			assertThat(error).isNotNull();
+			ServerStats stats = this.loadBalancer.getLoadBalancerStats().getSingleServerStat(server);
+			assertThat(stats.getTotalRequestsCount()).isEqualTo(1);
+			assertThat(stats.getActiveRequestsCount()).isEqualTo(1);
+		}
+		finally {
+			slow.dispose();
+		}
+	}
+
+	@Test
+	public void noInstancesAvailable() {
+		this.servers = Arrays.asList((Server) null).iterator();
+
+		Throwable error = webClient(false).get().uri("http://foo/hello").exchange()
+				.map(response -> (Throwable) null)
+				.onErrorResume(Mono::just).block(TIMEOUT);
+
+		assertThat(error).isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("No instances available for foo");
+	}
+
+	@Test
+	public void retryableStatusCodeIsRetriedOnNextServer() {
+		this.config.set(RibbonLoadBalancedRetryPolicy.RETRYABLE_STATUS_CODES, "503");
+		Server unavailable = server(this.unavailableServer);
+		this.servers = Arrays.asList(unavailable, server(this.okServer)).iterator();
+
+		String body = webClient(true).get().uri("http://foo/hello").retrieve()
+				.bodyToMono(String.class).block(TIMEOUT);
+
+		assertThat(body).isEqualTo("hello");
+		ServerStats stats = this.loadBalancer.getLoadBalancerStats().getSingleServerStat(unavailable);
+		assertThat(stats.getTotalRequestsCount()).isEqualTo(1);
+		assertThat(stats.getActiveRequestsCount()).isEqualTo(0);
+	}
+
+	@Test
+	public void lastResponseIsReturnedWhenRetriesAreExhausted() {
+		this.config.set(RibbonLoadBalancedRetryPolicy.RETRYABLE_STATUS_CODES, "503");
+		Server unavailable = server(this.unavailableServer);
+		this.servers = Arrays.asList(unavailable, unavailable).iterator();
+
+		ClientResponse response = webClient(true).get().uri("http://foo/hello")
+				.exchange().block(TIMEOUT);
+
+		assertThat(response.rawStatusCode()).isEqualTo(503);
+		assertThat(this.loadBalancer.getLoadBalancerStats().getSingleServerStat(unavailable)
+				.getTotalRequestsCount()).isEqualTo(2);
+	}
+
+	@Test
+	public void connectionFailureIsRetriedOnNextServer() {
+		DisposableServer stopped = HttpServer.create().port(0).bindNow();
+		Server down = server(stopped);
+		stopped.disposeNow();
+		this.servers = Arrays.asList(down, server(this.okServer)).iterator();
+
+		String body = webClient(true).get().uri("http://foo/hello").retrieve()
+				.bodyToMono(String.class).block(TIMEOUT);
+
+		assertThat(body).isEqualTo("hello");
+	}
+
+	@Test
+	public void postIsNotRetried() {
+		this.config.set(RibbonLoadBalancedRetryPolicy.RETRYABLE_STATUS_CODES, "503");
+		this.servers = Arrays.asList(server(this.unavailableServer), server(this.okServer))
+				.iterator();
+
+		ClientResponse response = webClient(true).post().uri("http://foo/hello")
+				.exchange().block(TIMEOUT);
+
+		assertThat(response.rawStatusCode()).isEqualTo(503);
+	}
+
+	private WebClient webClient(boolean retry) {
+		RibbonLoadBalancerClient loadBalancerClient = new RibbonLoadBalancerClient(
+				this.clientFactory);
+		RibbonLoadBalancerExchangeFilterFunction filter = new RibbonLoadBalancerExchangeFilterFunction(
+				loadBalancerClient, this.clientFactory,
+				retry ? new RibbonLoadBalancedRetryFactory(this.clientFactory) : null);
+		return WebClient.builder().filter(filter).build();
+	}
+
+	private Server server(DisposableServer server) {
+		return new Server("localhost", server.port());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.ribbon.support;
+
+import org.junit.Test;
+
+import com.netflix.client.config.DefaultClientConfigImpl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class RibbonHedgingPolicyTests {
+
+	@Test
+	public void disabledByDefault() {
+		RibbonHedgingPolicy policy = RibbonHedgingPolicy.from(new DefaultClientConfigImpl());
+		assertFalse(policy.isEnabled());
+		assertFalse(policy.isHedgeable(request("GET")));
+	}
+
+	@Test
+	public void onlyIdempotentRequestsAreHedged() {
+		RibbonHedgingPolicy policy = new RibbonHedgingPolicy(true, 95, 5, 10, Runnable::run);
+		assertTrue(policy.isHedgeable(request("GET")));
+		assertTrue(policy.isHedgeable(request("HEAD")));
+		assertFalse(policy.isHedgeable(request("POST")));
+		assertFalse(policy.isHedgeable(request("DELETE")));
+	}
+
+	@Test
+	public void delayFollowsPercentile() {
+		RibbonHedgingPolicy policy = new RibbonHedgingPolicy(true, 90, 5, 10, Runnable::run);
+		assertEquals(-1, policy.getDelay());
+		for (int i = 1; i <= RibbonHedgingPolicy.RECOMPUTE_INTERVAL; i++) {
+			policy.recordResponseTime(i);
+		}
+		assertEquals(116, policy.getDelay());
+	}
+
+	@Test
+	public void delayIsNotLowerThanMinimum() {
+		RibbonHedgingPolicy policy = new RibbonHedgingPolicy(true, 95, 50, 10, Runnable::run);
+		for (int i = 0; i < RibbonHedgingPolicy.RECOMPUTE_INTERVAL; i++) {
+			policy.recordResponseTime(1);
+		}
+		assertEquals(50, policy.getDelay());
+	}
+
+	@Test
+	public void hedgesAreLimitedByBudget() {
+		RibbonHedgingPolicy policy = new RibbonHedgingPolicy(true, 95, 5, 10, Runnable::run);
+		for (int i = 0; i < 20; i++) {
+			policy.recordRequest();
+		}
+		assertTrue(policy.tryAcquireHedge());
+		assertTrue(policy.tryAcquireHedge());
+		assertFalse(policy.tryAcquireHedge());
+		assertEquals(2, policy.getHedgesSent());
+		assertEquals(1, policy.getHedgesDenied());
+	}
+
+	private ContextAwareRequest request(String method) {
+		ContextAwareRequest request = mock(ContextAwareRequest.class);
+		RibbonCommandContext context = mock(RibbonCommandContext.class);
+		doReturn(method).when(context).getMethod();
+		doReturn(context).when(request).getContext();
+		return request;
+	}
+}
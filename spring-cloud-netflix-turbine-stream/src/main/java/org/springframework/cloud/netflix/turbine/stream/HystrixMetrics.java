@@ -0,0 +1,273 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The metrics of a Hystrix command or thread pool, as decoded by
+ * {@link HystrixMetricsDecoder}. The integral values are kept in a {@code long} array
+ * and only boxed when they are read through the {@link Map} view used by the Turbine
+ * aggregation, as an {@link Integer} when they fit, like the maps of Jackson.
+ *
+ * The event, sequence number and keyframe flag of the message holding the metrics are
+ * not part of the map. The map supports every operation but {@link Entry#setValue}.
+ */
+class HystrixMetrics extends AbstractMap<String, Object> {
+
+	private static final Object NUMBER = new Object();
+
+	private String[] names;
+
+	private long[] numbers;
+
+	private Object[] values;
+
+	private int size;
+
+	private String event;
+
+	private long sequence = -1;
+
+	private boolean keyframe;
+
+	HystrixMetrics() {
+		this(16);
+	}
+
+	HystrixMetrics(int capacity) {
+		this.names = new String[capacity];
+		this.numbers = new long[capacity];
+		this.values = new Object[capacity];
+	}
+
+	String getEvent() {
+		return this.event;
+	}
+
+	void setEvent(String event) {
+		this.event = event;
+	}
+
+	/**
+	 * @return the sequence number of the gather cycle of the metrics in delta mode, or
+	 * -1
+	 */
+	long getSequence() {
+		return this.sequence;
+	}
+
+	void setSequence(long sequence) {
+		this.sequence = sequence;
+	}
+
+	boolean isKeyframe() {
+		return this.keyframe;
+	}
+
+	void setKeyframe(boolean keyframe) {
+		this.keyframe = keyframe;
+	}
+
+	/**
+	 * Adds a value while decoding, without looking for a previous value of the same
+	 * name.
+	 */
+	void add(String name, Object value) {
+		int index = append(name);
+		this.values[index] = value;
+	}
+
+	void addNumber(String name, long value) {
+		int index = append(name);
+		this.numbers[index] = value;
+		this.values[index] = NUMBER;
+	}
+
+	void putNumber(String name, long value) {
+		int index = indexOf(name);
+		if (index < 0) {
+			index = append(name);
+		}
+		this.numbers[index] = value;
+		this.values[index] = NUMBER;
+	}
+
+	/**
+	 * @return the integral value of the given name, without boxing it
+	 */
+	long getNumber(String name, long defaultValue) {
+		int index = indexOf(name);
+		if (index < 0) {
+			return defaultValue;
+		}
+		Object value = this.values[index];
+		if (value == NUMBER) {
+			return this.numbers[index];
+		}
+		return value instanceof Number ? ((Number) value).longValue() : defaultValue;
+	}
+
+	HystrixMetrics copy() {
+		HystrixMetrics copy = new HystrixMetrics(0);
+		copy.names = Arrays.copyOf(this.names, this.size);
+		copy.numbers = Arrays.copyOf(this.numbers, this.size);
+		copy.values = Arrays.copyOf(this.values, this.size);
+		copy.size = this.size;
+		copy.event = this.event;
+		copy.sequence = this.sequence;
+		copy.keyframe = this.keyframe;
+		return copy;
+	}
+
+	@Override
+	public Object get(Object name) {
+		int index = indexOf(name);
+		return index < 0 ? null : valueAt(index);
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return indexOf(name) >= 0;
+	}
+
+	@Override
+	public Object put(String name, Object value) {
+		int index = indexOf(name);
+		if (index < 0) {
+			add(name, value);
+			return null;
+		}
+		Object previous = valueAt(index);
+		this.values[index] = value;
+		return previous;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		return new AbstractSet<Entry<String, Object>>() {
+
+			@Override
+			public Iterator<Entry<String, Object>> iterator() {
+				return new Iterator<Entry<String, Object>>() {
+
+					private int index;
+
+					private int last = -1;
+
+					@Override
+					public boolean hasNext() {
+						return this.index < HystrixMetrics.this.size;
+					}
+
+					@Override
+					public Entry<String, Object> next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						this.last = this.index++;
+						return new SimpleImmutableEntry<>(
+								HystrixMetrics.this.names[this.last], valueAt(this.last));
+					}
+
+					@Override
+					public void remove() {
+						if (this.last < 0) {
+							throw new IllegalStateException();
+						}
+						removeAt(this.last);
+						this.index = this.last;
+						this.last = -1;
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return HystrixMetrics.this.size;
+			}
+		};
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(this.names, 0, this.size, null);
+		Arrays.fill(this.values, 0, this.size, null);
+		this.size = 0;
+	}
+
+	private Object valueAt(int index) {
+		Object value = this.values[index];
+		if (value != NUMBER) {
+			return value;
+		}
+		long number = this.numbers[index];
+		return number == (int) number ? Integer.valueOf((int) number)
+				: Long.valueOf(number);
+	}
+
+	private int indexOf(Object name) {
+		// the decoded names are canonicalized by the parser, so the last value of a
+		// name is usually found by identity
+		for (int i = this.size - 1; i >= 0; i--) {
+			if (this.names[i] == name) {
+				return i;
+			}
+		}
+		if (name != null) {
+			for (int i = this.size - 1; i >= 0; i--) {
+				if (name.equals(this.names[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void removeAt(int index) {
+		int moved = this.size - index - 1;
+		System.arraycopy(this.names, index + 1, this.names, index, moved);
+		System.arraycopy(this.numbers, index + 1, this.numbers, index, moved);
+		System.arraycopy(this.values, index + 1, this.values, index, moved);
+		this.size--;
+		this.names[this.size] = null;
+		this.values[this.size] = null;
+	}
+
+	private int append(String name) {
+		if (this.size == this.names.length) {
+			int capacity = Math.max(8, this.size * 2);
+			this.names = Arrays.copyOf(this.names, capacity);
+			this.numbers = Arrays.copyOf(this.numbers, capacity);
+			this.values = Arrays.copyOf(this.values, capacity);
+		}
+		this.names[this.size] = name;
+		return this.size++;
+	}
+
+}
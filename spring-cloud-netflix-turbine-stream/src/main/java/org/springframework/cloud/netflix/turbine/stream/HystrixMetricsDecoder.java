@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * Decodes the messages of the hystrix stream into {@link HystrixMetrics} with a
+ * streaming parser, from a single message, an array of messages, or a legacy message
+ * embedded in a JSON string, which is parsed from the characters of the string without
+ * copying it.
+ */
+class HystrixMetricsDecoder {
+
+	private static final Log log = LogFactory.getLog(HystrixMetricsDecoder.class);
+
+	private final JsonFactory jsonFactory;
+
+	HystrixMetricsDecoder(JsonFactory jsonFactory) {
+		this.jsonFactory = jsonFactory;
+	}
+
+	/**
+	 * Decodes the metrics of a payload. A message without origin or data is logged and
+	 * skipped, as is a message whose consumer fails, without affecting the other
+	 * messages of the payload.
+	 * @throws IOException if the payload is not valid JSON
+	 */
+	void decode(byte[] payload, Consumer<HystrixMetrics> consumer) throws IOException {
+		try (JsonParser parser = this.jsonFactory.createParser(payload)) {
+			JsonToken token = parser.nextToken();
+			if (token == JsonToken.VALUE_STRING) {
+				// Legacy payload from an Angel client
+				try (JsonParser embedded = this.jsonFactory.createParser(
+						parser.getTextCharacters(), parser.getTextOffset(),
+						parser.getTextLength())) {
+					decode(embedded, embedded.nextToken(), consumer);
+				}
+			}
+			else {
+				decode(parser, token, consumer);
+			}
+		}
+	}
+
+	private void decode(JsonParser parser, JsonToken token,
+			Consumer<HystrixMetrics> consumer) throws IOException {
+		if (token == JsonToken.START_OBJECT) {
+			accept(readMessage(parser), consumer);
+		}
+		else if (token == JsonToken.START_ARRAY) {
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token != JsonToken.START_OBJECT) {
+					throw new JsonParseException(parser,
+							"Expected a hystrix stream message, found " + token);
+				}
+				accept(readMessage(parser), consumer);
+			}
+		}
+		else {
+			throw new JsonParseException(parser,
+					"Expected a hystrix stream message, found " + token);
+		}
+	}
+
+	private void accept(HystrixMetrics metrics, Consumer<HystrixMetrics> consumer) {
+		if (metrics == null) {
+			return;
+		}
+		try {
+			consumer.accept(metrics);
+		}
+		catch (RuntimeException ex) {
+			log.error("Error receiving hystrix stream metric: " + metrics, ex);
+		}
+	}
+
+	private HystrixMetrics readMessage(JsonParser parser) throws IOException {
+		HystrixMetrics metrics = null;
+		String instanceId = null;
+		String event = null;
+		long sequence = -1;
+		boolean keyframe = false;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("origin".equals(field) && token == JsonToken.START_OBJECT) {
+				instanceId = readInstanceId(parser);
+			}
+			else if ("data".equals(field) && token == JsonToken.START_OBJECT) {
+				metrics = readObject(parser, new HystrixMetrics());
+			}
+			else if ("event".equals(field)) {
+				event = parser.getValueAsString();
+			}
+			else if ("sequence".equals(field)) {
+				sequence = parser.getValueAsLong(-1);
+			}
+			else if ("keyframe".equals(field)) {
+				keyframe = parser.getValueAsBoolean();
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		if (instanceId == null || (metrics == null && !"cycle".equals(event))) {
+			log.error("Ignoring hystrix stream message without "
+					+ (instanceId == null ? "origin" : "data"));
+			return null;
+		}
+		if (metrics == null) {
+			metrics = new HystrixMetrics(1);
+		}
+		metrics.put("instanceId", instanceId);
+		metrics.setEvent(event);
+		metrics.setSequence(sequence);
+		metrics.setKeyframe(keyframe);
+		return metrics;
+	}
+
+	private String readInstanceId(JsonParser parser) throws IOException {
+		String id = null;
+		String serviceId = null;
+		String host = null;
+		String port = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			parser.nextToken();
+			if ("id".equals(field)) {
+				id = parser.getValueAsString();
+			}
+			else if ("serviceId".equals(field)) {
+				serviceId = parser.getValueAsString();
+			}
+			else if ("host".equals(field)) {
+				host = parser.getValueAsString();
+			}
+			else if ("port".equals(field)) {
+				port = parser.getValueAsString();
+			}
+			else {
+				parser.skipChildren();
+			}
+		}
+		if (StringUtils.hasText(id)) {
+			return id;
+		}
+		// TODO: instanceid template
+		return serviceId + ":" + host + ":" + port;
+	}
+
+	private HystrixMetrics readObject(JsonParser parser, HystrixMetrics metrics)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			switch (parser.nextToken()) {
+			case VALUE_NUMBER_INT:
+				if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+					metrics.add(name, parser.getBigIntegerValue());
+				}
+				else {
+					metrics.addNumber(name, parser.getLongValue());
+				}
+				break;
+			case VALUE_NUMBER_FLOAT:
+				metrics.add(name, parser.getDoubleValue());
+				break;
+			case VALUE_STRING:
+				metrics.add(name, parser.getText());
+				break;
+			case VALUE_TRUE:
+				metrics.add(name, Boolean.TRUE);
+				break;
+			case VALUE_FALSE:
+				metrics.add(name, Boolean.FALSE);
+				break;
+			case START_OBJECT:
+				metrics.add(name, readObject(parser, new HystrixMetrics()));
+				break;
+			case START_ARRAY:
+				metrics.add(name, parser.readValueAs(List.class));
+				break;
+			default:
+				metrics.add(name, null);
+			}
+		}
+		return metrics;
+	}
+
+}
@@ -18,7 +18,6 @@ package org.springframework.cloud.netflix.turbine.stream;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -42,56 +41,57 @@ public class HystrixStreamAggregator {
 
 	private static final Log log = LogFactory.getLog(HystrixStreamAggregator.class);
 
-	private ObjectMapper objectMapper;
+	private HystrixMetricsDecoder decoder;
 
 	private PublishSubject<Map<String, Object>> subject;
 
+	private final HystrixStreamDeltas deltas = new HystrixStreamDeltas(this::publish);
+
 	@Autowired
 	public HystrixStreamAggregator(ObjectMapper objectMapper,
 			PublishSubject<Map<String, Object>> subject) {
-		this.objectMapper = objectMapper;
+		this.decoder = new HystrixMetricsDecoder(objectMapper.getFactory());
 		this.subject = subject;
 	}
 
 	@ServiceActivator(inputChannel = TurbineStreamClient.INPUT)
 	public void sendToSubject(@Payload byte[] bytePayload) {
-		String payload = new String(bytePayload, StandardCharsets.UTF_8);
 		if (log.isTraceEnabled()) {
-			log.trace("Received hystrix stream payload string: " + payload);
-		}
-		if (payload.startsWith("\"")) {
-			// Legacy payload from an Angel client
-			payload = payload.substring(1, payload.length() - 1);
-			payload = payload.replace("\\\"", "\"");
+			log.trace("Received hystrix stream payload string: "
+					+ new String(bytePayload, StandardCharsets.UTF_8));
 		}
 		try {
-			if (payload.startsWith("[")) {
-				@SuppressWarnings("unchecked")
-				List<Map<String, Object>> list = this.objectMapper.readValue(payload,
-						List.class);
-				for (Map<String, Object> map : list) {
-					sendMap(map);
-				}
-			}
-			else {
-				@SuppressWarnings("unchecked")
-				Map<String, Object> map = this.objectMapper.readValue(payload, Map.class);
-				sendMap(map);
-			}
+			this.decoder.decode(bytePayload, this::receive);
 		}
 		catch (IOException ex) {
-			log.error("Error receiving hystrix stream payload: " + payload, ex);
+			log.error("Error receiving hystrix stream payload: "
+					+ new String(bytePayload, StandardCharsets.UTF_8), ex);
+		}
+	}
+
+	private void receive(HystrixMetrics metrics) {
+		if (metrics.getSequence() >= 0) {
+			// sent in delta mode
+			this.deltas.receive(metrics);
+			return;
 		}
+		publish(metrics);
 	}
 
-	private void sendMap(Map<String, Object> map) {
-		Map<String, Object> data = getPayloadData(map);
+	private void publish(Map<String, Object> data) {
 		if (log.isDebugEnabled()) {
 			log.debug("Received hystrix stream payload: " + data);
 		}
 		this.subject.onNext(data);
 	}
 
+	/**
+	 * @param jsonMap a message of the hystrix stream
+	 * @return the data of the message, with its instance id
+	 * @deprecated the messages are decoded by {@link HystrixMetricsDecoder}, which adds
+	 * the instance id to their data
+	 */
+	@Deprecated
 	public static Map<String, Object> getPayloadData(Map<String, Object> jsonMap) {
 		@SuppressWarnings("unchecked")
 		Map<String, Object> origin = (Map<String, Object>) jsonMap.get("origin");
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Reconstructs the full metrics of the instances sending their Hystrix metrics in delta
+ * mode, where the metrics that did not change are only sent in keyframes.
+ *
+ * The last metrics of every command and thread pool are kept per instance. When the
+ * {@code cycle} event that ends a gather cycle is received, the metrics that were not
+ * sent in that cycle are published again, with a new {@code currentTime}. The metrics
+ * that are not in a keyframe are forgotten. A missed cycle is detected by its sequence
+ * number, and is corrected by the next keyframe.
+ */
+class HystrixStreamDeltas {
+
+	private static final Log log = LogFactory.getLog(HystrixStreamDeltas.class);
+
+	private static final long INSTANCE_TIMEOUT = 60 * 1000;
+
+	private final Consumer<Map<String, Object>> publisher;
+
+	private final Map<String, InstanceMetrics> instances = new ConcurrentHashMap<>();
+
+	private final AtomicLong missedCycles = new AtomicLong();
+
+	private volatile long lastEviction = System.currentTimeMillis();
+
+	HystrixStreamDeltas(Consumer<Map<String, Object>> publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @param metrics the metrics or the cycle event of an instance in delta mode
+	 */
+	void receive(HystrixMetrics metrics) {
+		InstanceMetrics instance = this.instances.computeIfAbsent(
+				(String) metrics.get("instanceId"), id -> new InstanceMetrics());
+		if ("cycle".equals(metrics.getEvent())) {
+			synchronized (instance) {
+				instance.begin(metrics.getSequence(), this.missedCycles);
+				instance.end(metrics.isKeyframe(), this.publisher);
+			}
+			evictInstances();
+		}
+		else {
+			synchronized (instance) {
+				instance.begin(metrics.getSequence(), this.missedCycles);
+				instance.put(metrics);
+			}
+			this.publisher.accept(metrics);
+		}
+	}
+
+	/**
+	 * @return the number of gather cycles that were not received
+	 */
+	long getMissedCycles() {
+		return this.missedCycles.get();
+	}
+
+	/**
+	 * @return the number of instances with metrics
+	 */
+	int getInstances() {
+		return this.instances.size();
+	}
+
+	private void evictInstances() {
+		long now = System.currentTimeMillis();
+		if (now - this.lastEviction < INSTANCE_TIMEOUT) {
+			return;
+		}
+		this.lastEviction = now;
+		for (Iterator<InstanceMetrics> iterator = this.instances.values()
+				.iterator(); iterator.hasNext();) {
+			if (now - iterator.next().lastCycle > INSTANCE_TIMEOUT) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static class InstanceMetrics {
+
+		private final Map<String, HystrixMetrics> metrics = new LinkedHashMap<>();
+
+		private final Set<String> received = new HashSet<>();
+
+		private long sequence = -1;
+
+		private volatile long lastCycle = System.currentTimeMillis();
+
+		void begin(long sequence, AtomicLong missedCycles) {
+			if (sequence == this.sequence) {
+				return;
+			}
+			if (this.sequence >= 0 && sequence > this.sequence + 1) {
+				missedCycles.addAndGet(sequence - this.sequence - 1);
+				if (log.isDebugEnabled()) {
+					log.debug("Missed " + (sequence - this.sequence - 1)
+							+ " hystrix stream cycles before " + sequence);
+				}
+			}
+			// a new cycle, or a restarted instance
+			this.sequence = sequence;
+			this.received.clear();
+		}
+
+		void put(HystrixMetrics data) {
+			String key = data.get("type") + "/" + data.get("name");
+			this.metrics.put(key, data);
+			this.received.add(key);
+		}
+
+		void end(boolean keyframe, Consumer<Map<String, Object>> publisher) {
+			this.lastCycle = System.currentTimeMillis();
+			for (Iterator<Map.Entry<String, HystrixMetrics>> iterator = this.metrics
+					.entrySet().iterator(); iterator.hasNext();) {
+				Map.Entry<String, HystrixMetrics> metric = iterator.next();
+				if (this.received.contains(metric.getKey())) {
+					continue;
+				}
+				if (keyframe) {
+					iterator.remove();
+				}
+				else {
+					HystrixMetrics data = metric.getValue().copy();
+					data.putNumber("currentTime", this.lastCycle);
+					publisher.accept(data);
+				}
+			}
+			this.received.clear();
+		}
+	}
+
+}
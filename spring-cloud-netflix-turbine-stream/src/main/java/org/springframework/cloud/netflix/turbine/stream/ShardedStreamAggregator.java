@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.netflix.turbine.aggregator.InstanceKey;
+import com.netflix.turbine.aggregator.StreamAggregator;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+
+/**
+ * Aggregates the Hystrix metrics of all the instances with a configurable number of
+ * shards, each with its own Turbine {@link StreamAggregator} running on its own
+ * thread. The metrics are sharded by type and name, so that all the instances of a
+ * command are aggregated by the same shard. The Hystrix streams prefix the names with
+ * the service id by default, and the commands of different services with the same
+ * unprefixed name are aggregated together, as by a single {@link StreamAggregator}.
+ *
+ * Each shard has a bounded queue that drops its oldest metrics when the shard falls
+ * behind. The lag between the reception of a metric and its aggregation, the maximum lag
+ * of the last completed lag interval, the size of the queue and the number of aggregated
+ * and dropped metrics are available per shard.
+ */
+class ShardedStreamAggregator {
+
+	private static final Log log = LogFactory.getLog(ShardedStreamAggregator.class);
+
+	/**
+	 * The default interval over which the maximum lag is reported, the default rolling
+	 * window of the Hystrix metrics.
+	 */
+	static final long DEFAULT_LAG_INTERVAL = 10000;
+
+	private final Observable<Map<String, Object>> source;
+
+	private final Shard[] shards;
+
+	ShardedStreamAggregator(Observable<Map<String, Object>> source, int shards,
+			int queueSize) {
+		this(source, shards, queueSize, DEFAULT_LAG_INTERVAL);
+	}
+
+	ShardedStreamAggregator(Observable<Map<String, Object>> source, int shards,
+			int queueSize, long lagInterval) {
+		this.source = source;
+		this.shards = new Shard[Math.max(1, shards)];
+		for (int i = 0; i < this.shards.length; i++) {
+			this.shards[i] = new Shard(i, Math.max(1, queueSize),
+					Math.max(1, lagInterval));
+		}
+	}
+
+	/**
+	 * @return the aggregated metrics of all the shards, aggregating from the first
+	 * subscription until the last unsubscription
+	 */
+	Observable<Map<String, Object>> aggregate() {
+		return Observable.defer(() -> {
+			List<Observable<Map<String, Object>>> outputs = new ArrayList<>();
+			for (Shard shard : this.shards) {
+				outputs.add(shard.start());
+			}
+			PublishSubject<Map<String, Object>> output = PublishSubject.create();
+			// the shards are subscribed before any metric is routed to them
+			Subscription aggregation = Observable.merge(outputs).subscribe(output);
+			Subscription routing = this.source.subscribe(this::route,
+					ex -> log.error("Error receiving hystrix metrics", ex));
+			return output.doOnUnsubscribe(() -> {
+				routing.unsubscribe();
+				aggregation.unsubscribe();
+				for (Shard shard : this.shards) {
+					shard.stop();
+				}
+			});
+		});
+	}
+
+	/**
+	 * @return the statistics of every shard
+	 */
+	List<Map<String, Object>> getStatistics() {
+		List<Map<String, Object>> statistics = new ArrayList<>();
+		for (Shard shard : this.shards) {
+			statistics.add(shard.getStatistics());
+		}
+		return statistics;
+	}
+
+	private void route(Map<String, Object> data) {
+		if (data.get("instanceId") == null) {
+			if (log.isDebugEnabled()) {
+				log.debug("Ignoring hystrix metrics without instanceId: " + data);
+			}
+			return;
+		}
+		int hash = 31 * Objects.hashCode(data.get("type"))
+				+ Objects.hashCode(data.get("name"));
+		this.shards[Math.floorMod(hash, this.shards.length)].submit(data);
+	}
+
+	private static class Shard {
+
+		private final int index;
+
+		private final int queueSize;
+
+		private final long lagInterval;
+
+		private final AtomicLong aggregated = new AtomicLong();
+
+		private final AtomicLong dropped = new AtomicLong();
+
+		private volatile long lag;
+
+		// only written by the aggregation thread
+		private volatile long lagIntervalIndex;
+
+		private volatile long maxLag;
+
+		private volatile long previousMaxLag;
+
+		private volatile ThreadPoolExecutor executor;
+
+		private volatile PublishSubject<Map<String, Object>> input;
+
+		Shard(int index, int queueSize, long lagInterval) {
+			this.index = index;
+			this.queueSize = queueSize;
+			this.lagInterval = lagInterval;
+		}
+
+		synchronized Observable<Map<String, Object>> start() {
+			this.input = PublishSubject.create();
+			this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(this.queueSize), runnable -> {
+						Thread thread = new Thread(runnable,
+								"turbine-aggregation-" + this.index);
+						thread.setDaemon(true);
+						return thread;
+					}, (runnable, executor) -> {
+						if (!executor.isShutdown()) {
+							executor.getQueue().poll();
+							this.dropped.incrementAndGet();
+							executor.execute(runnable);
+						}
+					});
+			return StreamAggregator
+					.aggregateGroupedStreams(this.input.groupBy(
+							data -> InstanceKey.create((String) data.get("instanceId"))))
+					.flatMap(o -> o);
+		}
+
+		synchronized void stop() {
+			if (this.executor != null) {
+				this.executor.shutdownNow();
+				this.executor = null;
+			}
+		}
+
+		void submit(Map<String, Object> data) {
+			ThreadPoolExecutor executor = this.executor;
+			PublishSubject<Map<String, Object>> input = this.input;
+			if (executor == null) {
+				return;
+			}
+			long received = System.nanoTime();
+			executor.execute(() -> {
+				long lag = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - received);
+				this.lag = lag;
+				recordMaxLag(lag);
+				this.aggregated.incrementAndGet();
+				input.onNext(data);
+			});
+		}
+
+		private void recordMaxLag(long lag) {
+			long interval = System.currentTimeMillis() / this.lagInterval;
+			if (interval != this.lagIntervalIndex) {
+				this.previousMaxLag = interval == this.lagIntervalIndex + 1 ? this.maxLag
+						: 0;
+				this.maxLag = lag;
+				this.lagIntervalIndex = interval;
+			}
+			else if (lag > this.maxLag) {
+				this.maxLag = lag;
+			}
+		}
+
+		/**
+		 * @return the maximum lag of the last completed lag interval, or 0 when no
+		 * metric was aggregated during that interval
+		 */
+		private long getMaxLag() {
+			long interval = System.currentTimeMillis() / this.lagInterval;
+			long recorded = this.lagIntervalIndex;
+			if (interval == recorded) {
+				return this.previousMaxLag;
+			}
+			return interval == recorded + 1 ? this.maxLag : 0;
+		}
+
+		Map<String, Object> getStatistics() {
+			ThreadPoolExecutor executor = this.executor;
+			Map<String, Object> statistics = new LinkedHashMap<>();
+			statistics.put("shard", this.index);
+			statistics.put("queueSize", executor == null ? 0 : executor.getQueue().size());
+			statistics.put("lag", this.lag);
+			statistics.put("maxLag", getMaxLag());
+			statistics.put("aggregated", this.aggregated.get());
+			statistics.put("dropped", this.dropped.get());
+			return statistics;
+		}
+	}
+
+}
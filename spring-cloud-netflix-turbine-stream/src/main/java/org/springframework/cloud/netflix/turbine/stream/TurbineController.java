@@ -18,17 +18,21 @@ package org.springframework.cloud.netflix.turbine.stream;
 
 import java.time.Duration;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.netflix.turbine.aggregator.InstanceKey;
-import com.netflix.turbine.aggregator.StreamAggregator;
 import com.netflix.turbine.internal.JsonUtility;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import rx.Observable;
 import rx.RxReactiveStreams;
@@ -38,22 +42,98 @@ import rx.subjects.PublishSubject;
 public class TurbineController {
     private static final Log log = LogFactory.getLog(TurbineController.class);
 
-    private final Flux<String> flux;
+    /**
+     * The granularity of the windows requested by the viewers, which are rounded so that
+     * only a bounded number of windowed streams can be created.
+     */
+    private static final long WINDOW_GRANULARITY = 100;
+
+    private static final long MAX_WINDOW = 60 * 1000;
+
+    private final Flux<Map<String, Object>> flux;
+
+    private final long window;
+
+    private final Map<Long, Flux<String>> windowed = new ConcurrentHashMap<>();
+
+    private final ShardedStreamAggregator aggregator;
+
+    private final int viewerBufferSize;
+
+    private final AtomicLong viewerDropped = new AtomicLong();
 
     public TurbineController(PublishSubject<Map<String, Object>> hystrixSubject) {
-        Observable<Map<String, Object>> stream = StreamAggregator.aggregateGroupedStreams(hystrixSubject.groupBy(
-                data -> InstanceKey.create((String) data.get("instanceId"))))
+        this(hystrixSubject, new TurbineStreamProperties());
+    }
+
+    public TurbineController(PublishSubject<Map<String, Object>> hystrixSubject,
+            TurbineStreamProperties properties) {
+        this.aggregator = new ShardedStreamAggregator(hystrixSubject,
+                properties.getAggregationShards(), properties.getShardQueueSize());
+        this.viewerBufferSize = Math.max(1, properties.getViewerBufferSize());
+        this.window = properties.getWindow();
+        Observable<Map<String, Object>> stream = this.aggregator.aggregate()
                 .doOnUnsubscribe(() -> log.info("Unsubscribing aggregation."))
-                .doOnSubscribe(() -> log.info("Starting aggregation")).flatMap(o -> o);
+                .doOnSubscribe(() -> log.info("Starting aggregation"));
         Flux<Map<String, Object>> ping = Flux.interval(Duration.ofSeconds(5), Duration.ofSeconds(10))
                 .map(l -> Collections.singletonMap("type", (Object) "ping"))
                 .share();
-        flux = Flux.merge(RxReactiveStreams.toPublisher(stream), ping)
-                .share().map(map -> JsonUtility.mapToJson(map));
+        flux = Flux.merge(RxReactiveStreams.toPublisher(stream.onBackpressureDrop()), ping)
+                .share();
     }
 
+    /**
+     * Every viewer has its own buffer, which drops its oldest metrics when the viewer
+     * does not keep up, so that a slow viewer does not hold back the others.
+     *
+     * @param window the interval in milliseconds over which the metrics of a command
+     * are coalesced for this viewer, defaulting to {@code turbine.stream.window}
+     */
     @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> stream() {
-        return this.flux;
+    public Flux<String> stream(@RequestParam(required = false) Long window) {
+        return windowed(window == null ? this.window : window)
+                .onBackpressureBuffer(this.viewerBufferSize,
+                        dropped -> this.viewerDropped.incrementAndGet(),
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * The viewers with the same window share the same stream, so that the metrics are
+     * only coalesced and serialized once per window.
+     */
+    private Flux<String> windowed(long window) {
+        long rounded = Math.min(MAX_WINDOW,
+                Math.max(0, window) / WINDOW_GRANULARITY * WINDOW_GRANULARITY);
+        return this.windowed.computeIfAbsent(rounded, interval -> {
+            Flux<Map<String, Object>> metrics = this.flux;
+            if (interval > 0) {
+                metrics = this.flux.window(Duration.ofMillis(interval))
+                        .concatMap(TurbineController::latest);
+            }
+            return metrics.map(JsonUtility::mapToJson).share();
+        });
+    }
+
+    /**
+     * @return the latest metrics of every command and thread pool of a window, in the
+     * order they were first received
+     */
+    private static Flux<Map<String, Object>> latest(Flux<Map<String, Object>> window) {
+        return window
+                .collect(LinkedHashMap<Object, Map<String, Object>>::new,
+                        (latest, map) -> latest.put(key(map), map))
+                .flatMapIterable(Map::values);
+    }
+
+    private static Object key(Map<String, Object> map) {
+        return Objects.toString(map.get("type")) + "/" + map.get("name");
+    }
+
+    @GetMapping(path = "/shards", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> shards() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("shards", this.aggregator.getStatistics());
+        statistics.put("viewerDropped", this.viewerDropped.get());
+        return statistics;
     }
 }
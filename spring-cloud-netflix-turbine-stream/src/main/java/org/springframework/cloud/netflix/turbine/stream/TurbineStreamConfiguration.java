@@ -44,8 +44,9 @@ public class TurbineStreamConfiguration {
 	}
 
 	@Bean
-	public TurbineController turbineController(PublishSubject<Map<String, Object>> hystrixSubject) {
-		return new TurbineController(hystrixSubject);
+	public TurbineController turbineController(PublishSubject<Map<String, Object>> hystrixSubject,
+			TurbineStreamProperties properties) {
+		return new TurbineController(hystrixSubject, properties);
 	}
 
 }
@@ -34,6 +34,32 @@ public class TurbineStreamProperties {
 
 	private String contentType = MediaType.APPLICATION_JSON_VALUE;
 
+	/**
+	 * The number of shards aggregating the metrics in parallel, by command name. Defaults
+	 * to the number of processors.
+	 */
+	private int aggregationShards = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The number of metrics waiting to be aggregated by a shard, before the oldest ones
+	 * are dropped.
+	 */
+	private int shardQueueSize = 10000;
+
+	/**
+	 * The number of aggregated metrics buffered for a viewer of the stream, before the
+	 * oldest ones are dropped.
+	 */
+	private int viewerBufferSize = 1000;
+
+	/**
+	 * The interval in milliseconds over which the aggregated metrics of a command are
+	 * coalesced, only the latest being sent to the viewers. Viewers can ask for another
+	 * interval with the {@code window} query parameter. Defaults to 0, sending every
+	 * update.
+	 */
+	private long window = 0;
+
 	public String getDestination() {
 		return destination;
 	}
@@ -50,6 +76,38 @@ public class TurbineStreamProperties {
 		this.contentType = contentType;
 	}
 
+	public int getAggregationShards() {
+		return aggregationShards;
+	}
+
+	public void setAggregationShards(int aggregationShards) {
+		this.aggregationShards = aggregationShards;
+	}
+
+	public int getShardQueueSize() {
+		return shardQueueSize;
+	}
+
+	public void setShardQueueSize(int shardQueueSize) {
+		this.shardQueueSize = shardQueueSize;
+	}
+
+	public int getViewerBufferSize() {
+		return viewerBufferSize;
+	}
+
+	public void setViewerBufferSize(int viewerBufferSize) {
+		this.viewerBufferSize = viewerBufferSize;
+	}
+
+	public long getWindow() {
+		return window;
+	}
+
+	public void setWindow(long window) {
+		this.window = window;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o)
@@ -58,19 +116,29 @@ public class TurbineStreamProperties {
 			return false;
 		TurbineStreamProperties that = (TurbineStreamProperties) o;
 		return Objects.equals(destination, that.destination)
-				&& Objects.equals(contentType, that.contentType);
+				&& Objects.equals(contentType, that.contentType)
+				&& aggregationShards == that.aggregationShards
+				&& shardQueueSize == that.shardQueueSize
+				&& viewerBufferSize == that.viewerBufferSize
+				&& window == that.window;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(destination, contentType);
+		return Objects.hash(destination, contentType, aggregationShards, shardQueueSize,
+				viewerBufferSize, window);
 	}
 
 	@Override
 	public String toString() {
 		return new StringBuilder("TurbineStreamProperties{")
 				.append(", ").append("destination='").append(destination).append("', ")
-				.append("contentType='").append(contentType).append("'}").toString();
+				.append("contentType='").append(contentType).append("', ")
+				.append("aggregationShards=").append(aggregationShards).append(", ")
+				.append("shardQueueSize=").append(shardQueueSize).append(", ")
+				.append("viewerBufferSize=").append(viewerBufferSize).append(", ")
+				.append("window=").append(window).append("}")
+				.toString();
 	}
 
 }
@@ -16,10 +16,17 @@
 
 package org.springframework.cloud.netflix.turbine.stream;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.junit.Rule;
 import org.junit.Test;
 
@@ -28,12 +35,15 @@ import org.springframework.boot.test.rule.OutputCapture;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 import rx.subjects.PublishSubject;
 
 public class HystrixStreamAggregatorTests {
 
+	private static final Log log = LogFactory.getLog(HystrixStreamAggregatorTests.class);
+
 	private ObjectMapper mapper = new ObjectMapper();
 
 	private PublishSubject<Map<String, Object>> publisher = PublishSubject.create();
@@ -62,6 +72,125 @@ public class HystrixStreamAggregatorTests {
 		this.output.expect(not(containsString("ERROR")));
 	}
 
+	@Test
+	public void batchOfMessages() throws Exception {
+		List<Map<String, Object>> received = new ArrayList<>();
+		this.publisher.subscribe(received::add);
+		String invalid = "{\"data\":{\"type\":\"HystrixCommand\"}}";
+		this.aggregator.sendToSubject(("[" + PAYLOAD + "," + invalid + ","
+				+ PAYLOAD.replace("\"host\":\"dsyer\"", "\"host\":\"other\"") + "]")
+						.getBytes());
+		assertThat(received.size(), equalTo(2));
+		assertThat(received.get(0).get("instanceId"), equalTo("application"));
+		assertThat(received.get(1).get("name"), equalTo("application.ok"));
+	}
+
+	@Test
+	public void deltasAreReconstructed() throws Exception {
+		List<Map<String, Object>> received = new ArrayList<>();
+		this.publisher.subscribe(received::add);
+
+		this.aggregator.sendToSubject(("[" + delta("application.a", 0, true) + ","
+				+ delta("application.b", 0, true) + "," + cycle(0, true) + "]").getBytes());
+		assertThat(received.size(), equalTo(2));
+
+		// b is unchanged and replayed at the end of the cycle
+		this.aggregator.sendToSubject(delta("application.a", 1, false).getBytes());
+		this.aggregator.sendToSubject(cycle(1, false).getBytes());
+		assertThat(received.size(), equalTo(4));
+		assertThat(received.get(2).get("name"), equalTo("application.a"));
+		assertThat(received.get(3).get("name"), equalTo("application.b"));
+		assertThat(received.get(3).get("instanceId"), equalTo("application"));
+		assertThat(received.get(3).get("rollingCountSuccess"), equalTo(1));
+
+		// b is not in the keyframe any more
+		this.aggregator.sendToSubject(("[" + delta("application.a", 3, true) + ","
+				+ cycle(3, true) + "]").getBytes());
+		this.aggregator.sendToSubject(cycle(4, false).getBytes());
+		assertThat(received.size(), equalTo(6));
+		assertThat(received.get(5).get("name"), equalTo("application.a"));
+		this.output.expect(not(containsString("ERROR")));
+	}
+
+	private static String delta(String name, long sequence, boolean keyframe) {
+		String payload = PAYLOAD.replace("application.ok", name);
+		return payload.substring(0, payload.length() - 1) + ",\"sequence\":" + sequence
+				+ ",\"keyframe\":" + keyframe + "}";
+	}
+
+	private static String cycle(long sequence, boolean keyframe) {
+		return "{\"origin\":{\"host\":\"dsyer\",\"port\":-1,\"serviceId\":\"application\",\"id\":\"application\"},\"event\":\"cycle\",\"sequence\":"
+				+ sequence + ",\"keyframe\":" + keyframe + "}";
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void messageDecodedToTypedMetrics() throws Exception {
+		List<Map<String, Object>> received = new ArrayList<>();
+		this.publisher.subscribe(received::add);
+		String payload = PAYLOAD.replace("\"requestCount\":0",
+				"\"requestCount\":12345678901");
+		this.aggregator.sendToSubject(payload.getBytes());
+
+		HystrixMetrics metrics = (HystrixMetrics) received.get(0);
+		assertThat(metrics.getNumber("rollingCountSuccess", -1), equalTo(1L));
+		assertThat(metrics.get("requestCount"), equalTo(12345678901L));
+		assertThat(metrics.get("isCircuitBreakerOpen"), equalTo(false));
+		assertThat(metrics.get("propertyValue_executionIsolationThreadPoolKeyOverride"),
+				nullValue());
+		assertThat(((Map<String, Object>) metrics.get("latencyTotal")).get("99.5"),
+				equalTo(0));
+		Map<String, Object> expected = (Map<String, Object>) this.mapper
+				.readValue(payload, Map.class).get("data");
+		expected.put("instanceId", "application");
+		assertThat(metrics, equalTo(expected));
+	}
+
+	@Test
+	public void typedMetricsAreMutable() throws Exception {
+		List<Map<String, Object>> received = new ArrayList<>();
+		this.publisher.subscribe(received::add);
+		this.aggregator.sendToSubject(PAYLOAD.getBytes());
+		Map<String, Object> metrics = received.get(0);
+		Map<String, Object> expected = new HashMap<>(metrics);
+
+		for (Map<String, Object> map : Arrays.asList(metrics, expected)) {
+			map.remove("requestCount");
+			map.keySet().removeIf(name -> name.startsWith("rollingCount"));
+			map.put("reportingHosts", 2);
+		}
+
+		assertThat(metrics, equalTo(expected));
+		assertThat(metrics.get("reportingHosts"), equalTo(2));
+		metrics.clear();
+		assertThat(metrics.isEmpty(), equalTo(true));
+	}
+
+	@Test
+	public void decodingBenchmark() throws Exception {
+		byte[] payload = PAYLOAD.getBytes();
+		HystrixMetricsDecoder decoder = new HystrixMetricsDecoder(this.mapper.getFactory());
+		int messages = 50000;
+		long[] count = new long[1];
+		for (int i = 0; i < messages; i++) {
+			this.mapper.readValue(payload, Map.class);
+			decoder.decode(payload, metrics -> count[0]++);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < messages; i++) {
+			decoder.decode(payload, metrics -> count[0]++);
+		}
+		long decoder = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < messages; i++) {
+			this.mapper.readValue(payload, Map.class);
+		}
+		long binding = System.nanoTime() - start;
+		log.info("Decoded " + messages + " messages in " + decoder / 1000000
+				+ "ms, bound them to maps in " + binding / 1000000 + "ms");
+		assertThat(count[0], equalTo(2L * messages));
+	}
+
 	@Test
 	public void doubleEncodedMessage() throws Exception {
 		this.publisher.subscribe(map -> {
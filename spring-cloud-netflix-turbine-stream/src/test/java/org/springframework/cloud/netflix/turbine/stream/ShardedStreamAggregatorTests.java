@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import rx.Subscription;
+import rx.subjects.PublishSubject;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ShardedStreamAggregatorTests {
+
+	private final PublishSubject<Map<String, Object>> source = PublishSubject.create();
+
+	@Test
+	public void commandsAreAggregatedAcrossInstances() throws Exception {
+		ShardedStreamAggregator aggregator = new ShardedStreamAggregator(this.source, 4,
+				1000);
+		Map<String, Map<String, Object>> aggregated = new ConcurrentHashMap<>();
+		Subscription subscription = aggregator.aggregate()
+				.subscribe(data -> aggregated.put((String) data.get("name"), data));
+		try {
+			for (int instance = 0; instance < 3; instance++) {
+				for (int command = 0; command < 20; command++) {
+					this.source.onNext(
+							metrics("instance" + instance, "app.command" + command));
+				}
+			}
+			this.source.onNext(metrics(null, "app.invalid"));
+
+			await(() -> aggregated(aggregator) == 60);
+			await(() -> aggregated.size() == 20 && aggregated.values().stream()
+					.allMatch(data -> reportingHosts(data) == 3));
+			List<Map<String, Object>> statistics = aggregator.getStatistics();
+			assertThat(statistics.size(), equalTo(4));
+			for (Map<String, Object> shard : statistics) {
+				assertThat(shard.get("dropped"), equalTo(0L));
+			}
+		}
+		finally {
+			subscription.unsubscribe();
+		}
+	}
+
+	@Test
+	public void shardsStopWithTheLastSubscriber() throws Exception {
+		ShardedStreamAggregator aggregator = new ShardedStreamAggregator(this.source, 2,
+				1000);
+		aggregator.aggregate().subscribe().unsubscribe();
+
+		this.source.onNext(metrics("instance", "app.command"));
+
+		assertThat(aggregated(aggregator), equalTo(0L));
+		assertThat(this.source.hasObservers(), equalTo(false));
+	}
+
+	@Test
+	public void maxLagIsResetAfterAnIdleInterval() throws Exception {
+		ShardedStreamAggregator aggregator = new ShardedStreamAggregator(this.source, 1,
+				1000, 50);
+		Subscription subscription = aggregator.aggregate().subscribe();
+		try {
+			this.source.onNext(metrics("instance", "app.command"));
+			await(() -> aggregated(aggregator) == 1);
+
+			Thread.sleep(150);
+			assertThat(aggregator.getStatistics().get(0).get("maxLag"), equalTo(0L));
+		}
+		finally {
+			subscription.unsubscribe();
+		}
+	}
+
+	private static long aggregated(ShardedStreamAggregator aggregator) {
+		long aggregated = 0;
+		for (Map<String, Object> shard : aggregator.getStatistics()) {
+			aggregated += (Long) shard.get("aggregated");
+		}
+		return aggregated;
+	}
+
+	private static long reportingHosts(Map<String, Object> data) {
+		Object reportingHosts = data.get("reportingHosts");
+		return reportingHosts instanceof Number ? ((Number) reportingHosts).longValue()
+				: -1;
+	}
+
+	private static Map<String, Object> metrics(String instanceId, String name) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("instanceId", instanceId);
+		data.put("type", "HystrixCommand");
+		data.put("name", name);
+		data.put("group", "group");
+		data.put("currentTime", System.currentTimeMillis());
+		data.put("isCircuitBreakerOpen", false);
+		data.put("errorPercentage", 0);
+		data.put("errorCount", 0);
+		data.put("requestCount", 1);
+		data.put("rollingCountSuccess", 1);
+		data.put("reportingHosts", 1);
+		return data;
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue("Condition not met within 5000ms", condition.getAsBoolean());
+	}
+
+}
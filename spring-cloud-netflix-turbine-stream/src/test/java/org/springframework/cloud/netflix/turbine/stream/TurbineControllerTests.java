@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine.stream;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import reactor.core.Disposable;
+import rx.subjects.PublishSubject;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class TurbineControllerTests {
+
+	private final PublishSubject<Map<String, Object>> source = PublishSubject.create();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void windowCoalescesTheUpdatesOfACommand() throws Exception {
+		TurbineStreamProperties properties = new TurbineStreamProperties();
+		properties.setAggregationShards(1);
+		TurbineController controller = new TurbineController(this.source, properties);
+		List<String> received = new CopyOnWriteArrayList<>();
+		Disposable viewer = controller.stream(500L).subscribe(received::add);
+		try {
+			for (int count = 1; count <= 10; count++) {
+				this.source.onNext(metrics("instance", "app.command", count));
+			}
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (commands(received).isEmpty()
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			// let a possibly straddled window end
+			Thread.sleep(600);
+
+			List<Map<?, ?>> commands = commands(received);
+			assertTrue("Expected 1 or 2 coalesced updates but got " + commands.size(),
+					commands.size() >= 1 && commands.size() <= 2);
+			assertThat(commands.get(commands.size() - 1).get("rollingCountSuccess"),
+					equalTo(10));
+		}
+		finally {
+			viewer.dispose();
+		}
+	}
+
+	private List<Map<?, ?>> commands(List<String> received) {
+		return received.stream().map(json -> {
+			try {
+				return this.mapper.readValue(json, Map.class);
+			}
+			catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		}).filter(map -> "app.command".equals(map.get("name")))
+				.collect(Collectors.toList());
+	}
+
+	private static Map<String, Object> metrics(String instanceId, String name,
+			int count) {
+		Map<String, Object> data = new LinkedHashMap<>();
+		data.put("instanceId", instanceId);
+		data.put("type", "HystrixCommand");
+		data.put("name", name);
+		data.put("group", "group");
+		data.put("currentTime", System.currentTimeMillis());
+		data.put("isCircuitBreakerOpen", false);
+		data.put("errorPercentage", 0);
+		data.put("errorCount", 0);
+		data.put("requestCount", count);
+		data.put("rollingCountSuccess", count);
+		data.put("reportingHosts", 1);
+		return data;
+	}
+
+}
@@ -18,16 +18,25 @@ package org.springframework.cloud.netflix.turbine;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import com.netflix.turbine.discovery.Instance;
 import com.netflix.turbine.discovery.InstanceDiscovery;
@@ -45,7 +54,7 @@ import com.netflix.turbine.discovery.InstanceDiscovery;
  *
  * @author Spencer Gibb
  */
-public class CommonsInstanceDiscovery implements InstanceDiscovery {
+public class CommonsInstanceDiscovery implements InstanceDiscovery, DisposableBean {
 
 	private static final Log log = LogFactory.getLog(CommonsInstanceDiscovery.class);
 
@@ -55,9 +64,16 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 	protected static final String FUSED_HOST_PORT_KEY = "fusedHostPort";
 
 	private final Expression clusterNameExpression;
+	/**
+	 * Shared by all the evaluations of the cluster name expression, which only differ by
+	 * their root object.
+	 */
+	private final StandardEvaluationContext evaluationContext = new StandardEvaluationContext();
 	private DiscoveryClient discoveryClient;
 	private TurbineProperties turbineProperties;
 	private final boolean combineHostPort;
+	private ExecutorService executor;
+	private volatile Map<String, List<Instance>> previousInstances = Collections.emptyMap();
 
 	public CommonsInstanceDiscovery(TurbineProperties turbineProperties, DiscoveryClient discoveryClient) {
 		this(turbineProperties, DEFAULT_CLUSTER_NAME_EXPRESSION);
@@ -66,7 +82,9 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 
 	protected CommonsInstanceDiscovery(TurbineProperties turbineProperties, String defaultExpression) {
 		this.turbineProperties = turbineProperties;
-		SpelExpressionParser parser = new SpelExpressionParser();
+		// compiled to bytecode once it has been interpreted a few times
+		SpelExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(
+				SpelCompilerMode.MIXED, getClass().getClassLoader()));
 		String clusterNameExpression = turbineProperties
 				.getClusterNameExpression();
 		if (clusterNameExpression == null) {
@@ -74,6 +92,8 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 		}
 		this.clusterNameExpression = parser.parseExpression(clusterNameExpression);
 		this.combineHostPort = turbineProperties.isCombineHostPort();
+		// initialized eagerly, as the context is shared by the fetching threads
+		this.evaluationContext.getPropertyAccessors();
 	}
 
 	protected Expression getClusterNameExpression() {
@@ -89,7 +109,9 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 	}
 
 	/**
-	 * Method that queries DiscoveryClient for a list of configured application names
+	 * Method that queries DiscoveryClient for a list of configured application names.
+	 * The instances of the applications are fetched in parallel, by
+	 * {@code turbine.discovery-threads} threads.
 	 * @return Collection<Instance>
 	 */
 	@Override
@@ -100,26 +122,90 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 			log.info("No apps configured, returning an empty instance list");
 			return instances;
 		}
-		log.info("Fetching instance list for apps: " + appNames);
+		log.debug("Fetching instance list for apps: " + appNames);
+		List<CompletableFuture<List<Instance>>> fetches = new ArrayList<>();
 		for (String appName : appNames) {
-			try {
-				instances.addAll(getInstancesForApp(appName));
+			fetches.add(CompletableFuture.supplyAsync(
+					() -> getInstancesForAppWithRetry(appName), getExecutor()));
+		}
+		Map<String, List<Instance>> previousInstances = this.previousInstances;
+		Map<String, List<Instance>> currentInstances = new HashMap<>();
+		for (int i = 0; i < appNames.size(); i++) {
+			String appName = appNames.get(i);
+			List<Instance> appInstances = fetches.get(i).join();
+			List<Instance> previous = previousInstances.get(appName);
+			if (isSame(appInstances, previous)) {
+				// unchanged since the previous poll
+				appInstances = previous;
 			}
-			catch (Exception ex) {
-				log.error("Failed to fetch instances for app: " + appName
-						+ ", retrying once more", ex);
-				try {
-					instances.addAll(getInstancesForApp(appName));
-				}
-				catch (Exception retryException) {
-					log.error("Failed again to fetch instances for app: " + appName
-							+ ", giving up", ex);
-				}
+			else {
+				log.info("Instances of app " + appName + " changed, size="
+						+ appInstances.size());
 			}
+			currentInstances.put(appName, appInstances);
+			instances.addAll(appInstances);
 		}
+		this.previousInstances = currentInstances;
 		return instances;
 	}
 
+	/**
+	 * @return whether the instances are equal, including their attributes, which are
+	 * ignored by {@link Instance#equals(Object)}
+	 */
+	private static boolean isSame(List<Instance> instances, List<Instance> previous) {
+		if (previous == null || instances.size() != previous.size()) {
+			return false;
+		}
+		for (int i = 0; i < instances.size(); i++) {
+			Instance instance = instances.get(i);
+			Instance previousInstance = previous.get(i);
+			if (!instance.equals(previousInstance) || !instance.getAttributes()
+					.equals(previousInstance.getAttributes())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private List<Instance> getInstancesForAppWithRetry(String appName) {
+		try {
+			return getInstancesForApp(appName);
+		}
+		catch (Exception ex) {
+			log.error("Failed to fetch instances for app: " + appName
+					+ ", retrying once more", ex);
+			try {
+				return getInstancesForApp(appName);
+			}
+			catch (Exception retryException) {
+				log.error("Failed again to fetch instances for app: " + appName
+						+ ", giving up", ex);
+				return Collections.emptyList();
+			}
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (this.executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+					"turbine-discovery-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newFixedThreadPool(
+					Math.max(1, this.turbineProperties.getDiscoveryThreads()),
+					threadFactory);
+		}
+		return this.executor;
+	}
+
+	@Override
+	public synchronized void destroy() {
+		if (this.executor != null) {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+	}
+
 	protected List<String> getApplications() {
 		return turbineProperties.getAppConfigList();
 	}
@@ -132,14 +218,14 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 	 */
 	protected List<Instance> getInstancesForApp(String serviceId) throws Exception {
 		List<Instance> instances = new ArrayList<>();
-		log.info("Fetching instances for app: " + serviceId);
+		log.debug("Fetching instances for app: " + serviceId);
 		List<ServiceInstance> serviceInstances = discoveryClient.getInstances(serviceId);
 		if (serviceInstances == null || serviceInstances.isEmpty()) {
 			log.warn("DiscoveryClient returned null or empty for service: " + serviceId);
 			return instances;
 		}
 		try {
-			log.info("Received instance list for service: " + serviceId + ", size="
+			log.debug("Received instance list for service: " + serviceId + ", size="
 					+ serviceInstances.size());
 			for (ServiceInstance serviceInstance : serviceInstances) {
 				Instance instance = marshall(serviceInstance);
@@ -209,8 +295,7 @@ public class CommonsInstanceDiscovery implements InstanceDiscovery {
 	 * implementation can be plugged in by overriding this method.
 	 */
 	protected String getClusterName(Object object) {
-		StandardEvaluationContext context = new StandardEvaluationContext(object);
-		Object value = this.clusterNameExpression.getValue(context);
+		Object value = this.clusterNameExpression.getValue(this.evaluationContext, object);
 		if (value != null) {
 			return value.toString();
 		}
@@ -17,8 +17,12 @@
 package org.springframework.cloud.netflix.turbine;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.netflix.appinfo.AmazonInfo;
 import com.netflix.appinfo.DataCenterInfo;
@@ -52,6 +56,11 @@ public class EurekaInstanceDiscovery extends CommonsInstanceDiscovery {
 
 	private final EurekaClient eurekaClient;
 
+	/**
+	 * The instances marshalled by the previous poll, per application and instance id.
+	 */
+	private final Map<String, Map<String, MarshalledInstance>> marshalled = new ConcurrentHashMap<>();
+
 
 	public EurekaInstanceDiscovery(TurbineProperties turbineProperties, EurekaClient eurekaClient) {
 		super(turbineProperties, EUREKA_DEFAULT_CLUSTER_NAME_EXPRESSION);
@@ -67,7 +76,7 @@ public class EurekaInstanceDiscovery extends CommonsInstanceDiscovery {
 	@Override
 	protected List<Instance> getInstancesForApp(String serviceId) throws Exception {
 		List<Instance> instances = new ArrayList<>();
-		log.info("Fetching instances for app: " + serviceId);
+		log.debug("Fetching instances for app: " + serviceId);
 		Application app = eurekaClient.getApplication(serviceId);
 		if (app == null) {
 			log.warn("Eureka returned null for app: " + serviceId);
@@ -76,14 +85,22 @@ public class EurekaInstanceDiscovery extends CommonsInstanceDiscovery {
 		try {
 			List<InstanceInfo> instancesForApp = app.getInstances();
 			if (instancesForApp != null) {
-				log.info("Received instance list for app: " + serviceId + ", size="
+				log.debug("Received instance list for app: " + serviceId + ", size="
 						+ instancesForApp.size());
+				Map<String, MarshalledInstance> previous = this.marshalled
+						.getOrDefault(serviceId, Collections.emptyMap());
+				Map<String, MarshalledInstance> current = new HashMap<>();
 				for (InstanceInfo iInfo : instancesForApp) {
-					Instance instance = marshall(iInfo);
-					if (instance != null) {
-						instances.add(instance);
+					MarshalledInstance marshalledInstance = previous.get(iInfo.getId());
+					if (marshalledInstance == null || !marshalledInstance.isOf(iInfo)) {
+						marshalledInstance = new MarshalledInstance(iInfo, marshall(iInfo));
+					}
+					current.put(iInfo.getId(), marshalledInstance);
+					if (marshalledInstance.instance != null) {
+						instances.add(marshalledInstance.instance);
 					}
 				}
+				this.marshalled.put(serviceId, current);
 			}
 		}
 		catch (Exception e) {
@@ -143,5 +160,35 @@ public class EurekaInstanceDiscovery extends CommonsInstanceDiscovery {
 		return status == InstanceStatus.UP;
 	}
 
+	/**
+	 * An instance marshalled from a version of an {@link InstanceInfo}, which is reused
+	 * until the {@link InstanceInfo} changes.
+	 */
+	private static class MarshalledInstance {
+
+		private final Long lastDirtyTimestamp;
+
+		private final long lastUpdatedTimestamp;
+
+		private final InstanceStatus status;
+
+		private final Instance instance;
+
+		MarshalledInstance(InstanceInfo instanceInfo, Instance instance) {
+			this.lastDirtyTimestamp = instanceInfo.getLastDirtyTimestamp();
+			this.lastUpdatedTimestamp = instanceInfo.getLastUpdatedTimestamp();
+			this.status = instanceInfo.getStatus();
+			this.instance = instance;
+		}
+
+		boolean isOf(InstanceInfo instanceInfo) {
+			return Objects.equals(this.lastDirtyTimestamp,
+					instanceInfo.getLastDirtyTimestamp())
+					&& this.lastUpdatedTimestamp == instanceInfo.getLastUpdatedTimestamp()
+					&& this.status == instanceInfo.getStatus();
+		}
+
+	}
+
 
 }
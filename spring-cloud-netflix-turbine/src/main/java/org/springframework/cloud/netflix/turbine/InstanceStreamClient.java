@@ -0,0 +1,626 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Collects the Hystrix streams of many instances with non-blocking connections
+ * multiplexed on a single thread, instead of a connection and a thread per instance.
+ * Only http streams are supported.
+ *
+ * The {@code data} of the events read from an instance at once are passed to its
+ * listener together, on the thread of the client, which must not block. The host names
+ * of the instances are resolved on a few other threads, as a lookup blocks. A connection
+ * that fails, or that does not receive anything for a while, is reopened after a delay
+ * that grows with every consecutive failure. The health of every connection is
+ * available from {@link #getStatistics()}.
+ */
+public class InstanceStreamClient implements Closeable {
+
+	private static final Log log = LogFactory.getLog(InstanceStreamClient.class);
+
+	private static final long CONNECT_TIMEOUT = 5000;
+
+	/**
+	 * The time after which a stream that did not receive anything, not even a ping, is
+	 * considered lost.
+	 */
+	private static final long READ_TIMEOUT = 10000;
+
+	private static final long MIN_RECONNECT_DELAY = 1000;
+
+	private static final long MAX_RECONNECT_DELAY = 30000;
+
+	private static final int MAX_LINE_LENGTH = 1024 * 1024;
+
+	private static final int RESOLVER_THREADS = 4;
+
+	private final Selector selector;
+
+	/**
+	 * Resolves the addresses of the instances, off the thread of the client.
+	 */
+	private final ExecutorService resolver;
+
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The buffer all the connections are read into, on the thread of the client.
+	 */
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+	private volatile boolean running = true;
+
+	public InstanceStreamClient() {
+		try {
+			this.selector = Selector.open();
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Cannot open a selector", ex);
+		}
+		ThreadPoolExecutor resolver = new ThreadPoolExecutor(RESOLVER_THREADS,
+				RESOLVER_THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "turbine-instance-resolver");
+					thread.setDaemon(true);
+					return thread;
+				});
+		resolver.allowCoreThreadTimeOut(true);
+		this.resolver = resolver;
+		Thread thread = new Thread(this::run, "turbine-instance-streams");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Opens a connection to the stream of an instance, reopening it until it is closed.
+	 * @param url the http URL of the stream
+	 * @param listener receives the data of the events of the stream
+	 * @return the connection
+	 * @throws IllegalArgumentException if the URL is not an http URL
+	 */
+	public Connection connect(String url, Consumer<List<String>> listener) {
+		URI uri = URI.create(url);
+		if (!"http".equalsIgnoreCase(uri.getScheme())) {
+			throw new IllegalArgumentException(
+					"Only http streams can be collected without blocking: " + url);
+		}
+		Connection connection = new Connection(uri, listener);
+		this.connections.add(connection);
+		execute(connection::open);
+		return connection;
+	}
+
+	/**
+	 * @return the state, the numbers of connections, failures, events and bytes, the
+	 * time of the last event and the last error of every connection
+	 */
+	public List<Map<String, Object>> getStatistics() {
+		List<Map<String, Object>> statistics = new ArrayList<>();
+		for (Connection connection : this.connections) {
+			statistics.add(connection.getStatistics());
+		}
+		return statistics;
+	}
+
+	@Override
+	public void close() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+
+	private void execute(Runnable task) {
+		this.tasks.add(task);
+		this.selector.wakeup();
+	}
+
+	private void run() {
+		long lastCheck = 0;
+		while (this.running) {
+			try {
+				this.selector.select(1000);
+				Runnable task;
+				while ((task = this.tasks.poll()) != null) {
+					task.run();
+				}
+				for (Iterator<SelectionKey> keys = this.selector.selectedKeys()
+						.iterator(); keys.hasNext();) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isValid()) {
+						((Connection) key.attachment()).ready(key);
+					}
+				}
+				long now = System.currentTimeMillis();
+				if (now - lastCheck >= 1000) {
+					lastCheck = now;
+					for (Connection connection : this.connections) {
+						connection.check(now);
+					}
+				}
+			}
+			catch (Exception ex) {
+				log.error("Error collecting the instance streams", ex);
+			}
+		}
+		for (Connection connection : this.connections) {
+			connection.disconnect();
+		}
+		this.connections.clear();
+		this.resolver.shutdownNow();
+		try {
+			this.selector.close();
+		}
+		catch (IOException ex) {
+			// ignore errors on close
+		}
+	}
+
+	/**
+	 * The state of a connection.
+	 */
+	public enum State {
+
+		/**
+		 * Opening the connection, until the headers of the response are received.
+		 */
+		CONNECTING,
+
+		/**
+		 * Receiving the stream.
+		 */
+		CONNECTED,
+
+		/**
+		 * Waiting to reopen the connection after a failure.
+		 */
+		RECONNECTING,
+
+		/**
+		 * Closed for good.
+		 */
+		CLOSED
+
+	}
+
+	/**
+	 * A connection to the stream of an instance. Its I/O happens on the thread of the
+	 * client, its statistics can be read from any thread.
+	 */
+	public final class Connection {
+
+		private final URI uri;
+
+		private final byte[] request;
+
+		private final Consumer<List<String>> listener;
+
+		private final ResponseDecoder decoder = new ResponseDecoder();
+
+		private SocketChannel channel;
+
+		private ByteBuffer output;
+
+		private long deadline;
+
+		private long reconnectDelay = MIN_RECONNECT_DELAY;
+
+		/**
+		 * Incremented by every attempt to open the connection, so that the address
+		 * resolved for an attempt that timed out meanwhile is ignored.
+		 */
+		private int attempt;
+
+		private volatile State state = State.CONNECTING;
+
+		private volatile boolean closed;
+
+		private volatile long connects;
+
+		private volatile long failures;
+
+		private volatile long events;
+
+		private volatile long bytes;
+
+		private volatile long lastEvent;
+
+		private volatile String lastError;
+
+		private Connection(URI uri, Consumer<List<String>> listener) {
+			this.uri = uri;
+			this.listener = listener;
+			String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/"
+					: uri.getRawPath();
+			if (uri.getRawQuery() != null) {
+				path += "?" + uri.getRawQuery();
+			}
+			// not the authority, which would include the user info
+			String host = uri.getPort() < 0 || uri.getPort() == 80 ? uri.getHost()
+					: uri.getHost() + ":" + uri.getPort();
+			this.request = ("GET " + path + " HTTP/1.1\r\n" + "Host: " + host + "\r\n"
+					+ "Accept: text/event-stream\r\n" + "\r\n")
+							.getBytes(StandardCharsets.ISO_8859_1);
+		}
+
+		public State getState() {
+			return this.state;
+		}
+
+		/**
+		 * Closes the connection for good.
+		 */
+		public void close() {
+			this.closed = true;
+			InstanceStreamClient.this.connections.remove(this);
+			execute(() -> {
+				disconnect();
+				this.state = State.CLOSED;
+			});
+		}
+
+		Map<String, Object> getStatistics() {
+			Map<String, Object> statistics = new LinkedHashMap<>();
+			statistics.put("url", this.uri.toString());
+			statistics.put("state", this.state);
+			statistics.put("connects", this.connects);
+			statistics.put("failures", this.failures);
+			statistics.put("events", this.events);
+			statistics.put("bytes", this.bytes);
+			statistics.put("lastEvent", this.lastEvent);
+			statistics.put("lastError", this.lastError);
+			return statistics;
+		}
+
+		private void open() {
+			if (this.closed) {
+				return;
+			}
+			this.state = State.CONNECTING;
+			this.deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+			int attempt = ++this.attempt;
+			String host = this.uri.getHost();
+			int port = this.uri.getPort() < 0 ? 80 : this.uri.getPort();
+			try {
+				InstanceStreamClient.this.resolver.execute(() -> {
+					InetSocketAddress address = new InetSocketAddress(host, port);
+					execute(() -> open(attempt, address));
+				});
+			}
+			catch (RejectedExecutionException ex) {
+				// the client is closed
+			}
+		}
+
+		private void open(int attempt, InetSocketAddress address) {
+			if (this.closed || attempt != this.attempt
+					|| this.state != State.CONNECTING) {
+				return;
+			}
+			try {
+				this.decoder.reset();
+				this.output = ByteBuffer.wrap(this.request);
+				this.channel = SocketChannel.open();
+				this.channel.configureBlocking(false);
+				if (this.channel.connect(address)) {
+					this.channel.register(InstanceStreamClient.this.selector,
+							SelectionKey.OP_WRITE, this);
+				}
+				else {
+					this.channel.register(InstanceStreamClient.this.selector,
+							SelectionKey.OP_CONNECT, this);
+				}
+			}
+			catch (IOException | UnresolvedAddressException ex) {
+				failed(ex);
+			}
+		}
+
+		private void ready(SelectionKey key) {
+			try {
+				if (key.isConnectable()) {
+					this.channel.finishConnect();
+					key.interestOps(SelectionKey.OP_WRITE);
+				}
+				else if (key.isWritable()) {
+					this.channel.write(this.output);
+					if (!this.output.hasRemaining()) {
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				}
+				else if (key.isReadable()) {
+					read();
+				}
+			}
+			catch (IOException | RuntimeException ex) {
+				failed(ex);
+			}
+		}
+
+		private void read() throws IOException {
+			ByteBuffer buffer = InstanceStreamClient.this.buffer;
+			buffer.clear();
+			int read = this.channel.read(buffer);
+			if (read < 0) {
+				throw new EOFException("Stream closed by the instance");
+			}
+			long now = System.currentTimeMillis();
+			this.bytes += read;
+			this.deadline = now + READ_TIMEOUT;
+			buffer.flip();
+			List<String> data = this.decoder.decode(buffer);
+			if (this.state == State.CONNECTING && this.decoder.isConnected()) {
+				this.state = State.CONNECTED;
+				this.connects++;
+				this.reconnectDelay = MIN_RECONNECT_DELAY;
+			}
+			if (!data.isEmpty()) {
+				this.events += data.size();
+				this.lastEvent = now;
+				try {
+					this.listener.accept(data);
+				}
+				catch (RuntimeException ex) {
+					log.error("Error handling the stream of " + this.uri, ex);
+				}
+			}
+		}
+
+		private void check(long now) {
+			if (this.closed) {
+				return;
+			}
+			if (this.state == State.RECONNECTING) {
+				if (now >= this.deadline) {
+					open();
+				}
+			}
+			else if (now > this.deadline) {
+				failed(new SocketTimeoutException(this.state == State.CONNECTED
+						? "No data received for " + READ_TIMEOUT + "ms"
+						: "Not connected within " + CONNECT_TIMEOUT + "ms"));
+			}
+		}
+
+		private void failed(Exception ex) {
+			disconnect();
+			this.failures++;
+			this.lastError = ex.toString();
+			if (this.closed) {
+				return;
+			}
+			if (this.state == State.CONNECTED) {
+				log.warn("Lost the stream of " + this.uri + ": " + ex);
+			}
+			else if (log.isDebugEnabled()) {
+				log.debug("Failed to connect to " + this.uri + ": " + ex);
+			}
+			this.state = State.RECONNECTING;
+			this.deadline = System.currentTimeMillis() + this.reconnectDelay;
+			this.reconnectDelay = Math.min(MAX_RECONNECT_DELAY, this.reconnectDelay * 2);
+		}
+
+		private void disconnect() {
+			if (this.channel != null) {
+				try {
+					// also cancels its key
+					this.channel.close();
+				}
+				catch (IOException ex) {
+					// ignore errors on close
+				}
+				this.channel = null;
+			}
+		}
+
+	}
+
+	/**
+	 * Decodes the response of a stream, chunked or not, into the data of its events.
+	 */
+	static class ResponseDecoder {
+
+		private static final int CHUNK_SIZE = 0;
+
+		private static final int CHUNK_EXTENSION = 1;
+
+		private static final int CHUNK_DATA = 2;
+
+		private static final int CHUNK_END = 3;
+
+		private byte[] line = new byte[256];
+
+		private int length;
+
+		private boolean statusRead;
+
+		private boolean headersRead;
+
+		private boolean chunked;
+
+		private int chunkState;
+
+		private long chunkRemaining;
+
+		void reset() {
+			this.length = 0;
+			this.statusRead = false;
+			this.headersRead = false;
+			this.chunked = false;
+			this.chunkState = CHUNK_SIZE;
+			this.chunkRemaining = 0;
+		}
+
+		/**
+		 * @return true once the headers of a successful response were read
+		 */
+		boolean isConnected() {
+			return this.headersRead;
+		}
+
+		/**
+		 * @return the data of the events that were completed by the buffer
+		 * @throws IOException if the response is not successful or ends
+		 */
+		List<String> decode(ByteBuffer buffer) throws IOException {
+			List<String> data = Collections.emptyList();
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get();
+				if (!this.headersRead) {
+					header(b);
+				}
+				else if (!this.chunked) {
+					data = body(b, data);
+				}
+				else {
+					data = chunk(b, data);
+				}
+			}
+			return data;
+		}
+
+		private void header(byte b) throws IOException {
+			if (b != '\n') {
+				append(b);
+				return;
+			}
+			String line = line();
+			if (!this.statusRead) {
+				this.statusRead = true;
+				String[] status = line.split(" ");
+				if (status.length < 2 || !"200".equals(status[1])) {
+					throw new IOException("Unexpected response: " + line);
+				}
+			}
+			else if (line.isEmpty()) {
+				this.headersRead = true;
+			}
+			else {
+				String header = line.toLowerCase(Locale.ENGLISH);
+				if (header.startsWith("transfer-encoding:")
+						&& header.contains("chunked")) {
+					this.chunked = true;
+				}
+			}
+		}
+
+		private List<String> chunk(byte b, List<String> data) throws IOException {
+			switch (this.chunkState) {
+			case CHUNK_DATA:
+				data = body(b, data);
+				if (--this.chunkRemaining == 0) {
+					this.chunkState = CHUNK_END;
+				}
+				break;
+			case CHUNK_END:
+				if (b == '\n') {
+					this.chunkState = CHUNK_SIZE;
+				}
+				break;
+			default:
+				if (b == '\n') {
+					if (this.chunkRemaining == 0) {
+						throw new EOFException("Stream ended by the instance");
+					}
+					this.chunkState = CHUNK_DATA;
+				}
+				else if (b == ';') {
+					this.chunkState = CHUNK_EXTENSION;
+				}
+				else if (this.chunkState == CHUNK_SIZE && b != '\r') {
+					int digit = Character.digit(b, 16);
+					if (digit < 0) {
+						throw new IOException("Invalid chunk size");
+					}
+					this.chunkRemaining = this.chunkRemaining * 16 + digit;
+				}
+			}
+			return data;
+		}
+
+		private List<String> body(byte b, List<String> data) throws IOException {
+			if (b != '\n') {
+				append(b);
+				return data;
+			}
+			String line = line();
+			if (line.startsWith("data:")) {
+				if (data.isEmpty()) {
+					data = new ArrayList<>();
+				}
+				data.add(line.substring(5).trim());
+			}
+			return data;
+		}
+
+		private void append(byte b) throws IOException {
+			if (this.length == this.line.length) {
+				if (this.length >= MAX_LINE_LENGTH) {
+					throw new IOException("Line longer than " + MAX_LINE_LENGTH);
+				}
+				this.line = Arrays.copyOf(this.line, this.length * 2);
+			}
+			this.line[this.length++] = b;
+		}
+
+		private String line() {
+			int length = this.length;
+			if (length > 0 && this.line[length - 1] == '\r') {
+				length--;
+			}
+			this.length = 0;
+			return new String(this.line, 0, length, StandardCharsets.UTF_8);
+		}
+
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.netflix.turbine.data.DataFromSingleInstance;
+import com.netflix.turbine.discovery.Instance;
+import com.netflix.turbine.handler.TurbineDataDispatcher;
+import com.netflix.turbine.monitor.TurbineDataMonitor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Monitors the Hystrix stream of an instance through the non-blocking connections of an
+ * {@link InstanceStreamClient}, instead of the connection and thread of a Turbine
+ * {@code InstanceMonitor}. The metrics read at once are dispatched together.
+ */
+class NonBlockingInstanceMonitor extends TurbineDataMonitor<DataFromSingleInstance> {
+
+	private static final Log log = LogFactory.getLog(NonBlockingInstanceMonitor.class);
+
+	private static final ObjectReader reader = new ObjectMapper().readerFor(Map.class);
+
+	private final String name;
+
+	private final Instance host;
+
+	private final String url;
+
+	private final TurbineDataDispatcher<DataFromSingleInstance> dispatcher;
+
+	private final InstanceStreamClient client;
+
+	private volatile InstanceStreamClient.Connection connection;
+
+	NonBlockingInstanceMonitor(String name, Instance host, String url,
+			TurbineDataDispatcher<DataFromSingleInstance> dispatcher,
+			InstanceStreamClient client) {
+		this.name = name;
+		this.host = host;
+		this.url = url;
+		this.dispatcher = dispatcher;
+		this.client = client;
+	}
+
+	@Override
+	public String getName() {
+		return this.name;
+	}
+
+	@Override
+	public Instance getStatsInstance() {
+		return this.host;
+	}
+
+	@Override
+	public TurbineDataDispatcher<DataFromSingleInstance> getDispatcher() {
+		return this.dispatcher;
+	}
+
+	@Override
+	public synchronized void startMonitor() {
+		if (this.connection == null) {
+			this.connection = this.client.connect(this.url, this::receive);
+		}
+	}
+
+	@Override
+	public synchronized void stopMonitor() {
+		if (this.connection != null) {
+			this.connection.close();
+			this.connection = null;
+		}
+	}
+
+	private void receive(List<String> events) {
+		List<DataFromSingleInstance> metrics = new ArrayList<>(events.size());
+		long now = System.currentTimeMillis();
+		for (String event : events) {
+			DataFromSingleInstance data = read(event, now);
+			if (data != null) {
+				metrics.add(data);
+			}
+		}
+		if (!metrics.isEmpty()) {
+			this.dispatcher.pushData(this.host, metrics);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private DataFromSingleInstance read(String event, long now) {
+		Map<String, Object> json;
+		try {
+			json = reader.readValue(event);
+		}
+		catch (IOException ex) {
+			log.warn("Ignoring invalid metrics from " + this.url + ": " + event);
+			return null;
+		}
+		Object type = json.remove("type");
+		Object name = json.remove("name");
+		if (type == null || name == null) {
+			return null;
+		}
+		HashMap<String, Long> numbers = new HashMap<>();
+		HashMap<String, String> strings = new HashMap<>();
+		HashMap<String, Map<String, ? extends Number>> maps = new HashMap<>();
+		for (Map.Entry<String, Object> entry : json.entrySet()) {
+			Object value = entry.getValue();
+			if (value instanceof Map) {
+				maps.put(entry.getKey(), (Map<String, ? extends Number>) value);
+			}
+			else if (value instanceof Integer || value instanceof Long) {
+				numbers.put(entry.getKey(), ((Number) value).longValue());
+			}
+			else if (value != null) {
+				strings.put(entry.getKey(), value.toString());
+			}
+		}
+		return new DataFromSingleInstance(this, type.toString(), name.toString(),
+				this.host, numbers, strings, maps, now);
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.netflix.turbine;
+
+import com.netflix.turbine.data.DataFromSingleInstance;
+import com.netflix.turbine.discovery.Instance;
+import com.netflix.turbine.monitor.MonitorConsole;
+import com.netflix.turbine.monitor.TurbineDataMonitor;
+import com.netflix.turbine.monitor.instance.InstanceUrlClosure;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The console of the instance monitors of a cluster, which registers a
+ * {@link NonBlockingInstanceMonitor} in place of every Turbine {@code InstanceMonitor}
+ * created by the cluster monitor for an instance with an http stream. The https streams
+ * are still monitored by Turbine.
+ */
+class NonBlockingMonitorConsole extends MonitorConsole<DataFromSingleInstance> {
+
+	private static final Log log = LogFactory.getLog(NonBlockingMonitorConsole.class);
+
+	private final InstanceStreamClient client;
+
+	private final InstanceUrlClosure urlClosure;
+
+	NonBlockingMonitorConsole(InstanceStreamClient client,
+			InstanceUrlClosure urlClosure) {
+		this.client = client;
+		this.urlClosure = urlClosure;
+	}
+
+	@Override
+	public TurbineDataMonitor<DataFromSingleInstance> findOrRegisterMonitor(
+			TurbineDataMonitor<DataFromSingleInstance> monitor) {
+		TurbineDataMonitor<DataFromSingleInstance> existing = findMonitor(
+				monitor.getName());
+		if (existing != null || monitor instanceof NonBlockingInstanceMonitor) {
+			return super.findOrRegisterMonitor(monitor);
+		}
+		Instance host = monitor.getStatsInstance();
+		String url = this.urlClosure.getUrlPath(host);
+		if (url.startsWith("http:")) {
+			monitor = new NonBlockingInstanceMonitor(monitor.getName(), host, url,
+					monitor.getDispatcher(), this.client);
+		}
+		else if (log.isDebugEnabled()) {
+			log.debug("Monitoring " + url + " with a blocking connection");
+		}
+		return super.findOrRegisterMonitor(monitor);
+	}
+
+}
@@ -41,8 +41,20 @@ public class SpringAggregatorFactory implements ClusterMonitorFactory<AggDataFro
 
 	private final TurbineClustersProvider clustersProvider;
 
+	private final InstanceStreamClient instanceStreamClient;
+
 	public SpringAggregatorFactory(TurbineClustersProvider clustersProvider) {
+		this(clustersProvider, null);
+	}
+
+	/**
+	 * @param instanceStreamClient the client monitoring the instances without blocking,
+	 * or null to monitor them with a connection and a thread per instance
+	 */
+	public SpringAggregatorFactory(TurbineClustersProvider clustersProvider,
+			InstanceStreamClient instanceStreamClient) {
 		this.clustersProvider = clustersProvider;
+		this.instanceStreamClient = instanceStreamClient;
 	}
 
 	/**
@@ -58,12 +70,20 @@ public class SpringAggregatorFactory implements ClusterMonitorFactory<AggDataFro
 
 	public static TurbineDataMonitor<AggDataFromCluster> findOrRegisterAggregateMonitor(
 			String clusterName) {
+		return findOrRegisterAggregateMonitor(clusterName, null);
+	}
+
+	public static TurbineDataMonitor<AggDataFromCluster> findOrRegisterAggregateMonitor(
+			String clusterName, InstanceStreamClient instanceStreamClient) {
 		TurbineDataMonitor<AggDataFromCluster> clusterMonitor = AggregatorClusterMonitorConsole
 				.findMonitor(clusterName + "_agg");
 		if (clusterMonitor == null) {
 			log.info("Could not find monitors: "
 					+ AggregatorClusterMonitorConsole.toString());
-			clusterMonitor = new SpringClusterMonitor(clusterName + "_agg", clusterName);
+			clusterMonitor = instanceStreamClient == null
+					? new SpringClusterMonitor(clusterName + "_agg", clusterName)
+					: new SpringClusterMonitor(clusterName + "_agg", clusterName,
+							instanceStreamClient);
 			clusterMonitor = AggregatorClusterMonitorConsole
 					.findOrRegisterMonitor(clusterMonitor);
 		}
@@ -73,7 +93,8 @@ public class SpringAggregatorFactory implements ClusterMonitorFactory<AggDataFro
 	@Override
 	public void initClusterMonitors() {
 		for (String clusterName : clustersProvider.getClusterNames()) {
-			ClusterMonitor<AggDataFromCluster> clusterMonitor = (ClusterMonitor<AggDataFromCluster>) findOrRegisterAggregateMonitor(clusterName);
+			ClusterMonitor<AggDataFromCluster> clusterMonitor = (ClusterMonitor<AggDataFromCluster>) findOrRegisterAggregateMonitor(
+					clusterName, this.instanceStreamClient);
 			clusterMonitor.registerListenertoClusterMonitor(this.StaticListener);
 			try {
 				clusterMonitor.startMonitor();
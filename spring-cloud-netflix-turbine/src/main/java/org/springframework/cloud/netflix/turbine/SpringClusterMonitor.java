@@ -16,6 +16,9 @@
 
 package org.springframework.cloud.netflix.turbine;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.netflix.config.DynamicBooleanProperty;
 import com.netflix.config.DynamicPropertyFactory;
 import com.netflix.config.DynamicStringProperty;
@@ -35,9 +38,24 @@ public class SpringClusterMonitor extends AggregateClusterMonitor {
 	// TODO: convert to ConfigurationProperties (how to do per-cluster configuration?
 
 	public SpringClusterMonitor(String name, String clusterName) {
+		this(name, clusterName, new MonitorConsole<DataFromSingleInstance>());
+	}
+
+	/**
+	 * Creates a cluster monitor whose instances are monitored with the non-blocking
+	 * connections of the given client.
+	 */
+	public SpringClusterMonitor(String name, String clusterName,
+			InstanceStreamClient client) {
+		this(name, clusterName, new NonBlockingMonitorConsole(client,
+				SpringClusterMonitor.ClusterConfigBasedUrlClosure));
+	}
+
+	private SpringClusterMonitor(String name, String clusterName,
+			MonitorConsole<DataFromSingleInstance> instanceConsole) {
 		super(name, new ObservationCriteria.ClusterBasedObservationCriteria(clusterName),
 				new PerformanceCriteria.AggClusterPerformanceCriteria(clusterName),
-				new MonitorConsole<DataFromSingleInstance>(), InstanceMonitorDispatcher,
+				instanceConsole, InstanceMonitorDispatcher,
 				SpringClusterMonitor.ClusterConfigBasedUrlClosure);
 	}
 
@@ -55,6 +73,9 @@ public class SpringClusterMonitor extends AggregateClusterMonitor {
 		private final DynamicBooleanProperty instanceInsertPort = DynamicPropertyFactory
 				.getInstance().getBooleanProperty("turbine.instanceInsertPort", true);
 
+		// the per-cluster properties are looked up once per cluster, not per host
+		private final Map<String, ClusterUrlProperties> clusterProperties = new ConcurrentHashMap<>();
+
 		@Override
 		public String getUrlPath(Instance host) {
 			if (host.getCluster() == null) {
@@ -62,10 +83,11 @@ public class SpringClusterMonitor extends AggregateClusterMonitor {
 						"Host must have cluster name in order to use ClusterConfigBasedUrlClosure");
 			}
 
+			ClusterUrlProperties clusterProperties = this.clusterProperties
+					.computeIfAbsent(host.getCluster(), ClusterUrlProperties::new);
+
 			// find url
-			String key = "turbine.instanceUrlSuffix." + host.getCluster();
-			DynamicStringProperty urlClosureConfig = DynamicPropertyFactory.getInstance()
-					.getStringProperty(key, null);
+			DynamicStringProperty urlClosureConfig = clusterProperties.instanceUrlSuffix;
 			String url = urlClosureConfig.get();
 			if (url == null) {
 				url = this.defaultUrlClosureConfig.get();
@@ -92,9 +114,7 @@ public class SpringClusterMonitor extends AggregateClusterMonitor {
 			}
 
 			// determine if to insert port
-			String insertPortKey = "turbine.instanceInsertPort." + host.getCluster();
-			DynamicStringProperty insertPortProp = DynamicPropertyFactory.getInstance()
-					.getStringProperty(insertPortKey, null);
+			DynamicStringProperty insertPortProp = clusterProperties.instanceInsertPort;
 			boolean insertPort;
 			if (insertPortProp.get() == null) {
 				insertPort = this.instanceInsertPort.get();
@@ -121,4 +141,22 @@ public class SpringClusterMonitor extends AggregateClusterMonitor {
 		}
 	};
 
+	/**
+	 * The dynamic properties of the URLs of the instances of a cluster.
+	 */
+	private static class ClusterUrlProperties {
+
+		private final DynamicStringProperty instanceUrlSuffix;
+
+		private final DynamicStringProperty instanceInsertPort;
+
+		ClusterUrlProperties(String cluster) {
+			this.instanceUrlSuffix = DynamicPropertyFactory.getInstance()
+					.getStringProperty("turbine.instanceUrlSuffix." + cluster, null);
+			this.instanceInsertPort = DynamicPropertyFactory.getInstance()
+					.getStringProperty("turbine.instanceInsertPort." + cluster, null);
+		}
+
+	}
+
 }
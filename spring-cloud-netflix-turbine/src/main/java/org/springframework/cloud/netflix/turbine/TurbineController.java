@@ -6,14 +6,25 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 public class TurbineController {
 
 	private final TurbineInformationService turbineInformationService;
 
+	private final InstanceStreamClient instanceStreamClient;
+
 	public TurbineController(TurbineInformationService turbineInformationService) {
+		this(turbineInformationService, null);
+	}
+
+	public TurbineController(TurbineInformationService turbineInformationService,
+			InstanceStreamClient instanceStreamClient) {
 		this.turbineInformationService = turbineInformationService;
+		this.instanceStreamClient = instanceStreamClient;
 	}
 
 	@GetMapping(value = "/clusters", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -21,4 +32,16 @@ public class TurbineController {
 		return turbineInformationService.getClusterInformations(request);
 	}
 
+	/**
+	 * @return the health of the connections to the instances, when they are monitored
+	 * without blocking
+	 */
+	@GetMapping(value = "/clusters/connections", produces = MediaType.APPLICATION_JSON_VALUE)
+	public List<Map<String, Object>> connections() {
+		if (instanceStreamClient == null) {
+			return Collections.emptyList();
+		}
+		return instanceStreamClient.getStatistics();
+	}
+
 }
@@ -17,6 +17,7 @@
 package org.springframework.cloud.netflix.turbine;
 
 import com.netflix.turbine.monitor.cluster.ClusterMonitorFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
@@ -64,8 +65,16 @@ public class TurbineHttpConfiguration {
 
 	@Bean
 	@ConditionalOnProperty(value = "turbine.endpoints.clusters.enabled", matchIfMissing = true)
-	public TurbineController turbineController(TurbineInformationService service) {
-		return new TurbineController(service);
+	public TurbineController turbineController(TurbineInformationService service,
+			ObjectProvider<InstanceStreamClient> instanceStreamClient) {
+		return new TurbineController(service, instanceStreamClient.getIfAvailable());
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	@ConditionalOnProperty("turbine.non-blocking-collection")
+	public InstanceStreamClient instanceStreamClient() {
+		return new InstanceStreamClient();
 	}
 
 	@Bean
@@ -83,8 +92,10 @@ public class TurbineHttpConfiguration {
 
 	@Bean
 	@ConditionalOnMissingBean
-	public ClusterMonitorFactory clusterMonitorFactory(TurbineClustersProvider clustersProvider) {
-		return new SpringAggregatorFactory(clustersProvider);
+	public ClusterMonitorFactory clusterMonitorFactory(TurbineClustersProvider clustersProvider,
+			ObjectProvider<InstanceStreamClient> instanceStreamClient) {
+		return new SpringAggregatorFactory(clustersProvider,
+				instanceStreamClient.getIfAvailable());
 	}
 
 	@Bean
@@ -36,6 +36,18 @@ public class TurbineProperties {
 
 	private boolean combineHostPort = true;
 
+	/**
+	 * Whether to monitor the http streams of all the instances with non-blocking
+	 * connections on a single thread, rather than with a connection and a thread per
+	 * instance.
+	 */
+	private boolean nonBlockingCollection = false;
+
+	/**
+	 * The number of threads fetching the instances of the applications in parallel.
+	 */
+	private int discoveryThreads = 8;
+
 	public List<String> getAppConfigList() {
 		if (!StringUtils.hasText(this.appConfig)) {
 			return null;
@@ -72,6 +84,22 @@ public class TurbineProperties {
 		this.combineHostPort = combineHostPort;
 	}
 
+	public boolean isNonBlockingCollection() {
+		return nonBlockingCollection;
+	}
+
+	public void setNonBlockingCollection(boolean nonBlockingCollection) {
+		this.nonBlockingCollection = nonBlockingCollection;
+	}
+
+	public int getDiscoveryThreads() {
+		return discoveryThreads;
+	}
+
+	public void setDiscoveryThreads(int discoveryThreads) {
+		this.discoveryThreads = discoveryThreads;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -79,12 +107,15 @@ public class TurbineProperties {
 		TurbineProperties that = (TurbineProperties) o;
 		return Objects.equals(clusterNameExpression, that.clusterNameExpression) &&
 				Objects.equals(appConfig, that.appConfig) &&
-				Objects.equals(combineHostPort, that.combineHostPort);
+				Objects.equals(combineHostPort, that.combineHostPort) &&
+				nonBlockingCollection == that.nonBlockingCollection &&
+				discoveryThreads == that.discoveryThreads;
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(clusterNameExpression, appConfig, combineHostPort);
+		return Objects.hash(clusterNameExpression, appConfig, combineHostPort,
+				nonBlockingCollection, discoveryThreads);
 	}
 
 	@Override
@@ -92,7 +123,9 @@ public class TurbineProperties {
 		return new StringBuilder("TurbineProperties{")
 				.append("clusterNameExpression='").append(clusterNameExpression).append("', ")
 				.append("appConfig='").append(appConfig).append("', ")
-				.append("combineHostPort=").append(combineHostPort).append("}")
+				.append("combineHostPort=").append(combineHostPort).append(", ")
+				.append("nonBlockingCollection=").append(nonBlockingCollection).append(", ")
+				.append("discoveryThreads=").append(discoveryThreads).append("}")
 				.toString();
 	}
 
@@ -16,7 +16,9 @@
 
 package org.springframework.cloud.netflix.turbine;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -26,7 +28,10 @@ import org.springframework.cloud.client.discovery.DiscoveryClient;
 import com.netflix.turbine.discovery.Instance;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Spencer Gibb
@@ -155,6 +160,59 @@ public class CommonsInstanceDiscoveryTests {
 		assertEquals("clusterName is wrong", metadataProperty, clusterName);
 	}
 
+	@Test
+	public void testGetInstanceListFetchesAllAppsInOrder() throws Exception {
+		turbineProperties.setAppConfig("app1, app2, app3");
+		when(discoveryClient.getInstances("app1")).thenReturn(Collections
+				.singletonList(new DefaultServiceInstance("app1", "host1", 8080, false)));
+		when(discoveryClient.getInstances("app2"))
+				.thenThrow(new IllegalStateException("unavailable"))
+				.thenReturn(Collections.singletonList(
+						new DefaultServiceInstance("app2", "host2", 8080, false)));
+		when(discoveryClient.getInstances("app3")).thenReturn(Collections
+				.singletonList(new DefaultServiceInstance("app3", "host3", 8080, false)));
+		CommonsInstanceDiscovery discovery = createDiscovery();
+
+		List<Instance> instances = new ArrayList<>(discovery.getInstanceList());
+
+		assertEquals("instances are wrong", 3, instances.size());
+		assertEquals("cluster is wrong", "app1", instances.get(0).getCluster());
+		assertEquals("cluster is wrong", "app2", instances.get(1).getCluster());
+		assertEquals("cluster is wrong", "app3", instances.get(2).getCluster());
+	}
+
+	@Test
+	public void testGetInstanceListKeepsUnchangedInstances() throws Exception {
+		turbineProperties.setAppConfig("app1");
+		when(discoveryClient.getInstances("app1")).thenReturn(Collections
+				.singletonList(new DefaultServiceInstance("app1", "host1", 8080, false)));
+		CommonsInstanceDiscovery discovery = createDiscovery();
+
+		Instance first = discovery.getInstanceList().iterator().next();
+		Instance second = discovery.getInstanceList().iterator().next();
+
+		assertSame("instance is not reused", first, second);
+	}
+
+	@Test
+	public void testGetInstanceListReplacesInstancesWithChangedAttributes()
+			throws Exception {
+		turbineProperties.setAppConfig("app1");
+		when(discoveryClient.getInstances("app1"))
+				.thenReturn(Collections.singletonList(new DefaultServiceInstance("app1",
+						"host1", 8080, false, Collections.singletonMap("zone", "a"))))
+				.thenReturn(Collections.singletonList(new DefaultServiceInstance("app1",
+						"host1", 8080, false, Collections.singletonMap("zone", "b"))));
+		CommonsInstanceDiscovery discovery = createDiscovery();
+
+		Instance first = discovery.getInstanceList().iterator().next();
+		Instance second = discovery.getInstanceList().iterator().next();
+
+		assertNotSame("instance is reused", first, second);
+		assertEquals("zone is wrong", "b", second.getAttributes().get("zone"));
+		discovery.destroy();
+	}
+
 	private CommonsInstanceDiscovery createDiscovery() {
 		return new CommonsInstanceDiscovery(turbineProperties, discoveryClient);
 	}
@@ -21,10 +21,14 @@ import org.junit.Test;
 
 import com.netflix.appinfo.InstanceInfo;
 import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
 import com.netflix.turbine.discovery.Instance;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Spencer Gibb
@@ -184,4 +188,24 @@ public class EurekaInstanceDiscoveryTests {
 		assertEquals("clusterName is wrong", metadataProperty, clusterName);
 	}
 
+	@Test
+	public void testUnchangedInstancesAreNotMarshalledAgain() throws Exception {
+		turbineProperties.setAppConfig("testApp");
+		EurekaInstanceDiscovery discovery = new EurekaInstanceDiscovery(turbineProperties, eurekaClient);
+		InstanceInfo instanceInfo = builder.setAppName("testApp")
+				.setHostName("myhost").setPort(8080).build();
+		Application application = new Application("testApp");
+		application.addInstance(instanceInfo);
+		when(eurekaClient.getApplication("testApp")).thenReturn(application);
+
+		Instance first = discovery.getInstanceList().iterator().next();
+		Instance second = discovery.getInstanceList().iterator().next();
+		assertSame("instance is not reused", first, second);
+
+		instanceInfo.setStatus(InstanceInfo.InstanceStatus.DOWN);
+		Instance third = discovery.getInstanceList().iterator().next();
+		assertNotSame("instance is reused", second, third);
+		assertEquals("status is wrong", false, third.isUp());
+	}
+
 }